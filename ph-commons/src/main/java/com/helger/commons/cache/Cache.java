@@ -18,14 +18,18 @@ package com.helger.commons.cache;
 
 import java.util.function.Function;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
 
 /**
  * The default implementation of {@link ICache} and {@link IMutableCache}. Since
- * v9.3.8 this class is based on {@link MappedCache}.
+ * v9.3.8 this class is based on {@link MappedCache}. Since v11.1.4 all cache
+ * operations can optionally be delegated to a {@link ConcurrentCache}.
  *
  * @author Philip Helger
  * @param <KEYTYPE>
@@ -37,6 +41,14 @@ import com.helger.commons.annotation.Nonempty;
 public class Cache <KEYTYPE, VALUETYPE> extends MappedCache <KEYTYPE, KEYTYPE, VALUETYPE>
 {
   public static final boolean DEFAULT_ALLOW_NULL_VALUES = false;
+  /**
+   * By default the read-write-locked implementation is used
+   *
+   * @since 11.1.4
+   */
+  public static final boolean DEFAULT_USE_CONCURRENT_CACHE = false;
+
+  private final ConcurrentCache <KEYTYPE, VALUETYPE> m_aConcurrentCache;
 
   public Cache (@Nonnull final Function <KEYTYPE, VALUETYPE> aCacheValueProvider, @Nonnull @Nonempty final String sCacheName)
   {
@@ -54,7 +66,122 @@ public class Cache <KEYTYPE, VALUETYPE> extends MappedCache <KEYTYPE, KEYTYPE, V
                 final int nMaxSize,
                 @Nonnull @Nonempty final String sCacheName,
                 final boolean bAllowNullValues)
+  {
+    this (aCacheValueProvider, nMaxSize, sCacheName, bAllowNullValues, DEFAULT_USE_CONCURRENT_CACHE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aCacheValueProvider
+   *        The cache value provider. May not be <code>null</code>.
+   * @param nMaxSize
+   *        The maximum size of the cache. All values &le; 0 indicate an
+   *        unlimited size.
+   * @param sCacheName
+   *        The internal name of the cache. May neither be <code>null</code>
+   *        nor empty.
+   * @param bAllowNullValues
+   *        <code>true</code> to allow <code>null</code> values,
+   *        <code>false</code> to disallow them.
+   * @param bUseConcurrentCache
+   *        <code>true</code> to delegate all cache operations to a
+   *        {@link ConcurrentCache}, <code>false</code> to use the default
+   *        read-write-locked implementation. In the first case the time based
+   *        settings of {@link MappedCache} and
+   *        {@link #putInCache(Object, Object)} have no effect on the cache
+   *        content.
+   * @since 11.1.4
+   */
+  public Cache (@Nonnull final Function <KEYTYPE, VALUETYPE> aCacheValueProvider,
+                final int nMaxSize,
+                @Nonnull @Nonempty final String sCacheName,
+                final boolean bAllowNullValues,
+                final boolean bUseConcurrentCache)
   {
     super (x -> x, aCacheValueProvider, nMaxSize, sCacheName, bAllowNullValues);
+    m_aConcurrentCache = bUseConcurrentCache ? new ConcurrentCache <> (aCacheValueProvider,
+                                                                       nMaxSize,
+                                                                       sCacheName,
+                                                                       bAllowNullValues) : null;
+  }
+
+  /**
+   * @return <code>true</code> if all cache operations are delegated to a
+   *         {@link ConcurrentCache}, <code>false</code> if not.
+   * @since 11.1.4
+   */
+  public final boolean isUseConcurrentCache ()
+  {
+    return m_aConcurrentCache != null;
+  }
+
+  @Override
+  public boolean isInCache (final KEYTYPE aKey)
+  {
+    if (m_aConcurrentCache != null)
+      return m_aConcurrentCache.isInCache (aKey);
+    return super.isInCache (aKey);
+  }
+
+  @Override
+  public VALUETYPE getFromCache (final KEYTYPE aKey)
+  {
+    if (m_aConcurrentCache != null)
+      return m_aConcurrentCache.getFromCache (aKey);
+    return super.getFromCache (aKey);
+  }
+
+  @Override
+  @Nonnull
+  public EChange removeFromCache (final KEYTYPE aKey)
+  {
+    final EChange ret = super.removeFromCache (aKey);
+    if (m_aConcurrentCache != null)
+      return ret.or (m_aConcurrentCache.removeFromCache (aKey));
+    return ret;
+  }
+
+  @Override
+  @Nonnull
+  public EChange clearCache ()
+  {
+    final EChange ret = super.clearCache ();
+    if (m_aConcurrentCache != null)
+      return ret.or (m_aConcurrentCache.clearCache ());
+    return ret;
+  }
+
+  @Override
+  @Nonnegative
+  public int size ()
+  {
+    if (m_aConcurrentCache != null)
+      return m_aConcurrentCache.size ();
+    return super.size ();
+  }
+
+  @Override
+  public boolean isEmpty ()
+  {
+    if (m_aConcurrentCache != null)
+      return m_aConcurrentCache.isEmpty ();
+    return super.isEmpty ();
+  }
+
+  @Override
+  public boolean isNotEmpty ()
+  {
+    if (m_aConcurrentCache != null)
+      return m_aConcurrentCache.isNotEmpty ();
+    return super.isNotEmpty ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .appendIfNotNull ("ConcurrentCache", m_aConcurrentCache)
+                            .getToString ();
   }
 }
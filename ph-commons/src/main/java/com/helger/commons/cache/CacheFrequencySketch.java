@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A probabilistic frequency counter (Count-Min sketch with 4-bit counters) as
+ * used by the TinyLFU admission policy of {@link ConcurrentMappedCache}. The
+ * estimated frequency of an item is at most 15. All counters are periodically
+ * halved ("aging") so that the sketch reflects the recent history only.<br>
+ * Updates are lock-free. Concurrent updates may occasionally get lost, which
+ * is acceptable for an estimation.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+public final class CacheFrequencySketch
+{
+  private static final long [] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNTER = 15;
+
+  private final AtomicLongArray m_aTable;
+  private final int m_nTableMask;
+  private final int m_nSampleSize;
+  private final AtomicInteger m_aAdditions = new AtomicInteger (0);
+
+  /**
+   * Constructor
+   *
+   * @param nMaximumSize
+   *        The maximum number of elements expected to be tracked. Must be &gt;
+   *        0.
+   */
+  public CacheFrequencySketch (@Nonnegative final int nMaximumSize)
+  {
+    ValueEnforcer.isGT0 (nMaximumSize, "MaximumSize");
+    // Each long contains 16 counters
+    final int nTableSize = _ceilingPowerOfTwo (Math.min (Math.max (nMaximumSize, 16), 1 << 30));
+    m_aTable = new AtomicLongArray (nTableSize);
+    m_nTableMask = nTableSize - 1;
+    m_nSampleSize = nMaximumSize > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : nMaximumSize * 10;
+  }
+
+  private static int _ceilingPowerOfTwo (final int n)
+  {
+    // n is in the range 16..2^30
+    return 1 << (32 - Integer.numberOfLeadingZeros (n - 1));
+  }
+
+  private static int _spread (final int nHash)
+  {
+    int x = ((nHash >>> 16) ^ nHash) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private int _indexOf (final int nItemHash, final int nDepth)
+  {
+    long nHash = (nItemHash + SEEDS[nDepth]) * SEEDS[nDepth];
+    nHash += (nHash >>> 32);
+    return ((int) nHash) & m_nTableMask;
+  }
+
+  /**
+   * @return The size of the sample after which all counters are halved.
+   */
+  @Nonnegative
+  public int getSampleSize ()
+  {
+    return m_nSampleSize;
+  }
+
+  /**
+   * Get the estimated number of occurrences of an item, up to the maximum
+   * value of 15.
+   *
+   * @param aItem
+   *        The item to be checked. May not be <code>null</code>.
+   * @return The estimated number of occurrences. Always &ge; 0.
+   */
+  @Nonnegative
+  public int frequency (final Object aItem)
+  {
+    final int nHash = _spread (aItem.hashCode ());
+    final int nStart = (nHash & 3) << 2;
+    int ret = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; ++i)
+    {
+      final int nIndex = _indexOf (nHash, i);
+      final int nCount = (int) ((m_aTable.get (nIndex) >>> ((nStart + i) << 2)) & 0xfL);
+      ret = Math.min (ret, nCount);
+    }
+    return ret;
+  }
+
+  private boolean _incrementAt (final int nIndex, final int nCounter)
+  {
+    final int nOffset = nCounter << 2;
+    final long nMask = 0xfL << nOffset;
+    while (true)
+    {
+      final long nOld = m_aTable.get (nIndex);
+      if ((nOld & nMask) == nMask)
+      {
+        // Counter is saturated
+        return false;
+      }
+      if (m_aTable.compareAndSet (nIndex, nOld, nOld + (1L << nOffset)))
+        return true;
+    }
+  }
+
+  /**
+   * Increment the popularity of the item if it does not exceed the maximum
+   * (15). If the total number of increments reaches the sample size, all
+   * counters are halved.
+   *
+   * @param aItem
+   *        The item to be incremented. May not be <code>null</code>.
+   */
+  public void increment (final Object aItem)
+  {
+    final int nHash = _spread (aItem.hashCode ());
+    final int nStart = (nHash & 3) << 2;
+    boolean bAdded = false;
+    for (int i = 0; i < 4; ++i)
+      bAdded |= _incrementAt (_indexOf (nHash, i), nStart + i);
+
+    if (bAdded && m_aAdditions.incrementAndGet () == m_nSampleSize)
+      _reset ();
+  }
+
+  private void _reset ()
+  {
+    // Halve all counters
+    for (int i = 0; i < m_aTable.length (); ++i)
+    {
+      long nOld;
+      do
+      {
+        nOld = m_aTable.get (i);
+      } while (!m_aTable.compareAndSet (i, nOld, (nOld >>> 1) & RESET_MASK));
+    }
+    m_aAdditions.set (m_nSampleSize / 2);
+  }
+
+  /**
+   * @return The maximum frequency value that can be returned by
+   *         {@link #frequency(Object)}.
+   */
+  public static int getMaxFrequency ()
+  {
+    return MAX_COUNTER;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TableSize", m_aTable.length ())
+                                       .append ("SampleSize", m_nSampleSize)
+                                       .append ("Additions", m_aAdditions.get ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,620 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCache;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.commons.wrapper.Wrapper;
+
+/**
+ * A highly concurrent implementation of {@link ICache} and
+ * {@link IMutableCache} with the same semantics as {@link MappedCache}.
+ * <ul>
+ * <li>The values are stored in a {@link ConcurrentHashMap}, so cache hits never
+ * block.</li>
+ * <li>Each missing key is computed exactly once. Concurrent requests for the
+ * same key wait for the running computation, requests for other keys are not
+ * blocked.</li>
+ * <li>Bounded caches use a W-TinyLFU eviction policy: new entries are placed in
+ * a small admission window (1% of the max size). Entries leaving the window are
+ * only admitted to the main space, if their estimated access frequency (see
+ * {@link CacheFrequencySketch}) is higher than the one of the eviction victim
+ * selected from the main space with a "second chance" (CLOCK) strategy.</li>
+ * </ul>
+ * The statistics are recorded with the same names as in {@link MappedCache}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ * @param <KEYTYPE>
+ *        The cache source type
+ * @param <KEYSTORETYPE>
+ *        The internal storage key type
+ * @param <VALUETYPE>
+ *        The cache value type
+ */
+@ThreadSafe
+public class ConcurrentMappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableCache <KEYTYPE, VALUETYPE>
+{
+  /** A constant indicating, that a cache has no max size */
+  public static final int NO_MAX_SIZE = MappedCache.NO_MAX_SIZE;
+  /** The percentage of the max size used as the admission window */
+  public static final int WINDOW_PERCENTAGE = 1;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (ConcurrentMappedCache.class);
+
+  /**
+   * A single cache entry. The value is set exactly once. The policy fields are
+   * only used for bounded caches.
+   *
+   * @author Philip Helger
+   * @param <K>
+   *        Store key type
+   * @param <V>
+   *        Value type
+   */
+  private static final class CacheEntry <K, V>
+  {
+    private final K m_aKey;
+    private final CompletableFuture <Wrapper <V>> m_aFuture = new CompletableFuture <> ();
+    private final Thread m_aCreatingThread;
+    // Set on read, cleared by the eviction policy
+    private volatile boolean m_bReferenced;
+    // Policy linkage - guarded by the eviction lock
+    private CacheEntry <K, V> m_aPrev;
+    private CacheEntry <K, V> m_aNext;
+    private EntryQueue <K, V> m_aQueue;
+
+    CacheEntry (@Nonnull final K aKey, @Nullable final Thread aCreatingThread)
+    {
+      m_aKey = aKey;
+      m_aCreatingThread = aCreatingThread;
+    }
+
+    boolean isCompletedNormally ()
+    {
+      return m_aFuture.isDone () && !m_aFuture.isCompletedExceptionally ();
+    }
+
+    @Nonnull
+    Wrapper <V> getWrapper ()
+    {
+      if (!m_aFuture.isDone () && m_aCreatingThread == Thread.currentThread ())
+        throw new IllegalStateException ("Recursive cache value computation for key '" + m_aKey + "' detected");
+      try
+      {
+        return m_aFuture.join ();
+      }
+      catch (final CompletionException ex)
+      {
+        final Throwable aCause = ex.getCause ();
+        if (aCause instanceof RuntimeException)
+          throw (RuntimeException) aCause;
+        if (aCause instanceof Error)
+          throw (Error) aCause;
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * A simple intrusive doubly linked list of cache entries, used by the
+   * eviction policy.
+   *
+   * @author Philip Helger
+   * @param <K>
+   *        Store key type
+   * @param <V>
+   *        Value type
+   */
+  private static final class EntryQueue <K, V>
+  {
+    private CacheEntry <K, V> m_aHead;
+    private CacheEntry <K, V> m_aTail;
+    private int m_nSize;
+
+    void addLast (@Nonnull final CacheEntry <K, V> aEntry)
+    {
+      aEntry.m_aQueue = this;
+      aEntry.m_aPrev = m_aTail;
+      aEntry.m_aNext = null;
+      if (m_aTail == null)
+        m_aHead = aEntry;
+      else
+        m_aTail.m_aNext = aEntry;
+      m_aTail = aEntry;
+      m_nSize++;
+    }
+
+    void unlink (@Nonnull final CacheEntry <K, V> aEntry)
+    {
+      if (aEntry.m_aPrev == null)
+        m_aHead = aEntry.m_aNext;
+      else
+        aEntry.m_aPrev.m_aNext = aEntry.m_aNext;
+      if (aEntry.m_aNext == null)
+        m_aTail = aEntry.m_aPrev;
+      else
+        aEntry.m_aNext.m_aPrev = aEntry.m_aPrev;
+      aEntry.m_aPrev = null;
+      aEntry.m_aNext = null;
+      aEntry.m_aQueue = null;
+      m_nSize--;
+    }
+
+    @Nullable
+    CacheEntry <K, V> removeFirst ()
+    {
+      final CacheEntry <K, V> ret = m_aHead;
+      if (ret != null)
+        unlink (ret);
+      return ret;
+    }
+
+    void clear ()
+    {
+      CacheEntry <K, V> aCur = m_aHead;
+      while (aCur != null)
+      {
+        final CacheEntry <K, V> aNext = aCur.m_aNext;
+        aCur.m_aPrev = null;
+        aCur.m_aNext = null;
+        aCur.m_aQueue = null;
+        aCur = aNext;
+      }
+      m_aHead = null;
+      m_aTail = null;
+      m_nSize = 0;
+    }
+  }
+
+  private final IMutableStatisticsHandlerCache m_aStatsCacheAccess;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountRemove;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountClear;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountEvict;
+
+  private final Function <KEYTYPE, KEYSTORETYPE> m_aCacheKeyProvider;
+  private final Function <KEYTYPE, VALUETYPE> m_aValueProvider;
+  private final int m_nMaxSize;
+  private final String m_sName;
+  private final boolean m_bAllowNullValues;
+  private final ConcurrentHashMap <KEYSTORETYPE, CacheEntry <KEYSTORETYPE, VALUETYPE>> m_aCache = new ConcurrentHashMap <> ();
+
+  // Eviction policy - only present for bounded caches
+  private final CacheFrequencySketch m_aSketch;
+  private final SimpleLock m_aEvictionLock = new SimpleLock ();
+  private final int m_nMaxWindowSize;
+  private final int m_nMaxMainSize;
+  @GuardedBy ("m_aEvictionLock")
+  private final EntryQueue <KEYSTORETYPE, VALUETYPE> m_aWindow = new EntryQueue <> ();
+  @GuardedBy ("m_aEvictionLock")
+  private final EntryQueue <KEYSTORETYPE, VALUETYPE> m_aMain = new EntryQueue <> ();
+
+  /**
+   * Constructor
+   *
+   * @param aCacheKeyProvider
+   *        The cache key provider, that takes any KEYTYPE and creates a
+   *        non-<code>null</code> KEYSTORETYPE instance. May not be
+   *        <code>null</code>.
+   * @param aValueProvider
+   *        The cache value provider. The value to be cached may be
+   *        <code>null</code> depending on the parameter
+   *        {@code bAllowNullValues}. May not be <code>null</code>.
+   * @param nMaxSize
+   *        The maximum size of the cache. All values &le; 0 indicate an
+   *        unlimited size.
+   * @param sCacheName
+   *        The internal name of the cache. May neither be <code>null</code> nor
+   *        empty. This name is NOT checked for uniqueness.
+   * @param bAllowNullValues
+   *        <code>true</code> if <code>null</code> values are allowed to be in
+   *        the cache, <code>false</code> if not.
+   */
+  public ConcurrentMappedCache (@Nonnull final Function <KEYTYPE, KEYSTORETYPE> aCacheKeyProvider,
+                                @Nonnull final Function <KEYTYPE, VALUETYPE> aValueProvider,
+                                final int nMaxSize,
+                                @Nonnull @Nonempty final String sCacheName,
+                                final boolean bAllowNullValues)
+  {
+    ValueEnforcer.notNull (aCacheKeyProvider, "CacheKeyProvider");
+    ValueEnforcer.notNull (aValueProvider, "ValueProvider");
+    ValueEnforcer.notEmpty (sCacheName, "CacheName");
+
+    m_aStatsCacheAccess = StatisticsManager.getCacheHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$access");
+    m_aStatsCountRemove = StatisticsManager.getCounterHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$remove");
+    m_aStatsCountClear = StatisticsManager.getCounterHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$clear");
+    m_aStatsCountEvict = StatisticsManager.getCounterHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$evict");
+
+    m_aCacheKeyProvider = aCacheKeyProvider;
+    m_aValueProvider = aValueProvider;
+    m_nMaxSize = nMaxSize;
+    m_sName = sCacheName;
+    m_bAllowNullValues = bAllowNullValues;
+
+    if (nMaxSize > 0)
+    {
+      m_aSketch = new CacheFrequencySketch (nMaxSize);
+      m_nMaxWindowSize = Math.max (1, (int) ((long) nMaxSize * WINDOW_PERCENTAGE / 100));
+      m_nMaxMainSize = nMaxSize - m_nMaxWindowSize;
+    }
+    else
+    {
+      m_aSketch = null;
+      m_nMaxWindowSize = 0;
+      m_nMaxMainSize = 0;
+    }
+  }
+
+  /**
+   * @return The cache key provider from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  protected final Function <KEYTYPE, KEYSTORETYPE> getCacheKeyProvider ()
+  {
+    return m_aCacheKeyProvider;
+  }
+
+  /**
+   * @return The cache value provider from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  protected final Function <KEYTYPE, VALUETYPE> getValueProvider ()
+  {
+    return m_aValueProvider;
+  }
+
+  /**
+   * @return The maximum number of entries allowed in this cache. Values &le; 0
+   *         indicate that the cache size is not limited at all.
+   * @see #hasMaxSize()
+   */
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return <code>true</code> if this cache has a size limit,
+   *         <code>false</code> if not.
+   * @see #getMaxSize()
+   */
+  public final boolean hasMaxSize ()
+  {
+    return m_nMaxSize > 0;
+  }
+
+  @Nonnull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return <code>true</code> if <code>null</code> can be in the cache,
+   *         <code>false</code> if not.
+   */
+  public final boolean isAllowNullValues ()
+  {
+    return m_bAllowNullValues;
+  }
+
+  @Nonnull
+  @Nonempty
+  private String _getCacheLogText ()
+  {
+    String ret = "Cache '" + m_sName + "'";
+    if (hasMaxSize ())
+      ret += " with max size of " + m_nMaxSize;
+    return ret + ": ";
+  }
+
+  @Nonnull
+  private KEYSTORETYPE _getCacheKeyNonnull (final KEYTYPE aKey)
+  {
+    final KEYSTORETYPE aCacheKey = m_aCacheKeyProvider.apply (aKey);
+    if (aCacheKey == null)
+      throw new IllegalStateException (_getCacheLogText () + "The created cache key of '" + aKey + "' is null.");
+    return aCacheKey;
+  }
+
+  @Nonnull
+  private Wrapper <VALUETYPE> _getCacheValue (final KEYTYPE aKey, final VALUETYPE aValue)
+  {
+    if (aValue == null)
+    {
+      if (!m_bAllowNullValues)
+        throw new IllegalStateException (_getCacheLogText () +
+                                         "The created cache value of key '" +
+                                         aKey +
+                                         "' is null. null values are not allowed in this cache.");
+      return new Wrapper <> ();
+    }
+    return new Wrapper <> (aValue);
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _evictNotLocked (@Nonnull final CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    if (aEntry.m_aQueue != null)
+      aEntry.m_aQueue.unlink (aEntry);
+    if (m_aCache.remove (aEntry.m_aKey, aEntry))
+    {
+      m_aStatsCountEvict.increment ();
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug (_getCacheLogText () + "Cache key '" + aEntry.m_aKey + "' was evicted.");
+    }
+  }
+
+  /**
+   * Find the next entry to be evicted from the main space, using the "second
+   * chance" strategy.
+   *
+   * @return <code>null</code> if the main space is empty.
+   */
+  @Nullable
+  @MustBeLocked (ELockType.WRITE)
+  private CacheEntry <KEYSTORETYPE, VALUETYPE> _findMainVictimNotLocked ()
+  {
+    final int nMaxRounds = m_aMain.m_nSize;
+    for (int i = 0; i < nMaxRounds; ++i)
+    {
+      final CacheEntry <KEYSTORETYPE, VALUETYPE> aHead = m_aMain.m_aHead;
+      if (!aHead.m_bReferenced)
+        return aHead;
+
+      // Give it a second chance
+      aHead.m_bReferenced = false;
+      m_aMain.unlink (aHead);
+      m_aMain.addLast (aHead);
+    }
+    return m_aMain.m_aHead;
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _onEntryAddedNotLocked (@Nonnull final CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    // Was the entry removed in the meantime?
+    if (m_aCache.get (aEntry.m_aKey) != aEntry || aEntry.m_aQueue != null)
+      return;
+
+    m_aWindow.addLast (aEntry);
+    while (m_aWindow.m_nSize > m_nMaxWindowSize)
+    {
+      final CacheEntry <KEYSTORETYPE, VALUETYPE> aCandidate = m_aWindow.removeFirst ();
+      if (m_aMain.m_nSize < m_nMaxMainSize)
+      {
+        // Main space has room left
+        m_aMain.addLast (aCandidate);
+        continue;
+      }
+
+      final CacheEntry <KEYSTORETYPE, VALUETYPE> aVictim = _findMainVictimNotLocked ();
+      if (aVictim == null || m_aSketch.frequency (aCandidate.m_aKey) <= m_aSketch.frequency (aVictim.m_aKey))
+      {
+        // The candidate is not considered to be more valuable
+        _evictNotLocked (aCandidate);
+      }
+      else
+      {
+        // Admit the candidate
+        _evictNotLocked (aVictim);
+        m_aMain.addLast (aCandidate);
+      }
+    }
+  }
+
+  private void _onEntryAdded (@Nonnull final CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    if (m_aSketch != null)
+    {
+      m_aSketch.increment (aEntry.m_aKey);
+      m_aEvictionLock.locked ( () -> _onEntryAddedNotLocked (aEntry));
+    }
+  }
+
+  private void _onEntryRemoved (@Nonnull final CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    if (m_aSketch != null)
+      m_aEvictionLock.locked ( () -> {
+        if (aEntry.m_aQueue != null)
+          aEntry.m_aQueue.unlink (aEntry);
+      });
+  }
+
+  /**
+   * Put a new value into the cache. Use this in derived classes to e.g. prefill
+   * the cache with existing values.
+   *
+   * @param aKey
+   *        The cache key. May be <code>null</code> depending on the cache key
+   *        provider.
+   * @param aValue
+   *        The cache value. May be <code>null</code> depending on the settings.
+   */
+  protected final void putInCache (final KEYTYPE aKey, final VALUETYPE aValue)
+  {
+    final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+    final CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry = new CacheEntry <> (aCacheKey, null);
+    aEntry.m_aFuture.complete (_getCacheValue (aKey, aValue));
+
+    final CacheEntry <KEYSTORETYPE, VALUETYPE> aOld = m_aCache.put (aCacheKey, aEntry);
+    if (aOld != null)
+      _onEntryRemoved (aOld);
+    _onEntryAdded (aEntry);
+  }
+
+  /**
+   * Check if the passed key is already in the cache or not. Values that are
+   * currently computed are not considered to be in the cache.
+   *
+   * @param aKey
+   *        The key to check. May be <code>null</code>.
+   * @return <code>true</code> if the value is already in the cache,
+   *         <code>false</code> if not.
+   */
+  public final boolean isInCache (final KEYTYPE aKey)
+  {
+    // Determine the internal key - maybe null here
+    final KEYSTORETYPE aCacheKey = m_aCacheKeyProvider.apply (aKey);
+    if (aCacheKey == null)
+      return false;
+
+    final CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry = m_aCache.get (aCacheKey);
+    return aEntry != null && aEntry.isCompletedNormally ();
+  }
+
+  public VALUETYPE getFromCache (final KEYTYPE aKey)
+  {
+    // Determine the internal key
+    final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+
+    CacheEntry <KEYSTORETYPE, VALUETYPE> aEntry = m_aCache.get (aCacheKey);
+    if (aEntry == null)
+    {
+      final CacheEntry <KEYSTORETYPE, VALUETYPE> aNewEntry = new CacheEntry <> (aCacheKey, Thread.currentThread ());
+      aEntry = m_aCache.putIfAbsent (aCacheKey, aNewEntry);
+      if (aEntry == null)
+      {
+        // We're responsible for creating the value
+        final Wrapper <VALUETYPE> aCacheValue;
+        try
+        {
+          // Call the value provide to create the value to cache
+          aCacheValue = _getCacheValue (aKey, m_aValueProvider.apply (aKey));
+        }
+        catch (final RuntimeException | Error ex)
+        {
+          // Don't cache failures
+          m_aCache.remove (aCacheKey, aNewEntry);
+          aNewEntry.m_aFuture.completeExceptionally (ex);
+          throw ex;
+        }
+        aNewEntry.m_aFuture.complete (aCacheValue);
+        m_aStatsCacheAccess.cacheMiss ();
+
+        _onEntryAdded (aNewEntry);
+
+        // the get() may resolve to a null value
+        return aCacheValue.get ();
+      }
+    }
+
+    // Existing entry - maybe still in creation
+    m_aStatsCacheAccess.cacheHit ();
+    if (m_aSketch != null)
+    {
+      m_aSketch.increment (aCacheKey);
+      if (!aEntry.m_bReferenced)
+        aEntry.m_bReferenced = true;
+    }
+
+    // the get() may resolve to a null value
+    return aEntry.getWrapper ().get ();
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange removeFromCache (final KEYTYPE aKey)
+  {
+    final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+
+    final CacheEntry <KEYSTORETYPE, VALUETYPE> aOld = m_aCache.remove (aCacheKey);
+    if (aOld == null)
+      return EChange.UNCHANGED;
+    _onEntryRemoved (aOld);
+
+    m_aStatsCountRemove.increment ();
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug (_getCacheLogText () + "Cache key '" + aKey + "' was removed.");
+    return EChange.CHANGED;
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange clearCache ()
+  {
+    if (m_aCache.isEmpty ())
+      return EChange.UNCHANGED;
+
+    if (m_aSketch != null)
+    {
+      // Clear map and queues atomically in respect to eviction, so that no
+      // entry admitted in between stays in the map without being in a queue
+      m_aEvictionLock.locked ( () -> {
+        m_aCache.clear ();
+        m_aWindow.clear ();
+        m_aMain.clear ();
+      });
+    }
+    else
+      m_aCache.clear ();
+
+    m_aStatsCountClear.increment ();
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug (_getCacheLogText () + "Cache was cleared");
+    return EChange.CHANGED;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_aCache.size ();
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aCache.isEmpty ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("CacheKeyProvider", m_aCacheKeyProvider)
+                                       .append ("ValueProvider", m_aValueProvider)
+                                       .append ("MaxSize", m_nMaxSize)
+                                       .append ("Name", m_sName)
+                                       .append ("AllowNullValues", m_bAllowNullValues)
+                                       .append ("Size", m_aCache.size ())
+                                       .getToString ();
+  }
+}
@@ -50,4 +50,19 @@ public interface IMutableCache <KEYTYPE, VALUETYPE> extends ICache <KEYTYPE, VAL
    */
   @Nonnull
   EChange clearCache ();
+
+  /**
+   * Remove all entries from the cache that are expired. This is only relevant
+   * for caches that support a time based expiration. By default nothing
+   * happens.
+   *
+   * @return {@link EChange#CHANGED} if at least one entry was removed,
+   *         {@link EChange#UNCHANGED} otherwise.
+   * @since 11.1.4
+   */
+  @Nonnull
+  default EChange removeExpiredEntries ()
+  {
+    return EChange.UNCHANGED;
+  }
 }
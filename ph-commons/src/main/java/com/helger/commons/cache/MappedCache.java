@@ -16,6 +16,11 @@
  */
 package com.helger.commons.cache;
 
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import javax.annotation.Nonnegative;
@@ -49,7 +54,16 @@ import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.wrapper.Wrapper;
 
 /**
- * Base implementation of {@link ICache} and {@link IMutableCache}.
+ * Base implementation of {@link ICache} and {@link IMutableCache}.<br>
+ * Since v11.1.4 entries may optionally expire after a certain time since they
+ * were written (see {@link #setExpireAfterWrite(Duration)}) or last accessed
+ * (see {@link #setExpireAfterAccess(Duration)}). Additionally entries may be
+ * refreshed asynchronously (see {@link #setRefreshAfterWrite(Duration)}), in
+ * which case readers keep getting the old value until the new value is
+ * available. Expired entries are removed upon access and by an amortized sweep
+ * that is executed as part of regular write operations - no additional thread
+ * is used. Timing information is only recorded for entries written while one
+ * of these settings is active - other entries never expire.
  *
  * @author Philip Helger
  * @since 9.3.8 generalized from the existing {@link Cache} class.
@@ -69,10 +83,38 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
   public static final int NO_MAX_SIZE = 0;
 
   private static final Logger LOGGER = LoggerFactory.getLogger (MappedCache.class);
+  private static final long NO_SWEEP_YET = Long.MIN_VALUE;
+
+  /**
+   * Special wrapper that remembers the write and last access time. Used to
+   * implement the time based expiration.
+   *
+   * @author Philip Helger
+   * @param <V>
+   *        Value type
+   */
+  private static final class TimedWrapper <V> extends Wrapper <V>
+  {
+    private final long m_nWriteNanos;
+    private volatile long m_nAccessNanos;
+    private final AtomicBoolean m_aRefreshing = new AtomicBoolean (false);
+    // No refresh is scheduled before this point in time
+    private volatile long m_nRefreshRetryNanos;
+
+    TimedWrapper (@Nullable final V aValue, final long nNowNanos)
+    {
+      super (aValue);
+      m_nWriteNanos = nNowNanos;
+      m_nAccessNanos = nNowNanos;
+      m_nRefreshRetryNanos = nNowNanos;
+    }
+  }
 
   private final IMutableStatisticsHandlerCache m_aStatsCacheAccess;
   private final IMutableStatisticsHandlerCounter m_aStatsCountRemove;
   private final IMutableStatisticsHandlerCounter m_aStatsCountClear;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountExpire;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountRefresh;
 
   protected final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
   private final Function <KEYTYPE, KEYSTORETYPE> m_aCacheKeyProvider;
@@ -85,6 +127,13 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
   // determine them as such. Lazily created.
   @GuardedBy ("m_aRWLock")
   private ICommonsMap <KEYSTORETYPE, Wrapper <VALUETYPE>> m_aCache;
+  // Time based settings - all in nanoseconds; 0 means disabled
+  private volatile long m_nExpireAfterWriteNanos = 0;
+  private volatile long m_nExpireAfterAccessNanos = 0;
+  private volatile long m_nRefreshAfterWriteNanos = 0;
+  private volatile Executor m_aRefreshExecutor = ForkJoinPool.commonPool ();
+  @GuardedBy ("m_aRWLock")
+  private long m_nLastSweepNanos = NO_SWEEP_YET;
 
   /**
    * Constructor
@@ -120,6 +169,8 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
     m_aStatsCacheAccess = StatisticsManager.getCacheHandler (STATISTICS_PREFIX + sCacheName + "$access");
     m_aStatsCountRemove = StatisticsManager.getCounterHandler (STATISTICS_PREFIX + sCacheName + "$remove");
     m_aStatsCountClear = StatisticsManager.getCounterHandler (STATISTICS_PREFIX + sCacheName + "$clear");
+    m_aStatsCountExpire = StatisticsManager.getCounterHandler (STATISTICS_PREFIX + sCacheName + "$expire");
+    m_aStatsCountRefresh = StatisticsManager.getCounterHandler (STATISTICS_PREFIX + sCacheName + "$refresh");
 
     m_aCacheKeyProvider = aCacheKeyProvider;
     m_aValueProvider = aValueProvider;
@@ -189,6 +240,160 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
     return m_bAllowNullValues;
   }
 
+  @Nullable
+  private static Duration _getDuration (final long nNanos)
+  {
+    return nNanos > 0 ? Duration.ofNanos (nNanos) : null;
+  }
+
+  private static long _getNanos (@Nullable final Duration aDuration)
+  {
+    return aDuration == null || aDuration.isNegative () || aDuration.isZero () ? 0 : aDuration.toNanos ();
+  }
+
+  /**
+   * @return The duration after which an entry expires, measured from the time
+   *         it was written. May be <code>null</code> if this kind of
+   *         expiration is disabled.
+   * @since 11.1.4
+   */
+  @Nullable
+  public final Duration getExpireAfterWrite ()
+  {
+    return _getDuration (m_nExpireAfterWriteNanos);
+  }
+
+  /**
+   * Set the duration after which an entry expires, measured from the time it
+   * was written.
+   *
+   * @param aDuration
+   *        The duration to use. May be <code>null</code> to disable this kind
+   *        of expiration. Values &le; 0 also disable the expiration.
+   * @return this for chaining
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> setExpireAfterWrite (@Nullable final Duration aDuration)
+  {
+    m_nExpireAfterWriteNanos = _getNanos (aDuration);
+    return this;
+  }
+
+  /**
+   * @return The duration after which an entry expires, measured from the time
+   *         it was last accessed. May be <code>null</code> if this kind of
+   *         expiration is disabled.
+   * @since 11.1.4
+   */
+  @Nullable
+  public final Duration getExpireAfterAccess ()
+  {
+    return _getDuration (m_nExpireAfterAccessNanos);
+  }
+
+  /**
+   * Set the duration after which an entry expires, measured from the time it
+   * was last read or written.
+   *
+   * @param aDuration
+   *        The duration to use. May be <code>null</code> to disable this kind
+   *        of expiration. Values &le; 0 also disable the expiration.
+   * @return this for chaining
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> setExpireAfterAccess (@Nullable final Duration aDuration)
+  {
+    m_nExpireAfterAccessNanos = _getNanos (aDuration);
+    return this;
+  }
+
+  /**
+   * @return The duration after which an entry is refreshed asynchronously,
+   *         measured from the time it was written. May be <code>null</code> if
+   *         refreshing is disabled.
+   * @since 11.1.4
+   */
+  @Nullable
+  public final Duration getRefreshAfterWrite ()
+  {
+    return _getDuration (m_nRefreshAfterWriteNanos);
+  }
+
+  /**
+   * Set the duration after which an entry is eligible for an asynchronous
+   * refresh. The refresh is triggered by the first read access after the
+   * duration elapsed, and is executed on the refresh executor. Until the
+   * refresh is complete, the old value is returned. If the refresh fails, the
+   * old value stays in the cache and the next refresh is not scheduled before
+   * the same duration elapsed again, unless the entry expires in the meantime.
+   * If an expiration is configured as well, it should be longer than the
+   * refresh duration.
+   *
+   * @param aDuration
+   *        The duration to use. May be <code>null</code> to disable refreshing.
+   *        Values &le; 0 also disable the refreshing.
+   * @return this for chaining
+   * @see #setRefreshExecutor(Executor)
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> setRefreshAfterWrite (@Nullable final Duration aDuration)
+  {
+    m_nRefreshAfterWriteNanos = _getNanos (aDuration);
+    return this;
+  }
+
+  /**
+   * @return The executor used for asynchronous refreshing. Never
+   *         <code>null</code>. Defaults to the common fork join pool.
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final Executor getRefreshExecutor ()
+  {
+    return m_aRefreshExecutor;
+  }
+
+  /**
+   * Set the executor to be used for asynchronous refreshing.
+   *
+   * @param aRefreshExecutor
+   *        The executor to be used. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> setRefreshExecutor (@Nonnull final Executor aRefreshExecutor)
+  {
+    ValueEnforcer.notNull (aRefreshExecutor, "RefreshExecutor");
+    m_aRefreshExecutor = aRefreshExecutor;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if any kind of time based expiration or
+   *         refreshing is enabled.
+   * @since 11.1.4
+   */
+  public final boolean isTimeBased ()
+  {
+    return m_nExpireAfterWriteNanos > 0 || m_nExpireAfterAccessNanos > 0 || m_nRefreshAfterWriteNanos > 0;
+  }
+
+  /**
+   * @return The current time in nanoseconds as used for time based expiration.
+   *         Only differences between two values are relevant. By default
+   *         {@link System#nanoTime()} is used.
+   * @since 11.1.4
+   */
+  @OverrideOnDemand
+  protected long getCurrentNanoTime ()
+  {
+    return System.nanoTime ();
+  }
+
   /**
    * Create a new cache map. This is the internal map that is used to store the
    * items.
@@ -237,6 +442,10 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
         throw new IllegalStateException (_getCacheLogText () + "Failed to create internal Map!");
     }
     m_aCache.put (aCacheKey, aCacheValue);
+
+    // Expired entries are swept upon writing as well
+    if (isTimeBased ())
+      _sweepIfNecessaryNotLocked (getCurrentNanoTime ());
   }
 
   @Nonnull
@@ -251,16 +460,154 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
   @Nonnull
   private Wrapper <VALUETYPE> _getCacheValue (final KEYTYPE aKey, final VALUETYPE aValue)
   {
-    if (aValue == null)
+    if (aValue == null && !m_bAllowNullValues)
+      throw new IllegalStateException (_getCacheLogText () +
+                                       "The created cache value of key '" +
+                                       aKey +
+                                       "' is null. null values are not allowed in this cache.");
+    // Only record the timing information if it is needed
+    if (isTimeBased ())
+      return new TimedWrapper <> (aValue, getCurrentNanoTime ());
+    return new Wrapper <> (aValue);
+  }
+
+  private boolean _isExpired (@Nonnull final Wrapper <VALUETYPE> aCacheValue, final long nNowNanos)
+  {
+    if (aCacheValue instanceof TimedWrapper <?>)
     {
-      if (!m_bAllowNullValues)
-        throw new IllegalStateException (_getCacheLogText () +
-                                         "The created cache value of key '" +
-                                         aKey +
-                                         "' is null. null values are not allowed in this cache.");
-      return new Wrapper <> ();
+      final TimedWrapper <VALUETYPE> aTimed = (TimedWrapper <VALUETYPE>) aCacheValue;
+      final long nExpireAfterWrite = m_nExpireAfterWriteNanos;
+      if (nExpireAfterWrite > 0 && nNowNanos - aTimed.m_nWriteNanos >= nExpireAfterWrite)
+        return true;
+      final long nExpireAfterAccess = m_nExpireAfterAccessNanos;
+      if (nExpireAfterAccess > 0 && nNowNanos - aTimed.m_nAccessNanos >= nExpireAfterAccess)
+        return true;
+    }
+    // Manually added wrappers never expire
+    return false;
+  }
+
+  /**
+   * Remove all expired entries. Must be called in a write lock.
+   *
+   * @param nNowNanos
+   *        The current time in nanoseconds
+   * @return The number of removed entries
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private int _removeExpiredNotLocked (final long nNowNanos)
+  {
+    m_nLastSweepNanos = nNowNanos;
+    if (m_aCache == null || m_aCache.isEmpty ())
+      return 0;
+
+    final int nOldSize = m_aCache.size ();
+    // Soft references may already have been cleared
+    m_aCache.removeIf (e -> e.getValue () != null && _isExpired (e.getValue (), nNowNanos));
+    final int ret = nOldSize - m_aCache.size ();
+    if (ret > 0)
+      m_aStatsCountExpire.increment (ret);
+    return ret;
+  }
+
+  /**
+   * Perform an amortized sweep of all expired entries, if the last sweep is
+   * longer ago than the shortest expiration duration.
+   *
+   * @param nNowNanos
+   *        The current time in nanoseconds
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _sweepIfNecessaryNotLocked (final long nNowNanos)
+  {
+    final long nExpireAfterWrite = m_nExpireAfterWriteNanos;
+    final long nExpireAfterAccess = m_nExpireAfterAccessNanos;
+    final long nInterval;
+    if (nExpireAfterWrite > 0)
+      nInterval = nExpireAfterAccess > 0 ? Math.min (nExpireAfterWrite, nExpireAfterAccess) : nExpireAfterWrite;
+    else
+      nInterval = nExpireAfterAccess;
+
+    if (nInterval <= 0)
+      return;
+
+    if (m_nLastSweepNanos == NO_SWEEP_YET)
+      m_nLastSweepNanos = nNowNanos;
+    else
+      if (nNowNanos - m_nLastSweepNanos >= nInterval)
+      {
+        final int nRemoved = _removeExpiredNotLocked (nNowNanos);
+        if (nRemoved > 0 && LOGGER.isDebugEnabled ())
+          LOGGER.debug (_getCacheLogText () + nRemoved + " expired entries were removed.");
+      }
+  }
+
+  private void _scheduleRefresh (final KEYTYPE aKey,
+                                 @Nonnull final KEYSTORETYPE aCacheKey,
+                                 @Nonnull final TimedWrapper <VALUETYPE> aOldValue)
+  {
+    // Refresh only once
+    if (!aOldValue.m_aRefreshing.compareAndSet (false, true))
+      return;
+
+    try
+    {
+      m_aRefreshExecutor.execute ( () -> {
+        boolean bRefreshed = false;
+        try
+        {
+          final Wrapper <VALUETYPE> aNewValue = _getCacheValue (aKey, m_aValueProvider.apply (aKey));
+          m_aRWLock.writeLocked ( () -> {
+            // Only replace if the entry was not changed in the meantime
+            if (getFromCacheNoStatsNotLocked (aCacheKey) == aOldValue)
+              putInCacheNotLocked (aCacheKey, aNewValue);
+          });
+          m_aStatsCountRefresh.increment ();
+          bRefreshed = true;
+        }
+        catch (final RuntimeException ex)
+        {
+          LOGGER.warn (_getCacheLogText () + "Failed to refresh cache key '" + aKey + "' - keeping the old value", ex);
+        }
+        finally
+        {
+          // Allow for another refresh, even in case of an Error
+          if (!bRefreshed)
+            _onRefreshFailed (aOldValue);
+          aOldValue.m_aRefreshing.set (false);
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      LOGGER.warn (_getCacheLogText () + "Failed to schedule refresh of cache key '" + aKey + "'", ex);
+      _onRefreshFailed (aOldValue);
+      aOldValue.m_aRefreshing.set (false);
+    }
+  }
+
+  private void _onRefreshFailed (@Nonnull final TimedWrapper <VALUETYPE> aOldValue)
+  {
+    // Keep the old value and don't retry before the refresh duration elapsed
+    // again, to avoid a refresh attempt on every read
+    aOldValue.m_nRefreshRetryNanos = getCurrentNanoTime () + m_nRefreshAfterWriteNanos;
+  }
+
+  private void _onCacheHit (final KEYTYPE aKey, @Nonnull final KEYSTORETYPE aCacheKey, @Nonnull final Wrapper <VALUETYPE> aCacheValue, final long nNowNanos)
+  {
+    m_aStatsCacheAccess.cacheHit ();
+    if (aCacheValue instanceof TimedWrapper <?>)
+    {
+      final TimedWrapper <VALUETYPE> aTimed = (TimedWrapper <VALUETYPE>) aCacheValue;
+      if (m_nExpireAfterAccessNanos > 0)
+        aTimed.m_nAccessNanos = nNowNanos;
+
+      final long nRefreshAfterWrite = m_nRefreshAfterWriteNanos;
+      if (nRefreshAfterWrite > 0 &&
+          nNowNanos - aTimed.m_nWriteNanos >= nRefreshAfterWrite &&
+          nNowNanos - aTimed.m_nRefreshRetryNanos >= 0)
+        _scheduleRefresh (aKey, aCacheKey, aTimed);
     }
-    return new Wrapper <> (aValue);
   }
 
   /**
@@ -307,23 +654,26 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
    *         <code>false</code> if not.
    * @since 9.3.8
    */
-  public final boolean isInCache (final KEYTYPE aKey)
+  public boolean isInCache (final KEYTYPE aKey)
   {
     // Determine the internal key - maybe null here
     final KEYSTORETYPE aCacheKey = m_aCacheKeyProvider.apply (aKey);
 
-    return getFromCacheNoStats (aCacheKey) != null;
+    final Wrapper <VALUETYPE> aCacheValue = getFromCacheNoStats (aCacheKey);
+    return aCacheValue != null && !_isExpired (aCacheValue, getCurrentNanoTime ());
   }
 
   public VALUETYPE getFromCache (final KEYTYPE aKey)
   {
     // Determine the internal key
     final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+    final boolean bTimeBased = isTimeBased ();
+    final long nNowNanos = bTimeBased ? getCurrentNanoTime () : 0;
 
     Wrapper <VALUETYPE> aCacheValue = getFromCacheNoStats (aCacheKey);
-    if (aCacheValue == null)
+    if (aCacheValue == null || (bTimeBased && _isExpired (aCacheValue, nNowNanos)))
     {
-      // No old value in the cache
+      // No old value in the cache or the old value expired
       m_aRWLock.writeLock ().lock ();
       try
       {
@@ -331,18 +681,29 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
         // sections
         // Note: do not increase statistics in this second try
         aCacheValue = getFromCacheNoStatsNotLocked (aCacheKey);
+        if (aCacheValue != null && bTimeBased && _isExpired (aCacheValue, nNowNanos))
+        {
+          m_aCache.remove (aCacheKey);
+          m_aStatsCountExpire.increment ();
+          aCacheValue = null;
+        }
+
         if (aCacheValue == null)
         {
           // Call the value provide to create the value to cache
           final VALUETYPE aValue = m_aValueProvider.apply (aKey);
           aCacheValue = _getCacheValue (aKey, aValue);
 
-          // Put the new value into the cache
+          // Put the new value into the cache - this also sweeps
           putInCacheNotLocked (aCacheKey, aCacheValue);
           m_aStatsCacheAccess.cacheMiss ();
         }
         else
-          m_aStatsCacheAccess.cacheHit ();
+        {
+          _onCacheHit (aKey, aCacheKey, aCacheValue, nNowNanos);
+          if (bTimeBased)
+            _sweepIfNecessaryNotLocked (nNowNanos);
+        }
       }
       finally
       {
@@ -350,7 +711,7 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
       }
     }
     else
-      m_aStatsCacheAccess.cacheHit ();
+      _onCacheHit (aKey, aCacheKey, aCacheValue, nNowNanos);
 
     // the get() may resolve to a null value
     return aCacheValue.get ();
@@ -402,6 +763,23 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
     return EChange.CHANGED;
   }
 
+  @Nonnull
+  @Override
+  public EChange removeExpiredEntries ()
+  {
+    if (!isTimeBased ())
+      return EChange.UNCHANGED;
+
+    final long nNowNanos = getCurrentNanoTime ();
+    final int nRemoved = m_aRWLock.writeLockedInt ( () -> _removeExpiredNotLocked (nNowNanos));
+    if (nRemoved == 0)
+      return EChange.UNCHANGED;
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug (_getCacheLogText () + nRemoved + " expired entries were removed.");
+    return EChange.CHANGED;
+  }
+
   @Nonnegative
   public int size ()
   {
@@ -427,6 +805,9 @@ public class MappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableC
                                        .append ("MaxSize", m_nMaxSize)
                                        .append ("Name", m_sName)
                                        .append ("AllowNullValues", m_bAllowNullValues)
+                                       .append ("ExpireAfterWrite", getExpireAfterWrite ())
+                                       .append ("ExpireAfterAccess", getExpireAfterAccess ())
+                                       .append ("RefreshAfterWrite", getRefreshAfterWrite ())
                                        .append ("Cache", m_aCache)
                                        .getToString ();
   }
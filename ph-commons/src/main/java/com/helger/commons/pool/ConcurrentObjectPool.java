@@ -0,0 +1,712 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.pool;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A non-blocking generic object pool, that is an alternative to
+ * {@link ObjectPool} for high contention scenarios. Borrowing and returning an
+ * object is O(1) and lock-free, unless the pool is exhausted:
+ * <ul>
+ * <li>Each thread remembers the object it returned last and tries to reuse it
+ * on the next borrow (thread-affinity fast path)</li>
+ * <li>Otherwise idle objects are taken from a lock-free LIFO free-list, so that
+ * "warm" objects are preferred</li>
+ * <li>Objects are created lazily on demand, up to the maximum pool size</li>
+ * <li>Only if the maximum number of objects is borrowed, the borrowing thread
+ * blocks - optionally with a timeout</li>
+ * </ul>
+ * The pool is elastic: if an idle timeout is set, objects that were not used
+ * for that duration are removed from the pool, but at least the configured
+ * minimum number of idle objects is kept. {@link IObjectPoolFactory#activate}
+ * is used for validation-on-borrow: if activation fails, the object is
+ * discarded and another one is used.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The type of the objects contained in the pool.
+ * @since 11.1.4
+ */
+@ThreadSafe
+public final class ConcurrentObjectPool <DATATYPE> implements IMutableObjectPool <DATATYPE>
+{
+  /** Default minimum number of idle objects */
+  public static final int DEFAULT_MIN_IDLE = 0;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (ConcurrentObjectPool.class);
+
+  private static final int STATE_IDLE = 0;
+  private static final int STATE_BORROWED = 1;
+  private static final int STATE_REMOVED = 2;
+  // Returned but not yet passivated
+  private static final int STATE_RETURNING = 3;
+
+  // Number of busy-spins before parking while waiting for a returned object
+  private static final int MAX_SPINS = 64;
+  // Maximum park duration while waiting for a returned object
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos (1);
+
+  /**
+   * A single pooled object with its state.
+   *
+   * @author Philip Helger
+   */
+  private static final class PooledEntry <T>
+  {
+    private final T m_aItem;
+    private final AtomicInteger m_aState = new AtomicInteger (STATE_BORROWED);
+    // Is the entry contained in the free-list?
+    private final AtomicBoolean m_aInFreeList = new AtomicBoolean (false);
+    private volatile long m_nLastReturnedNanos;
+
+    PooledEntry (@Nonnull final T aItem)
+    {
+      m_aItem = aItem;
+    }
+
+    boolean tryBorrow ()
+    {
+      return m_aState.compareAndSet (STATE_IDLE, STATE_BORROWED);
+    }
+  }
+
+  /**
+   * Key for the lookup by object identity.
+   *
+   * @author Philip Helger
+   */
+  private static final class IdentityKey
+  {
+    private final Object m_aObj;
+
+    IdentityKey (@Nonnull final Object aObj)
+    {
+      m_aObj = aObj;
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      return o instanceof IdentityKey && ((IdentityKey) o).m_aObj == m_aObj;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return System.identityHashCode (m_aObj);
+    }
+  }
+
+  private final int m_nMaxSize;
+  private final IObjectPoolFactory <DATATYPE> m_aFactory;
+  // One permit per object that may be borrowed
+  private final Semaphore m_aPermits;
+  // All objects, borrowed or idle
+  private final ConcurrentHashMap <IdentityKey, PooledEntry <DATATYPE>> m_aAll = new ConcurrentHashMap <> ();
+  // The idle objects - may contain stale entries, that are skipped
+  private final ConcurrentLinkedDeque <PooledEntry <DATATYPE>> m_aFreeList = new ConcurrentLinkedDeque <> ();
+  // The entry the current thread returned last
+  private final ThreadLocal <WeakReference <PooledEntry <DATATYPE>>> m_aThreadEntry = new ThreadLocal <> ();
+  private final AtomicInteger m_aCurrentSize = new AtomicInteger (0);
+  private final AtomicBoolean m_aEvictionRunning = new AtomicBoolean (false);
+  private final AtomicLong m_aNextEvictionNanos = new AtomicLong (0);
+
+  // Settings
+  private volatile int m_nMinIdle = DEFAULT_MIN_IDLE;
+  private volatile long m_nIdleTimeoutNanos = 0;
+
+  // Metrics
+  private final AtomicInteger m_aBorrowed = new AtomicInteger (0);
+  private final LongAccumulator m_aPeakBorrowed = new LongAccumulator (Math::max, 0);
+  private final LongAdder m_aBorrowCount = new LongAdder ();
+  private final LongAdder m_aThreadAffinityHitCount = new LongAdder ();
+  private final LongAdder m_aWaitCount = new LongAdder ();
+  private final LongAdder m_aTimeoutCount = new LongAdder ();
+  private final LongAdder m_aCreatedCount = new LongAdder ();
+  private final LongAdder m_aDiscardedCount = new LongAdder ();
+
+  /**
+   * Create a new object pool for a maximum amount of items and a factory that
+   * creates the objects on demand.
+   *
+   * @param nMaxSize
+   *        The maximum number of items in the pool. Must be &ge; 1.
+   * @param aFactory
+   *        The factory to create object. May not be <code>null</code>. The
+   *        factory may not create <code>null</code> objects, as this leads to
+   *        an error!
+   */
+  public ConcurrentObjectPool (@Nonnegative final int nMaxSize, @Nonnull final Supplier <? extends DATATYPE> aFactory)
+  {
+    this (nMaxSize, IObjectPoolFactory.wrap (aFactory));
+  }
+
+  /**
+   * Create a new object pool for a maximum amount of items and a factory that
+   * creates the objects on demand.
+   *
+   * @param nMaxSize
+   *        The maximum number of items in the pool. Must be &ge; 1.
+   * @param aFactory
+   *        The factory to create object. May not be <code>null</code>. The
+   *        factory may not create <code>null</code> objects, as this leads to
+   *        an error!
+   */
+  public ConcurrentObjectPool (@Nonnegative final int nMaxSize, @Nonnull final IObjectPoolFactory <DATATYPE> aFactory)
+  {
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    ValueEnforcer.notNull (aFactory, "Factory");
+
+    m_nMaxSize = nMaxSize;
+    m_aFactory = aFactory;
+    m_aPermits = new Semaphore (nMaxSize);
+  }
+
+  /**
+   * @return The maximum number of items in the pool. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getPoolSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The minimum number of idle objects, that are not evicted. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public int getMinIdle ()
+  {
+    return m_nMinIdle;
+  }
+
+  /**
+   * Set the minimum number of idle objects, that are not evicted.
+   *
+   * @param nMinIdle
+   *        The minimum number of idle objects. Must be between 0 and the pool
+   *        size.
+   * @return this for chaining
+   */
+  @Nonnull
+  public ConcurrentObjectPool <DATATYPE> setMinIdle (@Nonnegative final int nMinIdle)
+  {
+    ValueEnforcer.isBetweenInclusive (nMinIdle, "MinIdle", 0, m_nMaxSize);
+    m_nMinIdle = nMinIdle;
+    return this;
+  }
+
+  /**
+   * @return The duration after which idle objects are evicted or
+   *         <code>null</code> if idle objects are never evicted automatically.
+   */
+  @Nullable
+  public Duration getIdleTimeout ()
+  {
+    final long nNanos = m_nIdleTimeoutNanos;
+    return nNanos <= 0 ? null : Duration.ofNanos (nNanos);
+  }
+
+  /**
+   * Set the duration after which idle objects are evicted. The eviction is
+   * performed occasionally while objects are returned, and can be triggered
+   * manually with {@link #evictIdleObjects()}.
+   *
+   * @param aIdleTimeout
+   *        The idle timeout. May be <code>null</code> to disable the
+   *        eviction. Must be positive if not <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public ConcurrentObjectPool <DATATYPE> setIdleTimeout (@Nullable final Duration aIdleTimeout)
+  {
+    if (aIdleTimeout != null)
+      ValueEnforcer.isFalse (aIdleTimeout.isNegative () || aIdleTimeout.isZero (), "IdleTimeout must be positive");
+    m_nIdleTimeoutNanos = aIdleTimeout == null ? 0 : aIdleTimeout.toNanos ();
+    m_aNextEvictionNanos.set (System.nanoTime () + m_nIdleTimeoutNanos);
+    return this;
+  }
+
+  @Nullable
+  private PooledEntry <DATATYPE> _getThreadEntry ()
+  {
+    final WeakReference <PooledEntry <DATATYPE>> aRef = m_aThreadEntry.get ();
+    return aRef == null ? null : aRef.get ();
+  }
+
+  private void _discard (@Nonnull final PooledEntry <DATATYPE> aEntry)
+  {
+    aEntry.m_aState.set (STATE_REMOVED);
+    m_aAll.remove (new IdentityKey (aEntry.m_aItem));
+    m_aCurrentSize.decrementAndGet ();
+    m_aDiscardedCount.increment ();
+  }
+
+  @Nullable
+  private PooledEntry <DATATYPE> _pollIdle ()
+  {
+    // Fast path: reuse the object the current thread used last
+    final PooledEntry <DATATYPE> aThreadEntry = _getThreadEntry ();
+    if (aThreadEntry != null && aThreadEntry.tryBorrow ())
+    {
+      m_aThreadAffinityHitCount.increment ();
+      return aThreadEntry;
+    }
+
+    PooledEntry <DATATYPE> aEntry;
+    while ((aEntry = m_aFreeList.pollFirst ()) != null)
+    {
+      // Reset the flag before borrowing, so that a concurrent return of a
+      // stale entry re-adds it to the free-list
+      aEntry.m_aInFreeList.set (false);
+      if (aEntry.tryBorrow ())
+        return aEntry;
+    }
+    return null;
+  }
+
+  private boolean _tryReserveNewSlot ()
+  {
+    while (true)
+    {
+      final int nCurrent = m_aCurrentSize.get ();
+      if (nCurrent >= m_nMaxSize)
+        return false;
+      if (m_aCurrentSize.compareAndSet (nCurrent, nCurrent + 1))
+        return true;
+    }
+  }
+
+  @Nonnull
+  private PooledEntry <DATATYPE> _createEntry ()
+  {
+    final DATATYPE aItem;
+    try
+    {
+      aItem = m_aFactory.create ();
+      if (aItem == null)
+        throw new IllegalStateException ("The factory returned a null object!");
+    }
+    catch (final RuntimeException ex)
+    {
+      m_aCurrentSize.decrementAndGet ();
+      throw ex;
+    }
+
+    final PooledEntry <DATATYPE> aEntry = new PooledEntry <> (aItem);
+    m_aAll.put (new IdentityKey (aItem), aEntry);
+    m_aCreatedCount.increment ();
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("ConcurrentObjectPool created a new object");
+    return aEntry;
+  }
+
+  /**
+   * Get an object after a permit was acquired.
+   *
+   * @return The borrowed entry. Never <code>null</code>.
+   */
+  @Nonnull
+  private DATATYPE _borrowWithPermit ()
+  {
+    try
+    {
+      int nRetries = 0;
+      while (true)
+      {
+        final PooledEntry <DATATYPE> aEntry = _pollIdle ();
+        if (aEntry != null)
+        {
+          final boolean bActivated;
+          try
+          {
+            bActivated = m_aFactory.activate (aEntry.m_aItem).isSuccess ();
+          }
+          catch (final RuntimeException ex)
+          {
+            _discard (aEntry);
+            throw ex;
+          }
+          if (bActivated)
+            return _onBorrowed (aEntry);
+
+          // Validation failed - try the next one
+          if (LOGGER.isDebugEnabled ())
+            LOGGER.debug ("ConcurrentObjectPool failed to activate object - discarding it");
+          _discard (aEntry);
+          continue;
+        }
+
+        if (_tryReserveNewSlot ())
+          return _onBorrowed (_createEntry ());
+
+        // The permit guarantees that an object is being returned right now -
+        // wait until it is in the free-list. Spin shortly and back off
+        // afterwards, as the passivation may take a while
+        if (nRetries < MAX_SPINS)
+          Thread.onSpinWait ();
+        else
+          LockSupport.parkNanos (Math.min (1000L << Math.min (nRetries - MAX_SPINS, 10), MAX_PARK_NANOS));
+        nRetries++;
+      }
+    }
+    catch (final RuntimeException ex)
+    {
+      m_aPermits.release ();
+      throw ex;
+    }
+  }
+
+  @Nonnull
+  private DATATYPE _onBorrowed (@Nonnull final PooledEntry <DATATYPE> aEntry)
+  {
+    m_aBorrowCount.increment ();
+    m_aPeakBorrowed.accumulate (m_aBorrowed.incrementAndGet ());
+    return aEntry.m_aItem;
+  }
+
+  @Nullable
+  public DATATYPE borrowObject ()
+  {
+    if (!m_aPermits.tryAcquire ())
+    {
+      m_aWaitCount.increment ();
+      try
+      {
+        m_aPermits.acquire ();
+      }
+      catch (final InterruptedException ex)
+      {
+        // In case of acquisition interruption -> return null
+        LOGGER.error ("ConcurrentObjectPool interrupted", ex);
+        Thread.currentThread ().interrupt ();
+        return null;
+      }
+    }
+    return _borrowWithPermit ();
+  }
+
+  /**
+   * Borrow an object from the pool. This method blocks until an object is
+   * available, but at last for the provided duration.
+   *
+   * @param nTimeout
+   *        The maximum time to wait. If &le; 0 this method does not wait.
+   * @param eUnit
+   *        The time unit of the timeout. May not be <code>null</code>.
+   * @return The borrowed object or <code>null</code> if the timeout elapsed
+   *         or the thread was interrupted.
+   */
+  @Nullable
+  public DATATYPE borrowObject (final long nTimeout, @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.notNull (eUnit, "Unit");
+
+    if (!m_aPermits.tryAcquire ())
+    {
+      m_aWaitCount.increment ();
+      try
+      {
+        if (!m_aPermits.tryAcquire (nTimeout, eUnit))
+        {
+          m_aTimeoutCount.increment ();
+          return null;
+        }
+      }
+      catch (final InterruptedException ex)
+      {
+        LOGGER.error ("ConcurrentObjectPool interrupted", ex);
+        Thread.currentThread ().interrupt ();
+        return null;
+      }
+    }
+    return _borrowWithPermit ();
+  }
+
+  @Nonnull
+  public ESuccess returnObject (@Nonnull final DATATYPE aItem)
+  {
+    ValueEnforcer.notNull (aItem, "Item");
+
+    // Usually the same thread returns the object it borrowed
+    PooledEntry <DATATYPE> aEntry = _getThreadEntry ();
+    if (aEntry == null || aEntry.m_aItem != aItem)
+    {
+      aEntry = m_aAll.get (new IdentityKey (aItem));
+      if (aEntry == null)
+      {
+        LOGGER.error ("Object " + aItem + " is not pooled!");
+        return ESuccess.FAILURE;
+      }
+      m_aThreadEntry.set (new WeakReference <> (aEntry));
+    }
+
+    // Claim the return first, so that a duplicate return cannot passivate an
+    // object that was borrowed again in the meantime. The entry cannot be
+    // borrowed until it is idle again.
+    if (!aEntry.m_aState.compareAndSet (STATE_BORROWED, STATE_RETURNING))
+    {
+      LOGGER.error ("Object " + aItem + " is not borrowed!");
+      return ESuccess.FAILURE;
+    }
+
+    boolean bPassivated = false;
+    try
+    {
+      m_aFactory.passivate (aItem);
+      bPassivated = true;
+    }
+    finally
+    {
+      m_aBorrowed.decrementAndGet ();
+      if (bPassivated)
+      {
+        aEntry.m_nLastReturnedNanos = System.nanoTime ();
+        aEntry.m_aState.set (STATE_IDLE);
+
+        // Add to the free-list, if it is not already contained
+        if (aEntry.m_aInFreeList.compareAndSet (false, true))
+          m_aFreeList.offerFirst (aEntry);
+      }
+      else
+      {
+        // The object is in an unknown state - don't reuse it
+        _discard (aEntry);
+      }
+
+      // Okay, we have one more unused item
+      m_aPermits.release ();
+    }
+
+    _evictIfNecessary ();
+    return ESuccess.SUCCESS;
+  }
+
+  private void _evictIfNecessary ()
+  {
+    final long nIdleTimeoutNanos = m_nIdleTimeoutNanos;
+    if (nIdleTimeoutNanos > 0)
+    {
+      final long nNow = System.nanoTime ();
+      final long nNext = m_aNextEvictionNanos.get ();
+      if (nNow - nNext >= 0 && m_aNextEvictionNanos.compareAndSet (nNext, nNow + nIdleTimeoutNanos / 2))
+        _evict (false, nNow - nIdleTimeoutNanos, m_nMinIdle);
+    }
+  }
+
+  private int _evict (final boolean bAll, final long nLastUsedBeforeNanos, final int nMinIdle)
+  {
+    // Only one eviction at a time
+    if (!m_aEvictionRunning.compareAndSet (false, true))
+      return 0;
+
+    int ret = 0;
+    try
+    {
+      // The oldest idle objects are at the end
+      final Iterator <PooledEntry <DATATYPE>> it = m_aFreeList.descendingIterator ();
+      while (it.hasNext () && getIdleObjectCount () > nMinIdle)
+      {
+        final PooledEntry <DATATYPE> aEntry = it.next ();
+        if ((bAll || aEntry.m_nLastReturnedNanos - nLastUsedBeforeNanos < 0) &&
+            aEntry.m_aState.compareAndSet (STATE_IDLE, STATE_REMOVED))
+        {
+          it.remove ();
+          _discard (aEntry);
+          ret++;
+        }
+      }
+    }
+    finally
+    {
+      m_aEvictionRunning.set (false);
+    }
+    if (ret > 0 && LOGGER.isDebugEnabled ())
+      LOGGER.debug ("ConcurrentObjectPool evicted " + ret + " idle objects");
+    return ret;
+  }
+
+  /**
+   * Evict all objects that were idle for longer than the idle timeout, keeping
+   * at least the minimum number of idle objects. Does nothing if no idle
+   * timeout is set.
+   *
+   * @return The number of evicted objects. Always &ge; 0.
+   */
+  @Nonnegative
+  public int evictIdleObjects ()
+  {
+    final long nIdleTimeoutNanos = m_nIdleTimeoutNanos;
+    if (nIdleTimeoutNanos <= 0)
+      return 0;
+    return _evict (false, System.nanoTime () - nIdleTimeoutNanos, m_nMinIdle);
+  }
+
+  /**
+   * Remove all idle objects from the pool. Borrowed objects are not affected.
+   */
+  public void clearUnusedItems ()
+  {
+    _evict (true, 0, 0);
+  }
+
+  /**
+   * @return The number of objects currently borrowed from the pool. Something
+   *         between 0 and {@link #getPoolSize()}
+   */
+  @Nonnegative
+  public int getBorrowedObjectCount ()
+  {
+    return m_aBorrowed.get ();
+  }
+
+  /**
+   * @return The number of objects currently created, independent of whether
+   *         they are borrowed or idle. Something between 0 and
+   *         {@link #getPoolSize()}
+   */
+  @Nonnegative
+  public int getCreatedObjectCount ()
+  {
+    return m_aCurrentSize.get ();
+  }
+
+  /**
+   * @return The number of objects currently idle in the pool. Something
+   *         between 0 and {@link #getPoolSize()}
+   */
+  @Nonnegative
+  public int getIdleObjectCount ()
+  {
+    return Math.max (0, m_aCurrentSize.get () - m_aBorrowed.get ());
+  }
+
+  /**
+   * @return The maximum number of objects that were borrowed at the same time.
+   */
+  @Nonnegative
+  public int getPeakBorrowedObjectCount ()
+  {
+    return (int) m_aPeakBorrowed.get ();
+  }
+
+  /**
+   * @return The utilisation of the pool in percent (0-100), based on the
+   *         number of currently borrowed objects.
+   */
+  @Nonnegative
+  public double getUtilisationPercentage ()
+  {
+    return m_aBorrowed.get () * 100d / m_nMaxSize;
+  }
+
+  /**
+   * @return The total number of successful borrows.
+   */
+  @Nonnegative
+  public long getTotalBorrowCount ()
+  {
+    return m_aBorrowCount.sum ();
+  }
+
+  /**
+   * @return The total number of borrows that were served by the object the
+   *         borrowing thread used last.
+   */
+  @Nonnegative
+  public long getThreadAffinityHitCount ()
+  {
+    return m_aThreadAffinityHitCount.sum ();
+  }
+
+  /**
+   * @return The total number of borrows that had to wait, because the pool was
+   *         exhausted.
+   */
+  @Nonnegative
+  public long getWaitCount ()
+  {
+    return m_aWaitCount.sum ();
+  }
+
+  /**
+   * @return The total number of borrows that failed because of a timeout.
+   */
+  @Nonnegative
+  public long getTimeoutCount ()
+  {
+    return m_aTimeoutCount.sum ();
+  }
+
+  /**
+   * @return The total number of objects created by the factory.
+   */
+  @Nonnegative
+  public long getTotalCreatedCount ()
+  {
+    return m_aCreatedCount.sum ();
+  }
+
+  /**
+   * @return The total number of objects that were discarded, either because
+   *         activation failed or because they were evicted.
+   */
+  @Nonnegative
+  public long getTotalDiscardedCount ()
+  {
+    return m_aDiscardedCount.sum ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize)
+                                       .append ("Factory", m_aFactory)
+                                       .append ("MinIdle", m_nMinIdle)
+                                       .append ("IdleTimeoutNanos", m_nIdleTimeoutNanos)
+                                       .append ("Created", getCreatedObjectCount ())
+                                       .append ("Borrowed", getBorrowedObjectCount ())
+                                       .getToString ();
+  }
+}
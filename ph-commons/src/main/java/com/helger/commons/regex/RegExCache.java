@@ -26,6 +26,9 @@ import javax.annotation.concurrent.ThreadSafe;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.Singleton;
 import com.helger.commons.cache.Cache;
+import com.helger.commons.cache.ConcurrentCache;
+import com.helger.commons.string.StringParser;
+import com.helger.commons.system.SystemProperties;
 
 /**
  * This class provides a cached for compiled regular expressions. It caches up
@@ -39,17 +42,30 @@ public final class RegExCache extends Cache <RegExPattern, Pattern>
 {
   private static final class SingletonHolder
   {
-    private static final RegExCache INSTANCE = new RegExCache ();
+    private static final RegExCache INSTANCE = new RegExCache (StringParser.parseBool (SystemProperties.getPropertyValueOrNull (SYSTEM_PROPERTY_USE_CONCURRENT_CACHE),
+                                                                                      DEFAULT_USE_CONCURRENT_CACHE));
   }
 
   /** The default number of items to keep in the cache */
   public static final int MAX_CACHE_SIZE = 1000;
 
+  /**
+   * The name of the system property that must be set to <code>true</code> to
+   * let the global instance use a {@link ConcurrentCache} internally.
+   *
+   * @since 11.1.4
+   */
+  public static final String SYSTEM_PROPERTY_USE_CONCURRENT_CACHE = "ph.regexcache.concurrent";
+
   private static boolean s_bDefaultInstantiated = false;
 
-  private RegExCache ()
+  RegExCache (final boolean bUseConcurrentCache)
   {
-    super (RegExPattern::getAsPattern, MAX_CACHE_SIZE, RegExCache.class.getName ());
+    super (RegExPattern::getAsPattern,
+           MAX_CACHE_SIZE,
+           RegExCache.class.getName (),
+           DEFAULT_ALLOW_NULL_VALUES,
+           bUseConcurrentCache);
   }
 
   public static boolean isInstantiated ()
@@ -23,73 +23,57 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
-import com.helger.commons.CGlobal;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.string.ToStringGenerator;
 
 /**
- * Abstract base class for numeric statistic handler
+ * Abstract base class for numeric statistic handler. Since v11.1.4 this class
+ * is lock-free and based on {@link StatisticsNumericAccumulator}.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public abstract class AbstractStatisticsHandlerNumeric implements IStatisticsHandlerNumeric
 {
-  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  private int m_nInvocationCount = 0;
-  private long m_nMin = CGlobal.ILLEGAL_ULONG;
-  private long m_nMax = CGlobal.ILLEGAL_ULONG;
-  private BigInteger m_aSum = BigInteger.ZERO;
+  private final StatisticsNumericAccumulator m_aValues = new StatisticsNumericAccumulator ();
 
   @Nonnegative
   public final int getInvocationCount ()
   {
-    return m_aRWLock.readLockedInt ( () -> m_nInvocationCount);
+    return m_aValues.getInvocationCount ();
   }
 
   protected final void addValue (final long nValue)
   {
-    // Better performance when done manually
-    m_aRWLock.writeLock ().lock ();
-    try
-    {
-      m_nInvocationCount++;
-      if (m_nMin == CGlobal.ILLEGAL_ULONG || nValue < m_nMin)
-        m_nMin = nValue;
-      if (m_nMax == CGlobal.ILLEGAL_ULONG || nValue > m_nMax)
-        m_nMax = nValue;
-      m_aSum = m_aSum.add (BigInteger.valueOf (nValue));
-    }
-    finally
-    {
-      m_aRWLock.writeLock ().unlock ();
-    }
+    m_aValues.addValue (nValue);
   }
 
   @Nonnull
   public final BigInteger getSum ()
   {
-    return m_aRWLock.readLockedGet ( () -> m_aSum);
+    return m_aValues.getSum ();
   }
 
   @CheckForSigned
   public final long getMin ()
   {
-    return m_aRWLock.readLockedLong ( () -> m_nMin);
+    return m_aValues.getMin ();
   }
 
   @CheckForSigned
   public final long getAverage ()
   {
-    return m_aRWLock.readLockedLong ( () -> {
-      if (m_nInvocationCount == 0)
-        return CGlobal.ILLEGAL_ULONG;
-      return m_aSum.divide (BigInteger.valueOf (m_nInvocationCount)).longValue ();
-    });
+    return m_aValues.getAverage ();
   }
 
   @CheckForSigned
   public long getMax ()
   {
-    return m_aRWLock.readLockedLong ( () -> m_nMax);
+    return m_aValues.getMax ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Values", m_aValues).getToString ();
   }
 }
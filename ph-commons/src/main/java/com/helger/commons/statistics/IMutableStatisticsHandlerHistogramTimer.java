@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Statistics handler for times with latency histogram.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+public interface IMutableStatisticsHandlerHistogramTimer extends IMutableStatisticsHandlerTimer, IStatisticsHandlerHistogramTimer
+{
+  /**
+   * Atomically get the histogram values of the current interval and start a
+   * new, empty interval. Values added concurrently are either part of the
+   * returned snapshot or of the new interval, but never lost. The cumulative
+   * values (invocation count, min, max, sum) are not affected.
+   *
+   * @return The snapshot of the finished interval. Never <code>null</code>.
+   */
+  @Nonnull
+  StatisticsHistogramSnapshot getSnapshotAndReset ();
+}
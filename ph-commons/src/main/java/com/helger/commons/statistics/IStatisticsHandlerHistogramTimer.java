@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnull;
+
+import com.helger.commons.CGlobal;
+
+/**
+ * Read-only statistics handler for times, that additionally keeps a latency
+ * histogram to determine percentiles. In addition to the cumulative values of
+ * {@link IStatisticsHandlerNumeric} the histogram covers only the values since
+ * the last reset (see
+ * {@link IMutableStatisticsHandlerHistogramTimer#getSnapshotAndReset()}).
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+public interface IStatisticsHandlerHistogramTimer extends IStatisticsHandlerTimer
+{
+  /**
+   * @return A snapshot of the histogram values of the current interval. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  StatisticsHistogramSnapshot getSnapshot ();
+
+  /**
+   * Get the value at the provided percentile of the current interval.
+   *
+   * @param dPercentile
+   *        The percentile to query. Must be in the range 0 to 100 (both
+   *        inclusive).
+   * @return The value at the given percentile or {@link CGlobal#ILLEGAL_ULONG}
+   *         if no value was added in the current interval.
+   */
+  @CheckForSigned
+  default long getValueAtPercentile (final double dPercentile)
+  {
+    return getSnapshot ().getValueAtPercentile (dPercentile);
+  }
+}
@@ -16,7 +16,7 @@
  */
 package com.helger.commons.statistics;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.concurrent.ThreadSafe;
@@ -29,34 +29,39 @@ import javax.annotation.concurrent.ThreadSafe;
 @ThreadSafe
 public class StatisticsHandlerCache implements IMutableStatisticsHandlerCache
 {
-  private final AtomicInteger m_aHits = new AtomicInteger ();
-  private final AtomicInteger m_aMisses = new AtomicInteger ();
+  private final LongAdder m_aHits = new LongAdder ();
+  private final LongAdder m_aMisses = new LongAdder ();
+
+  private static int _toInt (final long n)
+  {
+    return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+  }
 
   @Nonnegative
   public int getInvocationCount ()
   {
-    return getHits () + getMisses ();
+    return _toInt (m_aHits.sum () + m_aMisses.sum ());
   }
 
   public void cacheHit ()
   {
-    m_aHits.incrementAndGet ();
+    m_aHits.increment ();
   }
 
   public void cacheMiss ()
   {
-    m_aMisses.incrementAndGet ();
+    m_aMisses.increment ();
   }
 
   @Nonnegative
   public int getHits ()
   {
-    return m_aHits.intValue ();
+    return _toInt (m_aHits.sum ());
   }
 
   @Nonnegative
   public int getMisses ()
   {
-    return m_aMisses.intValue ();
+    return _toInt (m_aMisses.sum ());
   }
 }
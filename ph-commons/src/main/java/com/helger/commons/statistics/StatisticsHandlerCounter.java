@@ -16,39 +16,40 @@
  */
 package com.helger.commons.statistics;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnegative;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * Default implementation of {@link IMutableStatisticsHandlerCounter}
+ * Default implementation of {@link IMutableStatisticsHandlerCounter}. Since
+ * v11.1.4 it is based on {@link LongAdder} to avoid contention.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public class StatisticsHandlerCounter implements IMutableStatisticsHandlerCounter
 {
-  private final AtomicInteger m_aInvocationCount = new AtomicInteger ();
-  private final AtomicLong m_aCount = new AtomicLong ();
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAdder m_aCount = new LongAdder ();
 
   @Nonnegative
   public int getInvocationCount ()
   {
-    return m_aInvocationCount.intValue ();
+    final long nCount = m_aInvocationCount.sum ();
+    return nCount > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) nCount;
   }
 
   @CheckForSigned
   public long getCount ()
   {
-    return m_aCount.longValue ();
+    return m_aCount.sum ();
   }
 
   public void increment (final long nByHowMany)
   {
-    m_aInvocationCount.incrementAndGet ();
-    m_aCount.addAndGet (nByHowMany);
+    m_aInvocationCount.increment ();
+    m_aCount.add (nByHowMany);
   }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Default implementation of {@link IMutableStatisticsHandlerHistogramTimer}.
+ * The histogram uses a fixed amount of memory, independent of the number of
+ * added values, and adding a value is lock-free.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+public class StatisticsHandlerHistogramTimer extends AbstractStatisticsHandlerNumeric implements
+                                             IMutableStatisticsHandlerHistogramTimer
+{
+  /**
+   * The values of a single interval.
+   *
+   * @author Philip Helger
+   */
+  private static final class Interval
+  {
+    private final AtomicLongArray m_aCounts = new AtomicLongArray (StatisticsHistogramSnapshot.BUCKET_COUNT);
+    private final LongAccumulator m_aMin = new LongAccumulator (Math::min, Long.MAX_VALUE);
+    private final LongAccumulator m_aMax = new LongAccumulator (Math::max, Long.MIN_VALUE);
+    // The number of threads currently writing into this interval
+    private final AtomicInteger m_aWriters = new AtomicInteger (0);
+
+    void addValue (final long nValue)
+    {
+      m_aMin.accumulate (nValue);
+      m_aMax.accumulate (nValue);
+      // Count last, so that a concurrent snapshot never sees a count without
+      // min and max
+      m_aCounts.incrementAndGet (StatisticsHistogramSnapshot.getBucketIndex (nValue));
+    }
+
+    @Nonnull
+    StatisticsHistogramSnapshot getSnapshot ()
+    {
+      int nUsed = 0;
+      final int nBuckets = m_aCounts.length ();
+      final int [] aIndices = new int [nBuckets];
+      final long [] aCounts = new long [nBuckets];
+      long nTotal = 0;
+      for (int i = 0; i < nBuckets; ++i)
+      {
+        final long nCount = m_aCounts.get (i);
+        if (nCount > 0)
+        {
+          aIndices[nUsed] = i;
+          aCounts[nUsed] = nCount;
+          nUsed++;
+          nTotal += nCount;
+        }
+      }
+      final int [] aRealIndices = new int [nUsed];
+      System.arraycopy (aIndices, 0, aRealIndices, 0, nUsed);
+      final long [] aRealCounts = new long [nUsed];
+      System.arraycopy (aCounts, 0, aRealCounts, 0, nUsed);
+      // Use the bucket sum as the total, so that the snapshot is consistent
+      // in itself
+      return new StatisticsHistogramSnapshot (aRealIndices, aRealCounts, nTotal, m_aMin.get (), m_aMax.get ());
+    }
+
+    void reset ()
+    {
+      for (int i = 0; i < m_aCounts.length (); ++i)
+        m_aCounts.set (i, 0);
+      m_aMin.reset ();
+      m_aMax.reset ();
+    }
+  }
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (StatisticsHandlerHistogramTimer.class);
+
+  private final AtomicReference <Interval> m_aCurrent = new AtomicReference <> (new Interval ());
+  // Serializes the resets; the spare interval is reused to avoid allocations
+  private final SimpleLock m_aResetLock = new SimpleLock ();
+  private Interval m_aSpare = new Interval ();
+
+  public StatisticsHandlerHistogramTimer ()
+  {}
+
+  public void addTime (@Nonnegative final long nMillis)
+  {
+    if (nMillis < 0)
+      LOGGER.warn ("A negative value (" + nMillis + ") is added to " + getClass ().getName ());
+    addValue (nMillis);
+
+    while (true)
+    {
+      final Interval aInterval = m_aCurrent.get ();
+      aInterval.m_aWriters.incrementAndGet ();
+      try
+      {
+        // Check that no reset happened in between
+        if (m_aCurrent.get () == aInterval)
+        {
+          aInterval.addValue (nMillis);
+          return;
+        }
+      }
+      finally
+      {
+        aInterval.m_aWriters.decrementAndGet ();
+      }
+    }
+  }
+
+  @Nonnull
+  public StatisticsHistogramSnapshot getSnapshot ()
+  {
+    return m_aCurrent.get ().getSnapshot ();
+  }
+
+  @Nonnull
+  public StatisticsHistogramSnapshot getSnapshotAndReset ()
+  {
+    return m_aResetLock.lockedGet ( () -> {
+      final Interval aOld = m_aCurrent.getAndSet (m_aSpare);
+      // Wait until all writers that saw the old interval are done
+      while (aOld.m_aWriters.get () > 0)
+        Thread.onSpinWait ();
+
+      final StatisticsHistogramSnapshot ret = aOld.getSnapshot ();
+      aOld.reset ();
+      m_aSpare = aOld;
+      return ret;
+    });
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("Histogram", getSnapshot ()).getToString ();
+  }
+}
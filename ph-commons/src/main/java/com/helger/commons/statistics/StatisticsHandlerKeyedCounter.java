@@ -16,112 +16,118 @@
  */
 package com.helger.commons.statistics;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.CGlobal;
 import com.helger.commons.annotation.ReturnsMutableCopy;
-import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsSet;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.string.ToStringGenerator;
 
 /**
- * Default implementation of {@link IMutableStatisticsHandlerKeyedCounter}
+ * Default implementation of {@link IMutableStatisticsHandlerKeyedCounter}.
+ * Since v11.1.4 it is lock-free and based on {@link LongAdder}.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public class StatisticsHandlerKeyedCounter implements IMutableStatisticsHandlerKeyedCounter
 {
-  @NotThreadSafe
+  @ThreadSafe
   private static final class Value
   {
-    private int m_nInvocationCount;
-    private long m_nCount;
-
-    public Value (final long nInitialValue)
-    {
-      m_nInvocationCount = 1;
-      m_nCount = nInitialValue;
-    }
+    private final LongAdder m_aInvocationCount = new LongAdder ();
+    private final LongAdder m_aCount = new LongAdder ();
 
     public void increment (final long nByHowMany)
     {
-      m_nInvocationCount++;
-      m_nCount += nByHowMany;
+      m_aCount.add (nByHowMany);
+      m_aInvocationCount.increment ();
     }
 
     @Nonnegative
     public int getInvocationCount ()
     {
-      return m_nInvocationCount;
+      return _toInt (m_aInvocationCount.sum ());
     }
 
     public long getCount ()
     {
-      return m_nCount;
+      return m_aCount.sum ();
     }
 
     @Override
     public String toString ()
     {
       // No object needed for ctor
-      return new ToStringGenerator (null).append ("invocations", m_nInvocationCount).append ("count", m_nCount).getToString ();
+      return new ToStringGenerator (null).append ("invocations", m_aInvocationCount.sum ())
+                                         .append ("count", m_aCount.sum ())
+                                         .getToString ();
     }
   }
 
-  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  private final AtomicInteger m_aInvocationCount = new AtomicInteger ();
-  private final ICommonsMap <String, Value> m_aMap = new CommonsHashMap <> ();
+  // ConcurrentHashMap does not support null keys
+  private static final Object NULL_KEY = new Object ();
+
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final ConcurrentHashMap <Object, Value> m_aMap = new ConcurrentHashMap <> ();
+
+  private static int _toInt (final long n)
+  {
+    return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+  }
+
+  @Nonnull
+  private static Object _getMapKey (@Nullable final String sKey)
+  {
+    return sKey == null ? NULL_KEY : sKey;
+  }
 
   @Nonnegative
   public int getInvocationCount ()
   {
-    return m_aInvocationCount.intValue ();
+    return _toInt (m_aInvocationCount.sum ());
   }
 
   public void increment (@Nullable final String sKey, final long nByHowMany)
   {
-    m_aInvocationCount.incrementAndGet ();
-    m_aRWLock.writeLocked ( () -> {
-      final Value aPerKey = m_aMap.get (sKey);
-      if (aPerKey == null)
-        m_aMap.put (sKey, new Value (nByHowMany));
-      else
-        aPerKey.increment (nByHowMany);
-    });
+    m_aInvocationCount.increment ();
+
+    final Object aMapKey = _getMapKey (sKey);
+    Value aPerKey = m_aMap.get (aMapKey);
+    if (aPerKey == null)
+      aPerKey = m_aMap.computeIfAbsent (aMapKey, k -> new Value ());
+    aPerKey.increment (nByHowMany);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsSet <String> getAllKeys ()
   {
-    return m_aRWLock.readLockedGet (m_aMap::copyOfKeySet);
+    final ICommonsSet <String> ret = new CommonsHashSet <> (m_aMap.size ());
+    for (final Object aKey : m_aMap.keySet ())
+      ret.add (aKey == NULL_KEY ? null : (String) aKey);
+    return ret;
   }
 
   @CheckForSigned
   public long getCount (@Nullable final String sKey)
   {
-    return m_aRWLock.readLockedLong ( () -> {
-      final Value aCount = m_aMap.get (sKey);
-      return aCount == null ? CGlobal.ILLEGAL_ULONG : aCount.getCount ();
-    });
+    final Value aCount = m_aMap.get (_getMapKey (sKey));
+    return aCount == null ? CGlobal.ILLEGAL_ULONG : aCount.getCount ();
   }
 
   @CheckForSigned
   public int getInvocationCount (@Nullable final String sKey)
   {
-    return m_aRWLock.readLockedInt ( () -> {
-      final Value aCount = m_aMap.get (sKey);
-      return aCount == null ? CGlobal.ILLEGAL_UINT : aCount.getInvocationCount ();
-    });
+    final Value aCount = m_aMap.get (_getMapKey (sKey));
+    return aCount == null ? CGlobal.ILLEGAL_UINT : aCount.getInvocationCount ();
   }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * An immutable snapshot of the values recorded in a
+ * {@link StatisticsHandlerHistogramTimer}. Values are stored in log-linear
+ * buckets: all values below {@link #SUB_BUCKET_COUNT} are stored exactly, above
+ * that each power of two is split into {@link #SUB_BUCKET_COUNT}/2 linear
+ * buckets. That results in a relative error of less than 1% for percentile
+ * values. Values &ge; 2^{@value #MAX_MAGNITUDE} are treated like the biggest
+ * trackable value.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@Immutable
+public final class StatisticsHistogramSnapshot
+{
+  /** The number of bits used for the sub buckets */
+  public static final int SUB_BUCKET_BITS = 8;
+  /** The number of values that are tracked exactly */
+  public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** The highest trackable value is 2^MAX_MAGNITUDE - 1 */
+  public static final int MAX_MAGNITUDE = 47;
+  /** The highest trackable value */
+  public static final long MAX_TRACKABLE_VALUE = (1L << MAX_MAGNITUDE) - 1;
+
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+  /** The total number of buckets needed to cover all trackable values */
+  static final int BUCKET_COUNT = getBucketIndex (MAX_TRACKABLE_VALUE) + 1;
+
+  // Only the buckets with a count &gt; 0 are contained
+  private final int [] m_aBucketIndices;
+  private final long [] m_aBucketCounts;
+  private final long m_nTotalCount;
+  private final long m_nMin;
+  private final long m_nMax;
+
+  StatisticsHistogramSnapshot (@Nonnull final int [] aBucketIndices,
+                               @Nonnull final long [] aBucketCounts,
+                               @Nonnegative final long nTotalCount,
+                               final long nMin,
+                               final long nMax)
+  {
+    ValueEnforcer.isTrue (aBucketIndices.length == aBucketCounts.length, "Index and count array length mismatch");
+    m_aBucketIndices = aBucketIndices;
+    m_aBucketCounts = aBucketCounts;
+    m_nTotalCount = nTotalCount;
+    m_nMin = nMin;
+    m_nMax = nMax;
+  }
+
+  /**
+   * Get the bucket index for the provided value.
+   *
+   * @param nValue
+   *        The value to get the bucket index from. Values &lt; 0 are treated
+   *        as 0, values &gt; {@link #MAX_TRACKABLE_VALUE} are treated as
+   *        {@link #MAX_TRACKABLE_VALUE}.
+   * @return The bucket index. Always &ge; 0 and &lt; the number of buckets.
+   */
+  @Nonnegative
+  static int getBucketIndex (final long nValue)
+  {
+    final long nRealValue = nValue < 0 ? 0 : nValue > MAX_TRACKABLE_VALUE ? MAX_TRACKABLE_VALUE : nValue;
+    if (nRealValue < SUB_BUCKET_COUNT)
+      return (int) nRealValue;
+
+    // Position of the highest bit; always >= SUB_BUCKET_BITS
+    final int nMagnitude = 63 - Long.numberOfLeadingZeros (nRealValue);
+    final int nShift = nMagnitude - SUB_BUCKET_BITS + 1;
+    // In the range [SUB_BUCKET_HALF_COUNT, SUB_BUCKET_COUNT)
+    final int nTop = (int) (nRealValue >>> nShift);
+    return SUB_BUCKET_COUNT + (nShift - 1) * SUB_BUCKET_HALF_COUNT + (nTop - SUB_BUCKET_HALF_COUNT);
+  }
+
+  /**
+   * @param nBucketIndex
+   *        Bucket index
+   * @return The smallest value that is stored in the provided bucket.
+   */
+  static long getLowestValueOfBucket (@Nonnegative final int nBucketIndex)
+  {
+    if (nBucketIndex < SUB_BUCKET_COUNT)
+      return nBucketIndex;
+    final int nRest = nBucketIndex - SUB_BUCKET_COUNT;
+    final int nShift = nRest / SUB_BUCKET_HALF_COUNT + 1;
+    final long nTop = nRest % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    return nTop << nShift;
+  }
+
+  /**
+   * @param nBucketIndex
+   *        Bucket index
+   * @return The biggest value that is stored in the provided bucket.
+   */
+  static long getHighestValueOfBucket (@Nonnegative final int nBucketIndex)
+  {
+    if (nBucketIndex < SUB_BUCKET_COUNT)
+      return nBucketIndex;
+    final int nRest = nBucketIndex - SUB_BUCKET_COUNT;
+    final int nShift = nRest / SUB_BUCKET_HALF_COUNT + 1;
+    final long nTop = nRest % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    return ((nTop + 1) << nShift) - 1;
+  }
+
+  /**
+   * @return The number of values contained in this snapshot. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getTotalCount ()
+  {
+    return m_nTotalCount;
+  }
+
+  /**
+   * @return The smallest value contained or {@link CGlobal#ILLEGAL_ULONG} if
+   *         the snapshot is empty.
+   */
+  @CheckForSigned
+  public long getMin ()
+  {
+    return m_nTotalCount == 0 ? CGlobal.ILLEGAL_ULONG : m_nMin;
+  }
+
+  /**
+   * @return The biggest value contained or {@link CGlobal#ILLEGAL_ULONG} if the
+   *         snapshot is empty.
+   */
+  @CheckForSigned
+  public long getMax ()
+  {
+    return m_nTotalCount == 0 ? CGlobal.ILLEGAL_ULONG : m_nMax;
+  }
+
+  /**
+   * Get the value at the provided percentile. The returned value is the
+   * highest value that is considered equivalent to the value at the percentile,
+   * limited by the min and max value.
+   *
+   * @param dPercentile
+   *        The percentile to query. Must be in the range 0 to 100 (both
+   *        inclusive). E.g. 99.9 for the 999th permille.
+   * @return The value at the given percentile or {@link CGlobal#ILLEGAL_ULONG}
+   *         if the snapshot is empty.
+   */
+  @CheckForSigned
+  public long getValueAtPercentile (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+
+    if (m_nTotalCount == 0)
+      return CGlobal.ILLEGAL_ULONG;
+
+    final long nTarget = Math.max (1, (long) Math.ceil (dPercentile / 100d * m_nTotalCount));
+    long nCumulated = 0;
+    for (int i = 0; i < m_aBucketIndices.length; ++i)
+    {
+      nCumulated += m_aBucketCounts[i];
+      if (nCumulated >= nTarget)
+      {
+        final int nBucketIndex = m_aBucketIndices[i];
+        return Math.max (m_nMin, Math.min (m_nMax, getHighestValueOfBucket (nBucketIndex)));
+      }
+    }
+    // Concurrent modifications while creating the snapshot
+    return m_nMax;
+  }
+
+  /**
+   * @return The value at the 50th percentile (the median) or
+   *         {@link CGlobal#ILLEGAL_ULONG} if the snapshot is empty.
+   */
+  @CheckForSigned
+  public long getP50 ()
+  {
+    return getValueAtPercentile (50);
+  }
+
+  /**
+   * @return The value at the 99th percentile or {@link CGlobal#ILLEGAL_ULONG}
+   *         if the snapshot is empty.
+   */
+  @CheckForSigned
+  public long getP99 ()
+  {
+    return getValueAtPercentile (99);
+  }
+
+  /**
+   * @return The value at the 99.9th percentile or {@link CGlobal#ILLEGAL_ULONG}
+   *         if the snapshot is empty.
+   */
+  @CheckForSigned
+  public long getP999 ()
+  {
+    return getValueAtPercentile (99.9);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("TotalCount", m_nTotalCount)
+                                       .append ("Min", getMin ())
+                                       .append ("Max", getMax ())
+                                       .append ("UsedBuckets", m_aBucketIndices.length)
+                                       .getToString ();
+  }
+}
@@ -16,6 +16,8 @@
  */
 package com.helger.commons.statistics;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -26,33 +28,26 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.annotation.ReturnsMutableCopy;
-import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsSet;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
 
 /**
- * Provides a central manager for the internal statistics.
+ * Provides a central manager for the internal statistics. Since v11.1.4 the
+ * lookup of existing handlers is lock-free.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public final class StatisticsManager
 {
-  private static final SimpleReadWriteLock RWL_CACHE = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock RWL_TIMER = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock RWL_KEYED_TIMER = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock RWL_SIZE = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock RWL_KEYED_SIZE = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock RWL_COUNTER = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock RWL_KEYED_COUNTER = new SimpleReadWriteLock ();
-  private static final ICommonsMap <String, StatisticsHandlerCache> HDL_CACHE = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerTimer> HDL_TIMER = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedTimer> HDL_KEYED_TIMER = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerSize> HDL_SIZE = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedSize> HDL_KEYED_SIZE = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerCounter> HDL_COUNTER = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedCounter> HDL_KEYED_COUNTER = new CommonsHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerCache> HDL_CACHE = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerTimer> HDL_TIMER = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerHistogramTimer> HDL_HISTOGRAM_TIMER = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerKeyedTimer> HDL_KEYED_TIMER = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerSize> HDL_SIZE = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerKeyedSize> HDL_KEYED_SIZE = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerCounter> HDL_COUNTER = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerKeyedCounter> HDL_KEYED_COUNTER = new ConcurrentHashMap <> ();
 
   private static final Logger LOGGER = LoggerFactory.getLogger (StatisticsManager.class);
 
@@ -75,23 +70,18 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCache aHdl = RWL_CACHE.readLockedGet ( () -> HDL_CACHE.get (sName));
-
+    StatisticsHandlerCache aHdl = HDL_CACHE.get (sName);
     if (aHdl == null)
-    {
-      // Try again in write lock
-      aHdl = RWL_CACHE.writeLockedGet ( () -> HDL_CACHE.computeIfAbsent (sName, k -> new StatisticsHandlerCache ()));
-    }
+      aHdl = HDL_CACHE.computeIfAbsent (sName, k -> new StatisticsHandlerCache ());
 
     return aHdl;
-
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllCacheHandler ()
   {
-    return RWL_CACHE.readLockedGet (HDL_CACHE::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_CACHE.keySet ());
   }
 
   @Nonnull
@@ -107,11 +97,9 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerTimer aHdl = RWL_TIMER.readLockedGet ( () -> HDL_TIMER.get (sName));
+    StatisticsHandlerTimer aHdl = HDL_TIMER.get (sName);
     if (aHdl == null)
-    {
-      aHdl = RWL_TIMER.writeLockedGet ( () -> HDL_TIMER.computeIfAbsent (sName, k -> new StatisticsHandlerTimer ()));
-    }
+      aHdl = HDL_TIMER.computeIfAbsent (sName, k -> new StatisticsHandlerTimer ());
 
     return aHdl;
   }
@@ -120,7 +108,33 @@ public final class StatisticsManager
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllTimerHandler ()
   {
-    return RWL_TIMER.readLockedGet (HDL_TIMER::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_TIMER.keySet ());
+  }
+
+  @Nonnull
+  public static IMutableStatisticsHandlerHistogramTimer getHistogramTimerHandler (@Nonnull final Class <?> aClass)
+  {
+    ValueEnforcer.notNull (aClass, "Class");
+
+    return getHistogramTimerHandler (aClass.getName ());
+  }
+
+  @Nonnull
+  public static IMutableStatisticsHandlerHistogramTimer getHistogramTimerHandler (@Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+
+    StatisticsHandlerHistogramTimer aHdl = HDL_HISTOGRAM_TIMER.get (sName);
+    if (aHdl == null)
+      aHdl = HDL_HISTOGRAM_TIMER.computeIfAbsent (sName, k -> new StatisticsHandlerHistogramTimer ());
+    return aHdl;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsSet <String> getAllHistogramTimerHandler ()
+  {
+    return new CommonsHashSet <> (HDL_HISTOGRAM_TIMER.keySet ());
   }
 
   @Nonnull
@@ -136,12 +150,9 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedTimer aHdl = RWL_KEYED_TIMER.readLockedGet ( () -> HDL_KEYED_TIMER.get (sName));
-
+    StatisticsHandlerKeyedTimer aHdl = HDL_KEYED_TIMER.get (sName);
     if (aHdl == null)
-    {
-      aHdl = RWL_KEYED_TIMER.writeLockedGet ( () -> HDL_KEYED_TIMER.computeIfAbsent (sName, k -> new StatisticsHandlerKeyedTimer ()));
-    }
+      aHdl = HDL_KEYED_TIMER.computeIfAbsent (sName, k -> new StatisticsHandlerKeyedTimer ());
     return aHdl;
   }
 
@@ -149,7 +160,7 @@ public final class StatisticsManager
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedTimerHandler ()
   {
-    return RWL_KEYED_TIMER.readLockedGet (HDL_KEYED_TIMER::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_KEYED_TIMER.keySet ());
   }
 
   @Nonnull
@@ -165,12 +176,9 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerSize aHdl = RWL_SIZE.readLockedGet ( () -> HDL_SIZE.get (sName));
-
+    StatisticsHandlerSize aHdl = HDL_SIZE.get (sName);
     if (aHdl == null)
-    {
-      aHdl = RWL_SIZE.writeLockedGet ( () -> HDL_SIZE.computeIfAbsent (sName, k -> new StatisticsHandlerSize ()));
-    }
+      aHdl = HDL_SIZE.computeIfAbsent (sName, k -> new StatisticsHandlerSize ());
     return aHdl;
   }
 
@@ -178,7 +186,7 @@ public final class StatisticsManager
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllSizeHandler ()
   {
-    return RWL_SIZE.readLockedGet (HDL_SIZE::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_SIZE.keySet ());
   }
 
   @Nonnull
@@ -194,12 +202,9 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedSize aHdl = RWL_KEYED_SIZE.readLockedGet ( () -> HDL_KEYED_SIZE.get (sName));
-
+    StatisticsHandlerKeyedSize aHdl = HDL_KEYED_SIZE.get (sName);
     if (aHdl == null)
-    {
-      aHdl = RWL_KEYED_SIZE.writeLockedGet ( () -> HDL_KEYED_SIZE.computeIfAbsent (sName, k -> new StatisticsHandlerKeyedSize ()));
-    }
+      aHdl = HDL_KEYED_SIZE.computeIfAbsent (sName, k -> new StatisticsHandlerKeyedSize ());
     return aHdl;
   }
 
@@ -207,7 +212,7 @@ public final class StatisticsManager
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedSizeHandler ()
   {
-    return RWL_KEYED_SIZE.readLockedGet (HDL_KEYED_SIZE::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_KEYED_SIZE.keySet ());
   }
 
   @Nonnull
@@ -223,12 +228,9 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCounter aHdl = RWL_COUNTER.readLockedGet ( () -> HDL_COUNTER.get (sName));
-
+    StatisticsHandlerCounter aHdl = HDL_COUNTER.get (sName);
     if (aHdl == null)
-    {
-      aHdl = RWL_COUNTER.writeLockedGet ( () -> HDL_COUNTER.computeIfAbsent (sName, k -> new StatisticsHandlerCounter ()));
-    }
+      aHdl = HDL_COUNTER.computeIfAbsent (sName, k -> new StatisticsHandlerCounter ());
     return aHdl;
   }
 
@@ -236,7 +238,7 @@ public final class StatisticsManager
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllCounterHandler ()
   {
-    return RWL_COUNTER.readLockedGet (HDL_COUNTER::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_COUNTER.keySet ());
   }
 
   @Nonnull
@@ -252,13 +254,9 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedCounter aHdl = RWL_KEYED_COUNTER.readLockedGet ( () -> HDL_KEYED_COUNTER.get (sName));
-
+    StatisticsHandlerKeyedCounter aHdl = HDL_KEYED_COUNTER.get (sName);
     if (aHdl == null)
-    {
-      aHdl = RWL_KEYED_COUNTER.writeLockedGet ( () -> HDL_KEYED_COUNTER.computeIfAbsent (sName,
-                                                                                              k -> new StatisticsHandlerKeyedCounter ()));
-    }
+      aHdl = HDL_KEYED_COUNTER.computeIfAbsent (sName, k -> new StatisticsHandlerKeyedCounter ());
     return aHdl;
   }
 
@@ -266,18 +264,19 @@ public final class StatisticsManager
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedCounterHandler ()
   {
-    return RWL_KEYED_COUNTER.readLockedGet (HDL_KEYED_COUNTER::copyOfKeySet);
+    return new CommonsHashSet <> (HDL_KEYED_COUNTER.keySet ());
   }
 
   public static void clearCache ()
   {
-    RWL_CACHE.writeLocked (HDL_CACHE::clear);
-    RWL_TIMER.writeLocked (HDL_TIMER::clear);
-    RWL_KEYED_TIMER.writeLocked (HDL_KEYED_TIMER::clear);
-    RWL_SIZE.writeLocked (HDL_SIZE::clear);
-    RWL_KEYED_SIZE.writeLocked (HDL_KEYED_SIZE::clear);
-    RWL_COUNTER.writeLocked (HDL_COUNTER::clear);
-    RWL_KEYED_COUNTER.writeLocked (HDL_KEYED_COUNTER::clear);
+    HDL_CACHE.clear ();
+    HDL_TIMER.clear ();
+    HDL_HISTOGRAM_TIMER.clear ();
+    HDL_KEYED_TIMER.clear ();
+    HDL_SIZE.clear ();
+    HDL_KEYED_SIZE.clear ();
+    HDL_COUNTER.clear ();
+    HDL_KEYED_COUNTER.clear ();
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Cache was cleared: " + StatisticsManager.class.getName ());
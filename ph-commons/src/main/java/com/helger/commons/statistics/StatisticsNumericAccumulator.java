@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A contention-free accumulator for numeric statistic values, based on striped
+ * {@link LongAdder} and {@link LongAccumulator} instances. Adding a value
+ * neither locks nor allocates (apart from the lazy creation of the stripes
+ * under contention).<br>
+ * To be overflow-safe, the sum is split into the upper and the lower 32 bits
+ * of each value, which are summed up separately. That is exact for up to
+ * {@link Integer#MAX_VALUE} invocations.<br>
+ * Note: the different values are not read atomically. When reading while
+ * values are added concurrently, the values may be slightly inconsistent to
+ * each other.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+public final class StatisticsNumericAccumulator
+{
+  private static final long LOW_MASK = 0xffffffffL;
+
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAccumulator m_aMin = new LongAccumulator (Math::min, Long.MAX_VALUE);
+  private final LongAccumulator m_aMax = new LongAccumulator (Math::max, Long.MIN_VALUE);
+  private final LongAdder m_aSumHigh = new LongAdder ();
+  private final LongAdder m_aSumLow = new LongAdder ();
+
+  public StatisticsNumericAccumulator ()
+  {}
+
+  /**
+   * Add a single value.
+   *
+   * @param nValue
+   *        The value to be added.
+   */
+  public void addValue (final long nValue)
+  {
+    m_aSumHigh.add (nValue >> 32);
+    m_aSumLow.add (nValue & LOW_MASK);
+    m_aMin.accumulate (nValue);
+    m_aMax.accumulate (nValue);
+    // Increment last, so that readers checking the count never see an
+    // incomplete min/max
+    m_aInvocationCount.increment ();
+  }
+
+  /**
+   * @return The number of added values. Values &gt;
+   *         {@link Integer#MAX_VALUE} are cut.
+   */
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    final long nCount = m_aInvocationCount.sum ();
+    return nCount > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) nCount;
+  }
+
+  /**
+   * @return The sum of all added values. Never <code>null</code>.
+   */
+  @Nonnull
+  public BigInteger getSum ()
+  {
+    final long nHigh = m_aSumHigh.sum ();
+    final long nLow = m_aSumLow.sum ();
+    if (nHigh == 0 && nLow >= 0)
+      return BigInteger.valueOf (nLow);
+    return BigInteger.valueOf (nHigh).shiftLeft (32).add (BigInteger.valueOf (nLow));
+  }
+
+  /**
+   * @return The smallest value or {@link CGlobal#ILLEGAL_ULONG} if no value was
+   *         added.
+   */
+  @CheckForSigned
+  public long getMin ()
+  {
+    return m_aInvocationCount.sum () == 0 ? CGlobal.ILLEGAL_ULONG : m_aMin.get ();
+  }
+
+  /**
+   * @return The biggest value or {@link CGlobal#ILLEGAL_ULONG} if no value was
+   *         added.
+   */
+  @CheckForSigned
+  public long getMax ()
+  {
+    return m_aInvocationCount.sum () == 0 ? CGlobal.ILLEGAL_ULONG : m_aMax.get ();
+  }
+
+  /**
+   * @return The average value (sum / invocation count) or
+   *         {@link CGlobal#ILLEGAL_ULONG} if no value was added.
+   */
+  @CheckForSigned
+  public long getAverage ()
+  {
+    final long nCount = m_aInvocationCount.sum ();
+    if (nCount == 0)
+      return CGlobal.ILLEGAL_ULONG;
+    return getSum ().divide (BigInteger.valueOf (nCount)).longValue ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    // No object ID needed for toString
+    return new ToStringGenerator (null).append ("invocations", getInvocationCount ())
+                                       .append ("min", getMin ())
+                                       .append ("max", getMax ())
+                                       .append ("sum", getSum ())
+                                       .getToString ();
+  }
+}
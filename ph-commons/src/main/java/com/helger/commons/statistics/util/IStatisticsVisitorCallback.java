@@ -21,6 +21,7 @@ import javax.annotation.Nonnull;
 import com.helger.commons.callback.ICallback;
 import com.helger.commons.statistics.IStatisticsHandlerCache;
 import com.helger.commons.statistics.IStatisticsHandlerCounter;
+import com.helger.commons.statistics.IStatisticsHandlerHistogramTimer;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedCounter;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedSize;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedTimer;
@@ -56,6 +57,18 @@ public interface IStatisticsVisitorCallback extends ICallback
   default void onTimer (@Nonnull final String sName, @Nonnull final IStatisticsHandlerTimer aHandler)
   {}
 
+  /**
+   * Called per histogram-timer entry
+   * 
+   * @param sName
+   *        Name. Never <code>null</code>.
+   * @param aHandler
+   *        Statistics handler. Never <code>null</code>.
+   * @since 11.1.4
+   */
+  default void onHistogramTimer (@Nonnull final String sName, @Nonnull final IStatisticsHandlerHistogramTimer aHandler)
+  {}
+
   /**
    * Called per keyed-timer entry
    * 
@@ -26,6 +26,7 @@ import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.statistics.IStatisticsHandlerCache;
 import com.helger.commons.statistics.IStatisticsHandlerCounter;
+import com.helger.commons.statistics.IStatisticsHandlerHistogramTimer;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedCounter;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedSize;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedTimer;
@@ -73,6 +74,14 @@ public final class StatisticsVisitor
       aCallback.onTimer (sName, aHandler);
     }
 
+    // For all histogram timer handler
+    aHandlers = StatisticsManager.getAllHistogramTimerHandler ().getSorted (Comparator.naturalOrder ());
+    for (final String sName : aHandlers)
+    {
+      final IStatisticsHandlerHistogramTimer aHandler = StatisticsManager.getHistogramTimerHandler (sName);
+      aCallback.onHistogramTimer (sName, aHandler);
+    }
+
     // For all keyed timer handler
     aHandlers = StatisticsManager.getAllKeyedTimerHandler ().getSorted (Comparator.naturalOrder ());
     for (final String sName : aHandlers)
@@ -31,6 +31,7 @@ import com.helger.commons.lang.GenericReflection;
 import com.helger.commons.log.ConditionalLogger;
 import com.helger.commons.log.IHasConditionalLogger;
 import com.helger.commons.typeconvert.TypeConverterException.EReason;
+import com.helger.commons.typeconvert.rule.TypeConverterRuleAssignableSourceFixedDestination;
 
 /**
  * Helper class for converting base types likes "boolean" to object types like
@@ -126,6 +127,36 @@ public final class TypeConverter implements IHasConditionalLogger
     return convert (Short.valueOf (aSrcValue), aDstClass);
   }
 
+  /**
+   * Check if the passed value is a {@link Number} with a primitive wrapper
+   * type and the default rule based converter would be used, so that custom
+   * converters are still considered. For these values the default converters
+   * just invoke the respective {@link Number} method, so the full conversion
+   * and the boxing of the result can be avoided.
+   *
+   * @param aSrcValue
+   *        The source value to check. May be <code>null</code>.
+   * @param aDstClass
+   *        The wrapper class of the destination type. May not be
+   *        <code>null</code>.
+   * @return <code>true</code> if the primitive conversion can be used.
+   */
+  private static boolean _isPrimitiveNumber (@Nullable final Object aSrcValue, @Nonnull final Class <?> aDstClass)
+  {
+    if (!(aSrcValue instanceof Number))
+      return false;
+    final Class <?> aSrcClass = aSrcValue.getClass ();
+    if (!ClassHelper.isPrimitiveWrapperType (aSrcClass))
+      return false;
+    if (aSrcClass == aDstClass)
+      return true;
+    // Only if the generic rule from Number (as registered by the
+    // BaseTypeConverterRegistrar) would be used anyway
+    final ITypeConverter <?, ?> aConverter = TypeConverterRegistry.getInstance ().getBestMatchConverter (aSrcClass, aDstClass);
+    return aConverter instanceof TypeConverterRuleAssignableSourceFixedDestination <?, ?> &&
+           ((TypeConverterRuleAssignableSourceFixedDestination <?, ?>) aConverter).getSourceClass () == Number.class;
+  }
+
   /**
    * Convert the passed source value to boolean
    *
@@ -263,6 +294,8 @@ public final class TypeConverter implements IHasConditionalLogger
   {
     if (aSrcValue == null)
       throw new TypeConverterException (double.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+    if (_isPrimitiveNumber (aSrcValue, Double.class))
+      return ((Number) aSrcValue).doubleValue ();
     final Double aValue = convert (aSrcValue, Double.class);
     return aValue.doubleValue ();
   }
@@ -282,6 +315,8 @@ public final class TypeConverter implements IHasConditionalLogger
    */
   public static double convertToDouble (@Nullable final Object aSrcValue, final double dDefault)
   {
+    if (_isPrimitiveNumber (aSrcValue, Double.class))
+      return ((Number) aSrcValue).doubleValue ();
     final Double aValue = convert (aSrcValue, Double.class, null);
     return aValue == null ? dDefault : aValue.doubleValue ();
   }
@@ -343,6 +378,8 @@ public final class TypeConverter implements IHasConditionalLogger
   {
     if (aSrcValue == null)
       throw new TypeConverterException (int.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+    if (_isPrimitiveNumber (aSrcValue, Integer.class))
+      return ((Number) aSrcValue).intValue ();
     final Integer aValue = convert (aSrcValue, Integer.class);
     return aValue.intValue ();
   }
@@ -362,6 +399,8 @@ public final class TypeConverter implements IHasConditionalLogger
    */
   public static int convertToInt (@Nullable final Object aSrcValue, final int nDefault)
   {
+    if (_isPrimitiveNumber (aSrcValue, Integer.class))
+      return ((Number) aSrcValue).intValue ();
     final Integer aValue = convert (aSrcValue, Integer.class, null);
     return aValue == null ? nDefault : aValue.intValue ();
   }
@@ -383,6 +422,8 @@ public final class TypeConverter implements IHasConditionalLogger
   {
     if (aSrcValue == null)
       throw new TypeConverterException (long.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+    if (_isPrimitiveNumber (aSrcValue, Long.class))
+      return ((Number) aSrcValue).longValue ();
     final Long aValue = convert (aSrcValue, Long.class);
     return aValue.longValue ();
   }
@@ -402,6 +443,8 @@ public final class TypeConverter implements IHasConditionalLogger
    */
   public static long convertToLong (@Nullable final Object aSrcValue, final long nDefault)
   {
+    if (_isPrimitiveNumber (aSrcValue, Long.class))
+      return ((Number) aSrcValue).longValue ();
     final Long aValue = convert (aSrcValue, Long.class, null);
     return aValue == null ? nDefault : aValue.longValue ();
   }
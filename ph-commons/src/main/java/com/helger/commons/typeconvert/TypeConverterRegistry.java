@@ -18,6 +18,7 @@ package com.helger.commons.typeconvert;
 
 import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -42,6 +43,7 @@ import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.debug.GlobalDebug;
 import com.helger.commons.lang.ClassHelper;
 import com.helger.commons.lang.ClassHierarchyCache;
+import com.helger.commons.lang.GenericReflection;
 import com.helger.commons.lang.ServiceLoaderHelper;
 import com.helger.commons.state.EContinue;
 import com.helger.commons.wrapper.Wrapper;
@@ -62,6 +64,55 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     private static final TypeConverterRegistry INSTANCE = new TypeConverterRegistry ();
   }
 
+  /**
+   * A cache for the resolved converter per source and destination class,
+   * including negative results. The cache is never cleared but replaced as a
+   * whole, if converters are registered. The results are attached to the
+   * source class via a {@link ClassValue} and are kept in a weak map per
+   * destination class, so that neither class (and its class loader) is pinned
+   * by the cache.
+   *
+   * @author Philip Helger
+   * @since 11.1.4
+   */
+  private static final class ResolvedConverterCache
+  {
+    private static final Object NO_CONVERTER = new Object ();
+
+    private final BiFunction <Class <?>, Class <?>, ITypeConverter <?, ?>> m_aResolver;
+    private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+    // Per source class: destination class to converter or NO_CONVERTER
+    private final ClassValue <ICommonsMap <Class <?>, Object>> m_aCache = new ClassValue <ICommonsMap <Class <?>, Object>> ()
+    {
+      @Override
+      protected ICommonsMap <Class <?>, Object> computeValue (@Nonnull final Class <?> aSrcClass)
+      {
+        return new CommonsWeakHashMap <> ();
+      }
+    };
+
+    ResolvedConverterCache (@Nonnull final BiFunction <Class <?>, Class <?>, ITypeConverter <?, ?>> aResolver)
+    {
+      m_aResolver = aResolver;
+    }
+
+    @Nullable
+    ITypeConverter <?, ?> get (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
+    {
+      final ICommonsMap <Class <?>, Object> aDstMap = m_aCache.get (aSrcClass);
+      Object ret = m_aRWLock.readLockedGet ( () -> aDstMap.get (aDstClass));
+      if (ret == null)
+      {
+        // Not using computeIfAbsent, because the resolver may use other caches
+        final ITypeConverter <?, ?> aConverter = m_aResolver.apply (aSrcClass, aDstClass);
+        final Object aValue = aConverter != null ? aConverter : NO_CONVERTER;
+        m_aRWLock.writeLocked ( () -> aDstMap.putIfAbsent (aDstClass, aValue));
+        ret = aValue;
+      }
+      return ret == NO_CONVERTER ? null : GenericReflection.uncheckedCast (ret);
+    }
+  }
+
   private static final Logger LOGGER = LoggerFactory.getLogger (TypeConverterRegistry.class);
 
   private static boolean s_bDefaultInstantiated = false;
@@ -74,8 +125,14 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   @GuardedBy ("m_aRWLock")
   private final ICommonsSortedMap <ITypeConverterRule.ESubType, ICommonsList <ITypeConverterRule <?, ?>>> m_aRules = new CommonsTreeMap <> ();
 
+  // The caches are replaced upon each registration
+  private volatile ResolvedConverterCache m_aRuleBasedCache;
+  private volatile ResolvedConverterCache m_aFuzzyCache;
+  private volatile ResolvedConverterCache m_aBestMatchCache;
+
   private TypeConverterRegistry ()
   {
+    _invalidateCaches ();
     _reinitialize ();
   }
 
@@ -92,6 +149,15 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     return ret;
   }
 
+  private void _invalidateCaches ()
+  {
+    // Replace the caches after the registration, so that readers see the new
+    // state
+    m_aRuleBasedCache = new ResolvedConverterCache (this::_getRuleBasedConverter);
+    m_aFuzzyCache = new ResolvedConverterCache (this::_getFuzzyConverter);
+    m_aBestMatchCache = new ResolvedConverterCache (this::_getBestMatchConverter);
+  }
+
   @Nonnull
   @ReturnsMutableObject ("internal use only")
   private ICommonsMap <Class <?>, ITypeConverter <?, ?>> _getOrCreateConverterMap (@Nonnull final Class <?> aClass)
@@ -168,6 +234,7 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
           }
       }
     });
+    _invalidateCaches ();
   }
 
   public <SRC, DST> void registerTypeConverter (@Nonnull final Class <SRC> aSrcClass,
@@ -207,7 +274,8 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
 
   /**
    * Get the converter that can convert objects from aSrcClass to aDstClass
-   * using the registered rules. The first match is returned.
+   * using the registered rules. The first match is returned. The result is
+   * cached until the next registration.
    *
    * @param aSrcClass
    *        Source class. May not be <code>null</code>.
@@ -222,6 +290,12 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     if (aSrcClass == null || aDstClass == null)
       return null;
 
+    return m_aRuleBasedCache.get (aSrcClass, aDstClass);
+  }
+
+  @Nullable
+  private ITypeConverter <?, ?> _getRuleBasedConverter (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
+  {
     return m_aRWLock.readLockedGet ( () -> {
       // Check all rules in the correct order
       for (final Map.Entry <ITypeConverterRule.ESubType, ICommonsList <ITypeConverterRule <?, ?>>> aEntry : m_aRules.entrySet ())
@@ -277,7 +351,7 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
    * Get the converter that can convert objects from aSrcClass to aDstClass. If
    * no exact match is found, the super-classes and interface of source and
    * destination class are searched for matching type converters. The first
-   * match is returned.
+   * match is returned. The result is cached until the next registration.
    *
    * @param aSrcClass
    *        Source class. May not be <code>null</code>.
@@ -292,6 +366,12 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     if (aSrcClass == null || aDstClass == null)
       return null;
 
+    return m_aFuzzyCache.get (aSrcClass, aDstClass);
+  }
+
+  @Nullable
+  private ITypeConverter <?, ?> _getFuzzyConverter (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
+  {
     return m_aRWLock.readLockedGet ( () -> {
       if (GlobalDebug.isDebugMode ())
       {
@@ -321,6 +401,46 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     });
   }
 
+  /**
+   * Get the converter that can convert objects from aSrcClass to aDstClass.
+   * First an exact match is searched, than a rule based converter and finally
+   * a fuzzy converter. The result is cached until the next registration.
+   *
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @param aDstClass
+   *        Destination class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists, the converter
+   *         object otherwise.
+   * @since 11.1.4
+   */
+  @Nullable
+  ITypeConverter <?, ?> getBestMatchConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
+  {
+    if (aSrcClass == null || aDstClass == null)
+      return null;
+
+    return m_aBestMatchCache.get (aSrcClass, aDstClass);
+  }
+
+  @Nullable
+  private ITypeConverter <?, ?> _getBestMatchConverter (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
+  {
+    // Find exact hit first
+    ITypeConverter <?, ?> ret = getExactConverter (aSrcClass, aDstClass);
+    if (ret == null)
+    {
+      // No exact match was found -> try rule based converter
+      ret = getRuleBasedConverter (aSrcClass, aDstClass);
+      if (ret == null)
+      {
+        // No exact match was found -> try fuzzy converter
+        ret = getFuzzyConverter (aSrcClass, aDstClass);
+      }
+    }
+    return ret;
+  }
+
   /**
    * Iterate all registered type converters. For informational purposes only.
    *
@@ -360,6 +480,7 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     m_aRWLock.writeLockedBoolean ( () -> m_aRules.computeIfAbsent (aTypeConverterRule.getSubType (),
                                                                    x -> new CommonsArrayList <> ())
                                                  .add (aTypeConverterRule));
+    _invalidateCaches ();
 
     if (LOGGER.isTraceEnabled ())
       LOGGER.trace ("Registered type converter rule " +
@@ -394,6 +515,7 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
         aSPI.registerTypeConverter (this);
       }
     });
+    _invalidateCaches ();
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug (getRegisteredTypeConverterCount () +
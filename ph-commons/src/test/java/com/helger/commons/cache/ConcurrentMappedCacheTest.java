@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.concurrent.ThreadHelper;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.wrapper.Wrapper;
+
+/**
+ * Test class for class {@link ConcurrentMappedCache}.
+ *
+ * @author Philip Helger
+ */
+public final class ConcurrentMappedCacheTest
+{
+  @Test
+  public void testMaxSize ()
+  {
+    final int nMaxSize = 5;
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (x -> x, nMaxSize, "Mock");
+    assertTrue (c.hasMaxSize ());
+    assertEquals (nMaxSize, c.getMaxSize ());
+
+    for (int i = 0; i < nMaxSize * 20; ++i)
+      c.getFromCache ("anything" + i);
+    assertEquals (nMaxSize, c.size ());
+    // The most recent one is always in the admission window
+    assertTrue (c.isInCache ("anything" + (nMaxSize * 20 - 1)));
+  }
+
+  @Test
+  public void testFrequentlyUsedSurvivesScan ()
+  {
+    final int nMaxSize = 100;
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (x -> x, nMaxSize, "Mock");
+
+    // Make some keys popular
+    for (int j = 0; j < 5; ++j)
+      for (int i = 0; i < 50; ++i)
+        c.getFromCache ("hot" + i);
+
+    // A scan over many keys that are used only once
+    for (int i = 0; i < 1000; ++i)
+      c.getFromCache ("cold" + i);
+    assertEquals (nMaxSize, c.size ());
+
+    for (int i = 0; i < 50; ++i)
+      assertTrue ("hot" + i, c.isInCache ("hot" + i));
+  }
+
+  @Test
+  public void testNoMaxSize ()
+  {
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (x -> x, "Mock");
+    assertFalse (c.hasMaxSize ());
+
+    final int nMax = 10;
+    for (int i = 0; i < nMax; ++i)
+      c.getFromCache ("anything" + i);
+    assertEquals (nMax, c.size ());
+    assertTrue (c.isInCache ("anything0"));
+    assertTrue (c.isInCache ("anything9"));
+
+    assertTrue (c.removeFromCache ("anything0").isChanged ());
+    assertFalse (c.removeFromCache ("anything0").isChanged ());
+    assertEquals (nMax - 1, c.size ());
+
+    assertTrue (c.clearCache ().isChanged ());
+    assertFalse (c.clearCache ().isChanged ());
+    assertTrue (c.isEmpty ());
+  }
+
+  @Test
+  public void testSameStoreKey ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (StringHelper::getNotNull,
+                                                                                           StringHelper::getNotNull,
+                                                                                           ConcurrentMappedCache.NO_MAX_SIZE,
+                                                                                           "Mock",
+                                                                                           false);
+    assertEquals (0, c.size ());
+    assertEquals ("", c.getFromCache (""));
+    assertEquals (1, c.size ());
+    // Creates the same key as ""
+    assertEquals ("", c.getFromCache (null));
+    assertEquals (1, c.size ());
+    assertTrue (c.isInCache (null));
+  }
+
+  @Test
+  public void testNullValues ()
+  {
+    final ConcurrentCache <Integer, String> c = new ConcurrentCache <> (x -> x == null ? null : "v" + x.intValue (),
+                                                                        ConcurrentMappedCache.NO_MAX_SIZE,
+                                                                        "Mock",
+                                                                        false);
+    assertEquals ("v1", c.getFromCache (Integer.valueOf (1)));
+    try
+    {
+      // null key not allowed
+      c.getFromCache (null);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    // Failures are not cached
+    assertEquals (1, c.size ());
+
+    final ConcurrentCache <String, String> c2 = new ConcurrentCache <> (aKey -> "blub".equals (aKey) ? null : aKey,
+                                                                        ConcurrentMappedCache.NO_MAX_SIZE,
+                                                                        "Mock",
+                                                                        true);
+    assertNull (c2.getFromCache ("blub"));
+    assertTrue (c2.isInCache ("blub"));
+  }
+
+  @Test
+  public void testComputeOnce () throws InterruptedException
+  {
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final ConcurrentCache <String, Object> c = new ConcurrentCache <> (x -> {
+      aCount.incrementAndGet ();
+      ThreadHelper.sleep (100);
+      return new Object ();
+    }, 10, "Mock");
+
+    final Object [] aResults = new Object [20];
+    final ExecutorService aES = Executors.newFixedThreadPool (aResults.length);
+    for (int i = 0; i < aResults.length; ++i)
+    {
+      final int nIndex = i;
+      aES.submit ( () -> aResults[nIndex] = c.getFromCache ("key"));
+    }
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (1, aCount.get ());
+    for (final Object o : aResults)
+      assertSame (aResults[0], o);
+  }
+
+  @Test
+  public void testRecursive ()
+  {
+    final Wrapper <ConcurrentCache <String, String>> c = new Wrapper <> ();
+    c.set (new ConcurrentCache <> (x -> c.get ().getFromCache (x), 10, "Mock"));
+    try
+    {
+      c.get ().getFromCache ("a");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    assertTrue (c.get ().isEmpty ());
+  }
+
+  @Test
+  public void testConcurrentBounded () throws InterruptedException
+  {
+    final int nMaxSize = 50;
+    final ConcurrentCache <Integer, String> c = new ConcurrentCache <> (x -> "v" + x, nMaxSize, "Mock");
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int t = 0; t < 8; ++t)
+    {
+      final int nOffset = t;
+      aES.submit ( () -> {
+        for (int i = 0; i < 5000; ++i)
+        {
+          final Integer aKey = Integer.valueOf ((i * 7 + nOffset) % 500);
+          assertEquals ("v" + aKey, c.getFromCache (aKey));
+        }
+      });
+    }
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (1, TimeUnit.MINUTES));
+    assertTrue (c.size () <= nMaxSize);
+  }
+}
@@ -18,12 +18,23 @@ package com.helger.commons.cache;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
 import org.junit.Test;
 
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.string.StringHelper;
 
 /**
@@ -167,4 +178,177 @@ public final class MappedCacheTest
     assertEquals (2, c.size ());
     assertTrue (c.isInCache ("b"));
   }
+
+  /**
+   * Cache with a manually controlled clock
+   */
+  private static final class MockTimedCache extends Cache <String, String>
+  {
+    private final AtomicLong m_aClock;
+
+    MockTimedCache (@Nonnull final Function <String, String> aValueProvider, @Nonnull final AtomicLong aClock)
+    {
+      super (aValueProvider, MappedCache.NO_MAX_SIZE, "MockTimed");
+      m_aClock = aClock;
+    }
+
+    @Override
+    protected long getCurrentNanoTime ()
+    {
+      return m_aClock.get ();
+    }
+  }
+
+  @Test
+  public void testExpireAfterWrite ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final MockTimedCache c = new MockTimedCache (x -> x + aCount.incrementAndGet (), aClock);
+    assertFalse (c.isTimeBased ());
+    c.setExpireAfterWrite (Duration.ofSeconds (10));
+    assertTrue (c.isTimeBased ());
+    assertEquals (Duration.ofSeconds (10), c.getExpireAfterWrite ());
+
+    assertEquals ("a1", c.getFromCache ("a"));
+    aClock.set (Duration.ofSeconds (9).toNanos ());
+    // Accessing does not extend the lifetime
+    assertEquals ("a1", c.getFromCache ("a"));
+    aClock.set (Duration.ofSeconds (10).toNanos ());
+    assertFalse (c.isInCache ("a"));
+    assertEquals ("a2", c.getFromCache ("a"));
+    assertEquals (1, c.size ());
+  }
+
+  @Test
+  public void testExpireAfterAccess ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final MockTimedCache c = new MockTimedCache (x -> x + aCount.incrementAndGet (), aClock);
+    c.setExpireAfterAccess (Duration.ofSeconds (10));
+
+    assertEquals ("a1", c.getFromCache ("a"));
+    assertEquals ("b2", c.getFromCache ("b"));
+    for (int i = 1; i <= 3; ++i)
+    {
+      aClock.set (Duration.ofSeconds (i * 8).toNanos ());
+      assertEquals ("a1", c.getFromCache ("a"));
+    }
+    assertTrue (c.isInCache ("a"));
+    assertFalse (c.isInCache ("b"));
+    // Still in the map, until the sweep runs
+    assertEquals (2, c.size ());
+    assertTrue (c.removeExpiredEntries ().isChanged ());
+    assertFalse (c.removeExpiredEntries ().isChanged ());
+    assertEquals (1, c.size ());
+  }
+
+  @Test
+  public void testAmortizedSweep ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final MockTimedCache c = new MockTimedCache (x -> x, aClock);
+    c.setExpireAfterWrite (Duration.ofSeconds (10));
+
+    for (int i = 0; i < 10; ++i)
+      c.getFromCache ("old" + i);
+    assertEquals (10, c.size ());
+
+    aClock.set (Duration.ofSeconds (11).toNanos ());
+    // A cache miss triggers the sweep
+    c.getFromCache ("new");
+    assertEquals (1, c.size ());
+    assertTrue (c.isInCache ("new"));
+  }
+
+  @Test
+  public void testSweepOnWrite ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final MockTimedCache c = new MockTimedCache (x -> x, aClock);
+    c.setExpireAfterWrite (Duration.ofSeconds (10));
+
+    for (int i = 0; i < 10; ++i)
+      c.putInCache ("old" + i, "value" + i);
+    assertEquals (10, c.size ());
+
+    aClock.set (Duration.ofSeconds (11).toNanos ());
+    // A write without any lookup triggers the sweep as well
+    c.putInCache ("new", "value");
+    assertEquals (1, c.size ());
+    assertTrue (c.isInCache ("new"));
+  }
+
+  @Test
+  public void testRefreshAfterWrite ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final ICommonsList <Runnable> aPending = new CommonsArrayList <> ();
+    final MockTimedCache c = new MockTimedCache (x -> x + aCount.incrementAndGet (), aClock);
+    c.setRefreshAfterWrite (Duration.ofSeconds (10)).setRefreshExecutor (aPending::add);
+
+    final String sV1 = c.getFromCache ("a");
+    assertEquals ("a1", sV1);
+    assertTrue (aPending.isEmpty ());
+
+    aClock.set (Duration.ofSeconds (10).toNanos ());
+    // Stale value is returned, refresh is scheduled only once
+    assertSame (sV1, c.getFromCache ("a"));
+    assertSame (sV1, c.getFromCache ("a"));
+    assertEquals (1, aPending.size ());
+
+    // Perform refresh
+    aPending.removeFirst ().run ();
+    final String sV2 = c.getFromCache ("a");
+    assertEquals ("a2", sV2);
+    assertNotSame (sV1, sV2);
+    assertTrue (aPending.isEmpty ());
+    assertEquals (1, c.size ());
+  }
+
+  @Test
+  public void testRefreshAfterWriteWithError ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final AtomicInteger aCount = new AtomicInteger (0);
+    final ICommonsList <Runnable> aPending = new CommonsArrayList <> ();
+    final MockTimedCache c = new MockTimedCache (x -> {
+      if (aCount.incrementAndGet () == 2)
+        throw new AssertionError ("Refresh failed");
+      return x + aCount.get ();
+    }, aClock);
+    c.setRefreshAfterWrite (Duration.ofSeconds (10)).setRefreshExecutor (aPending::add);
+
+    final String sV1 = c.getFromCache ("a");
+    assertEquals ("a1", sV1);
+
+    aClock.set (Duration.ofSeconds (10).toNanos ());
+    assertSame (sV1, c.getFromCache ("a"));
+    assertEquals (1, aPending.size ());
+    try
+    {
+      aPending.removeFirst ().run ();
+      fail ();
+    }
+    catch (final AssertionError ex)
+    {
+      assertEquals ("Refresh failed", ex.getMessage ());
+    }
+
+    // Old value is kept and the refresh is not retried immediately
+    assertSame (sV1, c.getFromCache ("a"));
+    assertTrue (aPending.isEmpty ());
+    aClock.set (Duration.ofSeconds (19).toNanos ());
+    assertSame (sV1, c.getFromCache ("a"));
+    assertTrue (aPending.isEmpty ());
+
+    // The refresh can be scheduled again after the refresh duration
+    aClock.set (Duration.ofSeconds (20).toNanos ());
+    assertSame (sV1, c.getFromCache ("a"));
+    assertEquals (1, aPending.size ());
+    aPending.removeFirst ().run ();
+    assertEquals ("a3", c.getFromCache ("a"));
+  }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.concurrent.ThreadHelper;
+import com.helger.commons.state.ESuccess;
+
+/**
+ * Test class for class {@link ConcurrentObjectPool}.
+ *
+ * @author Philip Helger
+ */
+public final class ConcurrentObjectPoolTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final int ITEMS = 5;
+    final ConcurrentObjectPool <Object> aOP = new ConcurrentObjectPool <> (ITEMS, Object::new);
+    assertEquals (ITEMS, aOP.getPoolSize ());
+    assertEquals (0, aOP.getBorrowedObjectCount ());
+    assertEquals (0, aOP.getCreatedObjectCount ());
+
+    final Object [] aItems = new Object [ITEMS];
+    for (int i = 0; i < ITEMS; ++i)
+      aItems[i] = aOP.borrowObject ();
+    assertEquals (ITEMS, aOP.getBorrowedObjectCount ());
+    assertEquals (ITEMS, aOP.getCreatedObjectCount ());
+    assertEquals (100, aOP.getUtilisationPercentage (), 0.001);
+
+    // Pool is exhausted
+    assertNull (aOP.borrowObject (10, TimeUnit.MILLISECONDS));
+    assertEquals (1, aOP.getTimeoutCount ());
+
+    for (final Object aItem : aItems)
+      assertTrue (aOP.returnObject (aItem).isSuccess ());
+    assertEquals (0, aOP.getBorrowedObjectCount ());
+    assertEquals (ITEMS, aOP.getIdleObjectCount ());
+    assertEquals (ITEMS, aOP.getPeakBorrowedObjectCount ());
+
+    // Cannot return twice
+    assertTrue (aOP.returnObject (aItems[0]).isFailure ());
+    // Unknown object
+    assertTrue (aOP.returnObject (new Object ()).isFailure ());
+
+    // Objects are reused
+    final Object aItem = aOP.borrowObject ();
+    assertNotNull (aItem);
+    assertEquals (ITEMS, aOP.getTotalCreatedCount ());
+    aOP.returnObject (aItem);
+
+    aOP.clearUnusedItems ();
+    assertEquals (0, aOP.getCreatedObjectCount ());
+  }
+
+  @Test
+  public void testThreadAffinity ()
+  {
+    final ConcurrentObjectPool <Object> aOP = new ConcurrentObjectPool <> (5, Object::new);
+    final Object a = aOP.borrowObject ();
+    final Object b = aOP.borrowObject ();
+    assertNotSame (a, b);
+    aOP.returnObject (b);
+    aOP.returnObject (a);
+
+    // The last returned object is reused
+    assertSame (a, aOP.borrowObject ());
+    assertEquals (1, aOP.getThreadAffinityHitCount ());
+    aOP.returnObject (a);
+  }
+
+  @Test
+  public void testPassivateOnReturn ()
+  {
+    final AtomicInteger aPassivated = new AtomicInteger (0);
+    final ConcurrentObjectPool <int []> aOP = new ConcurrentObjectPool <> (1, new IObjectPoolFactory <int []> ()
+    {
+      @Nonnull
+      public int [] create ()
+      {
+        return new int [1];
+      }
+
+      @Nonnull
+      public ESuccess activate (@Nonnull final int [] aItem)
+      {
+        return ESuccess.SUCCESS;
+      }
+
+      public void passivate (@Nonnull final int [] aItem)
+      {
+        aPassivated.incrementAndGet ();
+        if (aItem[0] < 0)
+          throw new IllegalStateException ("Passivation failed");
+      }
+    });
+
+    // A duplicate return is rejected without passivation
+    final int [] a = aOP.borrowObject ();
+    assertTrue (aOP.returnObject (a).isSuccess ());
+    assertTrue (aOP.returnObject (a).isFailure ());
+    assertEquals (1, aPassivated.get ());
+
+    // A failed passivation discards the object but releases the permit
+    assertSame (a, aOP.borrowObject ());
+    a[0] = -1;
+    try
+    {
+      aOP.returnObject (a);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    assertEquals (0, aOP.getBorrowedObjectCount ());
+    assertEquals (0, aOP.getCreatedObjectCount ());
+    assertEquals (1, aOP.getTotalDiscardedCount ());
+
+    final int [] b = aOP.borrowObject (10, TimeUnit.MILLISECONDS);
+    assertNotNull (b);
+    assertNotSame (a, b);
+    assertTrue (aOP.returnObject (b).isSuccess ());
+  }
+
+  @Test
+  public void testValidationOnBorrow ()
+  {
+    final AtomicInteger aCreated = new AtomicInteger (0);
+    final ConcurrentObjectPool <int []> aOP = new ConcurrentObjectPool <> (2, new IObjectPoolFactory <int []> ()
+    {
+      @Nonnull
+      public int [] create ()
+      {
+        return new int [] { aCreated.incrementAndGet () };
+      }
+
+      @Nonnull
+      public ESuccess activate (@Nonnull final int [] aItem)
+      {
+        // Only odd objects are valid
+        return ESuccess.valueOf ((aItem[0] & 1) == 1);
+      }
+
+      public void passivate (@Nonnull final int [] aItem)
+      {}
+    });
+    final int [] a = aOP.borrowObject ();
+    final int [] b = aOP.borrowObject ();
+    aOP.returnObject (a);
+    aOP.returnObject (b);
+    assertEquals (2, aOP.getCreatedObjectCount ());
+
+    // Object "2" is invalid and is replaced
+    final int [] c = aOP.borrowObject ();
+    final int [] d = aOP.borrowObject ();
+    assertEquals (1, c[0] & 1);
+    assertEquals (1, d[0] & 1);
+    assertEquals (3, aCreated.get ());
+    assertEquals (1, aOP.getTotalDiscardedCount ());
+    assertEquals (2, aOP.getCreatedObjectCount ());
+    aOP.returnObject (c);
+    aOP.returnObject (d);
+  }
+
+  @Test
+  public void testIdleEviction ()
+  {
+    final ConcurrentObjectPool <Object> aOP = new ConcurrentObjectPool <> (5, Object::new).setIdleTimeout (Duration.ofMillis (20))
+                                                                                         .setMinIdle (1);
+    final Object [] aItems = new Object [5];
+    for (int i = 0; i < aItems.length; ++i)
+      aItems[i] = aOP.borrowObject ();
+    for (final Object aItem : aItems)
+      aOP.returnObject (aItem);
+    assertEquals (5, aOP.getIdleObjectCount ());
+    assertEquals (0, aOP.evictIdleObjects ());
+
+    ThreadHelper.sleep (50);
+    assertEquals (4, aOP.evictIdleObjects ());
+    assertEquals (1, aOP.getIdleObjectCount ());
+    assertEquals (1, aOP.getCreatedObjectCount ());
+
+    // Grows again on demand
+    for (int i = 0; i < aItems.length; ++i)
+      aItems[i] = aOP.borrowObject ();
+    assertEquals (5, aOP.getCreatedObjectCount ());
+    for (final Object aItem : aItems)
+      aOP.returnObject (aItem);
+  }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final int nMax = 4;
+    final ConcurrentObjectPool <AtomicInteger> aOP = new ConcurrentObjectPool <> (nMax, AtomicInteger::new);
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (16);
+    for (int t = 0; t < 16; ++t)
+      aES.submit ( () -> {
+        for (int i = 0; i < 5000; ++i)
+        {
+          final AtomicInteger aItem = aOP.borrowObject ();
+          // Each object may only be used by one thread at a time
+          if (aItem.incrementAndGet () != 1)
+            aErrors.incrementAndGet ();
+          aItem.decrementAndGet ();
+          if (aOP.returnObject (aItem).isFailure ())
+            aErrors.incrementAndGet ();
+        }
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (0, aErrors.get ());
+    assertEquals (0, aOP.getBorrowedObjectCount ());
+    assertTrue (aOP.getCreatedObjectCount () <= nMax);
+    assertTrue (aOP.getPeakBorrowedObjectCount () <= nMax);
+    assertEquals (16 * 5000, aOP.getTotalBorrowCount ());
+  }
+}
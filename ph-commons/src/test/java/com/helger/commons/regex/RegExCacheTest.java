@@ -16,12 +16,15 @@
  */
 package com.helger.commons.regex;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.junit.Test;
@@ -76,4 +79,24 @@ public final class RegExCacheTest
       assertTrue (ex.getCause () instanceof PatternSyntaxException);
     }
   }
+
+  @Test
+  public void testConcurrentCache ()
+  {
+    assertFalse (RegExCache.getInstance ().isUseConcurrentCache ());
+
+    final RegExCache aCache = new RegExCache (true);
+    assertTrue (aCache.isUseConcurrentCache ());
+    assertTrue (aCache.isEmpty ());
+    final Pattern aPattern = aCache.getFromCache (new RegExPattern ("xy"));
+    assertNotNull (aPattern);
+    assertSame (aPattern, aCache.getFromCache (new RegExPattern ("xy")));
+    assertNotSame (aPattern, aCache.getFromCache (new RegExPattern ("yy")));
+    assertEquals (2, aCache.size ());
+    assertTrue (aCache.isInCache (new RegExPattern ("xy")));
+    assertTrue (aCache.removeFromCache (new RegExPattern ("xy")).isChanged ());
+    assertFalse (aCache.isInCache (new RegExPattern ("xy")));
+    assertTrue (aCache.clearCache ().isChanged ());
+    assertTrue (aCache.isEmpty ());
+  }
 }
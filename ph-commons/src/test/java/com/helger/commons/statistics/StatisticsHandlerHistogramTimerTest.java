@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+
+/**
+ * Test class for class {@link StatisticsHandlerHistogramTimer}.
+ *
+ * @author Philip Helger
+ */
+public final class StatisticsHandlerHistogramTimerTest
+{
+  private static void _assertNear (final long nExpected, final long nActual)
+  {
+    // Max relative error is below 1%
+    assertTrue ("Expected " + nExpected + " but got " + nActual, Math.abs (nExpected - nActual) <= nExpected / 100 + 1);
+  }
+
+  @Test
+  public void testBucketIndex ()
+  {
+    for (final long nValue : new long [] { 0, 1, 255, 256, 257, 511, 512, 1000, 65_535, 1_000_000, StatisticsHistogramSnapshot.MAX_TRACKABLE_VALUE })
+    {
+      final int nIndex = StatisticsHistogramSnapshot.getBucketIndex (nValue);
+      assertTrue (nIndex < StatisticsHistogramSnapshot.BUCKET_COUNT);
+      assertTrue (nValue >= StatisticsHistogramSnapshot.getLowestValueOfBucket (nIndex));
+      assertTrue (nValue <= StatisticsHistogramSnapshot.getHighestValueOfBucket (nIndex));
+    }
+    // Out of range values are clamped
+    assertEquals (0, StatisticsHistogramSnapshot.getBucketIndex (-5));
+    assertEquals (StatisticsHistogramSnapshot.BUCKET_COUNT - 1, StatisticsHistogramSnapshot.getBucketIndex (Long.MAX_VALUE));
+
+    // Buckets are contiguous
+    for (int i = 1; i < StatisticsHistogramSnapshot.BUCKET_COUNT; ++i)
+      assertEquals (StatisticsHistogramSnapshot.getHighestValueOfBucket (i - 1) + 1,
+                    StatisticsHistogramSnapshot.getLowestValueOfBucket (i));
+  }
+
+  @Test
+  public void testPercentiles ()
+  {
+    final StatisticsHandlerHistogramTimer aHdl = new StatisticsHandlerHistogramTimer ();
+    assertEquals (0, aHdl.getSnapshot ().getTotalCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, aHdl.getValueAtPercentile (50));
+
+    for (int i = 1; i <= 10_000; ++i)
+      aHdl.addTime (i);
+    assertEquals (10_000, aHdl.getInvocationCount ());
+
+    final StatisticsHistogramSnapshot aSnapshot = aHdl.getSnapshot ();
+    assertEquals (10_000, aSnapshot.getTotalCount ());
+    assertEquals (1, aSnapshot.getMin ());
+    assertEquals (10_000, aSnapshot.getMax ());
+    _assertNear (5_000, aSnapshot.getP50 ());
+    _assertNear (9_900, aSnapshot.getP99 ());
+    _assertNear (9_990, aSnapshot.getP999 ());
+    assertEquals (1, aSnapshot.getValueAtPercentile (0));
+    assertEquals (10_000, aSnapshot.getValueAtPercentile (100));
+
+    // Small values are exact
+    final StatisticsHandlerHistogramTimer aHdl2 = new StatisticsHandlerHistogramTimer ();
+    for (int i = 0; i < 100; ++i)
+      aHdl2.addTime (i);
+    assertEquals (49, aHdl2.getValueAtPercentile (50));
+    assertEquals (98, aHdl2.getValueAtPercentile (99));
+  }
+
+  @Test
+  public void testSnapshotAndReset ()
+  {
+    final StatisticsHandlerHistogramTimer aHdl = new StatisticsHandlerHistogramTimer ();
+    aHdl.addTime (10);
+    aHdl.addTime (20);
+
+    StatisticsHistogramSnapshot aSnapshot = aHdl.getSnapshotAndReset ();
+    assertEquals (2, aSnapshot.getTotalCount ());
+    assertEquals (0, aHdl.getSnapshot ().getTotalCount ());
+    // Cumulative values are not affected
+    assertEquals (2, aHdl.getInvocationCount ());
+
+    aHdl.addTime (1000);
+    aSnapshot = aHdl.getSnapshotAndReset ();
+    assertEquals (1, aSnapshot.getTotalCount ());
+    assertEquals (1000, aSnapshot.getMin ());
+    assertEquals (1000, aSnapshot.getP50 ());
+    assertEquals (3, aHdl.getInvocationCount ());
+    assertEquals (10, aHdl.getMin ());
+  }
+
+  @Test
+  public void testConcurrentNoLostValues ()
+  {
+    final StatisticsHandlerHistogramTimer aHdl = new StatisticsHandlerHistogramTimer ();
+    final int nThreads = 8;
+    final int nPerThread = 20_000;
+    final long [] aCollected = new long [1];
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads + 1);
+    for (int t = 0; t < nThreads; ++t)
+      aES.submit ( () -> {
+        for (int i = 0; i < nPerThread; ++i)
+          aHdl.addTime (i % 1000);
+      });
+    aES.submit ( () -> {
+      for (int i = 0; i < 50; ++i)
+        aCollected[0] += aHdl.getSnapshotAndReset ().getTotalCount ();
+    });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    aCollected[0] += aHdl.getSnapshotAndReset ().getTotalCount ();
+
+    assertEquals (nThreads * nPerThread, aCollected[0]);
+    assertEquals (nThreads * nPerThread, aHdl.getInvocationCount ());
+  }
+}
@@ -91,6 +91,36 @@ public final class StatisticsManagerTest
     {}
   }
 
+  @Test
+  @SuppressFBWarnings (value = "NP_NONNULL_PARAM_VIOLATION")
+  public void testHistogramTimerHandler ()
+  {
+    assertNotNull (StatisticsManager.getHistogramTimerHandler (StatisticsManagerTest.class));
+    assertNotNull (StatisticsManager.getHistogramTimerHandler (StatisticsManagerTest.class));
+    assertFalse (StatisticsManager.getAllHistogramTimerHandler ().isEmpty ());
+    try
+    {
+      StatisticsManager.getHistogramTimerHandler ((Class <?>) null);
+      fail ();
+    }
+    catch (final NullPointerException ex)
+    {}
+    try
+    {
+      StatisticsManager.getHistogramTimerHandler ((String) null);
+      fail ();
+    }
+    catch (final NullPointerException ex)
+    {}
+    try
+    {
+      StatisticsManager.getHistogramTimerHandler ("");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
   @Test
   @SuppressFBWarnings (value = "NP_NONNULL_PARAM_VIOLATION")
   public void testKeyedTimerHandler ()
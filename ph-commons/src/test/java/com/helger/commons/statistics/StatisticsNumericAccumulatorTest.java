@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+
+/**
+ * Test class for class {@link StatisticsNumericAccumulator}.
+ *
+ * @author Philip Helger
+ */
+public final class StatisticsNumericAccumulatorTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final StatisticsNumericAccumulator a = new StatisticsNumericAccumulator ();
+    assertEquals (0, a.getInvocationCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, a.getMin ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, a.getMax ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, a.getAverage ());
+    assertEquals (BigInteger.ZERO, a.getSum ());
+
+    a.addValue (-5);
+    a.addValue (15);
+    assertEquals (2, a.getInvocationCount ());
+    assertEquals (-5, a.getMin ());
+    assertEquals (15, a.getMax ());
+    assertEquals (5, a.getAverage ());
+    assertEquals (BigInteger.TEN, a.getSum ());
+  }
+
+  @Test
+  public void testOverflowSafeSum ()
+  {
+    final StatisticsNumericAccumulator a = new StatisticsNumericAccumulator ();
+    a.addValue (Long.MAX_VALUE);
+    a.addValue (Long.MAX_VALUE);
+    a.addValue (Long.MAX_VALUE);
+    assertEquals (BigInteger.valueOf (Long.MAX_VALUE).multiply (BigInteger.valueOf (3)), a.getSum ());
+    assertEquals (Long.MAX_VALUE, a.getAverage ());
+
+    a.addValue (Long.MIN_VALUE);
+    assertEquals (BigInteger.valueOf (Long.MAX_VALUE).multiply (BigInteger.valueOf (3)).add (BigInteger.valueOf (Long.MIN_VALUE)),
+                  a.getSum ());
+    assertEquals (Long.MIN_VALUE, a.getMin ());
+    assertEquals (Long.MAX_VALUE, a.getMax ());
+  }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final StatisticsNumericAccumulator a = new StatisticsNumericAccumulator ();
+    final int nThreads = 8;
+    final int nPerThread = 10_000;
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    for (int t = 0; t < nThreads; ++t)
+      aES.submit ( () -> {
+        for (int i = 1; i <= nPerThread; ++i)
+          a.addValue (i);
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (nThreads * nPerThread, a.getInvocationCount ());
+    assertEquals (1, a.getMin ());
+    assertEquals (nPerThread, a.getMax ());
+    assertEquals (BigInteger.valueOf ((long) nThreads * nPerThread * (nPerThread + 1) / 2), a.getSum ());
+  }
+}
@@ -522,4 +522,73 @@ public final class TypeConverterTest
       }
     }
   }
+
+  @Test
+  public void testPrimitiveNumbers ()
+  {
+    assertEquals (5, TypeConverter.convertToInt (Long.valueOf (5)));
+    assertEquals (3, TypeConverter.convertToInt (Double.valueOf (3.9)));
+    assertEquals (-1, TypeConverter.convertToInt (Short.valueOf ((short) -1), 7));
+    assertEquals (7, TypeConverter.convertToInt (null, 7));
+    assertEquals (12, TypeConverter.convertToInt ("12"));
+    assertEquals (7, TypeConverter.convertToInt ("a", 7));
+
+    assertEquals (Long.MAX_VALUE, TypeConverter.convertToLong (Long.valueOf (Long.MAX_VALUE)));
+    assertEquals (1, TypeConverter.convertToLong (Float.valueOf (1.5f), 3));
+    assertEquals (3, TypeConverter.convertToLong (new AtomicLong (3)));
+
+    assertEquals (5.0, TypeConverter.convertToDouble (Integer.valueOf (5)), 0);
+    assertEquals (0.5, TypeConverter.convertToDouble (Float.valueOf (0.5f), 1), 0);
+    assertEquals (1.25, TypeConverter.convertToDouble (new BigDecimal ("1.25")), 0);
+  }
+
+  @Test
+  public void testResolvedConverterCache ()
+  {
+    final TypeConverterRegistry aRegistry = TypeConverterRegistry.getInstance ();
+    final ITypeConverter <?, ?> aConverter = aRegistry.getBestMatchConverter (String.class, Integer.class);
+    assertNotNull (aConverter);
+    assertSame (aConverter, aRegistry.getBestMatchConverter (String.class, Integer.class));
+
+    // Negative results are cached as well
+    assertNull (aRegistry.getBestMatchConverter (MockImplementation.class, MultilingualText.class));
+    assertNull (aRegistry.getBestMatchConverter (MockImplementation.class, MultilingualText.class));
+    try
+    {
+      // Registration invalidates the cache
+      aRegistry.registerTypeConverter (MockImplementation.class,
+                                       MultilingualText.class,
+                                       aSource -> new MultilingualText (Locale.ROOT, aSource.getAny ()));
+      assertNotNull (aRegistry.getBestMatchConverter (MockImplementation.class, MultilingualText.class));
+      // Fuzzy match via the super class
+      assertNotNull (aRegistry.getBestMatchConverter (MockSubImplementation.class, MultilingualText.class));
+      assertEquals ("x",
+                    TypeConverter.convert (new MockImplementation ("x"), MultilingualText.class).getText (Locale.ROOT));
+    }
+    finally
+    {
+      aRegistry.reinitialize ();
+    }
+    assertNull (aRegistry.getBestMatchConverter (MockImplementation.class, MultilingualText.class));
+  }
+
+  @Test
+  public void testPrimitiveFastPathRespectsCustomConverter ()
+  {
+    final TypeConverterRegistry aRegistry = TypeConverterRegistry.getInstance ();
+    assertEquals (5L, TypeConverter.convertToLong (Integer.valueOf (5)));
+    try
+    {
+      aRegistry.registerTypeConverter (Integer.class, Long.class, aSource -> Long.valueOf (aSource.longValue () * 10));
+      assertEquals (50L, TypeConverter.convertToLong (Integer.valueOf (5)));
+      assertEquals (50L, TypeConverter.convertToLong (Integer.valueOf (5), -1));
+      // Not affected
+      assertEquals (5, TypeConverter.convertToInt (Long.valueOf (5)));
+    }
+    finally
+    {
+      aRegistry.reinitialize ();
+    }
+    assertEquals (5L, TypeConverter.convertToLong (Integer.valueOf (5)));
+  }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.callback.CallbackList;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.config.source.res.IConfigurationSourceResource;
+import com.helger.config.source.res.IConfigurationSourceResourceChangeCallback;
+import com.helger.config.value.ConfiguredValue;
+import com.helger.config.value.IConfigurationValueProviderWithPriorityCallback;
+
+/**
+ * An opt-in memoizing {@link IConfig} that wraps another {@link IConfig} and
+ * caches the fully resolved values returned by {@link #getValue(String)} -
+ * that includes the variable replacement. As all the typed getters are based
+ * on {@link #getValue(String)}, they are served from the cache as well.<br>
+ * The cache is invalidated completely whenever a resource based configuration
+ * source contained in the wrapped configuration reports a change (e.g. after
+ * {@link IConfigurationSourceResource#reload()}), because a changed value may
+ * be referenced as a variable from any other value. Afterwards the change
+ * callbacks of this object are invoked, so they already see the new
+ * values.<br>
+ * Note: changes in configuration sources that are not resource based (like
+ * system properties or environment variables) are not detected. Call
+ * {@link #clearCache()} manually in that case.<br>
+ * Only keys that resolve to a value are cached - lookups of keys without a
+ * value are always delegated to the wrapped configuration. That bounds the
+ * cache by the number of keys present in the wrapped configuration, no matter
+ * how many different keys are queried.<br>
+ * Note: {@link #getConfiguredValue(String)} is not cached.<br>
+ * Call {@link #close()} to unregister from the configuration sources, if the
+ * wrapped configuration outlives this object.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+public class CachingConfig implements IConfig, AutoCloseable
+{
+  private final IConfig m_aConfig;
+  private final IConfigurationSourceResourceChangeCallback m_aSourceCallback = this::_onConfigurationSourceChanged;
+  private final CallbackList <IConfigurationSourceResourceChangeCallback> m_aChangeCallbacks = new CallbackList <> ();
+  // Replaced completely on invalidation, so that a value resolved
+  // concurrently to an invalidation ends up in the discarded map
+  private volatile Map <String, String> m_aCache = new ConcurrentHashMap <> ();
+
+  /**
+   * Constructor. Registers a change callback on all resource based
+   * configuration sources of the provided configuration.
+   *
+   * @param aConfig
+   *        The configuration to be cached. May not be <code>null</code>.
+   */
+  public CachingConfig (@Nonnull final IConfig aConfig)
+  {
+    ValueEnforcer.notNull (aConfig, "Config");
+    m_aConfig = aConfig;
+
+    aConfig.forEachConfigurationValueProvider ( (cvp, prio) -> {
+      if (cvp instanceof IConfigurationSourceResource)
+        ((IConfigurationSourceResource) cvp).changeCallbacks ().add (m_aSourceCallback);
+    });
+  }
+
+  /**
+   * Unregister the change callback from all resource based configuration
+   * sources of the wrapped configuration. Afterwards changes of the
+   * configuration sources no longer invalidate the cache. Calling this method
+   * more than once has no effect.
+   */
+  public void close ()
+  {
+    m_aConfig.forEachConfigurationValueProvider ( (cvp, prio) -> {
+      if (cvp instanceof IConfigurationSourceResource)
+        ((IConfigurationSourceResource) cvp).changeCallbacks ().removeObject (m_aSourceCallback);
+    });
+  }
+
+  private void _onConfigurationSourceChanged (@Nonnull final IConfigurationSourceResource aSource,
+                                              @Nonnull @Nonempty final ICommonsSet <String> aChangedKeys)
+  {
+    clearCache ();
+    m_aChangeCallbacks.forEach (x -> x.onConfigurationSourceChanged (aSource, aChangedKeys));
+  }
+
+  /**
+   * @return The wrapped configuration as provided in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final IConfig getWrappedConfig ()
+  {
+    return m_aConfig;
+  }
+
+  /**
+   * @return The callbacks that are invoked after a contained resource based
+   *         configuration source changed. When they are invoked, the cache is
+   *         already invalidated. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableObject
+  public final CallbackList <IConfigurationSourceResourceChangeCallback> changeCallbacks ()
+  {
+    return m_aChangeCallbacks;
+  }
+
+  /**
+   * Remove all cached values.
+   */
+  public final void clearCache ()
+  {
+    m_aCache = new ConcurrentHashMap <> ();
+  }
+
+  /**
+   * @return The number of currently cached values. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getCacheSize ()
+  {
+    return m_aCache.size ();
+  }
+
+  @Nullable
+  public ConfiguredValue getConfiguredValue (@Nullable final String sKey)
+  {
+    return m_aConfig.getConfiguredValue (sKey);
+  }
+
+  @Nullable
+  public String getValue (@Nullable final String sKey)
+  {
+    if (StringHelper.hasNoText (sKey))
+      return null;
+
+    final Map <String, String> aCache = m_aCache;
+    String ret = aCache.get (sKey);
+    if (ret == null)
+    {
+      // Resolve outside of any lock - the resolution may access other keys
+      final Object aResolved = m_aConfig.getValue (sKey);
+      // Don't cache missing values
+      if (aResolved == null)
+        return null;
+      ret = aResolved.toString ();
+      aCache.put (sKey, ret);
+    }
+    return ret;
+  }
+
+  public void forEachConfigurationValueProvider (@Nonnull final IConfigurationValueProviderWithPriorityCallback aCallback)
+  {
+    m_aConfig.forEachConfigurationValueProvider (aCallback);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Config", m_aConfig)
+                                       .append ("CacheSize", getCacheSize ())
+                                       .getToString ();
+  }
+}
@@ -17,14 +17,21 @@
 package com.helger.config.source.res;
 
 import java.io.File;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.callback.CallbackList;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.ICommonsSet;
 import com.helger.commons.equals.EqualsHelper;
 import com.helger.commons.hashcode.HashCodeGenerator;
 import com.helger.commons.io.resource.IReadableResource;
@@ -39,7 +46,7 @@ import com.helger.config.source.IConfigurationSource;
  *
  * @author Philip Helger
  */
-@Immutable
+@ThreadSafe
 public abstract class AbstractConfigurationSourceResource extends AbstractConfigurationSource implements
                                                           IConfigurationSourceResource
 {
@@ -48,6 +55,7 @@ public abstract class AbstractConfigurationSourceResource extends AbstractConfig
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractConfigurationSourceResource.class);
 
   private final IReadableResource m_aRes;
+  private final CallbackList <IConfigurationSourceResourceChangeCallback> m_aChangeCallbacks = new CallbackList <> ();
 
   protected AbstractConfigurationSourceResource (final int nPriority, @Nonnull final IReadableResource aRes)
   {
@@ -78,6 +86,66 @@ public abstract class AbstractConfigurationSourceResource extends AbstractConfig
     return m_aRes;
   }
 
+  @Nonnull
+  @ReturnsMutableObject
+  public final CallbackList <IConfigurationSourceResourceChangeCallback> changeCallbacks ()
+  {
+    return m_aChangeCallbacks;
+  }
+
+  /**
+   * Get all keys that differ between the old and the new configuration items.
+   *
+   * @param aOldItems
+   *        The configuration items before the reload. May be <code>null</code>.
+   * @param aNewItems
+   *        The configuration items after the reload. May be <code>null</code>.
+   * @return The keys that were added, removed or changed. Never
+   *         <code>null</code> but maybe empty.
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  protected static ICommonsSet <String> getChangedKeys (@Nullable final Map <String, String> aOldItems,
+                                                        @Nullable final Map <String, String> aNewItems)
+  {
+    final ICommonsSet <String> ret = new CommonsHashSet <> ();
+    if (aOldItems != null)
+      for (final Map.Entry <String, String> aEntry : aOldItems.entrySet ())
+        if (aNewItems == null || !EqualsHelper.equals (aEntry.getValue (), aNewItems.get (aEntry.getKey ())))
+          ret.add (aEntry.getKey ());
+    if (aNewItems != null)
+      for (final String sKey : aNewItems.keySet ())
+        if (aOldItems == null || !aOldItems.containsKey (sKey))
+          ret.add (sKey);
+    return ret;
+  }
+
+  /**
+   * Invoke all change callbacks if at least one key changed. Must be called by
+   * implementations after the reload, outside of any lock.
+   *
+   * @param aOldItems
+   *        The configuration items before the reload. May be <code>null</code>.
+   * @param aNewItems
+   *        The configuration items after the reload. May be <code>null</code>.
+   * @since 11.1.4
+   */
+  protected final void onReloaded (@Nullable final Map <String, String> aOldItems,
+                                   @Nullable final Map <String, String> aNewItems)
+  {
+    if (m_aChangeCallbacks.isNotEmpty ())
+    {
+      final ICommonsSet <String> aChangedKeys = getChangedKeys (aOldItems, aNewItems);
+      if (aChangedKeys.isNotEmpty ())
+      {
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Reloading " + m_aRes.getPath () + " changed " + aChangedKeys.size () + " configuration keys");
+        m_aChangeCallbacks.forEach (x -> x.onConfigurationSourceChanged (this, aChangedKeys));
+      }
+    }
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -194,7 +194,12 @@ public class ConfigurationSourceJson extends AbstractConfigurationSourceResource
     // Main load
     final ICommonsOrderedMap <String, String> aProps = _load (getResource (), m_aCharset);
     // Replace in write-lock
-    m_aRWLock.writeLocked ( () -> m_aProps = aProps);
+    final ICommonsOrderedMap <String, String> aOldProps = m_aRWLock.writeLockedGet ( () -> {
+      final ICommonsOrderedMap <String, String> ret = m_aProps;
+      m_aProps = aProps;
+      return ret;
+    });
+    onReloaded (aOldProps, aProps);
     return ESuccess.valueOf (aProps != null);
   }
 
@@ -148,7 +148,12 @@ public class ConfigurationSourceProperties extends AbstractConfigurationSourceRe
     // Main load
     final NonBlockingProperties aProps = _load (getResource (), m_aCharset);
     // Replace in write-lock
-    m_aRWLock.writeLocked ( () -> m_aProps = aProps);
+    final NonBlockingProperties aOldProps = m_aRWLock.writeLockedGet ( () -> {
+      final NonBlockingProperties ret = m_aProps;
+      m_aProps = aProps;
+      return ret;
+    });
+    onReloaded (aOldProps, aProps);
     return ESuccess.valueOf (aProps != null);
   }
 
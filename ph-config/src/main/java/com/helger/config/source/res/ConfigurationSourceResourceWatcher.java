@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.config.source.res;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.io.watchdir.EWatchDirAction;
+import com.helger.commons.io.watchdir.WatchDir;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.config.IConfig;
+
+/**
+ * Watches the files of resource based configuration sources (like
+ * {@link ConfigurationSourceProperties} and {@link ConfigurationSourceJson})
+ * with a {@link WatchDir} and reloads a configuration source whenever its file
+ * is created, modified or deleted. The reload in turn invokes the change
+ * callbacks of the configuration source (see
+ * {@link IConfigurationSourceResource#changeCallbacks()}).<br>
+ * Only configuration sources that are backed by a {@link File} are watched.
+ * One {@link WatchDir} with a background thread is created per parent
+ * directory. Call {@link #close()} to stop watching.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+public class ConfigurationSourceResourceWatcher implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (ConfigurationSourceResourceWatcher.class);
+
+  private final ICommonsList <WatchDir> m_aWatchDirs;
+  private final int m_nSourceCount;
+
+  private ConfigurationSourceResourceWatcher (@Nonnull final ICommonsList <WatchDir> aWatchDirs,
+                                              @Nonnegative final int nSourceCount)
+  {
+    m_aWatchDirs = aWatchDirs;
+    m_nSourceCount = nSourceCount;
+  }
+
+  /**
+   * @return The number of watched configuration sources. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getWatchedSourceCount ()
+  {
+    return m_nSourceCount;
+  }
+
+  /**
+   * Stop watching the files.
+   */
+  public void close ()
+  {
+    for (final WatchDir aWatchDir : m_aWatchDirs)
+      try
+      {
+        aWatchDir.close ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to close " + aWatchDir, ex);
+      }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("WatchDirs", m_aWatchDirs)
+                                       .append ("SourceCount", m_nSourceCount)
+                                       .getToString ();
+  }
+
+  /**
+   * Start watching all file based configuration sources of the provided
+   * configuration.
+   *
+   * @param aConfig
+   *        The configuration to take the configuration sources from. May not be
+   *        <code>null</code>.
+   * @return The new watcher that is already running. Never <code>null</code>.
+   * @throws IOException
+   *         If a directory could not be watched
+   */
+  @Nonnull
+  public static ConfigurationSourceResourceWatcher createAndStart (@Nonnull final IConfig aConfig) throws IOException
+  {
+    ValueEnforcer.notNull (aConfig, "Config");
+
+    final ICommonsList <IConfigurationSourceResource> aSources = new CommonsArrayList <> ();
+    aConfig.forEachConfigurationValueProvider ( (cvp, prio) -> {
+      if (cvp instanceof IConfigurationSourceResource)
+        aSources.add ((IConfigurationSourceResource) cvp);
+    });
+    return createAndStart (aSources);
+  }
+
+  /**
+   * Start watching the provided configuration sources. Sources that are not
+   * backed by a file are ignored.
+   *
+   * @param aSources
+   *        The configuration sources to watch. May not be <code>null</code>.
+   * @return The new watcher that is already running. Never <code>null</code>.
+   * @throws IOException
+   *         If a directory could not be watched
+   */
+  @Nonnull
+  public static ConfigurationSourceResourceWatcher createAndStart (@Nonnull final Iterable <? extends IConfigurationSourceResource> aSources) throws IOException
+  {
+    ValueEnforcer.notNull (aSources, "Sources");
+
+    // Group by directory and absolute file
+    final ICommonsMap <Path, ICommonsMap <Path, ICommonsList <IConfigurationSourceResource>>> aDirs = new CommonsHashMap <> ();
+    int nSourceCount = 0;
+    for (final IConfigurationSourceResource aSource : aSources)
+    {
+      final File aFile = aSource.getResource ().getAsFile ();
+      if (aFile == null)
+        continue;
+
+      final Path aPath = aFile.toPath ().toAbsolutePath ().normalize ();
+      final Path aDir = aPath.getParent ();
+      if (aDir == null || !aDir.toFile ().isDirectory ())
+      {
+        LOGGER.warn ("Cannot watch configuration file '" + aPath + "' because the directory does not exist");
+        continue;
+      }
+      aDirs.computeIfAbsent (aDir.toRealPath (), k -> new CommonsHashMap <> ())
+           .computeIfAbsent (aPath.getFileName (), k -> new CommonsArrayList <> ())
+           .add (aSource);
+      nSourceCount++;
+    }
+
+    final ICommonsList <WatchDir> aWatchDirs = new CommonsArrayList <> ();
+    try
+    {
+      for (final Map.Entry <Path, ICommonsMap <Path, ICommonsList <IConfigurationSourceResource>>> aEntry : aDirs.entrySet ())
+      {
+        final ICommonsMap <Path, ICommonsList <IConfigurationSourceResource>> aFiles = aEntry.getValue ();
+        aWatchDirs.add (WatchDir.createAsyncRunningWatchDir (aEntry.getKey (),
+                                                             false,
+                                                             (eAction, aChangedPath) -> _onChange (aFiles,
+                                                                                                   eAction,
+                                                                                                   aChangedPath)));
+      }
+    }
+    catch (final IOException ex)
+    {
+      // Close the ones already created
+      new ConfigurationSourceResourceWatcher (aWatchDirs, 0).close ();
+      throw ex;
+    }
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Watching " + nSourceCount + " configuration files in " + aWatchDirs.size () + " directories");
+    return new ConfigurationSourceResourceWatcher (aWatchDirs, nSourceCount);
+  }
+
+  private static void _onChange (@Nonnull final ICommonsMap <Path, ICommonsList <IConfigurationSourceResource>> aFiles,
+                                 @Nonnull final EWatchDirAction eAction,
+                                 @Nonnull @Nonempty final Path aChangedPath)
+  {
+    final ICommonsList <IConfigurationSourceResource> aMatching = aFiles.get (aChangedPath.getFileName ());
+    if (aMatching != null)
+      for (final IConfigurationSourceResource aSource : aMatching)
+      {
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Reloading configuration source " + aSource.getResource ().getPath () + " after " + eAction);
+        aSource.reload ();
+      }
+  }
+}
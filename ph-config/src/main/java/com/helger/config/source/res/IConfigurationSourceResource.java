@@ -19,6 +19,8 @@ package com.helger.config.source.res;
 import javax.annotation.Nonnull;
 
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.callback.CallbackList;
 import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.state.ESuccess;
@@ -48,6 +50,21 @@ public interface IConfigurationSourceResource extends IIterableConfigurationSour
   @Nonnull
   ESuccess reload ();
 
+  /**
+   * @return The callbacks that are invoked after a {@link #reload()} changed
+   *         at least one configuration value. Never <code>null</code>. The
+   *         default implementation returns a new empty list on every call, so
+   *         callbacks added to it are never invoked. Implementations that
+   *         support change notifications must override this method.
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableObject
+  default CallbackList <IConfigurationSourceResourceChangeCallback> changeCallbacks ()
+  {
+    return new CallbackList <> ();
+  }
+
   /**
    * @return An ordered map of all contained keys and values in this resource.
    *         The order of the items should follow the order of their declaration
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.config.source.res;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.callback.ICallback;
+import com.helger.commons.collection.impl.ICommonsSet;
+
+/**
+ * Callback interface that is invoked after a resource based configuration
+ * source was reloaded and at least one configuration value changed.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@FunctionalInterface
+public interface IConfigurationSourceResourceChangeCallback extends ICallback
+{
+  /**
+   * Called after the reload of a configuration source.
+   *
+   * @param aSource
+   *        The configuration source that was reloaded. Never
+   *        <code>null</code>.
+   * @param aChangedKeys
+   *        The keys that were added, removed or whose value changed. Never
+   *        <code>null</code> nor empty.
+   */
+  void onConfigurationSourceChanged (@Nonnull IConfigurationSourceResource aSource,
+                                     @Nonnull @Nonempty ICommonsSet <String> aChangedKeys);
+}
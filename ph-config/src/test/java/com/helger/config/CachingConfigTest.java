@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.io.file.FileOperations;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.commons.io.resource.FileSystemResource;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.config.source.MultiConfigurationValueProvider;
+import com.helger.config.source.appl.ConfigurationSourceFunction;
+import com.helger.config.source.res.ConfigurationSourceProperties;
+
+/**
+ * Test class for class {@link CachingConfig}.
+ *
+ * @author Philip Helger
+ */
+public final class CachingConfigTest
+{
+  @Test
+  public void testCacheAndInvalidation ()
+  {
+    final File aFile = new File ("target/caching-config-test.properties");
+    SimpleFileIO.writeFile (aFile, "a=1\nb=${a}-x\nc=unchanged\n", StandardCharsets.ISO_8859_1);
+    try
+    {
+      final ConfigurationSourceProperties aSource = new ConfigurationSourceProperties (new FileSystemResource (aFile));
+      final MutableInt aLookups = new MutableInt (0);
+      final MultiConfigurationValueProvider aMCSP = new MultiConfigurationValueProvider (aSource);
+      aMCSP.addConfigurationSource (new ConfigurationSourceFunction (1, k -> {
+        aLookups.inc ();
+        return null;
+      }));
+      final CachingConfig aConfig = new CachingConfig (new Config (aMCSP));
+
+      assertEquals ("1-x", aConfig.getAsString ("b"));
+      assertEquals ("1-x", aConfig.getAsString ("b"));
+      assertEquals (1, aConfig.getAsInt ("a", -1));
+      assertEquals (1, aConfig.getAsInt ("a", -1));
+
+      // Unknown keys are not cached
+      assertNull (aConfig.getAsString ("d"));
+      final int nLookups = aLookups.intValue ();
+      assertTrue (nLookups > 0);
+      assertNull (aConfig.getAsString ("d"));
+      assertTrue (aLookups.intValue () > nLookups);
+      assertEquals (2, aConfig.getCacheSize ());
+
+      final ICommonsList <ICommonsSet <String>> aChanges = new CommonsArrayList <> ();
+      aConfig.changeCallbacks ().add ( (aSrc, aKeys) -> {
+        // Cache is already invalidated
+        assertEquals ("2-x", aConfig.getAsString ("b"));
+        aChanges.add (aKeys);
+      });
+
+      // Reload without changes
+      aSource.reload ();
+      assertTrue (aChanges.isEmpty ());
+
+      // Change and reload
+      SimpleFileIO.writeFile (aFile, "a=2\nb=${a}-x\nc=unchanged\nd=new\n", StandardCharsets.ISO_8859_1);
+      aSource.reload ();
+      assertEquals (1, aChanges.size ());
+      assertEquals (2, aChanges.get (0).size ());
+      assertTrue (aChanges.get (0).contains ("a"));
+      assertTrue (aChanges.get (0).contains ("d"));
+      // Variable resolution is updated as well
+      assertEquals ("2-x", aConfig.getAsString ("b"));
+      assertEquals ("new", aConfig.getAsString ("d"));
+
+      // Manual invalidation
+      aConfig.clearCache ();
+      assertEquals (2, aConfig.getAsInt ("a", -1));
+
+      // Unregister from the source
+      assertEquals (1, aSource.changeCallbacks ().size ());
+      aConfig.close ();
+      assertTrue (aSource.changeCallbacks ().isEmpty ());
+      SimpleFileIO.writeFile (aFile, "a=3\n", StandardCharsets.ISO_8859_1);
+      aSource.reload ();
+      assertEquals (1, aChanges.size ());
+      assertEquals (2, aConfig.getAsInt ("a", -1));
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+}
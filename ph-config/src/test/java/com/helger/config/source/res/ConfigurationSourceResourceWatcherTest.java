@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.config.source.res;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.helger.commons.io.file.FileOperations;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.FileSystemResource;
+import com.helger.commons.wrapper.Wrapper;
+import com.helger.config.Config;
+import com.helger.config.source.MultiConfigurationValueProvider;
+
+/**
+ * Test class for class {@link ConfigurationSourceResourceWatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class ConfigurationSourceResourceWatcherTest
+{
+  @Test
+  public void testReloadOnModification () throws Exception
+  {
+    final File aDir = new File ("target/config-watcher-test");
+    FileOperations.createDirRecursiveIfNotExisting (aDir);
+    final File aFile = new File (aDir, "watched.properties");
+    SimpleFileIO.writeFile (aFile, "key=old\n", StandardCharsets.ISO_8859_1);
+    try
+    {
+      final ConfigurationSourceProperties aSource = new ConfigurationSourceProperties (new FileSystemResource (aFile));
+      // Class path resources in JARs cannot be watched
+      final ConfigurationSourceProperties aCPSource = new ConfigurationSourceProperties (new ClassPathResource ("does-not-exist.properties"));
+      final Config aConfig = new Config (new MultiConfigurationValueProvider (aSource, aCPSource));
+      assertEquals ("old", aConfig.getAsString ("key"));
+
+      final CountDownLatch aLatch = new CountDownLatch (1);
+      final Wrapper <String> aChangedKey = new Wrapper <> ();
+      aSource.changeCallbacks ().add ( (aSrc, aKeys) -> {
+        aChangedKey.set (aKeys.getAtIndex (0));
+        aLatch.countDown ();
+      });
+
+      try (final ConfigurationSourceResourceWatcher aWatcher = ConfigurationSourceResourceWatcher.createAndStart (aConfig))
+      {
+        assertEquals (1, aWatcher.getWatchedSourceCount ());
+
+        SimpleFileIO.writeFile (aFile, "key=new\n", StandardCharsets.ISO_8859_1);
+        assertTrue (aLatch.await (30, TimeUnit.SECONDS));
+        assertEquals ("key", aChangedKey.get ());
+        assertEquals ("new", aConfig.getAsString ("key"));
+      }
+    }
+    finally
+    {
+      FileOperations.deleteDirRecursiveIfExisting (aDir);
+    }
+  }
+}
@@ -16,8 +16,16 @@
  */
 package com.helger.dao.wal;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
@@ -28,6 +36,7 @@ import java.util.function.Supplier;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -36,6 +45,7 @@ import com.helger.commons.annotation.CodingStyleguideUnaware;
 import com.helger.commons.annotation.DevelopersNote;
 import com.helger.commons.annotation.ELockType;
 import com.helger.commons.annotation.IsLocked;
+import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.MustBeLocked;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.ReturnsMutableObject;
@@ -46,14 +56,21 @@ import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.collection.map.MapEntry;
+import com.helger.commons.functional.IThrowingConsumer;
 import com.helger.commons.functional.Predicates;
 import com.helger.commons.id.IHasID;
 import com.helger.commons.io.relative.IFileRelativeIO;
 import com.helger.commons.lang.ClassHelper;
 import com.helger.commons.state.EChange;
+import com.helger.commons.state.ETriState;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
 import com.helger.commons.string.StringHelper;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.commons.timing.StopWatch;
 import com.helger.commons.wrapper.Wrapper;
 import com.helger.dao.DAOException;
 import com.helger.dao.EDAOActionType;
@@ -61,6 +78,12 @@ import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.MicroDocument;
 import com.helger.xml.microdom.convert.MicroTypeConverter;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroWriter;
+import com.helger.xml.serialize.write.EXMLSerializeBracketMode;
+import com.helger.xml.serialize.write.IXMLWriterSettings;
+import com.helger.xml.serialize.write.XMLEmitter;
+import com.helger.xml.serialize.write.XMLStreamingWriter;
 
 /**
  * Base class for WAL based DAO that uses a simple {@link ICommonsMap} for data
@@ -91,6 +114,10 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     private boolean m_bDoInitialRead = true;
     private Supplier <ICommonsMap <String, IMPLTYPE>> m_aMapSupplier = CommonsHashMap::new;
     private Predicate <IMicroElement> m_aReadElementFilter = Predicates.all ();
+    private boolean m_bUseSnapshotWriting = false;
+    private boolean m_bUseStreamingWriting = false;
+    private boolean m_bParallelRead = false;
+    private final ICommonsOrderedMap <String, Supplier <MapBasedWALDAOIndex <IMPLTYPE>>> m_aIndexFactories = new CommonsLinkedHashMap <> ();
 
     @Nonnull
     public InitSettings <IMPLTYPE> setDoInitialRead (final boolean bDoInitialRead)
@@ -118,15 +145,166 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
       m_aReadElementFilter = ValueEnforcer.notNull (aReadElementFilter, "ReadElementFilter");
       return this;
     }
+
+    /**
+     * Enable or disable snapshot writing. If enabled, the scheduled writing
+     * of the file happens outside of the write lock: the XML of each item is
+     * kept in memory until the item changes, so that only the items changed
+     * since the last writing need to be serialized within the lock, and the
+     * file is streamed to disk from these fragments. Changing items is not
+     * blocked while the file is written. This costs additional memory for the
+     * serialized items. Must not be enabled if
+     * {@link AbstractMapBasedWALDAO#createWriteData()} or
+     * {@link AbstractMapBasedWALDAO#modifyWriteData(IMicroDocument)} are
+     * overridden, because they
+     * are not used for snapshot writing. Items must only be modified via the
+     * internal* methods.
+     *
+     * @param bUseSnapshotWriting
+     *        <code>true</code> to enable snapshot writing, <code>false</code>
+     *        to write the file within the write lock.
+     * @return this for chaining
+     * @since 11.1.4
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> setUseSnapshotWriting (final boolean bUseSnapshotWriting)
+    {
+      m_bUseSnapshotWriting = bUseSnapshotWriting;
+      return this;
+    }
+
+    /**
+     * Enable or disable streaming writing. If enabled, the file is written
+     * with an {@link XMLStreamingWriter} and only the micro element of a single
+     * item is created at a time, instead of building a micro document with all
+     * items. Must not be enabled if
+     * {@link AbstractMapBasedWALDAO#createWriteData()} or
+     * {@link AbstractMapBasedWALDAO#modifyWriteData(IMicroDocument)} are
+     * overridden, because they are not used for streaming writing.
+     *
+     * @param bUseStreamingWriting
+     *        <code>true</code> to enable streaming writing, <code>false</code>
+     *        to build the complete document before writing.
+     * @return this for chaining
+     * @since 11.1.4
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> setUseStreamingWriting (final boolean bUseStreamingWriting)
+    {
+      m_bUseStreamingWriting = bUseStreamingWriting;
+      return this;
+    }
+
+    /**
+     * Enable or disable parallel reading. If enabled, the file is read in a
+     * streaming way and the item elements are converted to native objects in
+     * parallel in the common fork-join pool, while the file is still parsed.
+     * Additionally the elements of a WAL file are converted in parallel upon
+     * recovery. The items are always added in the order of the file. Only
+     * enable this, if the micro type converter of the implementation type is
+     * thread-safe and does not access this DAO. Must not be enabled if
+     * {@link AbstractMapBasedWALDAO#onRead(IMicroDocument)} is overridden and
+     * accesses the item elements of the document.
+     *
+     * @param bParallelRead
+     *        <code>true</code> to enable parallel reading.
+     * @return this for chaining
+     * @since 11.1.4
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> setParallelRead (final boolean bParallelRead)
+    {
+      m_bParallelRead = bParallelRead;
+      return this;
+    }
+
+    @Nonnull
+    private InitSettings <IMPLTYPE> _addIndex (@Nonnull @Nonempty final String sIndexName,
+                                               @Nonnull final Function <? super IMPLTYPE, ?> aKeyExtractor,
+                                               final boolean bSorted)
+    {
+      ValueEnforcer.notEmpty (sIndexName, "IndexName");
+      ValueEnforcer.notNull (aKeyExtractor, "KeyExtractor");
+      ValueEnforcer.isFalse (m_aIndexFactories.containsKey (sIndexName),
+                             () -> "Another index with name '" + sIndexName + "' is already defined");
+      m_aIndexFactories.put (sIndexName, () -> new MapBasedWALDAOIndex <> (sIndexName, aKeyExtractor, bSorted));
+      return this;
+    }
+
+    /**
+     * Add a secondary hash index. The index is maintained automatically for
+     * all changes and can be queried with
+     * {@link AbstractMapBasedWALDAO#findByIndex(String, Object)}. The key of
+     * an item is determined on creation, update and (un)deletion marking, so
+     * items that are modified in place must be passed to one of the internal*
+     * methods to be re-indexed.
+     *
+     * @param sIndexName
+     *        The unique name of the index. May neither be <code>null</code>
+     *        nor empty.
+     * @param aKeyExtractor
+     *        The function to extract the key from an item. If it returns
+     *        <code>null</code>, the item is not indexed. The key must properly
+     *        implement equals and hashCode.
+     * @return this for chaining
+     * @since 11.1.4
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> addHashIndex (@Nonnull @Nonempty final String sIndexName,
+                                                 @Nonnull final Function <? super IMPLTYPE, ?> aKeyExtractor)
+    {
+      return _addIndex (sIndexName, aKeyExtractor, false);
+    }
+
+    /**
+     * Add a secondary sorted index. In addition to the queries of a hash index
+     * (see {@link #addHashIndex(String, Function)}), a sorted index supports
+     * range queries via
+     * {@link AbstractMapBasedWALDAO#findByIndexRange(String, Object, boolean, Object, boolean)}.
+     *
+     * @param <KEYTYPE>
+     *        The comparable key type
+     * @param sIndexName
+     *        The unique name of the index. May neither be <code>null</code>
+     *        nor empty.
+     * @param aKeyExtractor
+     *        The function to extract the key from an item. If it returns
+     *        <code>null</code>, the item is not indexed.
+     * @return this for chaining
+     * @since 11.1.4
+     */
+    @Nonnull
+    public <KEYTYPE extends Comparable <? super KEYTYPE>> InitSettings <IMPLTYPE> addSortedIndex (@Nonnull @Nonempty final String sIndexName,
+                                                                                                   @Nonnull final Function <? super IMPLTYPE, ? extends KEYTYPE> aKeyExtractor)
+    {
+      return _addIndex (sIndexName, aKeyExtractor, true);
+    }
   }
 
   protected static final String ELEMENT_ROOT = "root";
   protected static final String ELEMENT_ITEM = "item";
+  /** The number of item elements that are converted in one task */
+  private static final int PARALLEL_READ_CHUNK_SIZE = 256;
 
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <String, IMPLTYPE> m_aMap;
   private final CallbackList <IDAOChangeCallback <INTERFACETYPE>> m_aCallbacks = new CallbackList <> ();
   private final Predicate <IMicroElement> m_aReadElementFilter;
+  // The serialized XML of each item for snapshot writing - null if disabled
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsMap <String, String> m_aSnapshotFragments;
+  private final boolean m_bUseStreamingWriting;
+  private final boolean m_bParallelRead;
+  // All secondary indexes by name
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsOrderedMap <String, MapBasedWALDAOIndex <IMPLTYPE>> m_aIndexes = new CommonsLinkedHashMap <> ();
+  // The items converted while reading, that are added in onRead
+  @GuardedBy ("m_aRWLock")
+  private ICommonsList <IMPLTYPE> m_aParallelReadItems;
+  private final IMutableStatisticsHandlerTimer m_aStatsCounterReadConvertTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
+                                                                                                                   "$read-convert");
+  private final IMutableStatisticsHandlerTimer m_aStatsCounterReadApplyTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
+                                                                                                                 "$read-apply");
 
   /**
    * Default constructor. Automatically tries to read the file in the
@@ -153,6 +331,12 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     super (aImplClass, aIO, () -> sFilename);
     m_aMap = aInitSettings.m_aMapSupplier.get ();
     m_aReadElementFilter = aInitSettings.m_aReadElementFilter;
+    m_aSnapshotFragments = aInitSettings.m_bUseSnapshotWriting ? new CommonsHashMap <> () : null;
+    m_bUseStreamingWriting = aInitSettings.m_bUseStreamingWriting;
+    m_bParallelRead = aInitSettings.m_bParallelRead;
+    if (m_bParallelRead)
+      setParallelWALRecovery (true);
+    aInitSettings.m_aIndexFactories.forEach ( (k, v) -> m_aIndexes.put (k, v.get ()));
     if (aInitSettings.m_bDoInitialRead)
       initialRead ();
   }
@@ -175,19 +359,68 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.WRITE)
   protected void onRecoveryDelete (@Nonnull final IMPLTYPE aItem)
   {
-    m_aMap.remove (aItem.getID (), aItem);
+    if (m_aMap.remove (aItem.getID (), aItem))
+    {
+      _invalidateSnapshotFragment (aItem.getID ());
+      _removeFromIndexes (aItem.getID ());
+    }
+  }
+
+  @Override
+  @Nullable
+  @MustBeLocked (ELockType.WRITE)
+  protected IMicroDocument readXMLFile (@Nonnull final File aFile)
+  {
+    if (!m_bParallelRead)
+      return super.readXMLFile (aFile);
+
+    final Class <IMPLTYPE> aDataTypeClass = getDataTypeClass ();
+    final ICommonsList <ForkJoinTask <ICommonsList <IMPLTYPE>>> aTasks = new CommonsArrayList <> ();
+    final ICommonsList <IMicroElement> aChunk = new CommonsArrayList <> (PARALLEL_READ_CHUNK_SIZE);
+    final Runnable aSubmitChunk = () -> {
+      final ICommonsList <IMicroElement> aElements = aChunk.getClone ();
+      aChunk.clear ();
+      aTasks.add (ForkJoinPool.commonPool ()
+                              .submit ( () -> aElements.getAllMapped (eItem -> MicroTypeConverter.convertToNative (eItem,
+                                                                                                                 aDataTypeClass))));
+    };
+
+    // Convert the item elements while the file is parsed
+    final IMicroDocument aDoc = MicroReader.readMicroXMLStreaming (aFile, null, eItem -> {
+      // Read all child elements independent of the name - soft migration
+      if (m_aReadElementFilter.test (eItem))
+      {
+        aChunk.add (eItem);
+        if (aChunk.size () >= PARALLEL_READ_CHUNK_SIZE)
+          aSubmitChunk.run ();
+      }
+    });
+    if (aChunk.isNotEmpty ())
+      aSubmitChunk.run ();
+
+    if (aDoc == null)
+    {
+      aTasks.forEach (x -> x.cancel (false));
+      return null;
+    }
+
+    // Wait for the remaining conversions
+    final StopWatch aSW = StopWatch.createdStarted ();
+    final ICommonsList <IMPLTYPE> aItems = new CommonsArrayList <> ();
+    for (final ForkJoinTask <ICommonsList <IMPLTYPE>> aTask : aTasks)
+      aItems.addAll (aTask.join ());
+    m_aStatsCounterReadConvertTimer.addTime (aSW.stopAndGetMillis ());
+
+    m_aParallelReadItems = aItems;
+    return aDoc;
   }
 
   @Override
   @Nonnull
   protected EChange onRead (@Nonnull final IMicroDocument aDoc)
   {
-    // Read all child elements independent of the name - soft migration
-    final Class <IMPLTYPE> aDataTypeClass = getDataTypeClass ();
     final Wrapper <EChange> aChange = new Wrapper <> (EChange.UNCHANGED);
-
-    aDoc.getDocumentElement ().forAllChildElements (m_aReadElementFilter, eItem -> {
-      final IMPLTYPE aItem = MicroTypeConverter.convertToNative (eItem, aDataTypeClass);
+    final Consumer <IMPLTYPE> aItemHandler = aItem -> {
       _addItem (aItem, EDAOActionType.CREATE);
       if (aItem instanceof IDAOReadChangeAware)
         if (((IDAOReadChangeAware) aItem).isReadChanged ())
@@ -195,10 +428,38 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
           // Remember that something was changed while reading
           aChange.set (EChange.CHANGED);
         }
-    });
+    };
+
+    final StopWatch aSW = StopWatch.createdStarted ();
+    if (m_aParallelReadItems != null)
+    {
+      // Items were already converted while reading
+      m_aParallelReadItems.forEach (aItemHandler);
+      m_aParallelReadItems = null;
+    }
+    else
+    {
+      // Read all child elements independent of the name - soft migration
+      final Class <IMPLTYPE> aDataTypeClass = getDataTypeClass ();
+      aDoc.getDocumentElement ()
+          .forAllChildElements (m_aReadElementFilter,
+                                eItem -> aItemHandler.accept (MicroTypeConverter.convertToNative (eItem, aDataTypeClass)));
+    }
+    m_aStatsCounterReadApplyTimer.addTime (aSW.stopAndGetMillis ());
     return aChange.get ();
   }
 
+  /**
+   * @return <code>true</code> if parallel reading is enabled,
+   *         <code>false</code> if not.
+   * @see InitSettings#setParallelRead(boolean)
+   * @since 11.1.4
+   */
+  public final boolean isParallelRead ()
+  {
+    return m_bParallelRead;
+  }
+
   @MustBeLocked (ELockType.READ)
   @CodingStyleguideUnaware
   protected final Collection <IMPLTYPE> internalGetAllSortedByKey ()
@@ -218,6 +479,115 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     return aDoc;
   }
 
+  @Override
+  @Nullable
+  @MustBeLocked (ELockType.WRITE)
+  protected Consumer <XMLStreamingWriter> createWriteDataStreaming ()
+  {
+    if (!m_bUseStreamingWriting)
+      return null;
+
+    // Same structure as in createWriteData
+    return aWriter -> {
+      aWriter.startElement (ELEMENT_ROOT);
+      for (final IMPLTYPE aItem : internalGetAllSortedByKey ())
+        MicroWriter.writeToStreamingWriter (MicroTypeConverter.convertToMicroElement (aItem, ELEMENT_ITEM), aWriter);
+      aWriter.endElement ();
+    };
+  }
+
+  /**
+   * @return <code>true</code> if streaming writing is enabled,
+   *         <code>false</code> if not.
+   * @see InitSettings#setUseStreamingWriting(boolean)
+   * @since 11.1.4
+   */
+  public final boolean isUseStreamingWriting ()
+  {
+    return m_bUseStreamingWriting;
+  }
+
+  /**
+   * @return <code>true</code> if snapshot writing is enabled,
+   *         <code>false</code> if not.
+   * @see InitSettings#setUseSnapshotWriting(boolean)
+   * @since 11.1.4
+   */
+  public final boolean isUseSnapshotWriting ()
+  {
+    return m_aSnapshotFragments != null;
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _invalidateSnapshotFragment (@Nonnull final String sID)
+  {
+    if (m_aSnapshotFragments != null)
+      m_aSnapshotFragments.remove (sID);
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _addToIndexes (@Nonnull final IMPLTYPE aItem)
+  {
+    for (final MapBasedWALDAOIndex <IMPLTYPE> aIndex : m_aIndexes.values ())
+      aIndex.add (aItem.getID (), aItem);
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _removeFromIndexes (@Nonnull final String sID)
+  {
+    for (final MapBasedWALDAOIndex <IMPLTYPE> aIndex : m_aIndexes.values ())
+      aIndex.remove (sID);
+  }
+
+  private static void _writeSnapshot (@Nonnull final ICommonsList <MapEntry <String, String>> aFragments,
+                                      @Nonnull final IXMLWriterSettings aXWS,
+                                      @Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    // Same order as in createWriteData
+    aFragments.sort (Comparator.comparing (MapEntry::getKey));
+
+    final Writer aWriter = new OutputStreamWriter (aOS, aXWS.getCharset ());
+    final XMLEmitter aEmitter = new XMLEmitter (aWriter, aXWS);
+    if (aXWS.getSerializeXMLDeclaration ().isEmit ())
+      aEmitter.onXMLDeclaration (aXWS.getXMLVersion (),
+                                 aXWS.getCharset ().name (),
+                                 ETriState.UNDEFINED,
+                                 aXWS.isNewLineAfterXMLDeclaration ());
+    aEmitter.onComment (getGeneratedFileComment ());
+    aEmitter.newLine ();
+    aEmitter.onElementStart (null, ELEMENT_ROOT, null, EXMLSerializeBracketMode.OPEN_CLOSE);
+    aEmitter.newLine ();
+    for (final MapEntry <String, String> aEntry : aFragments)
+      aWriter.write (aEntry.getValue ());
+    aEmitter.onElementEnd (null, ELEMENT_ROOT, EXMLSerializeBracketMode.OPEN_CLOSE);
+    aEmitter.newLine ();
+    aEmitter.flush ();
+  }
+
+  @Override
+  @Nullable
+  @MustBeLocked (ELockType.WRITE)
+  protected IThrowingConsumer <OutputStream, IOException> createWriteSnapshot ()
+  {
+    if (m_aSnapshotFragments == null)
+      return null;
+
+    // Only the items changed since the last snapshot are serialized - all
+    // others are taken from the fragment cache
+    final IXMLWriterSettings aXWS = getXMLWriterSettings ();
+    final ICommonsList <MapEntry <String, String>> aFragments = new CommonsArrayList <> (m_aMap.size ());
+    for (final Map.Entry <String, IMPLTYPE> aEntry : m_aMap.entrySet ())
+    {
+      final String sID = aEntry.getKey ();
+      final String sFragment = m_aSnapshotFragments.computeIfAbsent (sID,
+                                                                     k -> MicroWriter.getNodeAsString (MicroTypeConverter.convertToMicroElement (aEntry.getValue (),
+                                                                                                                                                 ELEMENT_ITEM),
+                                                                                                       aXWS));
+      aFragments.add (new MapEntry <> (sID, sFragment));
+    }
+    return aOS -> _writeSnapshot (aFragments, aXWS, aOS);
+  }
+
   @Nonnull
   @ReturnsMutableObject
   public final CallbackList <IDAOChangeCallback <INTERFACETYPE>> callbacks ()
@@ -268,6 +638,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     }
 
     m_aMap.put (sID, aItem);
+    _invalidateSnapshotFragment (sID);
+    _addToIndexes (aItem);
   }
 
   /**
@@ -423,6 +795,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     final IMPLTYPE aDeletedItem = m_aMap.remove (sID);
     if (aDeletedItem == null)
       return null;
+    _invalidateSnapshotFragment (sID);
+    _removeFromIndexes (sID);
 
     // Trigger save changes
     super.markAsChanged (aDeletedItem, EDAOActionType.DELETE);
@@ -464,6 +838,9 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.WRITE)
   protected final void internalMarkItemDeleted (@Nonnull final IMPLTYPE aItem, final boolean bInvokeCallbacks)
   {
+    _invalidateSnapshotFragment (aItem.getID ());
+    _addToIndexes (aItem);
+
     // Trigger save changes
     super.markAsChanged (aItem, EDAOActionType.UPDATE);
 
@@ -503,6 +880,9 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.WRITE)
   protected final void internalMarkItemUndeleted (@Nonnull final IMPLTYPE aItem, final boolean bInvokeCallbacks)
   {
+    _invalidateSnapshotFragment (aItem.getID ());
+    _addToIndexes (aItem);
+
     // Trigger save changes
     super.markAsChanged (aItem, EDAOActionType.UPDATE);
 
@@ -524,6 +904,9 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @Nonnull
   protected final EChange internalRemoveAllItemsNoCallback ()
   {
+    if (m_aSnapshotFragments != null)
+      m_aSnapshotFragments.clear ();
+    m_aIndexes.forEachValue (MapBasedWALDAOIndex::clear);
     return m_aMap.removeAll ();
   }
 
@@ -799,6 +1182,152 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     return m_aRWLock.readLockedGet (m_aMap::copyOfKeySet);
   }
 
+  /**
+   * @return The names of all secondary indexes in the order they were defined.
+   *         Never <code>null</code> but maybe empty.
+   * @see InitSettings#addHashIndex(String, Function)
+   * @see InitSettings#addSortedIndex(String, Function)
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsList <String> getAllIndexNames ()
+  {
+    return m_aIndexes.copyOfKeySet ().getCopyAsList ();
+  }
+
+  /**
+   * @param sIndexName
+   *        The index name to check. May be <code>null</code>.
+   * @return <code>true</code> if a secondary index with the provided name
+   *         exists, <code>false</code> if not.
+   * @since 11.1.4
+   */
+  public final boolean hasIndex (@Nullable final String sIndexName)
+  {
+    return sIndexName != null && m_aIndexes.containsKey (sIndexName);
+  }
+
+  @Nonnull
+  private MapBasedWALDAOIndex <IMPLTYPE> _getIndex (@Nonnull final String sIndexName)
+  {
+    final MapBasedWALDAOIndex <IMPLTYPE> ret = m_aIndexes.get (sIndexName);
+    if (ret == null)
+      throw new IllegalArgumentException ("No index with name '" + sIndexName + "' is defined");
+    return ret;
+  }
+
+  /**
+   * Same as {@link #findByIndex(String, Object)} but the locking must happen
+   * on the called side.
+   *
+   * @param sIndexName
+   *        The name of the index to query. May not be <code>null</code>.
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return A new list with all items with the provided key. Never
+   *         <code>null</code> but maybe empty.
+   * @throws IllegalArgumentException
+   *         If no index with the provided name exists
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  @MustBeLocked (ELockType.READ)
+  protected final ICommonsList <IMPLTYPE> internalFindByIndex (@Nonnull final String sIndexName, @Nullable final Object aKey)
+  {
+    return _getIndex (sIndexName).getAll (aKey);
+  }
+
+  /**
+   * Find all items with the provided key in the provided secondary index. This
+   * is an alternative to {@link #getAll(Predicate)} that does not need to scan
+   * all items.
+   *
+   * @param sIndexName
+   *        The name of the index to query. May not be <code>null</code>.
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return A new list with all items with the provided key in the order they
+   *         were indexed. Never <code>null</code> but maybe empty.
+   * @throws IllegalArgumentException
+   *         If no index with the provided name exists
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  @IsLocked (ELockType.READ)
+  public final ICommonsList <INTERFACETYPE> findByIndex (@Nonnull final String sIndexName, @Nullable final Object aKey)
+  {
+    final MapBasedWALDAOIndex <IMPLTYPE> aIndex = _getIndex (sIndexName);
+    // Use new CommonsArrayList to get the return type to NOT use "? extends
+    // INTERFACETYPE"
+    return m_aRWLock.readLockedGet ( () -> new CommonsArrayList <> (aIndex.getAll (aKey)));
+  }
+
+  /**
+   * Find the first item with the provided key in the provided secondary index.
+   * This is an alternative to {@link #findFirst(Predicate)} that does not need
+   * to scan all items.
+   *
+   * @param sIndexName
+   *        The name of the index to query. May not be <code>null</code>.
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return <code>null</code> if no item with the provided key exists.
+   * @throws IllegalArgumentException
+   *         If no index with the provided name exists
+   * @since 11.1.4
+   */
+  @Nullable
+  @IsLocked (ELockType.READ)
+  public final INTERFACETYPE findFirstByIndex (@Nonnull final String sIndexName, @Nullable final Object aKey)
+  {
+    final MapBasedWALDAOIndex <IMPLTYPE> aIndex = _getIndex (sIndexName);
+    return m_aRWLock.readLockedGet ( () -> aIndex.getFirst (aKey));
+  }
+
+  /**
+   * Find all items with a key in the provided range. Only supported for
+   * sorted indexes.
+   *
+   * @param sIndexName
+   *        The name of the sorted index to query. May not be
+   *        <code>null</code>.
+   * @param aFrom
+   *        The lower bound of the key. May be <code>null</code> for no lower
+   *        bound.
+   * @param bFromInclusive
+   *        <code>true</code> if the lower bound is inclusive.
+   * @param aTo
+   *        The upper bound of the key. May be <code>null</code> for no upper
+   *        bound.
+   * @param bToInclusive
+   *        <code>true</code> if the upper bound is inclusive.
+   * @return A new list with all matching items, ordered by key. Never
+   *         <code>null</code> but maybe empty.
+   * @throws IllegalArgumentException
+   *         If no index with the provided name exists
+   * @throws IllegalStateException
+   *         If the index is not sorted
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  @IsLocked (ELockType.READ)
+  public final ICommonsList <INTERFACETYPE> findByIndexRange (@Nonnull final String sIndexName,
+                                                              @Nullable final Object aFrom,
+                                                              final boolean bFromInclusive,
+                                                              @Nullable final Object aTo,
+                                                              final boolean bToInclusive)
+  {
+    final MapBasedWALDAOIndex <IMPLTYPE> aIndex = _getIndex (sIndexName);
+    return m_aRWLock.readLockedGet ( () -> new CommonsArrayList <> (aIndex.getAllInRange (aFrom,
+                                                                                         bFromInclusive,
+                                                                                         aTo,
+                                                                                         bToInclusive)));
+  }
+
   @Nonnegative
   public final int size ()
   {
@@ -818,6 +1347,9 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
                             .append ("Map", m_aMap)
                             .append ("Callbacks", m_aCallbacks)
                             .appendIfNotNull ("ReadElementFilter", m_aReadElementFilter)
+                            .append ("UseSnapshotWriting", isUseSnapshotWriting ())
+                            .append ("ParallelRead", m_bParallelRead)
+                            .append ("Indexes", m_aIndexes)
                             .getToString ();
   }
 }
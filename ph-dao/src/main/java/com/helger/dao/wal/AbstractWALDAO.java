@@ -16,24 +16,30 @@
  */
 package com.helger.dao.wal;
 
+import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
@@ -46,8 +52,10 @@ import com.helger.commons.annotation.MustBeLocked;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.datetime.PDTFactory;
 import com.helger.commons.datetime.PDTToString;
+import com.helger.commons.functional.IThrowingConsumer;
 import com.helger.commons.io.EAppend;
 import com.helger.commons.io.file.EFileIOErrorCode;
 import com.helger.commons.io.file.EFileIOOperation;
@@ -57,6 +65,8 @@ import com.helger.commons.io.file.FileOperationManager;
 import com.helger.commons.io.relative.IFileRelativeIO;
 import com.helger.commons.io.resource.FileSystemResource;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.state.EChange;
 import com.helger.commons.state.ESuccess;
@@ -78,6 +88,7 @@ import com.helger.xml.microdom.serialize.MicroWriter;
 import com.helger.xml.serialize.write.EXMLIncorrectCharacterHandling;
 import com.helger.xml.serialize.write.EXMLSerializeIndent;
 import com.helger.xml.serialize.write.IXMLWriterSettings;
+import com.helger.xml.serialize.write.XMLStreamingWriter;
 import com.helger.xml.serialize.write.XMLWriterSettings;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -92,8 +103,118 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 @ThreadSafe
 public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
 {
+  /**
+   * The mutable state of a WAL file recovery.
+   *
+   * @author Philip Helger
+   */
+  private final class RecoveryState
+  {
+    private boolean m_bPerformedAtLeastOne = false;
+    private boolean m_bContainedErrors = false;
+    // The read but not yet applied elements
+    private final ICommonsList <WALEntry> m_aBatch = new CommonsArrayList <> ();
+  }
+
+  /**
+   * A single element read from a WAL file.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  private final class WALEntry
+  {
+    private final EDAOActionType m_eActionType;
+    private final int m_nIndex;
+    private final IWALRecordCodec <DATATYPE> m_aCodec;
+    private final byte [] m_aData;
+
+    WALEntry (@Nonnull final EDAOActionType eActionType,
+              final int nIndex,
+              @Nonnull final IWALRecordCodec <DATATYPE> aCodec,
+              @Nonnull final byte [] aData)
+    {
+      m_eActionType = eActionType;
+      m_nIndex = nIndex;
+      m_aCodec = aCodec;
+      m_aData = aData;
+    }
+
+    @Nullable
+    DATATYPE getDecoded ()
+    {
+      try
+      {
+        return m_aCodec.decode (m_aData);
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Failed to decode WAL element with codec '" + m_aCodec.getID () + "'", ex);
+        return null;
+      }
+    }
+  }
+
+  /**
+   * The codec that uses {@link AbstractWALDAO#convertNativeToWALString(Object)}
+   * and {@link AbstractWALDAO#convertWALStringToNative(String)}. This was the
+   * only format before v11.1.4.
+   *
+   * @author Philip Helger
+   */
+  private final class XMLStringWALRecordCodec implements IWALRecordCodec <DATATYPE>
+  {
+    @Nonnull
+    @Nonempty
+    public String getID ()
+    {
+      return WAL_RECORD_CODEC_ID_XML;
+    }
+
+    @Nonnull
+    public byte [] encode (@Nonnull final DATATYPE aElement)
+    {
+      return convertNativeToWALString (aElement).getBytes (StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    public DATATYPE decode (@Nonnull final byte [] aBytes)
+    {
+      return convertWALStringToNative (new String (aBytes, StandardCharsets.UTF_8));
+    }
+
+    @Nonnull
+    public String getAsDisplayString (@Nonnull final byte [] aBytes)
+    {
+      return new String (aBytes, StandardCharsets.UTF_8);
+    }
+  }
+
   public static final Duration DEFAULT_WAITING_TIME = Duration.ofSeconds (10);
+  public static final boolean DEFAULT_USE_WAL_CHANNEL = false;
+  public static final Duration DEFAULT_WAL_SYNC_INTERVAL = Duration.ofMillis (100);
+  public static final boolean DEFAULT_PARALLEL_WAL_RECOVERY = false;
+  /** The maximum number of WAL elements that are converted together */
+  public static final int WAL_RECOVERY_BATCH_SIZE = 1024;
+  /**
+   * The ID of the WAL record codec that stores each element as an XML string,
+   * using {@link #convertNativeToWALString(Object)} and
+   * {@link #convertWALStringToNative(String)}.
+   */
+  public static final String WAL_RECORD_CODEC_ID_XML = "xml";
+  /**
+   * The filename extension used for the temporary file a snapshot is written
+   * to and for the WAL file that is covered by a snapshot in progress.
+   */
+  public static final String FILENAME_EXTENSION_SNAPSHOT = ".snapshot";
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractWALDAO.class);
+  /**
+   * The first byte of a WAL action that was written with a codec. Legacy
+   * actions start with the layout byte of
+   * {@link StreamHelper#writeSafeUTF(DataOutput, String)} which is always &lt;
+   * 3.
+   */
+  private static final byte WAL_ACTION_LAYOUT_CODEC = 0x10;
 
   private final IMutableStatisticsHandlerCounter m_aStatsCounterInitTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
                                                                                                                  "$init-total");
@@ -107,6 +228,10 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
                                                                                                                    "$read-success");
   private final IMutableStatisticsHandlerTimer m_aStatsCounterReadTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
                                                                                                              "$read");
+  private final IMutableStatisticsHandlerTimer m_aStatsCounterReadParseTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
+                                                                                                                  "$read-parse");
+  private final IMutableStatisticsHandlerTimer m_aStatsCounterWALRecoveryTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
+                                                                                                                    "$wal-recovery");
   private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
                                                                                                                   "$write-total");
   private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
@@ -132,6 +257,15 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
   private LocalDateTime m_aLastWriteDT;
   private boolean m_bCanWriteWAL = true;
   private Duration m_aWaitingTime = DEFAULT_WAITING_TIME;
+  private boolean m_bUseWALChannel = DEFAULT_USE_WAL_CHANNEL;
+  private EWALDurability m_eWALDurability = EWALDurability.DEFAULT;
+  private Duration m_aWALSyncInterval = DEFAULT_WAL_SYNC_INTERVAL;
+  private boolean m_bParallelWALRecovery = DEFAULT_PARALLEL_WAL_RECOVERY;
+  private final IWALRecordCodec <DATATYPE> m_aXMLStringWALRecordCodec = new XMLStringWALRecordCodec ();
+  private final IWALRecordCodec <DATATYPE> m_aMicroBinaryWALRecordCodec;
+  private IWALRecordCodec <DATATYPE> m_aWALRecordCodec;
+  @GuardedBy ("m_aRWLock")
+  private WALChannelWriter m_aWALChannelWriter;
 
   // Status vars
   private final WALListener m_aWALListener;
@@ -148,6 +282,12 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     return sFilename + FILENAME_EXTENSION_PREV;
   }
 
+  @Nonnull
+  private static String _getFilenameSnapshot (@Nonnull final String sFilename)
+  {
+    return sFilename + FILENAME_EXTENSION_SNAPSHOT;
+  }
+
   protected AbstractWALDAO (@Nonnull final Class <DATATYPE> aDataTypeClass,
                             @Nonnull final IFileRelativeIO aIO,
                             @Nonnull final Supplier <String> aFilenameProvider)
@@ -155,6 +295,9 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     m_aDataTypeClass = ValueEnforcer.notNull (aDataTypeClass, "DataTypeClass");
     m_aIO = ValueEnforcer.notNull (aIO, "DAOIO");
     m_aFilenameProvider = ValueEnforcer.notNull (aFilenameProvider, "FilenameProvider");
+    m_aMicroBinaryWALRecordCodec = new MicroBinaryWALRecordCodec <> (aDataTypeClass);
+    // Stay compatible with customizations and older versions by default
+    m_aWALRecordCodec = m_aXMLStringWALRecordCodec;
 
     // Remember instance in case it is trigger upon shutdown
     m_aWALListener = WALListener.getInstance ();
@@ -211,11 +354,6 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     }
   }
 
-  final void internalWriteLocked (@Nonnull final Runnable aRunnable)
-  {
-    m_aRWLock.writeLocked (aRunnable);
-  }
-
   /**
    * @return The file-relative IO as passed in the constructor. Never
    *         <code>null</code>.
@@ -323,7 +461,9 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
   /**
    * This method is used upon recovery to convert a stored object to its native
    * representation. If you overwrite this method, you should consider
-   * overriding {@link #convertNativeToWALString(Object)} as well.
+   * overriding {@link #convertNativeToWALString(Object)} as well.<br>
+   * Since v11.1.4 this is only used for WAL files written with the XML string
+   * codec (see {@link #getXMLStringWALRecordCodec()}), which is the default.
    *
    * @param sElement
    *        The string representation to be converted. Never <code>null</code>.
@@ -479,7 +619,9 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
           CONDLOG.info ( () -> "Trying to read WAL DAO XML file '" + aFile.getAbsolutePath () + "'");
 
           m_aStatsCounterReadTotal.increment ();
-          aDoc = MicroReader.readMicroXML (aFile);
+          final StopWatch aParseSW = StopWatch.createdStarted ();
+          aDoc = readXMLFile (aFile);
+          m_aStatsCounterReadParseTimer.addTime (aParseSW.stopAndGetMillis ());
           if (aDoc == null)
           {
             LOGGER.error ("Failed to read DAO XML document from file '" + aFile.getAbsolutePath () + "'");
@@ -536,150 +678,348 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
 
       // Check if there is any WAL file to recover
       final String sWALFilename = _getWALFilename ();
-      final File aWALFile = sWALFilename == null ? null : m_aIO.getFile (sWALFilename);
-      if (aWALFile != null && aWALFile.exists ())
+      if (sWALFilename != null)
       {
-        CONDLOG.info ( () -> "Trying to recover from WAL file " + aWALFile.getAbsolutePath ());
-        boolean bPerformedAtLeastOnRecovery = false;
-        boolean bRecoveryContainedErrors = false;
+        // The WAL file of an interrupted snapshot writing contains the older
+        // changes
+        _recoverFromWALFile (_getFilenameSnapshot (sWALFilename));
+        _recoverFromWALFile (sWALFilename);
+      }
+    }
+    finally
+    {
+      // Now a WAL file can be written again
+      m_bCanWriteWAL = true;
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
 
-        // Avoid writing the recovery actions to the WAL file again :)
-        try (final DataInputStream aOIS = new DataInputStream (FileHelper.getInputStream (aWALFile)))
-        {
-          while (true)
-          {
-            // Read action type
-            final String sActionTypeID;
-            try
-            {
-              sActionTypeID = StreamHelper.readSafeUTF (aOIS);
-            }
-            catch (final EOFException ex)
-            {
-              // End of file
-              break;
-            }
-            final EDAOActionType eActionType = EDAOActionType.getFromIDOrThrow (sActionTypeID);
+  /**
+   * Recover all actions from the provided WAL file, if it exists. Afterwards
+   * the file is written and the WAL file is deleted or maintained in case of
+   * errors.
+   *
+   * @param sWALFilename
+   *        The relative WAL filename. May neither be <code>null</code> nor
+   *        empty.
+   * @throws DAOException
+   *         If recovery fails
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _recoverFromWALFile (@Nonnull @Nonempty final String sWALFilename) throws DAOException
+  {
+    final File aWALFile = m_aIO.getFile (sWALFilename);
+    if (!aWALFile.exists ())
+      return;
 
-            // Read number of elements
-            final int nElements = aOIS.readInt ();
-            CONDLOG.info ( () -> "Trying to recover " + nElements + " " + eActionType + " actions from WAL file");
+    CONDLOG.info ( () -> "Trying to recover from WAL file " + aWALFile.getAbsolutePath ());
+    final RecoveryState aState = new RecoveryState ();
+    final StopWatch aSW = StopWatch.createdStarted ();
 
-            // Read all elements
-            for (int i = 0; i < nElements; ++i)
-            {
-              final String sElement = StreamHelper.readSafeUTF (aOIS);
-              final DATATYPE aElement = convertWALStringToNative (sElement);
-              if (aElement == null)
-              {
-                // Cannot recover, because conversion fails
-                bRecoveryContainedErrors = true;
-                onRecoveryErrorConvertToNative (eActionType, i, sElement);
-                continue;
-              }
-              final int nIdx = i;
-              CONDLOG.info ( () -> "Trying to recover object [" + nIdx + "] with " + sElement.length () + " chars");
-
-              switch (eActionType)
-              {
-                case CREATE:
-                  try
-                  {
-                    onRecoveryCreate (aElement);
-                    bPerformedAtLeastOnRecovery = true;
-                    CONDLOG.info ( () -> "[WAL] wal-recovery create " + aElement);
-                  }
-                  catch (final RuntimeException ex)
-                  {
-                    LOGGER.error ("[WAL] wal-recovery create " +
-                                  aElement +
-                                  " - " +
-                                  ex.getClass ().getName () +
-                                  ": " +
-                                  ex.getMessage ());
-                    throw ex;
-                  }
-                  break;
-                case UPDATE:
-                  try
-                  {
-                    onRecoveryUpdate (aElement);
-                    bPerformedAtLeastOnRecovery = true;
-                    CONDLOG.info ( () -> "[WAL] wal-recovery update " + aElement);
-                    break;
-                  }
-                  catch (final RuntimeException ex)
-                  {
-                    LOGGER.error ("[WAL] wal-recovery update " +
-                                  aElement +
-                                  " - " +
-                                  ex.getClass ().getName () +
-                                  ": " +
-                                  ex.getMessage ());
-                    throw ex;
-                  }
-                case DELETE:
-                  try
-                  {
-                    onRecoveryDelete (aElement);
-                    bPerformedAtLeastOnRecovery = true;
-                    CONDLOG.info ( () -> "[WAL] wal-recovery delete " + aElement);
-                    break;
-                  }
-                  catch (final RuntimeException ex)
-                  {
-                    LOGGER.error ("[WAL] wal-recovery delete " +
-                                  aElement +
-                                  " - " +
-                                  ex.getClass ().getName () +
-                                  ": " +
-                                  ex.getMessage ());
-                    throw ex;
-                  }
-                default:
-                {
-                  final String sMsg = "Unsupported action type provided: " + eActionType;
-                  LOGGER.error (sMsg);
-                  throw new IllegalStateException (sMsg);
-                }
-              }
-            }
+    // Avoid writing the recovery actions to the WAL file again :)
+    try
+    {
+      if (WALChannelWriter.hasRecordFileHeader (aWALFile))
+      {
+        // Checksummed records, one record per action
+        final long nUnreadableBytes = WALChannelWriter.readAllRecords (aWALFile, aPayload -> {
+          try (final DataInputStream aDIS = new DataInputStream (new NonBlockingByteArrayInputStream (aPayload)))
+          {
+            _readWALActions (aDIS, aState);
           }
-          CONDLOG.info ( () -> "Successfully finished recovery from WAL file " + aWALFile.getAbsolutePath ());
-        }
-        catch (final IOException | RuntimeException ex)
+        });
+        if (nUnreadableBytes > 0)
         {
-          LOGGER.error ("Failed to recover from WAL file '" +
-                        aWALFile.getAbsolutePath () +
-                        "'. Technical details: " +
-                        ex.getClass ().getName () +
-                        ": " +
-                        ex.getMessage ());
-          triggerExceptionHandlersRead (ex, false, aWALFile);
-          throw new DAOException ("Error the WAL file '" + aWALFile.getAbsolutePath () + "'", ex);
+          // Torn write - most likely the application crashed while writing
+          LOGGER.warn ("The last " +
+                       nUnreadableBytes +
+                       " bytes of WAL file '" +
+                       aWALFile.getAbsolutePath () +
+                       "' are incomplete or corrupt and are ignored");
+          aState.m_bContainedErrors = true;
         }
-        // Finished recovery successfully
-        // Perform the remaining actions AFTER the WAL input stream was
-        // closed!
-        if (bPerformedAtLeastOnRecovery)
+      }
+      else
+      {
+        // Stream format
+        try (final DataInputStream aDIS = new DataInputStream (FileHelper.getBufferedInputStream (aWALFile)))
         {
-          // Write the file without using WAL
-          _writeToFileAndResetPendingChanges ("onRecovery");
+          _readWALActions (aDIS, aState);
         }
-        // Finally maintain or delete the WAL file, as the recovery has
-        // finished
-        if (bRecoveryContainedErrors)
-          _maintainWALFileAfterProcessing (sWALFilename);
-        else
-          _deleteWALFileAfterProcessing (sWALFilename);
       }
+      // Apply the remaining elements
+      _applyWALBatch (aState);
+      m_aStatsCounterWALRecoveryTimer.addTime (aSW.stopAndGetMillis ());
+      CONDLOG.info ( () -> "Successfully finished recovery from WAL file " + aWALFile.getAbsolutePath ());
     }
-    finally
+    catch (final IOException | RuntimeException ex)
     {
-      // Now a WAL file can be written again
-      m_bCanWriteWAL = true;
-      m_aRWLock.writeLock ().unlock ();
+      LOGGER.error ("Failed to recover from WAL file '" +
+                    aWALFile.getAbsolutePath () +
+                    "'. Technical details: " +
+                    ex.getClass ().getName () +
+                    ": " +
+                    ex.getMessage ());
+      triggerExceptionHandlersRead (ex, false, aWALFile);
+      throw new DAOException ("Error the WAL file '" + aWALFile.getAbsolutePath () + "'", ex);
+    }
+    // Finished recovery successfully
+    // Perform the remaining actions AFTER the WAL input stream was
+    // closed!
+    if (aState.m_bPerformedAtLeastOne)
+    {
+      // Write the file without using WAL
+      _writeToFileAndResetPendingChanges ("onRecovery");
     }
+    // Finally maintain or delete the WAL file, as the recovery has
+    // finished
+    if (aState.m_bContainedErrors)
+      _maintainWALFileAfterProcessing (sWALFilename);
+    else
+      _deleteWALFileAfterProcessing (sWALFilename);
+  }
+
+  /**
+   * Resolve the WAL record codec with the provided ID.
+   *
+   * @param sCodecID
+   *        The codec ID read from the WAL file. May be <code>null</code>.
+   * @return The codec. Never <code>null</code>.
+   * @throws IOException
+   *         If the codec is unknown
+   */
+  @Nonnull
+  private IWALRecordCodec <DATATYPE> _getWALRecordCodecOfID (@Nullable final String sCodecID) throws IOException
+  {
+    if (sCodecID == null)
+      throw new IOException ("The WAL record codec ID is missing");
+    if (sCodecID.equals (m_aWALRecordCodec.getID ()))
+      return m_aWALRecordCodec;
+    if (sCodecID.equals (m_aMicroBinaryWALRecordCodec.getID ()))
+      return m_aMicroBinaryWALRecordCodec;
+    if (sCodecID.equals (m_aXMLStringWALRecordCodec.getID ()))
+      return m_aXMLStringWALRecordCodec;
+    throw new IOException ("The WAL record codec with ID '" + sCodecID + "' is unknown");
+  }
+
+  /**
+   * Read all actions until the end of the provided input stream. Both the
+   * legacy layout (only XML strings) and the codec layout are supported.
+   *
+   * @param aDIS
+   *        The input stream to read from. Must support mark and reset. May not
+   *        be <code>null</code>.
+   * @param aState
+   *        The recovery state to update. May not be <code>null</code>.
+   * @throws IOException
+   *         In case reading fails
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _readWALActions (@Nonnull final DataInputStream aDIS, @Nonnull final RecoveryState aState) throws IOException
+  {
+    while (true)
+    {
+      aDIS.mark (1);
+      final int nLayout = aDIS.read ();
+      if (nLayout < 0)
+      {
+        // End of file
+        break;
+      }
+
+      final IWALRecordCodec <DATATYPE> aCodec;
+      if (nLayout == WAL_ACTION_LAYOUT_CODEC)
+        aCodec = _getWALRecordCodecOfID (StreamHelper.readSafeUTF (aDIS));
+      else
+      {
+        // Legacy layout - the first byte is part of the action type
+        aDIS.reset ();
+        aCodec = null;
+      }
+      _readWALAction (StreamHelper.readSafeUTF (aDIS), aCodec, aDIS, aState);
+    }
+  }
+
+  /**
+   * Read a single action with all its elements and add the elements to the
+   * batch of the recovery state. If the batch is full, it is applied.
+   *
+   * @param sActionTypeID
+   *        The ID of the action type. May not be <code>null</code>.
+   * @param aCodec
+   *        The codec the elements were written with. May be <code>null</code>
+   *        for the legacy layout.
+   * @param aDI
+   *        The input to read the number of elements and the elements from. May
+   *        not be <code>null</code>.
+   * @param aState
+   *        The recovery state to update. May not be <code>null</code>.
+   * @throws IOException
+   *         In case reading fails
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _readWALAction (@Nonnull final String sActionTypeID,
+                               @Nullable final IWALRecordCodec <DATATYPE> aCodec,
+                               @Nonnull final DataInput aDI,
+                               @Nonnull final RecoveryState aState) throws IOException
+  {
+    final EDAOActionType eActionType = EDAOActionType.getFromIDOrThrow (sActionTypeID);
+
+    // Read number of elements
+    final int nElements = aDI.readInt ();
+    CONDLOG.info ( () -> "Trying to recover " + nElements + " " + eActionType + " actions from WAL file");
+
+    // Read all elements
+    for (int i = 0; i < nElements; ++i)
+    {
+      final WALEntry aEntry;
+      if (aCodec == null)
+      {
+        final String sElement = StreamHelper.readSafeUTF (aDI);
+        aEntry = new WALEntry (eActionType, i, m_aXMLStringWALRecordCodec, sElement.getBytes (StandardCharsets.UTF_8));
+      }
+      else
+      {
+        final int nLength = aDI.readInt ();
+        if (nLength < 0)
+          throw new IOException ("Invalid WAL element length " + nLength);
+        final byte [] aData = new byte [nLength];
+        aDI.readFully (aData);
+        aEntry = new WALEntry (eActionType, i, aCodec, aData);
+      }
+      aState.m_aBatch.add (aEntry);
+      if (aState.m_aBatch.size () >= WAL_RECOVERY_BATCH_SIZE)
+        _applyWALBatch (aState);
+    }
+  }
+
+  /**
+   * Convert all elements of the current batch to native objects and apply them
+   * in the order they were read. If parallel WAL recovery is enabled, the
+   * conversion happens in parallel in the common fork-join pool.
+   *
+   * @param aState
+   *        The recovery state with the batch to apply. May not be
+   *        <code>null</code>.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _applyWALBatch (@Nonnull final RecoveryState aState)
+  {
+    final ICommonsList <WALEntry> aBatch = aState.m_aBatch;
+    if (aBatch.isEmpty ())
+      return;
+
+    // Convert all elements - the order is maintained
+    final List <DATATYPE> aElements;
+    if (m_bParallelWALRecovery && aBatch.size () > 1)
+      aElements = aBatch.parallelStream ().map (WALEntry::getDecoded).collect (Collectors.toList ());
+    else
+      aElements = aBatch.getAllMapped (WALEntry::getDecoded);
+
+    for (int i = 0; i < aBatch.size (); ++i)
+    {
+      final WALEntry aEntry = aBatch.get (i);
+      final DATATYPE aElement = aElements.get (i);
+      if (aElement == null)
+      {
+        // Cannot recover, because conversion fails
+        aState.m_bContainedErrors = true;
+        onRecoveryErrorConvertToNative (aEntry.m_eActionType,
+                                        aEntry.m_nIndex,
+                                        aEntry.m_aCodec.getAsDisplayString (aEntry.m_aData));
+        continue;
+      }
+      CONDLOG.info ( () -> "Trying to recover object [" +
+                           aEntry.m_nIndex +
+                           "] with " +
+                           aEntry.m_aData.length +
+                           " bytes");
+
+      switch (aEntry.m_eActionType)
+      {
+        case CREATE:
+          try
+          {
+            onRecoveryCreate (aElement);
+            aState.m_bPerformedAtLeastOne = true;
+            CONDLOG.info ( () -> "[WAL] wal-recovery create " + aElement);
+          }
+          catch (final RuntimeException ex)
+          {
+            LOGGER.error ("[WAL] wal-recovery create " +
+                          aElement +
+                          " - " +
+                          ex.getClass ().getName () +
+                          ": " +
+                          ex.getMessage ());
+            throw ex;
+          }
+          break;
+        case UPDATE:
+          try
+          {
+            onRecoveryUpdate (aElement);
+            aState.m_bPerformedAtLeastOne = true;
+            CONDLOG.info ( () -> "[WAL] wal-recovery update " + aElement);
+            break;
+          }
+          catch (final RuntimeException ex)
+          {
+            LOGGER.error ("[WAL] wal-recovery update " +
+                          aElement +
+                          " - " +
+                          ex.getClass ().getName () +
+                          ": " +
+                          ex.getMessage ());
+            throw ex;
+          }
+        case DELETE:
+          try
+          {
+            onRecoveryDelete (aElement);
+            aState.m_bPerformedAtLeastOne = true;
+            CONDLOG.info ( () -> "[WAL] wal-recovery delete " + aElement);
+            break;
+          }
+          catch (final RuntimeException ex)
+          {
+            LOGGER.error ("[WAL] wal-recovery delete " +
+                          aElement +
+                          " - " +
+                          ex.getClass ().getName () +
+                          ": " +
+                          ex.getMessage ());
+            throw ex;
+          }
+        default:
+        {
+          final String sMsg = "Unsupported action type provided: " + aEntry.m_eActionType;
+          LOGGER.error (sMsg);
+          throw new IllegalStateException (sMsg);
+        }
+      }
+    }
+    aBatch.clear ();
+  }
+
+  /**
+   * Read the XML document from the provided file. By default the complete
+   * document is read into memory. Override this method to e.g. process the
+   * elements while reading. This method is only called within a write lock!
+   *
+   * @param aFile
+   *        The existing file to read. Never <code>null</code>.
+   * @return The read document that is passed to
+   *         {@link #onRead(IMicroDocument)} or <code>null</code> if reading
+   *         failed.
+   * @since 11.1.4
+   */
+  @Nullable
+  @OverrideOnDemand
+  @MustBeLocked (ELockType.WRITE)
+  protected IMicroDocument readXMLFile (@Nonnull final File aFile)
+  {
+    return MicroReader.readMicroXML (aFile);
   }
 
   /**
@@ -706,6 +1046,61 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
   @MustBeLocked (ELockType.WRITE)
   protected abstract IMicroDocument createWriteData ();
 
+  /**
+   * @return The comment that is added at the beginning of each written file.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  static String getGeneratedFileComment ()
+  {
+    return "This file was generated automatically - do NOT modify!\n" +
+           "Written at " +
+           PDTToString.getAsString (ZonedDateTime.now (Clock.systemUTC ()), Locale.US);
+  }
+
+  /**
+   * Create a snapshot of the current data, that is written to the file outside
+   * of the write lock. If this method returns a snapshot, the file is written
+   * from it instead of using {@link #createWriteData()} and
+   * {@link #modifyWriteData(IMicroDocument)} when the scheduled writing is
+   * triggered. The snapshot must be independent of all subsequent changes of
+   * the DAO. This method is only called within a write lock!
+   *
+   * @return <code>null</code> if this DAO does not support snapshot writing
+   *         (which is the default). Otherwise the snapshot that writes the
+   *         complete file content to the provided stream, without closing it.
+   * @since 11.1.4
+   */
+  @Nullable
+  @OverrideOnDemand
+  @MustBeLocked (ELockType.WRITE)
+  protected IThrowingConsumer <OutputStream, IOException> createWriteSnapshot ()
+  {
+    return null;
+  }
+
+  /**
+   * Create the callback that streams the data to be saved to the file, without
+   * building a micro document first. If this method returns a callback,
+   * {@link #createWriteData()} and {@link #modifyWriteData(IMicroDocument)} are
+   * not used. The XML declaration and the automatic "do NOT modify" comment are
+   * written before the callback is invoked and all elements left open by the
+   * callback are closed afterwards. This method and the callback are only
+   * called within a write lock!
+   *
+   * @return <code>null</code> if this DAO does not support streaming writing
+   *         (which is the default). Otherwise the callback that writes the
+   *         document content to the provided streaming writer.
+   * @since 11.1.4
+   */
+  @Nullable
+  @OverrideOnDemand
+  @MustBeLocked (ELockType.WRITE)
+  protected Consumer <XMLStreamingWriter> createWriteDataStreaming ()
+  {
+    return null;
+  }
+
   /**
    * Modify the created document by e.g. adding some comment or digital
    * signature or whatsoever.
@@ -719,10 +1114,7 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
   {
     CONDLOG.info ( () -> "Inserting automatic 'do NOT modify' header to XML");
 
-    final IMicroComment aComment = new MicroComment ("This file was generated automatically - do NOT modify!\n" +
-                                                     "Written at " +
-                                                     PDTToString.getAsString (ZonedDateTime.now (Clock.systemUTC ()),
-                                                                              Locale.US));
+    final IMicroComment aComment = new MicroComment (getGeneratedFileComment ());
     final IMicroElement eRoot = aDoc.getDocumentElement ();
     // Add a small comment
     if (eRoot != null)
@@ -775,6 +1167,61 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     }
   }
 
+  /**
+   * Replace the target file with the newly written file. The existing file is
+   * renamed to ".prev" first, and deleted after the new file was renamed.
+   *
+   * @param sFilenameNew
+   *        The relative name of the newly written file. May not be
+   *        <code>null</code>.
+   * @param sFilename
+   *        The relative name of the target file. May not be <code>null</code>.
+   * @throws IllegalStateException
+   *         If a rename or delete operation failed
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _replaceFile (@Nonnull final String sFilenameNew, @Nonnull final String sFilename)
+  {
+    final String sFilenamePrev = _getFilenamePrev (sFilename);
+
+    // Rename existing file to old
+    FileIOError aIOError;
+    boolean bRenamedToPrev = false;
+    if (m_aIO.existsFile (sFilename))
+    {
+      aIOError = m_aIO.renameFile (sFilename, sFilenamePrev);
+      bRenamedToPrev = true;
+    }
+    else
+    {
+      aIOError = new FileIOError (EFileIOOperation.RENAME_FILE, EFileIOErrorCode.NO_ERROR);
+    }
+
+    if (aIOError.isSuccess ())
+    {
+      // Rename new file to final
+      aIOError = m_aIO.renameFile (sFilenameNew, sFilename);
+      if (aIOError.isSuccess ())
+      {
+        // Finally delete old file
+        aIOError = m_aIO.deleteFileIfExisting (sFilenamePrev);
+      }
+      else
+      {
+        // 2nd rename failed
+        // -> Revert original rename to stay as consistent as possible
+        if (bRenamedToPrev)
+          m_aIO.renameFile (sFilenamePrev, sFilename);
+      }
+    }
+    if (aIOError.isFailure ())
+    {
+      final String sMsg = "Error on rename(existing-old)/rename(new-existing)/delete(old): " + aIOError;
+      LOGGER.error (sMsg);
+      throw new IllegalStateException (sMsg);
+    }
+  }
+
   /**
    * The main method for writing the new data to a file. This method may only be
    * called within a write lock!
@@ -806,7 +1253,6 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     File aFileNew = null;
     IMicroDocument aDoc = null;
     final String sFilenameNew = _getFilenameNew (sFilename);
-    final String sFilenamePrev = _getFilenamePrev (sFilename);
     try
     {
       // Get the file handle
@@ -817,13 +1263,17 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
 
       CONDLOG.info ( () -> "Creating XML file to write");
 
-      // Create XML document to write
-      aDoc = createWriteData ();
-      if (aDoc == null)
-        throw new DAOException ("Failed to create data to write to file");
+      final Consumer <XMLStreamingWriter> aStreamingData = createWriteDataStreaming ();
+      if (aStreamingData == null)
+      {
+        // Create XML document to write
+        aDoc = createWriteData ();
+        if (aDoc == null)
+          throw new DAOException ("Failed to create data to write to file");
 
-      // Generic modification
-      modifyWriteData (aDoc);
+        // Generic modification
+        modifyWriteData (aDoc);
+      }
 
       CONDLOG.info ( () -> "Opening output stream of '" + sFilenameNew + "'");
 
@@ -840,47 +1290,28 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
 
       CONDLOG.info ( () -> "Now serializing XML to stream with XWS " + aXWS);
 
-      if (MicroWriter.writeToStream (aDoc, aOS, aXWS).isFailure ())
-        throw new DAOException ("Failed to write DAO XML data to file");
-
-      CONDLOG.info ( () -> "Finished serializing XML to stream");
-
-      // Rename existing file to old
-      FileIOError aIOError;
-      boolean bRenamedToPrev = false;
-      if (m_aIO.existsFile (sFilename))
+      if (aStreamingData != null)
       {
-        aIOError = m_aIO.renameFile (sFilename, sFilenamePrev);
-        bRenamedToPrev = true;
-      }
-      else
-      {
-        aIOError = new FileIOError (EFileIOOperation.RENAME_FILE, EFileIOErrorCode.NO_ERROR);
-      }
-
-      if (aIOError.isSuccess ())
-      {
-        // Rename new file to final
-        aIOError = m_aIO.renameFile (sFilenameNew, sFilename);
-        if (aIOError.isSuccess ())
+        // Write without building the document (closes the OS)
+        try (final XMLStreamingWriter aWriter = XMLStreamingWriter.create (aOS, aXWS))
         {
-          // Finally delete old file
-          aIOError = m_aIO.deleteFileIfExisting (sFilenamePrev);
+          aWriter.writeXMLDeclaration ();
+          aWriter.comment (getGeneratedFileComment ());
+          aStreamingData.accept (aWriter);
         }
-        else
+        catch (final IOException ex)
         {
-          // 2nd rename failed
-          // -> Revert original rename to stay as consistent as possible
-          if (bRenamedToPrev)
-            m_aIO.renameFile (sFilenamePrev, sFilename);
+          throw new DAOException ("Failed to write DAO XML data to file", ex);
         }
       }
-      if (aIOError.isFailure ())
-      {
-        final String sMsg = "Error on rename(existing-old)/rename(new-existing)/delete(old): " + aIOError;
-        LOGGER.error (sMsg);
-        throw new IllegalStateException (sMsg);
-      }
+      else
+        if (MicroWriter.writeToStream (aDoc, aOS, aXWS).isFailure ())
+          throw new DAOException ("Failed to write DAO XML data to file");
+
+      CONDLOG.info ( () -> "Finished serializing XML to stream");
+
+      // Rename existing file to old and new file to existing
+      _replaceFile (sFilenameNew, sFilename);
 
       // Update stats etc.
       m_aStatsCounterWriteTimer.addTime (aSW.stopAndGetMillis ());
@@ -906,18 +1337,205 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     }
   }
 
+  @Nonnull
   @MustBeLocked (ELockType.WRITE)
-  final void _writeToFileAndResetPendingChanges (@Nonnull final String sCallingMethodName)
+  final ESuccess _writeToFileAndResetPendingChanges (@Nonnull final String sCallingMethodName)
   {
     if (_writeToFile ().isSuccess ())
+    {
       internalSetPendingChanges (false);
-    else
+      return ESuccess.SUCCESS;
+    }
+    LOGGER.error ("The DAO of class " +
+                  getClass ().getName () +
+                  " still has pending changes after " +
+                  sCallingMethodName +
+                  "!");
+    return ESuccess.FAILURE;
+  }
+
+  /**
+   * Delete the WAL file of an unfinished snapshot writing, because the file
+   * was completely written afterwards.
+   *
+   * @param sWALFilename
+   *        The WAL filename. May be <code>null</code>.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _deleteWALSnapshotFile (@Nullable final String sWALFilename)
+  {
+    if (sWALFilename != null)
+    {
+      final String sWALSnapshotFilename = _getFilenameSnapshot (sWALFilename);
+      if (m_aIO.existsFile (sWALSnapshotFilename))
+      {
+        if (m_aIO.deleteFile (sWALSnapshotFilename).isFailure ())
+          LOGGER.error ("Failed to delete WAL snapshot file '" + sWALSnapshotFilename + "'");
+        else
+          CONDLOG.info ( () -> "Deleted obsolete WAL snapshot file '" + sWALSnapshotFilename + "'");
+      }
+    }
+  }
+
+  /**
+   * Perform the scheduled writing of the file and delete the WAL file
+   * afterwards. This is called by the {@link WALListener}.<br>
+   * If {@link #createWriteSnapshot()} returns a snapshot, only the snapshot is
+   * created within the write lock and the WAL file is renamed to
+   * "*.snapshot", so that subsequent changes are logged into a new WAL file.
+   * The snapshot is written to disk outside of the write lock and afterwards
+   * replaces the existing file, unless the file was written completely in the
+   * meantime. If the snapshot writing fails, the file is written within the
+   * write lock as usual.<br>
+   * If no snapshot is available, the file is written within the write lock.
+   *
+   * @param sWALFilename
+   *        The WAL filename that was registered for writing. May neither be
+   *        <code>null</code> nor empty.
+   * @param aOnChangesCaptured
+   *        The callback to be invoked within the write lock, as soon as all
+   *        changes up to now are handled. Changes performed after this call
+   *        require another scheduled writing. May not be <code>null</code>.
+   */
+  final void _writeScheduled (@Nonnull @Nonempty final String sWALFilename,
+                              @Nonnull final Runnable aOnChangesCaptured)
+  {
+    final String sFilename = m_aFilenameProvider.get ();
+    final String sWALSnapshotFilename = _getFilenameSnapshot (sWALFilename);
+    final IThrowingConsumer <OutputStream, IOException> aSnapshot;
+    final int nWriteCountBefore;
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      IThrowingConsumer <OutputStream, IOException> aCreatedSnapshot = null;
+      // If a WAL snapshot file is still present, the last snapshot writing
+      // failed and the file is written within the lock
+      if (sFilename != null && !m_aIO.existsFile (sWALSnapshotFilename))
+      {
+        aCreatedSnapshot = createWriteSnapshot ();
+        if (aCreatedSnapshot != null)
+        {
+          // Subsequent changes go to a new WAL file
+          _closeWALChannelWriter ();
+          if (m_aIO.existsFile (sWALFilename) && m_aIO.renameFile (sWALFilename, sWALSnapshotFilename).isFailure ())
+          {
+            LOGGER.error ("Failed to rename WAL file '" +
+                          sWALFilename +
+                          "' to '" +
+                          sWALSnapshotFilename +
+                          "' - writing the file within the lock");
+            aCreatedSnapshot = null;
+          }
+        }
+      }
+
+      if (aCreatedSnapshot == null)
+      {
+        // Main DAO writing
+        if (_writeToFileAndResetPendingChanges ("ScheduledWriter.run").isSuccess ())
+          _deleteWALSnapshotFile (sWALFilename);
+        // Delete the WAL file
+        _deleteWALFileAfterProcessing (sWALFilename);
+        aOnChangesCaptured.run ();
+        return;
+      }
+
+      // Check for a filename change before writing
+      if (!sFilename.equals (m_sPreviousFilename))
+      {
+        onFilenameChange (m_sPreviousFilename, sFilename);
+        m_sPreviousFilename = sFilename;
+      }
+      aSnapshot = aCreatedSnapshot;
+      nWriteCountBefore = m_nWriteCount;
+      // All changes up to now are contained in the snapshot
+      internalSetPendingChanges (false);
+      aOnChangesCaptured.run ();
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+
+    // Write the snapshot without holding the lock
+    final String sFilenameSnapshot = _getFilenameSnapshot (sFilename);
+    CONDLOG.info ( () -> "Trying to write WAL DAO snapshot file '" + sFilenameSnapshot + "'");
+
+    m_aStatsCounterWriteTotal.increment ();
+    final StopWatch aSW = StopWatch.createdStarted ();
+    File aFileSnapshot = null;
+    boolean bWritten = false;
+    try
     {
+      aFileSnapshot = getSafeFile (sFilenameSnapshot, EMode.WRITE);
+      try (final OutputStream aOS = FileHelper.getBufferedOutputStream (aFileSnapshot))
+      {
+        if (aOS == null)
+          throw new DAOException ("Failed to open output stream for '" + aFileSnapshot.getAbsolutePath () + "'");
+        aSnapshot.accept (aOS);
+      }
+      bWritten = true;
+    }
+    catch (final DAOException | IOException | RuntimeException ex)
+    {
+      final String sErrorFilename = aFileSnapshot != null ? aFileSnapshot.getAbsolutePath () : sFilenameSnapshot;
       LOGGER.error ("The DAO of class " +
                     getClass ().getName () +
-                    " still has pending changes after " +
-                    sCallingMethodName +
-                    "!");
+                    " failed to write the DAO snapshot to '" +
+                    sErrorFilename +
+                    "'",
+                    ex);
+      triggerExceptionHandlersWrite (ex, sErrorFilename, (IMicroDocument) null);
+      m_aStatsCounterWriteExceptions.increment ();
+    }
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (bWritten)
+      {
+        if (m_nWriteCount != nWriteCountBefore)
+        {
+          // The file was completely written in the meantime and is therefore
+          // newer than the snapshot
+          CONDLOG.info ( () -> "Discarding outdated WAL DAO snapshot file '" + sFilenameSnapshot + "'");
+          m_aIO.deleteFileIfExisting (sFilenameSnapshot);
+        }
+        else
+        {
+          try
+          {
+            _replaceFile (sFilenameSnapshot, sFilename);
+
+            // Update stats etc.
+            m_aStatsCounterWriteTimer.addTime (aSW.stopAndGetMillis ());
+            m_aStatsCounterWriteSuccess.increment ();
+            m_nWriteCount++;
+            m_aLastWriteDT = PDTFactory.getCurrentLocalDateTime ();
+            _deleteWALSnapshotFile (sWALFilename);
+          }
+          catch (final IllegalStateException ex)
+          {
+            m_aStatsCounterWriteExceptions.increment ();
+            bWritten = false;
+          }
+        }
+      }
+
+      if (!bWritten)
+      {
+        // Fall back to writing within the lock
+        m_aIO.deleteFileIfExisting (sFilenameSnapshot);
+        internalSetPendingChanges (true);
+        if (_writeToFileAndResetPendingChanges ("ScheduledWriter.run").isSuccess ())
+          _deleteWALSnapshotFile (sWALFilename);
+        // Otherwise the WAL snapshot file is kept for recovery
+      }
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
     }
   }
 
@@ -941,6 +1559,7 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
   final void _maintainWALFileAfterProcessing (@Nonnull @Nonempty final String sWALFilename)
   {
     ValueEnforcer.notEmpty (sWALFilename, "WALFilename");
+    _closeWALChannelWriter ();
     final File aWALFile = m_aIO.getFile (sWALFilename);
     final File aNewFile = new File (aWALFile.getParentFile (),
                                     aWALFile.getName () + "." + PDTFactory.getCurrentMillis () + ".bup");
@@ -970,6 +1589,7 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
   final void _deleteWALFileAfterProcessing (@Nonnull @Nonempty final String sWALFilename)
   {
     ValueEnforcer.notEmpty (sWALFilename, "WALFilename");
+    _closeWALChannelWriter ();
     final File aWALFile = m_aIO.getFile (sWALFilename);
     if (FileOperationManager.INSTANCE.deleteFile (aWALFile).isFailure ())
     {
@@ -991,6 +1611,17 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     return WAL_XWS;
   }
 
+  /**
+   * Convert the provided element to the XML string to be written to the WAL
+   * file. If you overwrite this method, you should consider overriding
+   * {@link #convertWALStringToNative(String)} as well.<br>
+   * Since v11.1.4 this is only used, if the XML string codec (see
+   * {@link #getXMLStringWALRecordCodec()}) is used, which is the default.
+   *
+   * @param aModifiedElement
+   *        The element to be converted. Never <code>null</code>.
+   * @return The XML string representation. Never <code>null</code>.
+   */
   @Nonnull
   @OverrideOnDemand
   protected String convertNativeToWALString (@Nonnull final DATATYPE aModifiedElement)
@@ -1009,6 +1640,113 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     return MicroWriter.getNodeAsString (aElement, getWALXMLWriterSettings ());
   }
 
+  @MustBeLocked (ELockType.WRITE)
+  private void _writeWALAction (@Nonnull final DataOutput aDO,
+                                @Nonnull @Nonempty final List <DATATYPE> aModifiedElements,
+                                @Nonnull final EDAOActionType eActionType) throws IOException
+  {
+    final IWALRecordCodec <DATATYPE> aCodec = m_aWALRecordCodec;
+    final boolean bLegacyLayout = aCodec == m_aXMLStringWALRecordCodec;
+    if (!bLegacyLayout)
+    {
+      // Write layout and codec ID
+      aDO.writeByte (WAL_ACTION_LAYOUT_CODEC);
+      StreamHelper.writeSafeUTF (aDO, aCodec.getID ());
+    }
+
+    // Write action type ID
+    StreamHelper.writeSafeUTF (aDO, eActionType.getID ());
+
+    // Write number of elements
+    aDO.writeInt (aModifiedElements.size ());
+
+    // Write all data elements
+    for (final DATATYPE aModifiedElement : aModifiedElements)
+    {
+      if (bLegacyLayout)
+      {
+        // Stay readable for older versions
+        StreamHelper.writeSafeUTF (aDO, convertNativeToWALString (aModifiedElement));
+      }
+      else
+      {
+        final byte [] aData = aCodec.encode (aModifiedElement);
+        aDO.writeInt (aData.length);
+        aDO.write (aData);
+      }
+    }
+  }
+
+  /**
+   * Check if a non-empty WAL file in the legacy format is pending. Such a file
+   * cannot be continued in the WAL channel mode. Only checked before the
+   * channel writer is opened.
+   *
+   * @param sWALFilename
+   *        The WAL filename. May neither be <code>null</code> nor empty.
+   * @return <code>true</code> if the WAL file must be migrated first.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private boolean _isLegacyWALFilePending (@Nonnull @Nonempty final String sWALFilename)
+  {
+    if (m_aWALChannelWriter != null)
+      return false;
+
+    final File aWALFile = m_aIO.getFile (sWALFilename);
+    try
+    {
+      return aWALFile.length () > 0 && !WALChannelWriter.hasRecordFileHeader (aWALFile);
+    }
+    catch (final IOException ex)
+    {
+      // Opening the channel writer will report the error
+      LOGGER.warn ("Failed to check the format of WAL file '" + aWALFile.getAbsolutePath () + "'", ex);
+      return false;
+    }
+  }
+
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private WALChannelWriter _getWALChannelWriter (@Nonnull @Nonempty final String sWALFilename) throws IOException
+  {
+    final File aWALFile = m_aIO.getFile (sWALFilename);
+    WALChannelWriter aWriter = m_aWALChannelWriter;
+    if (aWriter != null && !aWriter.getFile ().equals (aWALFile))
+    {
+      // Filename changed
+      _closeWALChannelWriter ();
+      aWriter = null;
+    }
+    if (aWriter == null)
+    {
+      aWriter = new WALChannelWriter (aWALFile, m_eWALDurability, m_aWALSyncInterval);
+      m_aWALChannelWriter = aWriter;
+    }
+    return aWriter;
+  }
+
+  /**
+   * Close the WAL channel writer if it is open. Must be called before the WAL
+   * file is deleted or renamed.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _closeWALChannelWriter ()
+  {
+    final WALChannelWriter aWriter = m_aWALChannelWriter;
+    if (aWriter != null)
+    {
+      m_aWALChannelWriter = null;
+      try
+      {
+        aWriter.close ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Error closing WAL file " + aWriter.getFile ().getAbsolutePath (), ex);
+      }
+    }
+  }
+
   @Nonnull
   @MustBeLocked (ELockType.WRITE)
   private ESuccess _writeWALFile (@Nonnull @Nonempty final List <DATATYPE> aModifiedElements,
@@ -1018,20 +1756,35 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     final FileSystemResource aWALRes = m_aIO.getResource (sWALFilename);
     CONDLOG.info ( () -> "Writing WAL file " + aWALRes);
 
-    try (final DataOutputStream aDOS = new DataOutputStream (aWALRes.getOutputStream (EAppend.APPEND)))
+    if (m_bUseWALChannel)
     {
-      // Write action type ID
-      StreamHelper.writeSafeUTF (aDOS, eActionType.getID ());
-
-      // Write number of elements
-      aDOS.writeInt (aModifiedElements.size ());
+      try
+      {
+        // Serialize one action into one record
+        try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+             final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+        {
+          _writeWALAction (aDOS, aModifiedElements, eActionType);
+          aDOS.flush ();
+          _getWALChannelWriter (sWALFilename).appendAndCommit (aBAOS.toByteArray ());
+        }
 
-      // Write all data elements as XML Strings :)
-      for (final DATATYPE aModifiedElement : aModifiedElements)
+        CONDLOG.info ( () -> "Finished writing WAL record to " + aWALRes);
+        return ESuccess.SUCCESS;
+      }
+      catch (final Exception ex)
       {
-        final String sElement = convertNativeToWALString (aModifiedElement);
-        StreamHelper.writeSafeUTF (aDOS, sElement);
+        LOGGER.error ("Error writing WAL record to " + aWALRes, ex);
+        triggerExceptionHandlersWrite (ex, sWALFilename, (IMicroDocument) null);
+        // The channel may be in an inconsistent state
+        _closeWALChannelWriter ();
       }
+      return ESuccess.FAILURE;
+    }
+
+    try (final DataOutputStream aDOS = new DataOutputStream (aWALRes.getOutputStream (EAppend.APPEND)))
+    {
+      _writeWALAction (aDOS, aModifiedElements, eActionType);
 
       CONDLOG.info ( () -> "Finished writing WAL file " + aWALRes);
       return ESuccess.SUCCESS;
@@ -1069,6 +1822,181 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     CONDLOG.info ( () -> "Set WAL DAO waiting time to " + aWaitingTime);
   }
 
+  /**
+   * @return <code>true</code> if the WAL file is written via a permanently
+   *         open channel with checksummed records, <code>false</code> if the
+   *         WAL file is opened for each change. Default is
+   *         {@link #DEFAULT_USE_WAL_CHANNEL}.
+   * @since 11.1.4
+   */
+  public final boolean isUseWALChannel ()
+  {
+    return m_bUseWALChannel;
+  }
+
+  /**
+   * Enable or disable the WAL channel mode. If enabled, the WAL file is kept
+   * open between changes and each change is written as a checksummed,
+   * length-prefixed record, so that the recovery can detect torn writes. The
+   * records are written while the write lock is held, so with
+   * {@link EWALDurability#FSYNC_PER_COMMIT} every change waits for the force to
+   * disk. WAL files in both formats can always be recovered. The setting is
+   * applied on the next change. If a WAL file in the old format is pending when
+   * the mode is enabled, it is migrated once with the next change, by writing
+   * the main file and deleting the WAL file.
+   *
+   * @param bUseWALChannel
+   *        <code>true</code> to enable the WAL channel mode.
+   * @since 11.1.4
+   */
+  protected final void setUseWALChannel (final boolean bUseWALChannel)
+  {
+    m_aRWLock.writeLocked ( () -> {
+      if (!bUseWALChannel)
+        _closeWALChannelWriter ();
+      m_bUseWALChannel = bUseWALChannel;
+    });
+    CONDLOG.info ( () -> "Set WAL DAO channel mode to " + bUseWALChannel);
+  }
+
+  /**
+   * @return The durability policy for the WAL channel mode. Never
+   *         <code>null</code>. Default is {@link EWALDurability#DEFAULT}.
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final EWALDurability getWALDurability ()
+  {
+    return m_eWALDurability;
+  }
+
+  /**
+   * @return The interval in which the WAL file is forced to disk, if the
+   *         durability is {@link EWALDurability#FSYNC_PERIODIC}. Never
+   *         <code>null</code>. Default is {@link #DEFAULT_WAL_SYNC_INTERVAL}.
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final Duration getWALSyncInterval ()
+  {
+    return m_aWALSyncInterval;
+  }
+
+  /**
+   * Set the durability policy for the WAL channel mode. Only has an effect if
+   * the WAL channel mode is enabled.
+   *
+   * @param eDurability
+   *        The durability policy. May not be <code>null</code>.
+   * @param aSyncInterval
+   *        The interval in which the WAL file is forced to disk. Only relevant
+   *        for {@link EWALDurability#FSYNC_PERIODIC}. May not be
+   *        <code>null</code> and must be positive.
+   * @since 11.1.4
+   */
+  protected final void setWALDurability (@Nonnull final EWALDurability eDurability, @Nonnull final Duration aSyncInterval)
+  {
+    ValueEnforcer.notNull (eDurability, "Durability");
+    ValueEnforcer.notNull (aSyncInterval, "SyncInterval");
+    ValueEnforcer.isFalse (aSyncInterval.isNegative () || aSyncInterval.isZero (), "SyncInterval must be positive");
+
+    m_aRWLock.writeLocked ( () -> {
+      // Reopen with the new settings on the next write
+      _closeWALChannelWriter ();
+      m_eWALDurability = eDurability;
+      m_aWALSyncInterval = aSyncInterval;
+    });
+    CONDLOG.info ( () -> "Set WAL DAO durability to " + eDurability + " with sync interval " + aSyncInterval);
+  }
+
+  /**
+   * @return <code>true</code> if the elements of a WAL file are converted in
+   *         parallel upon recovery, <code>false</code> if not. Default is
+   *         {@link #DEFAULT_PARALLEL_WAL_RECOVERY}.
+   * @since 11.1.4
+   */
+  public final boolean isParallelWALRecovery ()
+  {
+    return m_bParallelWALRecovery;
+  }
+
+  /**
+   * Enable or disable the parallel conversion of WAL elements upon recovery.
+   * The elements are always applied in the original order. Only enable this,
+   * if the decoding of the used {@link IWALRecordCodec} is thread-safe and
+   * does not access this DAO, because the conversion happens in other threads
+   * while the write lock is held. This must be called before the initial read.
+   *
+   * @param bParallelWALRecovery
+   *        <code>true</code> to convert in parallel.
+   * @since 11.1.4
+   */
+  protected final void setParallelWALRecovery (final boolean bParallelWALRecovery)
+  {
+    m_bParallelWALRecovery = bParallelWALRecovery;
+    CONDLOG.info ( () -> "Set WAL DAO parallel WAL recovery to " + bParallelWALRecovery);
+  }
+
+  /**
+   * @return The codec that stores each element as an XML string, using
+   *         {@link #convertNativeToWALString(Object)} and
+   *         {@link #convertWALStringToNative(String)}. This was the only WAL
+   *         format before v11.1.4. Never <code>null</code>.
+   * @since 11.1.4
+   */
+  @Nonnull
+  protected final IWALRecordCodec <DATATYPE> getXMLStringWALRecordCodec ()
+  {
+    return m_aXMLStringWALRecordCodec;
+  }
+
+  /**
+   * @return The {@link MicroBinaryWALRecordCodec} for the data type of this
+   *         DAO. It is more compact and faster than the XML string codec, but
+   *         ignores customizations of {@link #convertNativeToWALString(Object)}
+   *         and the written WAL files cannot be read by versions before
+   *         v11.1.4. Never <code>null</code>.
+   * @since 11.1.4
+   */
+  @Nonnull
+  protected final IWALRecordCodec <DATATYPE> getMicroBinaryWALRecordCodec ()
+  {
+    return m_aMicroBinaryWALRecordCodec;
+  }
+
+  /**
+   * @return The codec used to write the elements to the WAL file. Never
+   *         <code>null</code>. By default the XML string codec (see
+   *         {@link #getXMLStringWALRecordCodec()}) is used.
+   * @since 11.1.4
+   */
+  @Nonnull
+  public final IWALRecordCodec <DATATYPE> getWALRecordCodec ()
+  {
+    return m_aWALRecordCodec;
+  }
+
+  /**
+   * Set the codec used to write the elements to the WAL file, e.g. the
+   * {@link #getMicroBinaryWALRecordCodec()}. WAL files written with the XML
+   * string codec, the micro binary codec and the codec set here can always be
+   * recovered. Note: other codecs than the XML string codec don't use
+   * {@link #convertNativeToWALString(Object)} and
+   * {@link #convertWALStringToNative(String)} and the written WAL files cannot
+   * be read by versions before v11.1.4.
+   *
+   * @param aCodec
+   *        The codec to be used. May not be <code>null</code>.
+   * @since 11.1.4
+   */
+  protected final void setWALRecordCodec (@Nonnull final IWALRecordCodec <DATATYPE> aCodec)
+  {
+    ValueEnforcer.notNull (aCodec, "Codec");
+    ValueEnforcer.notEmpty (aCodec.getID (), "Codec.ID");
+    m_aRWLock.writeLocked ( () -> m_aWALRecordCodec = aCodec);
+    CONDLOG.info ( () -> "Set WAL DAO record codec to '" + aCodec.getID () + "'");
+  }
+
   /**
    * This method must be called every time something changed in the DAO. It
    * triggers the writing to a file if auto-save is active. This method must be
@@ -1111,6 +2039,19 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
 
       // Write a WAL file
       final String sWALFilename = _getWALFilename ();
+      if (m_bUseWALChannel && m_bCanWriteWAL && sWALFilename != null && _isLegacyWALFilePending (sWALFilename))
+      {
+        // Migrate a WAL file in the legacy format once: the main file contains
+        // all changes, so the WAL file is no longer needed
+        CONDLOG.info ( () -> "Migrating legacy WAL file '" + sWALFilename + "' by writing the main file");
+        if (_writeToFileAndResetPendingChanges ("markAsChanged(" + eActionType.getID () + ")").isSuccess ())
+        {
+          _deleteWALSnapshotFile (sWALFilename);
+          _deleteWALFileAfterProcessing (sWALFilename);
+        }
+        return;
+      }
+
       // Note: writing a WAL is forbidden when a WAL file is recovered upon
       // startup!
       // Note: writing a WAL makes no sense, if the waiting time is zero
@@ -1126,7 +2067,8 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
       else
       {
         // write directly
-        _writeToFileAndResetPendingChanges ("markAsChanged(" + eActionType.getID () + ")");
+        if (_writeToFileAndResetPendingChanges ("markAsChanged(" + eActionType.getID () + ")").isSuccess ())
+          _deleteWALSnapshotFile (sWALFilename);
       }
     }
   }
@@ -1140,7 +2082,10 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
     if (hasPendingChanges ())
     {
       // Write to file
-      m_aRWLock.writeLocked ( () -> _writeToFileAndResetPendingChanges ("writeToFileOnPendingChanges"));
+      m_aRWLock.writeLocked ( () -> {
+        if (_writeToFileAndResetPendingChanges ("writeToFileOnPendingChanges").isSuccess ())
+          _deleteWALSnapshotFile (_getWALFilename ());
+      });
     }
   }
 
@@ -1196,6 +2141,11 @@ public abstract class AbstractWALDAO <DATATYPE> extends AbstractDAO
                             .appendIfNotNull ("LastWriteDT", m_aLastWriteDT)
                             .append ("CanWriteWAL", m_bCanWriteWAL)
                             .append ("WaitingTime", m_aWaitingTime)
+                            .append ("UseWALChannel", m_bUseWALChannel)
+                            .append ("WALDurability", m_eWALDurability)
+                            .append ("WALSyncInterval", m_aWALSyncInterval)
+                            .append ("ParallelWALRecovery", m_bParallelWALRecovery)
+                            .append ("WALRecordCodec", m_aWALRecordCodec)
                             .getToString ();
   }
 }
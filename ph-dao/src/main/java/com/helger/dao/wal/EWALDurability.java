@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Defines when the data of a WAL file is forced to the physical storage. Only
+ * used if the WAL channel mode is enabled (see
+ * {@link AbstractWALDAO#isUseWALChannel()}).
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+public enum EWALDurability implements IHasID <String>
+{
+  /**
+   * Never force the data - the operating system decides when the data is
+   * written.
+   */
+  NONE ("none"),
+  /**
+   * Force the data to disk on every change. This is the safest but also the
+   * slowest option, as the force happens while the write lock of the DAO is
+   * held.
+   */
+  FSYNC_PER_COMMIT ("commit"),
+  /**
+   * Force the data to disk periodically in the background. At most the
+   * changes of the last sync interval may be lost on a system crash.
+   */
+  FSYNC_PERIODIC ("periodic");
+
+  public static final EWALDurability DEFAULT = FSYNC_PERIODIC;
+
+  private final String m_sID;
+
+  EWALDurability (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EWALDurability getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EWALDurability.class, sID);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+
+/**
+ * The codec used to convert the elements modified in a WAL DAO to the bytes
+ * written to the WAL file and back. The ID of the codec is written to the WAL
+ * file together with the encoded elements, so that WAL files written with a
+ * different codec can still be read, as long as the respective codec is known
+ * to the DAO.<br>
+ * If parallel WAL recovery is enabled, {@link #decode(byte[])} may be invoked
+ * concurrently and must therefore be thread-safe.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The data type to be encoded and decoded
+ * @since 11.1.4
+ */
+public interface IWALRecordCodec <DATATYPE> extends IHasID <String>
+{
+  /**
+   * @return The unique ID of the codec that is written to the WAL file. May
+   *         neither be <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  String getID ();
+
+  /**
+   * Encode a single element.
+   *
+   * @param aElement
+   *        The element to be encoded. Never <code>null</code>.
+   * @return The encoded bytes. Never <code>null</code>.
+   * @throws IOException
+   *         In case encoding fails
+   */
+  @Nonnull
+  byte [] encode (@Nonnull DATATYPE aElement) throws IOException;
+
+  /**
+   * Decode a single element that was previously encoded with
+   * {@link #encode(Object)}.
+   *
+   * @param aBytes
+   *        The bytes to be decoded. Never <code>null</code>.
+   * @return The decoded element or <code>null</code> if the bytes could not be
+   *         converted to the native element.
+   * @throws IOException
+   *         In case the bytes are malformed
+   */
+  @Nullable
+  DATATYPE decode (@Nonnull byte [] aBytes) throws IOException;
+
+  /**
+   * Get a human readable representation of the provided encoded element. This
+   * is only used for error messages.
+   *
+   * @param aBytes
+   *        The encoded bytes. Never <code>null</code>.
+   * @return The human readable representation. Never <code>null</code>.
+   */
+  @Nonnull
+  default String getAsDisplayString (@Nonnull final byte [] aBytes)
+  {
+    return "[" + aBytes.length + " bytes encoded with codec '" + getID () + "']";
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsTreeMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A secondary index of an {@link AbstractMapBasedWALDAO}. Each item is indexed
+ * with the key returned by the key extractor. Items for which the extractor
+ * returns <code>null</code> are not indexed. Items with the same key are
+ * returned in the order they were indexed. The key each item was indexed with
+ * is remembered, so that items that were modified in place can be re-indexed
+ * correctly.<br>
+ * This class is not thread-safe - all accesses are guarded by the lock of the
+ * owning DAO.
+ *
+ * @author Philip Helger
+ * @param <IMPLTYPE>
+ *        The implementation type of the DAO
+ * @since 11.1.4
+ */
+@NotThreadSafe
+final class MapBasedWALDAOIndex <IMPLTYPE>
+{
+  private final String m_sName;
+  private final Function <? super IMPLTYPE, ?> m_aKeyExtractor;
+  private final boolean m_bSorted;
+  // Key to ID to item
+  private final ICommonsMap <Object, ICommonsOrderedMap <String, IMPLTYPE>> m_aIndex;
+  // ID to the key the item was indexed with
+  private final ICommonsMap <String, Object> m_aKeyOfID = new CommonsHashMap <> ();
+
+  @SuppressWarnings ("unchecked")
+  private static int _compare (@Nonnull final Object aKey1, @Nonnull final Object aKey2)
+  {
+    return ((Comparable <Object>) aKey1).compareTo (aKey2);
+  }
+
+  MapBasedWALDAOIndex (@Nonnull @Nonempty final String sName,
+                       @Nonnull final Function <? super IMPLTYPE, ?> aKeyExtractor,
+                       final boolean bSorted)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (aKeyExtractor, "KeyExtractor");
+    m_sName = sName;
+    m_aKeyExtractor = aKeyExtractor;
+    m_bSorted = bSorted;
+    m_aIndex = bSorted ? new CommonsTreeMap <> ((Comparator <Object>) MapBasedWALDAOIndex::_compare)
+                       : new CommonsHashMap <> ();
+  }
+
+  @Nonnull
+  @Nonempty
+  String getName ()
+  {
+    return m_sName;
+  }
+
+  boolean isSorted ()
+  {
+    return m_bSorted;
+  }
+
+  /**
+   * Add the provided item to the index. If an item with the same ID was
+   * indexed before, it is removed first.
+   *
+   * @param sID
+   *        The ID of the item. May not be <code>null</code>.
+   * @param aItem
+   *        The item to index. May not be <code>null</code>.
+   */
+  void add (@Nonnull final String sID, @Nonnull final IMPLTYPE aItem)
+  {
+    final Object aKey = m_aKeyExtractor.apply (aItem);
+    if (aKey != null && aKey.equals (m_aKeyOfID.get (sID)))
+    {
+      // Same key - keep the position
+      m_aIndex.get (aKey).put (sID, aItem);
+      return;
+    }
+
+    remove (sID);
+    if (aKey != null)
+    {
+      m_aIndex.computeIfAbsent (aKey, k -> new CommonsLinkedHashMap <> ()).put (sID, aItem);
+      m_aKeyOfID.put (sID, aKey);
+    }
+  }
+
+  /**
+   * Remove the item with the provided ID from the index.
+   *
+   * @param sID
+   *        The ID of the item to remove. May not be <code>null</code>.
+   */
+  void remove (@Nonnull final String sID)
+  {
+    final Object aOldKey = m_aKeyOfID.remove (sID);
+    if (aOldKey != null)
+    {
+      final ICommonsOrderedMap <String, IMPLTYPE> aItems = m_aIndex.get (aOldKey);
+      if (aItems != null)
+      {
+        aItems.remove (sID);
+        if (aItems.isEmpty ())
+          m_aIndex.remove (aOldKey);
+      }
+    }
+  }
+
+  void clear ()
+  {
+    m_aIndex.clear ();
+    m_aKeyOfID.clear ();
+  }
+
+  /**
+   * Get all items indexed with the provided key.
+   *
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return A new list with all matching items. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  ICommonsList <IMPLTYPE> getAll (@Nullable final Object aKey)
+  {
+    if (aKey == null)
+      return new CommonsArrayList <> ();
+    final ICommonsOrderedMap <String, IMPLTYPE> aItems = m_aIndex.get (aKey);
+    return aItems == null ? new CommonsArrayList <> () : aItems.copyOfValues ();
+  }
+
+  /**
+   * Get the first item indexed with the provided key.
+   *
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return <code>null</code> if no item matches.
+   */
+  @Nullable
+  IMPLTYPE getFirst (@Nullable final Object aKey)
+  {
+    if (aKey == null)
+      return null;
+    final ICommonsOrderedMap <String, IMPLTYPE> aItems = m_aIndex.get (aKey);
+    return aItems == null ? null : aItems.getFirstValue ();
+  }
+
+  /**
+   * Get all items with a key in the provided range, ordered by key. Only
+   * supported for sorted indexes.
+   *
+   * @param aFrom
+   *        The lower bound. May be <code>null</code> for no lower bound.
+   * @param bFromInclusive
+   *        <code>true</code> if the lower bound is inclusive.
+   * @param aTo
+   *        The upper bound. May be <code>null</code> for no upper bound.
+   * @param bToInclusive
+   *        <code>true</code> if the upper bound is inclusive.
+   * @return A new list with all matching items. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If this is not a sorted index
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  ICommonsList <IMPLTYPE> getAllInRange (@Nullable final Object aFrom,
+                                         final boolean bFromInclusive,
+                                         @Nullable final Object aTo,
+                                         final boolean bToInclusive)
+  {
+    if (!m_bSorted)
+      throw new IllegalStateException ("The index '" + m_sName + "' is not sorted and does not support range queries");
+
+    NavigableMap <Object, ICommonsOrderedMap <String, IMPLTYPE>> aMap = (NavigableMap <Object, ICommonsOrderedMap <String, IMPLTYPE>>) m_aIndex;
+    if (aFrom != null)
+      aMap = aMap.tailMap (aFrom, bFromInclusive);
+    if (aTo != null)
+      aMap = aMap.headMap (aTo, bToInclusive);
+
+    final ICommonsList <IMPLTYPE> ret = new CommonsArrayList <> ();
+    for (final Map.Entry <Object, ICommonsOrderedMap <String, IMPLTYPE>> aEntry : aMap.entrySet ())
+      ret.addAll (aEntry.getValue ().values ());
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Name", m_sName)
+                                       .append ("Sorted", m_bSorted)
+                                       .append ("KeyCount", m_aIndex.size ())
+                                       .append ("ItemCount", m_aKeyOfID.size ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.microdom.IMicroAttribute;
+import com.helger.xml.microdom.IMicroCDATA;
+import com.helger.xml.microdom.IMicroComment;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroEntityReference;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.IMicroText;
+import com.helger.xml.microdom.MicroElement;
+import com.helger.xml.microdom.MicroText;
+import com.helger.xml.microdom.convert.MicroTypeConverter;
+import com.helger.xml.microdom.serialize.MicroWriter;
+
+/**
+ * An opt-in {@link IWALRecordCodec} (see
+ * <code>AbstractWALDAO.setWALRecordCodec</code>). The elements are converted
+ * with the {@link MicroTypeConverter} and the resulting micro element tree is
+ * written in a compact binary form, so that neither XML serialization nor XML
+ * parsing is needed. All lengths and counts are written as unsigned variable length
+ * integers and element and attribute names are only written once per record
+ * and referenced by index afterwards.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The data type to be encoded and decoded
+ * @since 11.1.4
+ */
+@Immutable
+public class MicroBinaryWALRecordCodec <DATATYPE> implements IWALRecordCodec <DATATYPE>
+{
+  /** The ID of this codec */
+  public static final String ID = "microbin";
+  /** The default element name passed to the micro type converter */
+  public static final String DEFAULT_ELEMENT_NAME = "item";
+
+  // The layout version written as the first byte
+  private static final byte VERSION = 1;
+
+  private static final byte NODE_END = 0;
+  private static final byte NODE_ELEMENT = 1;
+  private static final byte NODE_TEXT = 2;
+  private static final byte NODE_TEXT_IGNORABLE = 3;
+  private static final byte NODE_CDATA = 4;
+  private static final byte NODE_COMMENT = 5;
+  private static final byte NODE_ENTITY_REFERENCE = 6;
+
+  private final Class <DATATYPE> m_aDataTypeClass;
+  private final String m_sElementName;
+
+  public MicroBinaryWALRecordCodec (@Nonnull final Class <DATATYPE> aDataTypeClass)
+  {
+    this (aDataTypeClass, DEFAULT_ELEMENT_NAME);
+  }
+
+  public MicroBinaryWALRecordCodec (@Nonnull final Class <DATATYPE> aDataTypeClass,
+                                    @Nonnull @Nonempty final String sElementName)
+  {
+    ValueEnforcer.notNull (aDataTypeClass, "DataTypeClass");
+    ValueEnforcer.notEmpty (sElementName, "ElementName");
+    m_aDataTypeClass = aDataTypeClass;
+    m_sElementName = sElementName;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return ID;
+  }
+
+  /**
+   * @return The data type class as provided in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final Class <DATATYPE> getDataTypeClass ()
+  {
+    return m_aDataTypeClass;
+  }
+
+  /**
+   * @return The element name passed to the micro type converter. Never
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public final String getElementName ()
+  {
+    return m_sElementName;
+  }
+
+  private static void _writeVarInt (@Nonnull final DataOutput aDO, @Nonnegative final int nValue) throws IOException
+  {
+    int nRest = nValue;
+    while ((nRest & ~0x7f) != 0)
+    {
+      aDO.writeByte ((nRest & 0x7f) | 0x80);
+      nRest >>>= 7;
+    }
+    aDO.writeByte (nRest);
+  }
+
+  @Nonnegative
+  private static int _readVarInt (@Nonnull final DataInput aDI) throws IOException
+  {
+    int ret = 0;
+    for (int nShift = 0; nShift < 32; nShift += 7)
+    {
+      final int b = aDI.readUnsignedByte ();
+      ret |= (b & 0x7f) << nShift;
+      if ((b & 0x80) == 0)
+      {
+        if (ret < 0)
+          throw new IOException ("Invalid variable length integer " + Integer.toUnsignedString (ret));
+        return ret;
+      }
+    }
+    throw new IOException ("Variable length integer is too long");
+  }
+
+  private static void _writeText (@Nonnull final DataOutput aDO, @Nonnull final String sText) throws IOException
+  {
+    final byte [] aBytes = sText.getBytes (StandardCharsets.UTF_8);
+    _writeVarInt (aDO, aBytes.length);
+    aDO.write (aBytes);
+  }
+
+  @Nonnull
+  private static String _readText (@Nonnull final DataInput aDI) throws IOException
+  {
+    final int nLength = _readVarInt (aDI);
+    final byte [] aBytes = new byte [nLength];
+    aDI.readFully (aBytes);
+    return new String (aBytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write a name that is likely to be repeated. The first occurrence is
+   * written as 0 followed by the text, all subsequent occurrences are written
+   * as index + 1.
+   */
+  private static void _writeName (@Nonnull final DataOutput aDO,
+                                  @Nonnull final ICommonsMap <String, Integer> aNames,
+                                  @Nullable final String sName) throws IOException
+  {
+    final String sRealName = StringHelper.getNotNull (sName);
+    final Integer aIndex = aNames.get (sRealName);
+    if (aIndex != null)
+      _writeVarInt (aDO, aIndex.intValue () + 1);
+    else
+    {
+      aNames.put (sRealName, Integer.valueOf (aNames.size ()));
+      _writeVarInt (aDO, 0);
+      _writeText (aDO, sRealName);
+    }
+  }
+
+  @Nonnull
+  private static String _readName (@Nonnull final DataInput aDI,
+                                   @Nonnull final ICommonsList <String> aNames) throws IOException
+  {
+    final int nIndex = _readVarInt (aDI);
+    if (nIndex == 0)
+    {
+      final String ret = _readText (aDI);
+      aNames.add (ret);
+      return ret;
+    }
+    if (nIndex > aNames.size ())
+      throw new IOException ("Invalid name index " + nIndex);
+    return aNames.get (nIndex - 1);
+  }
+
+  private static void _writeElement (@Nonnull final DataOutput aDO,
+                                     @Nonnull final ICommonsMap <String, Integer> aNames,
+                                     @Nonnull final IMicroElement aElement) throws IOException
+  {
+    _writeName (aDO, aNames, aElement.getNamespaceURI ());
+    _writeName (aDO, aNames, aElement.getTagName ());
+
+    _writeVarInt (aDO, aElement.getAttributeCount ());
+    if (aElement.hasAttributes ())
+      for (final IMicroAttribute aAttr : aElement.getAttributeObjs ())
+      {
+        _writeName (aDO, aNames, aAttr.getNamespaceURI ());
+        _writeName (aDO, aNames, aAttr.getAttributeName ());
+        _writeText (aDO, aAttr.getAttributeValue ());
+      }
+
+    if (aElement.hasChildren ())
+      for (final IMicroNode aChild : aElement.getChildren ())
+        switch (aChild.getType ())
+        {
+          case ELEMENT:
+            aDO.writeByte (NODE_ELEMENT);
+            _writeElement (aDO, aNames, (IMicroElement) aChild);
+            break;
+          case TEXT:
+          {
+            final IMicroText aText = (IMicroText) aChild;
+            aDO.writeByte (aText.isElementContentWhitespace () ? NODE_TEXT_IGNORABLE : NODE_TEXT);
+            _writeText (aDO, aText.getData ().toString ());
+            break;
+          }
+          case CDATA:
+            aDO.writeByte (NODE_CDATA);
+            _writeText (aDO, ((IMicroCDATA) aChild).getData ().toString ());
+            break;
+          case COMMENT:
+            aDO.writeByte (NODE_COMMENT);
+            _writeText (aDO, ((IMicroComment) aChild).getData ().toString ());
+            break;
+          case ENTITY_REFERENCE:
+            aDO.writeByte (NODE_ENTITY_REFERENCE);
+            _writeName (aDO, aNames, ((IMicroEntityReference) aChild).getName ());
+            break;
+          default:
+            throw new IOException ("Unsupported micro node type " + aChild.getType () + " in WAL element");
+        }
+    aDO.writeByte (NODE_END);
+  }
+
+  private static void _readElementContent (@Nonnull final DataInput aDI,
+                                           @Nonnull final ICommonsList <String> aNames,
+                                           @Nonnull final IMicroElement aElement) throws IOException
+  {
+    final int nAttrCount = _readVarInt (aDI);
+    for (int i = 0; i < nAttrCount; ++i)
+    {
+      final String sNamespaceURI = _readName (aDI, aNames);
+      final String sName = _readName (aDI, aNames);
+      aElement.setAttribute (StringHelper.hasNoText (sNamespaceURI) ? null : sNamespaceURI,
+                             sName,
+                             _readText (aDI));
+    }
+
+    while (true)
+    {
+      final byte nNodeType = aDI.readByte ();
+      switch (nNodeType)
+      {
+        case NODE_END:
+          return;
+        case NODE_ELEMENT:
+        {
+          final String sNamespaceURI = _readName (aDI, aNames);
+          final IMicroElement aChild = aElement.appendElement (StringHelper.hasNoText (sNamespaceURI) ? null
+                                                                                                     : sNamespaceURI,
+                                                               _readName (aDI, aNames));
+          _readElementContent (aDI, aNames, aChild);
+          break;
+        }
+        case NODE_TEXT:
+          aElement.appendText (_readText (aDI));
+          break;
+        case NODE_TEXT_IGNORABLE:
+          aElement.appendChild (new MicroText (_readText (aDI), true));
+          break;
+        case NODE_CDATA:
+          aElement.appendCDATA (_readText (aDI));
+          break;
+        case NODE_COMMENT:
+          aElement.appendComment (_readText (aDI));
+          break;
+        case NODE_ENTITY_REFERENCE:
+          aElement.appendEntityReference (_readName (aDI, aNames));
+          break;
+        default:
+          throw new IOException ("Invalid node type " + nNodeType);
+      }
+    }
+  }
+
+  /**
+   * Encode the provided micro element in the binary format.
+   *
+   * @param aElement
+   *        The element to encode. May not be <code>null</code>.
+   * @return The encoded bytes. Never <code>null</code>.
+   * @throws IOException
+   *         If the element contains unsupported node types
+   */
+  @Nonnull
+  public static byte [] encodeElement (@Nonnull final IMicroElement aElement) throws IOException
+  {
+    ValueEnforcer.notNull (aElement, "Element");
+
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+         final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+    {
+      aDOS.writeByte (VERSION);
+      _writeElement (aDOS, new CommonsHashMap <> (), aElement);
+      aDOS.flush ();
+      return aBAOS.toByteArray ();
+    }
+  }
+
+  /**
+   * Decode a micro element that was encoded with
+   * {@link #encodeElement(IMicroElement)}.
+   *
+   * @param aBytes
+   *        The encoded bytes. May not be <code>null</code>.
+   * @return The decoded element. Never <code>null</code>.
+   * @throws IOException
+   *         If the bytes are malformed
+   */
+  @Nonnull
+  public static IMicroElement decodeElement (@Nonnull final byte [] aBytes) throws IOException
+  {
+    ValueEnforcer.notNull (aBytes, "Bytes");
+
+    try (final DataInputStream aDIS = new DataInputStream (new NonBlockingByteArrayInputStream (aBytes)))
+    {
+      final byte nVersion = aDIS.readByte ();
+      if (nVersion != VERSION)
+        throw new IOException ("Unsupported binary micro element version " + nVersion);
+
+      final ICommonsList <String> aNames = new CommonsArrayList <> ();
+      final String sNamespaceURI = _readName (aDIS, aNames);
+      final IMicroElement ret = new MicroElement (StringHelper.hasNoText (sNamespaceURI) ? null : sNamespaceURI,
+                                                  _readName (aDIS, aNames));
+      _readElementContent (aDIS, aNames, ret);
+      if (aDIS.available () > 0)
+        throw new IOException ("Found " + aDIS.available () + " unexpected trailing bytes");
+      return ret;
+    }
+  }
+
+  @Nonnull
+  public byte [] encode (@Nonnull final DATATYPE aElement) throws IOException
+  {
+    final IMicroElement aMicroElement = MicroTypeConverter.convertToMicroElement (aElement, m_sElementName);
+    if (aMicroElement == null)
+      throw new IllegalStateException ("Failed to convert " +
+                                       aElement +
+                                       " of class " +
+                                       aElement.getClass ().getName () +
+                                       " to XML!");
+    return encodeElement (aMicroElement);
+  }
+
+  @Nullable
+  public DATATYPE decode (@Nonnull final byte [] aBytes) throws IOException
+  {
+    return MicroTypeConverter.convertToNative (decodeElement (aBytes), m_aDataTypeClass);
+  }
+
+  @Nonnull
+  public String getAsDisplayString (@Nonnull final byte [] aBytes)
+  {
+    try
+    {
+      return MicroWriter.getNodeAsString (decodeElement (aBytes));
+    }
+    catch (final IOException ex)
+    {
+      return IWALRecordCodec.super.getAsDisplayString (aBytes);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("DataTypeClass", m_aDataTypeClass)
+                                       .append ("ElementName", m_sElementName)
+                                       .getToString ();
+  }
+}
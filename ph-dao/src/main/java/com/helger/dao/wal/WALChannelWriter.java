@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.functional.IThrowingConsumer;
+import com.helger.commons.io.file.FileHelper;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A WAL file writer that keeps the underlying {@link FileChannel} open and
+ * writes checksummed, length-prefixed records. Each record consists of the
+ * payload length (int), the CRC32 of the payload (int) and the payload itself.
+ * This allows the recovery to detect torn writes at the end of the file.<br>
+ * Each record is written with a single gathering write and - depending on the
+ * {@link EWALDurability} - forced to disk directly afterwards. As the WAL DAO
+ * writes its records while holding its write lock, the records are written one
+ * after another and not batched.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+final class WALChannelWriter implements Closeable
+{
+  /** The magic bytes at the beginning of each WAL file in record format */
+  static final byte [] FILE_HEADER = { 'P', 'H', 'W', 'A', 'L', 1 };
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (WALChannelWriter.class);
+  private static final ScheduledExecutorService SYNC_ES = Executors.newSingleThreadScheduledExecutor (BasicThreadFactory.builder ()
+                                                                                                                      .namingPattern ("WAL-Sync-%d")
+                                                                                                                      .daemon (true)
+                                                                                                                      .build ());
+
+  private final File m_aFile;
+  private final EWALDurability m_eDurability;
+  private final FileChannel m_aChannel;
+
+  private final SimpleLock m_aLock = new SimpleLock ();
+  @GuardedBy ("m_aLock")
+  private IOException m_aFailure;
+  @GuardedBy ("m_aLock")
+  private boolean m_bClosed = false;
+  private final AtomicBoolean m_aUnsynced = new AtomicBoolean (false);
+  private final ScheduledFuture <?> m_aSyncTask;
+
+  /**
+   * Open the provided WAL file for appending.
+   *
+   * @param aFile
+   *        The WAL file to write to. May not be <code>null</code>. If the file
+   *        is not empty, it must be in record format.
+   * @param eDurability
+   *        The durability policy to use. May not be <code>null</code>.
+   * @param aSyncInterval
+   *        The interval in which the data is forced to disk. Only relevant for
+   *        {@link EWALDurability#FSYNC_PERIODIC}. May not be <code>null</code>.
+   * @throws IOException
+   *         If the file cannot be opened or is not in record format
+   */
+  WALChannelWriter (@Nonnull final File aFile,
+                    @Nonnull final EWALDurability eDurability,
+                    @Nonnull final Duration aSyncInterval) throws IOException
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.notNull (eDurability, "Durability");
+    ValueEnforcer.notNull (aSyncInterval, "SyncInterval");
+
+    m_aFile = aFile;
+    m_eDurability = eDurability;
+    m_aChannel = FileChannel.open (aFile.toPath (),
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.WRITE,
+                                   StandardOpenOption.APPEND);
+    try
+    {
+      if (m_aChannel.size () == 0)
+      {
+        _writeFully (new ByteBuffer [] { ByteBuffer.wrap (FILE_HEADER) });
+        if (eDurability != EWALDurability.NONE)
+          m_aChannel.force (true);
+      }
+      else
+        if (!hasRecordFileHeader (aFile))
+          throw new IOException ("The existing WAL file '" + aFile.getAbsolutePath () + "' is not in record format");
+    }
+    catch (final IOException ex)
+    {
+      m_aChannel.close ();
+      throw ex;
+    }
+
+    if (eDurability == EWALDurability.FSYNC_PERIODIC)
+    {
+      final long nMillis = Math.max (1, aSyncInterval.toMillis ());
+      m_aSyncTask = SYNC_ES.scheduleWithFixedDelay (this::_syncIfNecessary, nMillis, nMillis, TimeUnit.MILLISECONDS);
+    }
+    else
+      m_aSyncTask = null;
+  }
+
+  @Nonnull
+  File getFile ()
+  {
+    return m_aFile;
+  }
+
+  @Nonnull
+  EWALDurability getDurability ()
+  {
+    return m_eDurability;
+  }
+
+  private void _writeFully (@Nonnull final ByteBuffer [] aBufs) throws IOException
+  {
+    long nRemaining = 0;
+    for (final ByteBuffer aBuf : aBufs)
+      nRemaining += aBuf.remaining ();
+    while (nRemaining > 0)
+      nRemaining -= m_aChannel.write (aBufs);
+  }
+
+  private static int _getCRC (@Nonnull final byte [] aPayload)
+  {
+    final CRC32 aCRC = new CRC32 ();
+    aCRC.update (aPayload, 0, aPayload.length);
+    return (int) aCRC.getValue ();
+  }
+
+  /**
+   * Append a single record and write it to the channel. Depending on the
+   * durability, the data is forced to disk before this method returns.
+   *
+   * @param aPayload
+   *        The payload of the record. May not be <code>null</code>.
+   * @throws IOException
+   *         If writing failed
+   */
+  void appendAndCommit (@Nonnull final byte [] aPayload) throws IOException
+  {
+    ValueEnforcer.notNull (aPayload, "Payload");
+
+    final ByteBuffer aHeader = ByteBuffer.allocate (RECORD_HEADER_SIZE);
+    aHeader.putInt (aPayload.length).putInt (_getCRC (aPayload)).flip ();
+
+    m_aLock.lock ();
+    try
+    {
+      if (m_aFailure != null)
+        throw new IOException ("A previous write to WAL file '" + m_aFile.getAbsolutePath () + "' failed", m_aFailure);
+      if (m_bClosed)
+        throw new IOException ("The WAL file '" + m_aFile.getAbsolutePath () + "' is already closed");
+
+      try
+      {
+        _writeFully (new ByteBuffer [] { aHeader, ByteBuffer.wrap (aPayload) });
+        if (m_eDurability == EWALDurability.FSYNC_PER_COMMIT)
+          m_aChannel.force (false);
+        else
+          m_aUnsynced.set (true);
+      }
+      catch (final IOException ex)
+      {
+        // The record may be partially written - all subsequent writes must fail
+        m_aFailure = ex;
+        throw ex;
+      }
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  private void _syncIfNecessary ()
+  {
+    if (m_aUnsynced.getAndSet (false))
+    {
+      m_aLock.lock ();
+      try
+      {
+        if (!m_bClosed)
+          m_aChannel.force (false);
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Failed to sync WAL file '" + m_aFile.getAbsolutePath () + "'", ex);
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+    }
+  }
+
+  /**
+   * Force all written records to disk (unless the durability is
+   * {@link EWALDurability#NONE}) and close the channel. Calling this method
+   * more than once has no effect.
+   *
+   * @throws IOException
+   *         If writing failed
+   */
+  public void close () throws IOException
+  {
+    if (m_aSyncTask != null)
+      m_aSyncTask.cancel (false);
+
+    m_aLock.lock ();
+    try
+    {
+      if (!m_bClosed)
+      {
+        m_bClosed = true;
+        try
+        {
+          if (m_eDurability != EWALDurability.NONE && m_aFailure == null)
+            m_aChannel.force (false);
+        }
+        finally
+        {
+          m_aChannel.close ();
+        }
+      }
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Check if the provided file starts with the record format file header.
+   *
+   * @param aFile
+   *        The file to check. May not be <code>null</code>.
+   * @return <code>true</code> if the file is in record format,
+   *         <code>false</code> if not (legacy format or empty).
+   * @throws IOException
+   *         If reading fails
+   */
+  static boolean hasRecordFileHeader (@Nonnull final File aFile) throws IOException
+  {
+    if (aFile.length () < FILE_HEADER.length)
+      return false;
+
+    try (final InputStream aIS = FileHelper.getInputStream (aFile))
+    {
+      if (aIS == null)
+        throw new IOException ("Failed to open '" + aFile.getAbsolutePath () + "' for reading");
+      final byte [] aHeader = new byte [FILE_HEADER.length];
+      StreamHelper.readFully (aIS, aHeader);
+      return Arrays.equals (aHeader, FILE_HEADER);
+    }
+  }
+
+  /**
+   * Read all records from a WAL file in record format. Reading stops at the
+   * first incomplete record or the first record with a checksum mismatch.
+   *
+   * @param aFile
+   *        The file to read. May not be <code>null</code>.
+   * @param aRecordConsumer
+   *        The consumer for the payload of each record. May not be
+   *        <code>null</code>.
+   * @return The number of bytes at the end of the file that could not be read
+   *         because of a torn write or a corruption. 0 if all records were
+   *         read completely.
+   * @throws IOException
+   *         If reading fails or if the consumer throws an exception
+   */
+  @CheckForSigned
+  static long readAllRecords (@Nonnull final File aFile,
+                              @Nonnull final IThrowingConsumer <byte [], IOException> aRecordConsumer) throws IOException
+  {
+    final long nFileSize = aFile.length ();
+    final InputStream aIS = FileHelper.getBufferedInputStream (aFile);
+    if (aIS == null)
+      throw new IOException ("Failed to open '" + aFile.getAbsolutePath () + "' for reading");
+    try (final DataInputStream aDIS = new DataInputStream (aIS))
+    {
+      final byte [] aHeader = new byte [FILE_HEADER.length];
+      aDIS.readFully (aHeader);
+      if (!Arrays.equals (aHeader, FILE_HEADER))
+        throw new IOException ("The WAL file '" + aFile.getAbsolutePath () + "' is not in record format");
+
+      long nPos = FILE_HEADER.length;
+      while (nPos < nFileSize)
+      {
+        if (nFileSize - nPos < RECORD_HEADER_SIZE)
+          break;
+        final int nLength = aDIS.readInt ();
+        final int nCRC = aDIS.readInt ();
+        if (nLength < 0 || nFileSize - nPos - RECORD_HEADER_SIZE < nLength)
+          break;
+
+        final byte [] aPayload = new byte [nLength];
+        try
+        {
+          aDIS.readFully (aPayload);
+        }
+        catch (final EOFException ex)
+        {
+          break;
+        }
+        if (_getCRC (aPayload) != nCRC)
+          break;
+
+        aRecordConsumer.accept (aPayload);
+        nPos += RECORD_HEADER_SIZE + nLength;
+      }
+      return nFileSize - nPos;
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("File", m_aFile).append ("Durability", m_eDurability).getToString ();
+  }
+}
@@ -161,25 +161,21 @@ public final class WALListener extends AbstractGlobalSingleton
 
       // What should be executed upon writing
       final Runnable r = () -> {
-        // Use DAO lock!
-        aDAO.internalWriteLocked ( () -> {
-          // Main DAO writing
-          aDAO._writeToFileAndResetPendingChanges ("ScheduledWriter.run");
-          // Delete the WAL file
-          aDAO._deleteWALFileAfterProcessing (sWALFilename);
-
-          if (LOGGER.isDebugEnabled ())
-            LOGGER.debug ("Finished scheduled writing for DAO " + sKey);
+        // Main DAO writing and deletion of the WAL file (uses the DAO lock)
+        aDAO._writeScheduled (sWALFilename, () -> {
+          // Remove from the internal set so that another job will be
+          // scheduled for the same DAO
+          // This is called within the DAO lock, as soon as all changes up to
+          // now are handled
+          m_aRWLock.writeLocked ( () -> {
+            // Remove from the overall set as well as from the scheduled items
+            m_aWaitingDAOs.remove (sKey);
+            m_aScheduledItems.remove (sKey);
+          });
         });
 
-        // Remove from the internal set so that another job will be
-        // scheduled for the same DAO
-        // Do this after the writing to the file
-        m_aRWLock.writeLocked ( () -> {
-          // Remove from the overall set as well as from the scheduled items
-          m_aWaitingDAOs.remove (sKey);
-          m_aScheduledItems.remove (sKey);
-        });
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Finished scheduled writing for DAO " + sKey);
       };
 
       try
@@ -0,0 +1,499 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.ThreadHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.io.file.FileOperationManager;
+import com.helger.commons.io.file.SimpleFileIO;
+import com.helger.commons.io.relative.FileRelativeIO;
+import com.helger.dao.AbstractDAO;
+import com.helger.dao.DAOException;
+import com.helger.dao.IDAOWriteExceptionCallback;
+import com.helger.dao.wal.AbstractMapBasedWALDAO.InitSettings;
+import com.helger.scope.mock.ScopeTestRule;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroElement;
+import com.helger.xml.microdom.convert.IMicroTypeConverter;
+import com.helger.xml.microdom.convert.MicroTypeConverterRegistry;
+
+/**
+ * Test class for class {@link AbstractMapBasedWALDAO}.
+ *
+ * @author Philip Helger
+ */
+public final class MapBasedWALDAOFuncTest
+{
+  private static final class MockItem implements IHasID <String>
+  {
+    private final String m_sID;
+    private final String m_sValue;
+
+    public MockItem (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      m_sID = sID;
+      m_sValue = sValue;
+    }
+
+    @Nonnull
+    public String getID ()
+    {
+      return m_sID;
+    }
+
+    @Nonnull
+    public String getValue ()
+    {
+      return m_sValue;
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final MockItem rhs = (MockItem) o;
+      return m_sID.equals (rhs.m_sID);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return new HashCodeGenerator (this).append (m_sID).getHashCode ();
+    }
+  }
+
+  private static final class MockItemMicroTypeConverter implements IMicroTypeConverter <MockItem>
+  {
+    @Nonnull
+    public IMicroElement convertToMicroElement (@Nonnull final MockItem aObject,
+                                                @Nullable final String sNamespaceURI,
+                                                @Nonnull final String sTagName)
+    {
+      final IMicroElement ret = new MicroElement (sNamespaceURI, sTagName);
+      ret.setAttribute ("id", aObject.getID ());
+      ret.setAttribute ("value", aObject.getValue ());
+      return ret;
+    }
+
+    @Nonnull
+    public MockItem convertToNative (@Nonnull final IMicroElement aElement)
+    {
+      return new MockItem (aElement.getAttributeValue ("id"), aElement.getAttributeValue ("value"));
+    }
+  }
+
+  private static final class MockMapBasedWALDAO extends AbstractMapBasedWALDAO <MockItem, MockItem>
+  {
+    public MockMapBasedWALDAO (@Nonnull final String sFilename,
+                               @Nonnull final InitSettings <MockItem> aInitSettings,
+                               @Nonnull final Duration aWaitingTime) throws DAOException
+    {
+      super (MockItem.class, FileRelativeIO.createForCurrentDir (), sFilename, aInitSettings.setDoInitialRead (false));
+      setWaitingTime (aWaitingTime);
+      initialRead ();
+    }
+
+    public void create (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      m_aRWLock.writeLocked ( () -> internalCreateItem (new MockItem (sID, sValue)));
+    }
+
+    public void update (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      m_aRWLock.writeLocked ( () -> internalUpdateItem (new MockItem (sID, sValue)));
+    }
+
+    public void delete (@Nonnull final String sID)
+    {
+      m_aRWLock.writeLocked ( () -> internalDeleteItem (sID));
+    }
+
+    public void useXMLStringWALRecordCodec ()
+    {
+      setWALRecordCodec (getXMLStringWALRecordCodec ());
+    }
+
+    public void useMicroBinaryWALRecordCodec ()
+    {
+      setWALRecordCodec (getMicroBinaryWALRecordCodec ());
+    }
+
+    public void useWALChannel ()
+    {
+      setUseWALChannel (true);
+    }
+
+    @Nullable
+    public String getValueOfID (@Nonnull final String sID)
+    {
+      final MockItem aItem = getOfID (sID);
+      return aItem == null ? null : aItem.getValue ();
+    }
+  }
+
+  static
+  {
+    MicroTypeConverterRegistry.getInstance ().registerMicroElementTypeConverter (MockItem.class,
+                                                                                new MockItemMicroTypeConverter ());
+  }
+
+  @Rule
+  public final TestRule m_aScopeRule = new ScopeTestRule ();
+
+  private static void _deleteAll (@Nonnull final String sFilename)
+  {
+    for (final String sSuffix : new String [] { "",
+                                                ".wal",
+                                                AbstractWALDAO.FILENAME_EXTENSION_SNAPSHOT,
+                                                ".wal" + AbstractWALDAO.FILENAME_EXTENSION_SNAPSHOT })
+      FileOperationManager.INSTANCE.deleteFileIfExisting (new File (sFilename + sSuffix));
+  }
+
+  private static void _waitForWriting (@Nonnull final AbstractWALDAO <?> aDAO,
+                                       @Nonnull final String sFilename,
+                                       final int nWriteCountBefore)
+  {
+    final File aWALFile = new File (sFilename + ".wal");
+    // A scheduled snapshot write may still be in progress
+    final File aSnapshotFile = new File (sFilename + AbstractWALDAO.FILENAME_EXTENSION_SNAPSHOT);
+    for (int i = 0;
+         i < 500 && (aDAO.getWriteCount () <= nWriteCountBefore || aWALFile.exists () || aSnapshotFile.exists ());
+         ++i)
+      ThreadHelper.sleep (10);
+    assertTrue (aDAO.getWriteCount () > nWriteCountBefore);
+    assertFalse (aWALFile.exists ());
+    assertFalse (aSnapshotFile.exists ());
+  }
+
+  @Test
+  public void testSnapshotWriting () throws DAOException
+  {
+    final String sFilename = "target/dao-snapshot-test.xml";
+    _deleteAll (sFilename);
+
+    final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename,
+                                                            new InitSettings <MockItem> ().setUseSnapshotWriting (true),
+                                                            Duration.ofMillis (20));
+    assertTrue (aDAO.isUseSnapshotWriting ());
+    for (int i = 0; i < 100; ++i)
+      aDAO.create ("id" + i, "value" + i);
+    _waitForWriting (aDAO, sFilename, 0);
+
+    // Only the changed items are serialized again
+    final int nWriteCount = aDAO.getWriteCount ();
+    aDAO.update ("id5", "new5");
+    aDAO.delete ("id7");
+    aDAO.create ("id100", "value100");
+    _waitForWriting (aDAO, sFilename, nWriteCount);
+    assertFalse (new File (sFilename + AbstractWALDAO.FILENAME_EXTENSION_SNAPSHOT).exists ());
+    assertFalse (new File (sFilename + ".wal" + AbstractWALDAO.FILENAME_EXTENSION_SNAPSHOT).exists ());
+
+    // Read the written file again
+    final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename, new InitSettings <> (), Duration.ofMillis (20));
+    assertEquals (100, aDAO2.size ());
+    assertEquals ("value0", aDAO2.getValueOfID ("id0"));
+    assertEquals ("new5", aDAO2.getValueOfID ("id5"));
+    assertNull (aDAO2.getValueOfID ("id7"));
+    assertEquals ("value100", aDAO2.getValueOfID ("id100"));
+
+    _deleteAll (sFilename);
+  }
+
+  @Test
+  public void testStreamingWriting () throws DAOException
+  {
+    final String sFilename = "target/dao-streaming-test.xml";
+    final String sFilenameRef = "target/dao-streaming-ref-test.xml";
+    _deleteAll (sFilename);
+    _deleteAll (sFilenameRef);
+
+    final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename,
+                                                            new InitSettings <MockItem> ().setUseStreamingWriting (true),
+                                                            Duration.ofMillis (20));
+    final MockMapBasedWALDAO aDAORef = new MockMapBasedWALDAO (sFilenameRef, new InitSettings <> (), Duration.ofMillis (20));
+    assertTrue (aDAO.isUseStreamingWriting ());
+    assertFalse (aDAORef.isUseStreamingWriting ());
+    for (int i = 0; i < 100; ++i)
+    {
+      aDAO.create ("id" + i, "value<" + i + ">");
+      aDAORef.create ("id" + i, "value<" + i + ">");
+    }
+    _waitForWriting (aDAO, sFilename, 0);
+    _waitForWriting (aDAORef, sFilenameRef, 0);
+
+    // Same content apart from the timestamp in the header comment
+    final ICommonsList <String> aLines = SimpleFileIO.getAllFileLines (new File (sFilename), StandardCharsets.UTF_8);
+    final ICommonsList <String> aLinesRef = SimpleFileIO.getAllFileLines (new File (sFilenameRef),
+                                                                         StandardCharsets.UTF_8);
+    assertEquals (aLinesRef.size (), aLines.size ());
+    for (int i = 0; i < aLines.size (); ++i)
+      if (!aLinesRef.get (i).startsWith ("Written at "))
+        assertEquals (aLinesRef.get (i), aLines.get (i));
+
+    // Read the written file again
+    final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename, new InitSettings <> (), Duration.ofMillis (20));
+    assertEquals (100, aDAO2.size ());
+    assertEquals ("value<0>", aDAO2.getValueOfID ("id0"));
+    assertEquals ("value<99>", aDAO2.getValueOfID ("id99"));
+
+    _deleteAll (sFilename);
+    _deleteAll (sFilenameRef);
+  }
+
+  @Test
+  public void testRecoverFromWALSnapshotFile () throws DAOException
+  {
+    final String sFilename = "target/dao-snapshot-recovery-test.xml";
+    _deleteAll (sFilename);
+
+    // Never write the file within the test
+    final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename,
+                                                            new InitSettings <MockItem> ().setUseSnapshotWriting (true),
+                                                            Duration.ofHours (1));
+    aDAO.create ("a", "1");
+    aDAO.create ("b", "2");
+    assertEquals (0, aDAO.getWriteCount ());
+
+    // Simulate a crash while the snapshot is written: the older changes are
+    // in the WAL snapshot file, the newer changes are in the WAL file
+    final File aWALFile = new File (sFilename + ".wal");
+    final File aWALSnapshotFile = new File (sFilename + ".wal" + AbstractWALDAO.FILENAME_EXTENSION_SNAPSHOT);
+    assertTrue (FileOperationManager.INSTANCE.renameFile (aWALFile, aWALSnapshotFile).isSuccess ());
+    aDAO.update ("a", "3");
+    aDAO.create ("c", "4");
+    assertTrue (aWALFile.exists ());
+
+    final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename,
+                                                             new InitSettings <MockItem> ().setUseSnapshotWriting (true),
+                                                             Duration.ofHours (1));
+    assertEquals (3, aDAO2.size ());
+    assertEquals ("3", aDAO2.getValueOfID ("a"));
+    assertEquals ("2", aDAO2.getValueOfID ("b"));
+    assertEquals ("4", aDAO2.getValueOfID ("c"));
+    assertFalse (aWALFile.exists ());
+    assertFalse (aWALSnapshotFile.exists ());
+
+    _deleteAll (sFilename);
+  }
+
+  @Test
+  public void testRecoverWithDifferentCodecs () throws DAOException
+  {
+    final String sFilename = "target/dao-codec-test.xml";
+    _deleteAll (sFilename);
+
+    final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename, new InitSettings <> (), Duration.ofHours (1));
+    assertEquals (AbstractWALDAO.WAL_RECORD_CODEC_ID_XML, aDAO.getWALRecordCodec ().getID ());
+    aDAO.useMicroBinaryWALRecordCodec ();
+    assertEquals (MicroBinaryWALRecordCodec.ID, aDAO.getWALRecordCodec ().getID ());
+    aDAO.create ("a", "1");
+    aDAO.create ("b", "2");
+    // Legacy XML strings in the same WAL file
+    aDAO.useXMLStringWALRecordCodec ();
+    assertEquals (AbstractWALDAO.WAL_RECORD_CODEC_ID_XML, aDAO.getWALRecordCodec ().getID ());
+    aDAO.update ("a", "3");
+    aDAO.create ("c", "<4>&");
+    assertTrue (new File (sFilename + ".wal").exists ());
+
+    final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename, new InitSettings <> (), Duration.ofHours (1));
+    assertEquals (3, aDAO2.size ());
+    assertEquals ("3", aDAO2.getValueOfID ("a"));
+    assertEquals ("2", aDAO2.getValueOfID ("b"));
+    assertEquals ("<4>&", aDAO2.getValueOfID ("c"));
+    assertFalse (new File (sFilename + ".wal").exists ());
+
+    _deleteAll (sFilename);
+  }
+
+  @Test
+  public void testMigrateLegacyWALToChannel () throws Exception
+  {
+    final String sFilename = "target/dao-wal-migration-test.xml";
+    _deleteAll (sFilename);
+
+    final ICommonsList <Throwable> aWriteErrors = new CommonsArrayList <> ();
+    final IDAOWriteExceptionCallback aWriteErrorHandler = (t, r, c) -> aWriteErrors.add (t);
+    AbstractDAO.exceptionHandlersWrite ().add (aWriteErrorHandler);
+    try
+    {
+      // Changes in a WAL file of the legacy format
+      final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename, new InitSettings <> (), Duration.ofHours (1));
+      aDAO.create ("a", "1");
+      aDAO.create ("b", "2");
+      final File aWALFile = new File (sFilename + ".wal");
+      assertTrue (aWALFile.exists ());
+      assertFalse (WALChannelWriter.hasRecordFileHeader (aWALFile));
+      assertEquals (0, aDAO.getWriteCount ());
+
+      // The first change after enabling the channel writes the main file once
+      aDAO.useWALChannel ();
+      assertTrue (aDAO.isUseWALChannel ());
+      aDAO.update ("a", "3");
+      assertEquals (1, aDAO.getWriteCount ());
+      assertFalse (aWALFile.exists ());
+
+      // Further changes go to a WAL file in the record format
+      aDAO.create ("c", "4");
+      aDAO.create ("d", "5");
+      assertEquals (1, aDAO.getWriteCount ());
+      assertTrue (aWALFile.exists ());
+      assertTrue (WALChannelWriter.hasRecordFileHeader (aWALFile));
+      assertTrue (aWriteErrors.isEmpty ());
+
+      final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename, new InitSettings <> (), Duration.ofHours (1));
+      assertEquals (4, aDAO2.size ());
+      assertEquals ("3", aDAO2.getValueOfID ("a"));
+      assertEquals ("2", aDAO2.getValueOfID ("b"));
+      assertEquals ("4", aDAO2.getValueOfID ("c"));
+      assertEquals ("5", aDAO2.getValueOfID ("d"));
+    }
+    finally
+    {
+      AbstractDAO.exceptionHandlersWrite ().removeObject (aWriteErrorHandler);
+      _deleteAll (sFilename);
+    }
+  }
+
+  @Nonnull
+  private static InitSettings <MockItem> _createIndexInitSettings ()
+  {
+    return new InitSettings <MockItem> ().addHashIndex ("value", MockItem::getValue)
+                                         .addSortedIndex ("id", MockItem::getID);
+  }
+
+  @Test
+  public void testSecondaryIndexes () throws DAOException
+  {
+    final String sFilename = "target/dao-index-test.xml";
+    _deleteAll (sFilename);
+
+    final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename, _createIndexInitSettings (), Duration.ofHours (1));
+    assertEquals (new CommonsArrayList <> ("value", "id"), aDAO.getAllIndexNames ());
+    assertTrue (aDAO.hasIndex ("value"));
+    assertFalse (aDAO.hasIndex ("other"));
+    for (int i = 0; i < 10; ++i)
+      aDAO.create ("id" + i, i % 2 == 0 ? "even" : "odd");
+    assertEquals (5, aDAO.findByIndex ("value", "even").size ());
+    assertEquals ("id1", aDAO.findFirstByIndex ("value", "odd").getID ());
+    assertTrue (aDAO.findByIndex ("value", "none").isEmpty ());
+
+    aDAO.update ("id1", "even");
+    aDAO.delete ("id2");
+    assertEquals (new CommonsArrayList <> ("id0", "id4", "id6", "id8", "id1"),
+                  aDAO.findByIndex ("value", "even").getAllMapped (MockItem::getID));
+    assertEquals ("id3", aDAO.findFirstByIndex ("value", "odd").getID ());
+    assertEquals (new CommonsArrayList <> ("id1", "id3", "id4"),
+                  aDAO.findByIndexRange ("id", "id1", true, "id5", false).getAllMapped (MockItem::getID));
+
+    try
+    {
+      aDAO.findByIndexRange ("value", "a", true, "z", true);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    try
+    {
+      aDAO.findByIndex ("other", "a");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+
+    // Indexes are filled upon WAL recovery
+    final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename, _createIndexInitSettings (), Duration.ofHours (1));
+    assertEquals (9, aDAO2.size ());
+    assertEquals (5, aDAO2.findByIndex ("value", "even").size ());
+    assertEquals (4, aDAO2.findByIndex ("value", "odd").size ());
+    assertNull (aDAO2.findFirstByIndex ("id", "id2"));
+    assertEquals (9, aDAO2.findByIndexRange ("id", null, false, null, false).size ());
+
+    _deleteAll (sFilename);
+  }
+
+  @Test
+  public void testParallelRead () throws DAOException
+  {
+    final String sFilename = "target/dao-parallel-read-test.xml";
+    _deleteAll (sFilename);
+
+    final int nItems = 2000;
+    final MockMapBasedWALDAO aDAO = new MockMapBasedWALDAO (sFilename,
+                                                            new InitSettings <MockItem> ().setOrderedMapSupplier (),
+                                                            Duration.ofMillis (20));
+    for (int i = 0; i < nItems; ++i)
+      aDAO.create ("id" + i, "value" + i);
+    _waitForWriting (aDAO, sFilename, 0);
+
+    // Keep the following changes in the WAL file
+    final MockMapBasedWALDAO aDAO2 = new MockMapBasedWALDAO (sFilename,
+                                                             new InitSettings <MockItem> ().setOrderedMapSupplier (),
+                                                             Duration.ofHours (1));
+    assertEquals (nItems, aDAO2.size ());
+    for (int i = 0; i < nItems; i += 2)
+      aDAO2.update ("id" + i, "new" + i);
+    aDAO2.delete ("id1");
+    aDAO2.create ("new", "value");
+    assertTrue (new File (sFilename + ".wal").exists ());
+
+    final MockMapBasedWALDAO aDAO3 = new MockMapBasedWALDAO (sFilename,
+                                                             new InitSettings <MockItem> ().setOrderedMapSupplier ()
+                                                                                           .setParallelRead (true),
+                                                             Duration.ofHours (1));
+    assertTrue (aDAO3.isParallelRead ());
+    assertTrue (aDAO3.isParallelWALRecovery ());
+    assertEquals (nItems, aDAO3.size ());
+    assertEquals ("new0", aDAO3.getValueOfID ("id0"));
+    assertNull (aDAO3.getValueOfID ("id1"));
+    assertEquals ("new1998", aDAO3.getValueOfID ("id1998"));
+    assertEquals ("value1999", aDAO3.getValueOfID ("id1999"));
+    assertEquals ("value", aDAO3.getValueOfID ("new"));
+    assertFalse (new File (sFilename + ".wal").exists ());
+
+    // The order of the file is maintained
+    assertEquals (aDAO2.getAll ().getAllMapped (MockItem::getID), aDAO3.getAll ().getAllMapped (MockItem::getID));
+
+    _deleteAll (sFilename);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroElement;
+import com.helger.xml.microdom.MicroText;
+import com.helger.xml.microdom.serialize.MicroWriter;
+
+/**
+ * Test class for class {@link MicroBinaryWALRecordCodec}.
+ *
+ * @author Philip Helger
+ */
+public final class MicroBinaryWALRecordCodecTest
+{
+  @Test
+  public void testRoundTrip () throws IOException
+  {
+    final IMicroElement e = new MicroElement ("urn:test", "root");
+    e.setAttribute ("id", "4711");
+    e.setAttribute ("urn:attr", "lang", "äöü €");
+    for (int i = 0; i < 10; ++i)
+    {
+      final IMicroElement eChild = e.appendElement ("urn:test", "child");
+      eChild.setAttribute ("id", Integer.toString (i));
+      eChild.appendText ("Text <" + i + "> & more");
+    }
+    e.appendChild (new MicroText ("  ", true));
+    e.appendElement ("empty");
+    e.appendCDATA ("cdata ]]");
+    e.appendComment ("comment");
+    e.appendEntityReference ("nbsp");
+
+    final byte [] aBytes = MicroBinaryWALRecordCodec.encodeElement (e);
+    final IMicroElement e2 = MicroBinaryWALRecordCodec.decodeElement (aBytes);
+    assertTrue (e.isEqualContent (e2));
+    assertEquals (MicroWriter.getNodeAsString (e), MicroWriter.getNodeAsString (e2));
+
+    // Names are only written once
+    assertTrue (aBytes.length < MicroWriter.getNodeAsString (e, AbstractWALDAO.WAL_XWS).length ());
+  }
+
+  @Test
+  public void testMalformed () throws IOException
+  {
+    final IMicroElement e = new MicroElement ("root");
+    e.appendElement ("child").appendText ("text");
+    final byte [] aBytes = MicroBinaryWALRecordCodec.encodeElement (e);
+
+    for (int i = 0; i < aBytes.length; ++i)
+      try
+      {
+        MicroBinaryWALRecordCodec.decodeElement (Arrays.copyOf (aBytes, i));
+        fail ("Length " + i);
+      }
+      catch (final IOException ex)
+      {
+        // expected
+      }
+
+    try
+    {
+      MicroBinaryWALRecordCodec.decodeElement (Arrays.copyOf (aBytes, aBytes.length + 1));
+      fail ();
+    }
+    catch (final IOException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.io.file.FileOperationManager;
+
+/**
+ * Test class for class {@link WALChannelWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class WALChannelWriterTest
+{
+  private static final File TEST_FILE = new File ("target/wal-channel-test.wal");
+
+  @Nonnull
+  private static ICommonsList <String> _readAll (final File aFile, final long nExpectedUnreadable) throws IOException
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    assertEquals (nExpectedUnreadable,
+                  WALChannelWriter.readAllRecords (aFile, x -> ret.add (new String (x, StandardCharsets.UTF_8))));
+    return ret;
+  }
+
+  @Test
+  public void testWriteAndRead () throws IOException
+  {
+    for (final EWALDurability eDurability : EWALDurability.values ())
+    {
+      FileOperationManager.INSTANCE.deleteFileIfExisting (TEST_FILE);
+      try (final WALChannelWriter aWriter = new WALChannelWriter (TEST_FILE, eDurability, Duration.ofMillis (10)))
+      {
+        aWriter.appendAndCommit ("abc".getBytes (StandardCharsets.UTF_8));
+        aWriter.appendAndCommit (new byte [0]);
+      }
+      assertTrue (WALChannelWriter.hasRecordFileHeader (TEST_FILE));
+
+      // Append to an existing file
+      try (final WALChannelWriter aWriter = new WALChannelWriter (TEST_FILE, eDurability, Duration.ofMillis (10)))
+      {
+        aWriter.appendAndCommit ("def".getBytes (StandardCharsets.UTF_8));
+      }
+      assertEquals (new CommonsArrayList <> ("abc", "", "def"), _readAll (TEST_FILE, 0));
+    }
+    FileOperationManager.INSTANCE.deleteFile (TEST_FILE);
+  }
+
+  @Test
+  public void testTornWrite () throws IOException
+  {
+    FileOperationManager.INSTANCE.deleteFileIfExisting (TEST_FILE);
+    try (final WALChannelWriter aWriter = new WALChannelWriter (TEST_FILE, EWALDurability.NONE, Duration.ofSeconds (1)))
+    {
+      aWriter.appendAndCommit ("first".getBytes (StandardCharsets.UTF_8));
+      aWriter.appendAndCommit ("second".getBytes (StandardCharsets.UTF_8));
+    }
+
+    // Cut the last 2 bytes
+    try (final RandomAccessFile aRAF = new RandomAccessFile (TEST_FILE, "rw"))
+    {
+      aRAF.setLength (aRAF.length () - 2);
+    }
+    // "second" record (8 bytes header + 6 bytes payload) is incomplete
+    assertEquals (new CommonsArrayList <> ("first"), _readAll (TEST_FILE, 12));
+
+    // Corrupt the payload of the first record
+    try (final RandomAccessFile aRAF = new RandomAccessFile (TEST_FILE, "rw"))
+    {
+      aRAF.seek (WALChannelWriter.FILE_HEADER.length + 8);
+      aRAF.write ('F');
+    }
+    assertEquals (new CommonsArrayList <> (), _readAll (TEST_FILE, TEST_FILE.length () - WALChannelWriter.FILE_HEADER.length));
+    FileOperationManager.INSTANCE.deleteFile (TEST_FILE);
+  }
+
+  @Test
+  public void testLegacyFile () throws IOException
+  {
+    FileOperationManager.INSTANCE.deleteFileIfExisting (TEST_FILE);
+    try (final RandomAccessFile aRAF = new RandomAccessFile (TEST_FILE, "rw"))
+    {
+      aRAF.write (new byte [] { 2, 0, 0, 0, 6, 'c', 'r', 'e', 'a', 't', 'e' });
+    }
+    assertFalse (WALChannelWriter.hasRecordFileHeader (TEST_FILE));
+    try
+    {
+      new WALChannelWriter (TEST_FILE, EWALDurability.NONE, Duration.ofSeconds (1)).close ();
+      throw new IllegalStateException ("Legacy file was opened");
+    }
+    catch (final IOException ex)
+    {
+      // expected
+    }
+    FileOperationManager.INSTANCE.deleteFile (TEST_FILE);
+  }
+
+  @Test
+  public void testConcurrentWrites () throws IOException
+  {
+    FileOperationManager.INSTANCE.deleteFileIfExisting (TEST_FILE);
+    final int nThreads = 8;
+    final int nPerThread = 200;
+    try (final WALChannelWriter aWriter = new WALChannelWriter (TEST_FILE,
+                                                                EWALDurability.FSYNC_PER_COMMIT,
+                                                                Duration.ofSeconds (1)))
+    {
+      final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+      for (int t = 0; t < nThreads; ++t)
+      {
+        final int nThread = t;
+        aES.submit ( () -> {
+          for (int i = 0; i < nPerThread; ++i)
+            aWriter.appendAndCommit ((nThread + "-" + i).getBytes (StandardCharsets.UTF_8));
+          return null;
+        });
+      }
+      ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    }
+
+    final ICommonsList <String> aRecords = _readAll (TEST_FILE, 0);
+    assertEquals (nThreads * nPerThread, aRecords.size ());
+    assertEquals (nThreads * nPerThread, new CommonsHashSet <> (aRecords).size ());
+    FileOperationManager.INSTANCE.deleteFile (TEST_FILE);
+  }
+}
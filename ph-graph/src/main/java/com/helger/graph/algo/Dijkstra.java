@@ -45,6 +45,9 @@ import com.helger.graph.IMutableDirectedGraphRelation;
 
 /**
  * Find the shortest path between 2 graph nodes, using Dijsktra's algorithm
+ * <br>
+ * Note: this implementation is O(V&sup2;). For large graphs use
+ * {@link ShortestPathEngine}.
  *
  * @author Philip Helger
  */
@@ -0,0 +1,483 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.graph.algo;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.graph.IMutableBaseGraph;
+import com.helger.graph.IMutableBaseGraphNode;
+import com.helger.graph.IMutableBaseGraphRelation;
+import com.helger.graph.snapshot.GraphSnapshot;
+
+/**
+ * A shortest path engine for large graphs. It works on a {@link GraphSnapshot}
+ * with the relation costs as weights, so that the queries neither need string
+ * lookups nor map iterations. The queries use a
+ * binary heap as the priority queue and run in O((V + E) log V) compared to the
+ * O(V&sup2;) of {@link Dijkstra}.<br>
+ * Both directed and undirected graphs are supported. For directed graphs only
+ * the outgoing relations are followed. Changes to the graph after the creation
+ * of the engine are not reflected. As the engine is immutable, it can be used
+ * for concurrent queries.
+ *
+ * @author Philip Helger
+ * @param <N>
+ *        Node type
+ * @param <R>
+ *        Relation type
+ * @since 11.1.4
+ */
+@Immutable
+public final class ShortestPathEngine <N extends IMutableBaseGraphNode <N, R>, R extends IMutableBaseGraphRelation <N, R>>
+{
+  /**
+   * The result of a single source query, containing the shortest distance from
+   * the source node to all other nodes.
+   *
+   * @author Philip Helger
+   * @param <N>
+   *        Node type
+   */
+  @Immutable
+  public static final class AllDestinationsResult <N extends IMutableBaseGraphNode <N, ?>>
+  {
+    private final ShortestPathEngine <N, ?> m_aEngine;
+    private final int m_nSourceIndex;
+    private final long [] m_aDistances;
+    private final int [] m_aPredecessors;
+
+    AllDestinationsResult (@Nonnull final ShortestPathEngine <N, ?> aEngine,
+                           final int nSourceIndex,
+                           @Nonnull final long [] aDistances,
+                           @Nonnull final int [] aPredecessors)
+    {
+      m_aEngine = aEngine;
+      m_nSourceIndex = nSourceIndex;
+      m_aDistances = aDistances;
+      m_aPredecessors = aPredecessors;
+    }
+
+    /**
+     * @return The source node of the query. Never <code>null</code>.
+     */
+    @Nonnull
+    public N getSourceNode ()
+    {
+      return m_aEngine._getNode (m_nSourceIndex);
+    }
+
+    /**
+     * @param sToID
+     *        The ID of the destination node. May not be <code>null</code>.
+     * @return <code>true</code> if the node is reachable from the source node.
+     * @throws IllegalArgumentException
+     *         If the node ID is unknown
+     */
+    public boolean isReachable (@Nonnull @Nonempty final String sToID)
+    {
+      return m_aDistances[m_aEngine._getNodeIndex (sToID)] != UNREACHABLE;
+    }
+
+    /**
+     * @param sToID
+     *        The ID of the destination node. May not be <code>null</code>.
+     * @return The shortest distance from the source node or -1 if the node is
+     *         not reachable.
+     * @throws IllegalArgumentException
+     *         If the node ID is unknown
+     */
+    @CheckForSigned
+    public long getDistance (@Nonnull @Nonempty final String sToID)
+    {
+      final long nDistance = m_aDistances[m_aEngine._getNodeIndex (sToID)];
+      return nDistance == UNREACHABLE ? -1 : nDistance;
+    }
+
+    /**
+     * @param sToID
+     *        The ID of the destination node. May not be <code>null</code>.
+     * @return The shortest path from the source node or <code>null</code> if
+     *         the node is not reachable.
+     * @throws IllegalArgumentException
+     *         If the node ID is unknown
+     */
+    @Nullable
+    public Dijkstra.Result <N> getPath (@Nonnull @Nonempty final String sToID)
+    {
+      final int nToIndex = m_aEngine._getNodeIndex (sToID);
+      return m_aEngine._createResult (m_nSourceIndex, nToIndex, m_aDistances, m_aPredecessors);
+    }
+  }
+
+  /**
+   * An indexed binary min-heap of node indices that supports decreasing the
+   * key of a contained node.
+   */
+  private static final class NodeHeap
+  {
+    private final int [] m_aHeap;
+    // Position in the heap or -1 if not contained
+    private final int [] m_aPos;
+    private final long [] m_aKeys;
+    private int m_nSize = 0;
+
+    NodeHeap (@Nonnegative final int nNodeCount)
+    {
+      m_aHeap = new int [nNodeCount];
+      m_aPos = new int [nNodeCount];
+      Arrays.fill (m_aPos, -1);
+      m_aKeys = new long [nNodeCount];
+    }
+
+    boolean isEmpty ()
+    {
+      return m_nSize == 0;
+    }
+
+    void insertOrDecrease (final int nNode, final long nKey)
+    {
+      int nPos = m_aPos[nNode];
+      if (nPos < 0)
+      {
+        nPos = m_nSize++;
+        m_aHeap[nPos] = nNode;
+        m_aPos[nNode] = nPos;
+      }
+      m_aKeys[nNode] = nKey;
+      _siftUp (nPos);
+    }
+
+    int poll ()
+    {
+      final int ret = m_aHeap[0];
+      m_aPos[ret] = -1;
+      if (--m_nSize > 0)
+      {
+        final int nLast = m_aHeap[m_nSize];
+        m_aHeap[0] = nLast;
+        m_aPos[nLast] = 0;
+        _siftDown (0);
+      }
+      return ret;
+    }
+
+    private void _siftUp (final int nStartPos)
+    {
+      int nPos = nStartPos;
+      final int nNode = m_aHeap[nPos];
+      final long nKey = m_aKeys[nNode];
+      while (nPos > 0)
+      {
+        final int nParentPos = (nPos - 1) >>> 1;
+        final int nParent = m_aHeap[nParentPos];
+        if (m_aKeys[nParent] <= nKey)
+          break;
+        m_aHeap[nPos] = nParent;
+        m_aPos[nParent] = nPos;
+        nPos = nParentPos;
+      }
+      m_aHeap[nPos] = nNode;
+      m_aPos[nNode] = nPos;
+    }
+
+    private void _siftDown (final int nStartPos)
+    {
+      int nPos = nStartPos;
+      final int nNode = m_aHeap[nPos];
+      final long nKey = m_aKeys[nNode];
+      while (true)
+      {
+        int nChildPos = 2 * nPos + 1;
+        if (nChildPos >= m_nSize)
+          break;
+        if (nChildPos + 1 < m_nSize && m_aKeys[m_aHeap[nChildPos + 1]] < m_aKeys[m_aHeap[nChildPos]])
+          nChildPos++;
+        final int nChild = m_aHeap[nChildPos];
+        if (nKey <= m_aKeys[nChild])
+          break;
+        m_aHeap[nPos] = nChild;
+        m_aPos[nChild] = nPos;
+        nPos = nChildPos;
+      }
+      m_aHeap[nPos] = nNode;
+      m_aPos[nNode] = nPos;
+    }
+  }
+
+  private static final long UNREACHABLE = Long.MAX_VALUE;
+
+  private final GraphSnapshot <N> m_aSnapshot;
+
+  /**
+   * Constructor
+   *
+   * @param aGraph
+   *        The graph to create the engine for. May not be <code>null</code>.
+   * @param aRelationCostProvider
+   *        The cost provider for a single relation. It is invoked once per
+   *        relation upon construction. Costs must be &ge; 0. May not be
+   *        <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If a relation has a negative cost
+   */
+  public ShortestPathEngine (@Nonnull final IMutableBaseGraph <N, R> aGraph,
+                             @Nonnull final ToIntFunction <? super R> aRelationCostProvider)
+  {
+    this (GraphSnapshot.create (aGraph, aRelationCostProvider));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aSnapshot
+   *        The graph snapshot to use. The relation weights are used as the
+   *        costs and must be &ge; 0. May not be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If a relation has a negative cost
+   */
+  public ShortestPathEngine (@Nonnull final GraphSnapshot <N> aSnapshot)
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+    for (int i = 0; i < aSnapshot.getRelationCount (); ++i)
+    {
+      final int nRelationIndex = i;
+      ValueEnforcer.isGE0 (aSnapshot.getRelationWeight (i), () -> "Cost of relation " + aSnapshot.getRelationID (nRelationIndex));
+    }
+    m_aSnapshot = aSnapshot;
+  }
+
+  @Nonnull
+  N _getNode (final int nIndex)
+  {
+    return m_aSnapshot.getNode (nIndex);
+  }
+
+  final int _getNodeIndex (@Nullable final String sID)
+  {
+    final int ret = m_aSnapshot.getNodeIndex (sID);
+    if (ret < 0)
+      throw new IllegalArgumentException ("Invalid node ID: " + sID);
+    return ret;
+  }
+
+  /**
+   * @return The number of nodes in the graph. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getNodeCount ()
+  {
+    return m_aSnapshot.getNodeCount ();
+  }
+
+  /**
+   * @return The number of edges in the graph. For undirected graphs each
+   *         relation results in two edges. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getEdgeCount ()
+  {
+    return m_aSnapshot.getEdgeCount ();
+  }
+
+  @Nullable
+  Dijkstra.Result <N> _createResult (final int nFromIndex,
+                                     final int nToIndex,
+                                     @Nonnull final long [] aDistances,
+                                     @Nonnull final int [] aPredecessors)
+  {
+    final long nDistance = aDistances[nToIndex];
+    if (nDistance == UNREACHABLE)
+      return null;
+    if (nDistance > Integer.MAX_VALUE)
+      throw new IllegalStateException ("The distance " + nDistance + " exceeds the supported range");
+
+    final ICommonsList <N> aResultNodes = new CommonsArrayList <> ();
+    int nIndex = nToIndex;
+    while (nIndex != nFromIndex)
+    {
+      aResultNodes.add (_getNode (nIndex));
+      nIndex = aPredecessors[nIndex];
+    }
+    aResultNodes.add (_getNode (nFromIndex));
+    aResultNodes.reverse ();
+    return new Dijkstra.Result <> (aResultNodes, (int) nDistance);
+  }
+
+  /**
+   * The main search. If a destination is provided, the search stops as soon as
+   * the destination is settled.
+   */
+  private void _search (final int nFromIndex,
+                        final int nToIndex,
+                        @Nullable final ToIntFunction <? super N> aHeuristic,
+                        @Nonnull final long [] aDistances,
+                        @Nonnull final int [] aPredecessors)
+  {
+    final int nNodeCount = m_aSnapshot.getNodeCount ();
+    Arrays.fill (aDistances, UNREACHABLE);
+    Arrays.fill (aPredecessors, -1);
+    final boolean [] aSettled = new boolean [nNodeCount];
+    // The heuristic value is calculated only once per node; -1 means unknown
+    final int [] aEstimates;
+    if (aHeuristic != null)
+    {
+      aEstimates = new int [nNodeCount];
+      Arrays.fill (aEstimates, -1);
+    }
+    else
+      aEstimates = null;
+
+    final NodeHeap aHeap = new NodeHeap (nNodeCount);
+    aDistances[nFromIndex] = 0;
+    aHeap.insertOrDecrease (nFromIndex, 0);
+    while (!aHeap.isEmpty ())
+    {
+      final int nCur = aHeap.poll ();
+      aSettled[nCur] = true;
+      if (nCur == nToIndex)
+        break;
+
+      final long nCurDistance = aDistances[nCur];
+      final int nEnd = m_aSnapshot.getOutgoingEdgeEnd (nCur);
+      for (int nEdge = m_aSnapshot.getOutgoingEdgeStart (nCur); nEdge < nEnd; ++nEdge)
+      {
+        final int nTarget = m_aSnapshot.getOutgoingEdgeTarget (nEdge);
+        if (aSettled[nTarget])
+          continue;
+        final long nNewDistance = nCurDistance + m_aSnapshot.getOutgoingEdgeWeight (nEdge);
+        if (nNewDistance < aDistances[nTarget])
+        {
+          aDistances[nTarget] = nNewDistance;
+          aPredecessors[nTarget] = nCur;
+
+          long nKey = nNewDistance;
+          if (aEstimates != null)
+          {
+            if (aEstimates[nTarget] < 0)
+            {
+              final int nEstimate = aHeuristic.applyAsInt (_getNode (nTarget));
+              ValueEnforcer.isGE0 (nEstimate, "Heuristic estimate");
+              aEstimates[nTarget] = nEstimate;
+            }
+            nKey += aEstimates[nTarget];
+          }
+          aHeap.insertOrDecrease (nTarget, nKey);
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the shortest path between two nodes using Dijkstra's algorithm.
+   *
+   * @param sFromID
+   *        The ID of the start node. May not be <code>null</code>.
+   * @param sToID
+   *        The ID of the end node. May not be <code>null</code>.
+   * @return <code>null</code> if there is no path between the two nodes.
+   * @throws IllegalArgumentException
+   *         If one of the node IDs is unknown
+   */
+  @Nullable
+  public Dijkstra.Result <N> getShortestPath (@Nonnull @Nonempty final String sFromID, @Nonnull @Nonempty final String sToID)
+  {
+    return _getShortestPath (sFromID, sToID, null);
+  }
+
+  /**
+   * Find the shortest path between two nodes using the A* algorithm.
+   *
+   * @param sFromID
+   *        The ID of the start node. May not be <code>null</code>.
+   * @param sToID
+   *        The ID of the end node. May not be <code>null</code>.
+   * @param aHeuristic
+   *        The heuristic that estimates the remaining cost from the passed
+   *        node to the end node. To get the shortest path, the estimate must
+   *        never be bigger than the real cost and for each relation the
+   *        estimate of the from-node must not be bigger than the relation cost
+   *        plus the estimate of the to-node. Estimates must be &ge; 0. May not
+   *        be <code>null</code>.
+   * @return <code>null</code> if there is no path between the two nodes.
+   * @throws IllegalArgumentException
+   *         If one of the node IDs is unknown
+   */
+  @Nullable
+  public Dijkstra.Result <N> getShortestPathAStar (@Nonnull @Nonempty final String sFromID,
+                                                   @Nonnull @Nonempty final String sToID,
+                                                   @Nonnull final ToIntFunction <? super N> aHeuristic)
+  {
+    ValueEnforcer.notNull (aHeuristic, "Heuristic");
+    return _getShortestPath (sFromID, sToID, aHeuristic);
+  }
+
+  @Nullable
+  private Dijkstra.Result <N> _getShortestPath (@Nonnull @Nonempty final String sFromID,
+                                                @Nonnull @Nonempty final String sToID,
+                                                @Nullable final ToIntFunction <? super N> aHeuristic)
+  {
+    final int nFromIndex = _getNodeIndex (sFromID);
+    final int nToIndex = _getNodeIndex (sToID);
+
+    final long [] aDistances = new long [m_aSnapshot.getNodeCount ()];
+    final int [] aPredecessors = new int [m_aSnapshot.getNodeCount ()];
+    _search (nFromIndex, nToIndex, aHeuristic, aDistances, aPredecessors);
+    return _createResult (nFromIndex, nToIndex, aDistances, aPredecessors);
+  }
+
+  /**
+   * Find the shortest paths from one node to all other nodes using Dijkstra's
+   * algorithm.
+   *
+   * @param sFromID
+   *        The ID of the start node. May not be <code>null</code>.
+   * @return The result with the distances to all nodes. Never
+   *         <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the node ID is unknown
+   */
+  @Nonnull
+  public AllDestinationsResult <N> getAllShortestPaths (@Nonnull @Nonempty final String sFromID)
+  {
+    final int nFromIndex = _getNodeIndex (sFromID);
+
+    final long [] aDistances = new long [m_aSnapshot.getNodeCount ()];
+    final int [] aPredecessors = new int [m_aSnapshot.getNodeCount ()];
+    _search (nFromIndex, -1, null, aDistances, aPredecessors);
+    return new AllDestinationsResult <> (this, nFromIndex, aDistances, aPredecessors);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("NodeCount", getNodeCount ())
+                                       .append ("EdgeCount", getEdgeCount ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.graph.snapshot;
+
+import java.util.function.ToIntFunction;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.lang.GenericReflection;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.graph.IBaseGraph;
+import com.helger.graph.IBaseGraphNode;
+import com.helger.graph.IBaseGraphRelation;
+import com.helger.graph.IDirectedGraphRelation;
+
+/**
+ * An immutable snapshot of a graph in the compressed sparse row (CSR) format.
+ * Nodes and relations are identified by int indices, and the edges of each
+ * node are stored in primitive arrays. Algorithms running on the snapshot
+ * therefore need neither hash lookups nor iterator allocations per edge.<br>
+ * Each relation is an edge from the from-node to the to-node. In undirected
+ * graphs, each relation is also an edge in the opposite direction. Self
+ * relations are a single edge. The node and relation indices follow the
+ * iteration order of the source graph. Changes to the source graph after the
+ * creation are not reflected.
+ *
+ * @author Philip Helger
+ * @param <N>
+ *        Node type
+ * @since 11.1.4
+ * @see GraphSnapshotAlgorithms
+ */
+@Immutable
+public final class GraphSnapshot <N extends IBaseGraphNode <N, ?>>
+{
+  private final boolean m_bDirected;
+  private final Object [] m_aNodes;
+  private final ICommonsMap <String, Integer> m_aNodeIndex;
+
+  // Relations as an edge list
+  private final String [] m_aRelationIDs;
+  private final int [] m_aRelationFrom;
+  private final int [] m_aRelationTo;
+  private final int [] m_aRelationWeight;
+
+  // Edges leaving node i are in [m_aOutStart[i], m_aOutStart[i+1])
+  private final int [] m_aOutStart;
+  private final int [] m_aOutTarget;
+  private final int [] m_aOutRelation;
+
+  // Edges entering node i; same as the outgoing edges for undirected graphs
+  private final int [] m_aInStart;
+  private final int [] m_aInSource;
+  private final int [] m_aInRelation;
+
+  private GraphSnapshot (final boolean bDirected,
+                         @Nonnull final Object [] aNodes,
+                         @Nonnull final ICommonsMap <String, Integer> aNodeIndex,
+                         @Nonnull final String [] aRelationIDs,
+                         @Nonnull final int [] aRelationFrom,
+                         @Nonnull final int [] aRelationTo,
+                         @Nonnull final int [] aRelationWeight)
+  {
+    m_bDirected = bDirected;
+    m_aNodes = aNodes;
+    m_aNodeIndex = aNodeIndex;
+    m_aRelationIDs = aRelationIDs;
+    m_aRelationFrom = aRelationFrom;
+    m_aRelationTo = aRelationTo;
+    m_aRelationWeight = aRelationWeight;
+
+    final int nNodeCount = aNodes.length;
+    final int nRelationCount = aRelationIDs.length;
+    if (bDirected)
+    {
+      m_aOutStart = new int [nNodeCount + 1];
+      m_aOutTarget = new int [nRelationCount];
+      m_aOutRelation = new int [nRelationCount];
+      _fillCSR (nNodeCount, aRelationFrom, aRelationTo, false, m_aOutStart, m_aOutTarget, m_aOutRelation);
+
+      m_aInStart = new int [nNodeCount + 1];
+      m_aInSource = new int [nRelationCount];
+      m_aInRelation = new int [nRelationCount];
+      _fillCSR (nNodeCount, aRelationTo, aRelationFrom, false, m_aInStart, m_aInSource, m_aInRelation);
+    }
+    else
+    {
+      int nEdgeCount = 0;
+      for (int i = 0; i < nRelationCount; ++i)
+        nEdgeCount += aRelationFrom[i] == aRelationTo[i] ? 1 : 2;
+      m_aOutStart = new int [nNodeCount + 1];
+      m_aOutTarget = new int [nEdgeCount];
+      m_aOutRelation = new int [nEdgeCount];
+      _fillCSR (nNodeCount, aRelationFrom, aRelationTo, true, m_aOutStart, m_aOutTarget, m_aOutRelation);
+
+      m_aInStart = m_aOutStart;
+      m_aInSource = m_aOutTarget;
+      m_aInRelation = m_aOutRelation;
+    }
+  }
+
+  /**
+   * Fill the CSR arrays with a counting sort by the source node, so that the
+   * edges of each node retain the relation order.
+   */
+  private static void _fillCSR (final int nNodeCount,
+                                @Nonnull final int [] aSources,
+                                @Nonnull final int [] aTargets,
+                                final boolean bBothDirections,
+                                @Nonnull final int [] aStart,
+                                @Nonnull final int [] aEdgeTarget,
+                                @Nonnull final int [] aEdgeRelation)
+  {
+    final int nRelationCount = aSources.length;
+    // Count the edges per node
+    for (int i = 0; i < nRelationCount; ++i)
+    {
+      aStart[aSources[i] + 1]++;
+      if (bBothDirections && aSources[i] != aTargets[i])
+        aStart[aTargets[i] + 1]++;
+    }
+    for (int i = 0; i < nNodeCount; ++i)
+      aStart[i + 1] += aStart[i];
+
+    // Fill - use a copy of the start positions as the insert positions
+    final int [] aPos = new int [nNodeCount];
+    System.arraycopy (aStart, 0, aPos, 0, nNodeCount);
+    for (int i = 0; i < nRelationCount; ++i)
+    {
+      int nEdge = aPos[aSources[i]]++;
+      aEdgeTarget[nEdge] = aTargets[i];
+      aEdgeRelation[nEdge] = i;
+      if (bBothDirections && aSources[i] != aTargets[i])
+      {
+        nEdge = aPos[aTargets[i]]++;
+        aEdgeTarget[nEdge] = aSources[i];
+        aEdgeRelation[nEdge] = i;
+      }
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the source graph is directed.
+   */
+  public boolean isDirected ()
+  {
+    return m_bDirected;
+  }
+
+  /**
+   * @return The number of nodes. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getNodeCount ()
+  {
+    return m_aNodes.length;
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The node with the provided index. Never <code>null</code>.
+   */
+  @Nonnull
+  public N getNode (@Nonnegative final int nNodeIndex)
+  {
+    return GenericReflection.uncheckedCast (m_aNodes[nNodeIndex]);
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The ID of the node with the provided index. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getNodeID (@Nonnegative final int nNodeIndex)
+  {
+    return getNode (nNodeIndex).getID ();
+  }
+
+  /**
+   * @param sNodeID
+   *        The node ID to search. May be <code>null</code>.
+   * @return The index of the node with the provided ID or -1 if no such node
+   *         exists.
+   */
+  @CheckForSigned
+  public int getNodeIndex (@Nullable final String sNodeID)
+  {
+    final Integer aIndex = m_aNodeIndex.get (sNodeID);
+    return aIndex == null ? -1 : aIndex.intValue ();
+  }
+
+  /**
+   * @return The number of relations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getRelationCount ()
+  {
+    return m_aRelationIDs.length;
+  }
+
+  /**
+   * @param nRelationIndex
+   *        Relation index. Must be &ge; 0 and &lt;
+   *        {@link #getRelationCount()}.
+   * @return The ID of the relation with the provided index. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public String getRelationID (@Nonnegative final int nRelationIndex)
+  {
+    return m_aRelationIDs[nRelationIndex];
+  }
+
+  /**
+   * @param nRelationIndex
+   *        Relation index. Must be &ge; 0 and &lt;
+   *        {@link #getRelationCount()}.
+   * @return The index of the from-node of the relation. For undirected graphs
+   *         this is the first connected node.
+   */
+  @Nonnegative
+  public int getRelationFrom (@Nonnegative final int nRelationIndex)
+  {
+    return m_aRelationFrom[nRelationIndex];
+  }
+
+  /**
+   * @param nRelationIndex
+   *        Relation index. Must be &ge; 0 and &lt;
+   *        {@link #getRelationCount()}.
+   * @return The index of the to-node of the relation. For undirected graphs
+   *         this is the second connected node.
+   */
+  @Nonnegative
+  public int getRelationTo (@Nonnegative final int nRelationIndex)
+  {
+    return m_aRelationTo[nRelationIndex];
+  }
+
+  /**
+   * @param nRelationIndex
+   *        Relation index. Must be &ge; 0 and &lt;
+   *        {@link #getRelationCount()}.
+   * @return The weight of the relation.
+   */
+  public int getRelationWeight (@Nonnegative final int nRelationIndex)
+  {
+    return m_aRelationWeight[nRelationIndex];
+  }
+
+  /**
+   * @return The number of edges. For directed graphs this is the number of
+   *         relations, for undirected graphs each relation (except self
+   *         relations) results in two edges. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getEdgeCount ()
+  {
+    return m_aOutTarget.length;
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The index of the first outgoing edge of the node.
+   */
+  @Nonnegative
+  public int getOutgoingEdgeStart (@Nonnegative final int nNodeIndex)
+  {
+    return m_aOutStart[nNodeIndex];
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The index after the last outgoing edge of the node.
+   */
+  @Nonnegative
+  public int getOutgoingEdgeEnd (@Nonnegative final int nNodeIndex)
+  {
+    return m_aOutStart[nNodeIndex + 1];
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The number of outgoing edges of the node.
+   */
+  @Nonnegative
+  public int getOutgoingEdgeCount (@Nonnegative final int nNodeIndex)
+  {
+    return m_aOutStart[nNodeIndex + 1] - m_aOutStart[nNodeIndex];
+  }
+
+  /**
+   * @param nEdgeIndex
+   *        Outgoing edge index. Must be &ge; 0 and &lt;
+   *        {@link #getEdgeCount()}.
+   * @return The index of the node the edge points to.
+   */
+  @Nonnegative
+  public int getOutgoingEdgeTarget (@Nonnegative final int nEdgeIndex)
+  {
+    return m_aOutTarget[nEdgeIndex];
+  }
+
+  /**
+   * @param nEdgeIndex
+   *        Outgoing edge index. Must be &ge; 0 and &lt;
+   *        {@link #getEdgeCount()}.
+   * @return The index of the relation the edge belongs to.
+   */
+  @Nonnegative
+  public int getOutgoingEdgeRelation (@Nonnegative final int nEdgeIndex)
+  {
+    return m_aOutRelation[nEdgeIndex];
+  }
+
+  /**
+   * @param nEdgeIndex
+   *        Outgoing edge index. Must be &ge; 0 and &lt;
+   *        {@link #getEdgeCount()}.
+   * @return The weight of the relation the edge belongs to.
+   */
+  public int getOutgoingEdgeWeight (@Nonnegative final int nEdgeIndex)
+  {
+    return m_aRelationWeight[m_aOutRelation[nEdgeIndex]];
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The index of the first incoming edge of the node. For undirected
+   *         graphs incoming and outgoing edges are identical.
+   */
+  @Nonnegative
+  public int getIncomingEdgeStart (@Nonnegative final int nNodeIndex)
+  {
+    return m_aInStart[nNodeIndex];
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The index after the last incoming edge of the node.
+   */
+  @Nonnegative
+  public int getIncomingEdgeEnd (@Nonnegative final int nNodeIndex)
+  {
+    return m_aInStart[nNodeIndex + 1];
+  }
+
+  /**
+   * @param nNodeIndex
+   *        Node index. Must be &ge; 0 and &lt; {@link #getNodeCount()}.
+   * @return The number of incoming edges of the node.
+   */
+  @Nonnegative
+  public int getIncomingEdgeCount (@Nonnegative final int nNodeIndex)
+  {
+    return m_aInStart[nNodeIndex + 1] - m_aInStart[nNodeIndex];
+  }
+
+  /**
+   * @param nEdgeIndex
+   *        Incoming edge index. Must be &ge; 0 and &lt;
+   *        {@link #getEdgeCount()}.
+   * @return The index of the node the edge comes from.
+   */
+  @Nonnegative
+  public int getIncomingEdgeSource (@Nonnegative final int nEdgeIndex)
+  {
+    return m_aInSource[nEdgeIndex];
+  }
+
+  /**
+   * @param nEdgeIndex
+   *        Incoming edge index. Must be &ge; 0 and &lt;
+   *        {@link #getEdgeCount()}.
+   * @return The index of the relation the edge belongs to.
+   */
+  @Nonnegative
+  public int getIncomingEdgeRelation (@Nonnegative final int nEdgeIndex)
+  {
+    return m_aInRelation[nEdgeIndex];
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Directed", m_bDirected)
+                                       .append ("NodeCount", getNodeCount ())
+                                       .append ("RelationCount", getRelationCount ())
+                                       .append ("EdgeCount", getEdgeCount ())
+                                       .getToString ();
+  }
+
+  /**
+   * Create a snapshot where each relation has the weight 1.
+   *
+   * @param <N>
+   *        Node type
+   * @param <R>
+   *        Relation type
+   * @param aGraph
+   *        The graph to create the snapshot from. May not be
+   *        <code>null</code>.
+   * @return The new snapshot. Never <code>null</code>.
+   */
+  @Nonnull
+  public static <N extends IBaseGraphNode <N, R>, R extends IBaseGraphRelation <N, R>> GraphSnapshot <N> create (@Nonnull final IBaseGraph <N, R> aGraph)
+  {
+    return create (aGraph, x -> 1);
+  }
+
+  /**
+   * Create a snapshot with the provided relation weights.
+   *
+   * @param <N>
+   *        Node type
+   * @param <R>
+   *        Relation type
+   * @param aGraph
+   *        The graph to create the snapshot from. May not be
+   *        <code>null</code>.
+   * @param aWeightProvider
+   *        The provider of the relation weight. It is invoked once per
+   *        relation. May not be <code>null</code>.
+   * @return The new snapshot. Never <code>null</code>.
+   */
+  @Nonnull
+  public static <N extends IBaseGraphNode <N, R>, R extends IBaseGraphRelation <N, R>> GraphSnapshot <N> create (@Nonnull final IBaseGraph <N, R> aGraph,
+                                                                                                               @Nonnull final ToIntFunction <? super R> aWeightProvider)
+  {
+    ValueEnforcer.notNull (aGraph, "Graph");
+    ValueEnforcer.notNull (aWeightProvider, "WeightProvider");
+
+    final ICommonsList <N> aNodes = aGraph.getAllNodes ().copyOfValues ();
+    final int nNodeCount = aNodes.size ();
+    final Object [] aNodeArray = aNodes.toArray ();
+    final ICommonsMap <String, Integer> aNodeIndex = new CommonsHashMap <> (nNodeCount);
+    for (int i = 0; i < nNodeCount; ++i)
+      aNodeIndex.put (aNodes.get (i).getID (), Integer.valueOf (i));
+    final boolean bDirected = nNodeCount > 0 && aNodes.getFirst ().isDirected ();
+
+    // getAllRelationObjs contains each relation once per connected node
+    final ICommonsList <R> aRelations = aGraph.getAllRelations ().copyOfValues ();
+    final int nRelationCount = aRelations.size ();
+    final String [] aRelationIDs = new String [nRelationCount];
+    final int [] aRelationFrom = new int [nRelationCount];
+    final int [] aRelationTo = new int [nRelationCount];
+    final int [] aRelationWeight = new int [nRelationCount];
+    for (int i = 0; i < nRelationCount; ++i)
+    {
+      final R aRelation = aRelations.get (i);
+      aRelationIDs[i] = aRelation.getID ();
+      if (bDirected)
+      {
+        // Cast to Object required for JDK command line compiler
+        final Object aDirectedRelation = aRelation;
+        final IDirectedGraphRelation <?, ?> aDR = (IDirectedGraphRelation <?, ?>) aDirectedRelation;
+        aRelationFrom[i] = _getIndex (aNodeIndex, aDR.getFromID ());
+        aRelationTo[i] = _getIndex (aNodeIndex, aDR.getToID ());
+      }
+      else
+      {
+        // One connected node for self relations
+        final ICommonsOrderedSet <String> aNodeIDs = aRelation.getAllConnectedNodeIDs ();
+        aRelationFrom[i] = _getIndex (aNodeIndex, aNodeIDs.getFirst ());
+        aRelationTo[i] = _getIndex (aNodeIndex, aNodeIDs.getLast ());
+      }
+      aRelationWeight[i] = aWeightProvider.applyAsInt (aRelation);
+    }
+    return new GraphSnapshot <> (bDirected,
+                                 aNodeArray,
+                                 aNodeIndex,
+                                 aRelationIDs,
+                                 aRelationFrom,
+                                 aRelationTo,
+                                 aRelationWeight);
+  }
+
+  private static int _getIndex (@Nonnull final ICommonsMap <String, Integer> aNodeIndex, @Nonnull final String sNodeID)
+  {
+    final Integer aIndex = aNodeIndex.get (sNodeID);
+    if (aIndex == null)
+      throw new IllegalArgumentException ("The relation references the node '" + sNodeID + "' which is not part of the graph");
+    return aIndex.intValue ();
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.graph.snapshot;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Graph algorithms that run on a {@link GraphSnapshot}. All algorithms use
+ * primitive arrays only and follow the outgoing edges of the snapshot.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+public final class GraphSnapshotAlgorithms
+{
+  /**
+   * The result of {@link GraphSnapshotAlgorithms#getMinimumSpanningForest(GraphSnapshot)}.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class SpanningForest
+  {
+    private final GraphSnapshot <?> m_aSnapshot;
+    private final int [] m_aRelationIndices;
+    private final long m_nTotalWeight;
+
+    SpanningForest (@Nonnull final GraphSnapshot <?> aSnapshot,
+                    @Nonnull final int [] aRelationIndices,
+                    final long nTotalWeight)
+    {
+      m_aSnapshot = aSnapshot;
+      m_aRelationIndices = aRelationIndices;
+      m_nTotalWeight = nTotalWeight;
+    }
+
+    /**
+     * @return The number of relations in the spanning forest. Always &ge; 0.
+     */
+    @Nonnegative
+    public int getRelationCount ()
+    {
+      return m_aRelationIndices.length;
+    }
+
+    /**
+     * @return The indices of the relations in the spanning forest, in the
+     *         order they were added. Never <code>null</code>.
+     */
+    @Nonnull
+    @ReturnsMutableCopy
+    public int [] getAllRelationIndices ()
+    {
+      return m_aRelationIndices.clone ();
+    }
+
+    /**
+     * @return The IDs of the relations in the spanning forest, in the order
+     *         they were added. Never <code>null</code>.
+     */
+    @Nonnull
+    @ReturnsMutableCopy
+    public ICommonsList <String> getAllRelationIDs ()
+    {
+      final ICommonsList <String> ret = new CommonsArrayList <> (m_aRelationIndices.length);
+      for (final int nRelationIndex : m_aRelationIndices)
+        ret.add (m_aSnapshot.getRelationID (nRelationIndex));
+      return ret;
+    }
+
+    /**
+     * @return The sum of the weights of all contained relations.
+     */
+    public long getTotalWeight ()
+    {
+      return m_nTotalWeight;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (null).append ("RelationCount", getRelationCount ())
+                                         .append ("TotalWeight", m_nTotalWeight)
+                                         .getToString ();
+    }
+  }
+
+  @PresentForCodeCoverage
+  private static final GraphSnapshotAlgorithms INSTANCE = new GraphSnapshotAlgorithms ();
+
+  private GraphSnapshotAlgorithms ()
+  {}
+
+  private static void _checkNodeIndex (@Nonnull final GraphSnapshot <?> aSnapshot, final int nNodeIndex)
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+    ValueEnforcer.isBetweenInclusive (nNodeIndex, "NodeIndex", 0, aSnapshot.getNodeCount () - 1);
+  }
+
+  /**
+   * Get all nodes reachable from the start node in breadth first order.
+   *
+   * @param aSnapshot
+   *        The snapshot to use. May not be <code>null</code>.
+   * @param nStartIndex
+   *        The index of the start node.
+   * @return The indices of all reachable nodes including the start node. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static int [] getBreadthFirstOrder (@Nonnull final GraphSnapshot <?> aSnapshot, @Nonnegative final int nStartIndex)
+  {
+    _checkNodeIndex (aSnapshot, nStartIndex);
+
+    final boolean [] aVisited = new boolean [aSnapshot.getNodeCount ()];
+    // The result array is also the queue
+    final int [] aQueue = new int [aSnapshot.getNodeCount ()];
+    int nHead = 0;
+    int nTail = 0;
+    aVisited[nStartIndex] = true;
+    aQueue[nTail++] = nStartIndex;
+    while (nHead < nTail)
+    {
+      final int nCur = aQueue[nHead++];
+      final int nEnd = aSnapshot.getOutgoingEdgeEnd (nCur);
+      for (int nEdge = aSnapshot.getOutgoingEdgeStart (nCur); nEdge < nEnd; ++nEdge)
+      {
+        final int nTarget = aSnapshot.getOutgoingEdgeTarget (nEdge);
+        if (!aVisited[nTarget])
+        {
+          aVisited[nTarget] = true;
+          aQueue[nTail++] = nTarget;
+        }
+      }
+    }
+    return Arrays.copyOf (aQueue, nTail);
+  }
+
+  /**
+   * Get all nodes reachable from the start node in depth first pre-order. The
+   * implementation is not recursive, so it works for arbitrary deep graphs.
+   *
+   * @param aSnapshot
+   *        The snapshot to use. May not be <code>null</code>.
+   * @param nStartIndex
+   *        The index of the start node.
+   * @return The indices of all reachable nodes including the start node. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static int [] getDepthFirstOrder (@Nonnull final GraphSnapshot <?> aSnapshot, @Nonnegative final int nStartIndex)
+  {
+    _checkNodeIndex (aSnapshot, nStartIndex);
+
+    final int nNodeCount = aSnapshot.getNodeCount ();
+    final boolean [] aVisited = new boolean [nNodeCount];
+    final int [] aOrder = new int [nNodeCount];
+    // The next edge to check per node on the stack
+    final int [] aNextEdge = new int [nNodeCount];
+    final int [] aStack = new int [nNodeCount];
+    int nOrderSize = 0;
+    int nStackSize = 0;
+
+    aVisited[nStartIndex] = true;
+    aOrder[nOrderSize++] = nStartIndex;
+    aNextEdge[nStartIndex] = aSnapshot.getOutgoingEdgeStart (nStartIndex);
+    aStack[nStackSize++] = nStartIndex;
+    while (nStackSize > 0)
+    {
+      final int nCur = aStack[nStackSize - 1];
+      if (aNextEdge[nCur] < aSnapshot.getOutgoingEdgeEnd (nCur))
+      {
+        final int nTarget = aSnapshot.getOutgoingEdgeTarget (aNextEdge[nCur]++);
+        if (!aVisited[nTarget])
+        {
+          aVisited[nTarget] = true;
+          aOrder[nOrderSize++] = nTarget;
+          aNextEdge[nTarget] = aSnapshot.getOutgoingEdgeStart (nTarget);
+          aStack[nStackSize++] = nTarget;
+        }
+      }
+      else
+      {
+        // All edges handled
+        nStackSize--;
+      }
+    }
+    return Arrays.copyOf (aOrder, nOrderSize);
+  }
+
+  /**
+   * Get a topological order of all nodes of a directed graph, using Kahn's
+   * algorithm. Nodes without dependencies are handled in index order.
+   *
+   * @param aSnapshot
+   *        The snapshot of a directed graph. May not be <code>null</code>.
+   * @return The indices of all nodes, so that for each relation the from-node
+   *         is before the to-node. <code>null</code> if the graph contains a
+   *         cycle.
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public static int [] getTopologicalOrder (@Nonnull final GraphSnapshot <?> aSnapshot)
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+    ValueEnforcer.isTrue (aSnapshot.isDirected (), "A topological order requires a directed graph");
+
+    final int nNodeCount = aSnapshot.getNodeCount ();
+    final int [] aRemainingIncoming = new int [nNodeCount];
+    // The result array is also the queue
+    final int [] aQueue = new int [nNodeCount];
+    int nHead = 0;
+    int nTail = 0;
+    for (int i = 0; i < nNodeCount; ++i)
+    {
+      aRemainingIncoming[i] = aSnapshot.getIncomingEdgeCount (i);
+      if (aRemainingIncoming[i] == 0)
+        aQueue[nTail++] = i;
+    }
+    while (nHead < nTail)
+    {
+      final int nCur = aQueue[nHead++];
+      final int nEnd = aSnapshot.getOutgoingEdgeEnd (nCur);
+      for (int nEdge = aSnapshot.getOutgoingEdgeStart (nCur); nEdge < nEnd; ++nEdge)
+      {
+        final int nTarget = aSnapshot.getOutgoingEdgeTarget (nEdge);
+        if (--aRemainingIncoming[nTarget] == 0)
+          aQueue[nTail++] = nTarget;
+      }
+    }
+    // If not all nodes were handled, there is a cycle
+    return nTail == nNodeCount ? aQueue : null;
+  }
+
+  private static int _find (@Nonnull final int [] aParent, final int nNode)
+  {
+    int ret = nNode;
+    while (aParent[ret] != ret)
+    {
+      // Path halving
+      aParent[ret] = aParent[aParent[ret]];
+      ret = aParent[ret];
+    }
+    return ret;
+  }
+
+  private static boolean _union (@Nonnull final int [] aParent, @Nonnull final int [] aSize, final int nNode1, final int nNode2)
+  {
+    int nRoot1 = _find (aParent, nNode1);
+    int nRoot2 = _find (aParent, nNode2);
+    if (nRoot1 == nRoot2)
+      return false;
+    if (aSize[nRoot1] < aSize[nRoot2])
+    {
+      final int nTmp = nRoot1;
+      nRoot1 = nRoot2;
+      nRoot2 = nTmp;
+    }
+    aParent[nRoot2] = nRoot1;
+    aSize[nRoot1] += aSize[nRoot2];
+    return true;
+  }
+
+  @Nonnull
+  private static int [] _createUnionFind (@Nonnegative final int nNodeCount)
+  {
+    final int [] ret = new int [nNodeCount];
+    for (int i = 0; i < nNodeCount; ++i)
+      ret[i] = i;
+    return ret;
+  }
+
+  /**
+   * Get the connected components of the graph. For directed graphs the
+   * direction of the relations is ignored (weakly connected components).
+   *
+   * @param aSnapshot
+   *        The snapshot to use. May not be <code>null</code>.
+   * @return An array with the component number of each node. Components are
+   *         numbered consecutively starting at 0, in the order of their first
+   *         node. So the number of components is the last number plus 1. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static int [] getConnectedComponents (@Nonnull final GraphSnapshot <?> aSnapshot)
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+
+    final int nNodeCount = aSnapshot.getNodeCount ();
+    final int [] aParent = _createUnionFind (nNodeCount);
+    final int [] aSize = new int [nNodeCount];
+    Arrays.fill (aSize, 1);
+    for (int i = 0; i < aSnapshot.getRelationCount (); ++i)
+      _union (aParent, aSize, aSnapshot.getRelationFrom (i), aSnapshot.getRelationTo (i));
+
+    // Number the components in node order
+    final int [] aComponentOfRoot = new int [nNodeCount];
+    Arrays.fill (aComponentOfRoot, -1);
+    final int [] ret = new int [nNodeCount];
+    int nComponents = 0;
+    for (int i = 0; i < nNodeCount; ++i)
+    {
+      final int nRoot = _find (aParent, i);
+      if (aComponentOfRoot[nRoot] < 0)
+        aComponentOfRoot[nRoot] = nComponents++;
+      ret[i] = aComponentOfRoot[nRoot];
+    }
+    return ret;
+  }
+
+  /**
+   * Get the minimum spanning forest using Kruskal's algorithm. For directed
+   * graphs the direction of the relations is ignored. Relations with the same
+   * weight are considered in relation order.
+   *
+   * @param aSnapshot
+   *        The snapshot to use. May not be <code>null</code>.
+   * @return The minimum spanning forest. Never <code>null</code>.
+   */
+  @Nonnull
+  public static SpanningForest getMinimumSpanningForest (@Nonnull final GraphSnapshot <?> aSnapshot)
+  {
+    ValueEnforcer.notNull (aSnapshot, "Snapshot");
+
+    // Sort by weight and index without boxing: weight in the upper 32 bits,
+    // index in the lower 32 bits
+    final int nRelationCount = aSnapshot.getRelationCount ();
+    final long [] aSortKeys = new long [nRelationCount];
+    for (int i = 0; i < nRelationCount; ++i)
+      aSortKeys[i] = ((long) aSnapshot.getRelationWeight (i) << 32) | i;
+    Arrays.sort (aSortKeys);
+
+    final int nNodeCount = aSnapshot.getNodeCount ();
+    final int [] aParent = _createUnionFind (nNodeCount);
+    final int [] aSize = new int [nNodeCount];
+    Arrays.fill (aSize, 1);
+    final int [] aResult = new int [Math.max (0, nNodeCount - 1)];
+    int nResultCount = 0;
+    long nTotalWeight = 0;
+    for (final long nSortKey : aSortKeys)
+    {
+      final int nRelationIndex = (int) nSortKey;
+      // Adding the relation must not introduce a cycle
+      if (_union (aParent, aSize, aSnapshot.getRelationFrom (nRelationIndex), aSnapshot.getRelationTo (nRelationIndex)))
+      {
+        aResult[nResultCount++] = nRelationIndex;
+        nTotalWeight += aSnapshot.getRelationWeight (nRelationIndex);
+        if (nResultCount == aResult.length)
+          break;
+      }
+    }
+    return new SpanningForest (aSnapshot, Arrays.copyOf (aResult, nResultCount), nTotalWeight);
+  }
+}
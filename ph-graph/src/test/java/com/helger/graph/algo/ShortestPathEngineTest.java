@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.graph.algo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.helger.commons.string.StringHelper;
+import com.helger.graph.IMutableDirectedGraphNode;
+import com.helger.graph.IMutableDirectedGraphRelation;
+import com.helger.graph.IMutableGraphNode;
+import com.helger.graph.IMutableGraphRelation;
+import com.helger.graph.simple.SimpleDirectedGraph;
+import com.helger.graph.simple.SimpleDirectedGraphObjectFastFactory;
+import com.helger.graph.simple.SimpleGraph;
+import com.helger.graph.simple.SimpleGraphObjectFastFactory;
+
+/**
+ * Test class for class {@link ShortestPathEngine}.
+ *
+ * @author Philip Helger
+ */
+public final class ShortestPathEngineTest
+{
+  private static final String ATTR_WEIGHT = "weight";
+
+  private static int _getWeight (final IMutableDirectedGraphRelation r)
+  {
+    return r.attrs ().getAsInt (ATTR_WEIGHT, Integer.MIN_VALUE);
+  }
+
+  private static int _getWeight (final IMutableGraphRelation r)
+  {
+    return r.attrs ().getAsInt (ATTR_WEIGHT, Integer.MIN_VALUE);
+  }
+
+  @Test
+  public void testDirected ()
+  {
+    final SimpleDirectedGraph g = new SimpleDirectedGraph (new SimpleDirectedGraphObjectFastFactory ());
+    for (int i = 1; i <= 7; ++i)
+      g.createNode (Integer.toString (i));
+    g.createRelation ("1", "2").attrs ().putIn (ATTR_WEIGHT, 3);
+    g.createRelation ("1", "3").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("2", "5").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("3", "4").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("3", "6").attrs ().putIn (ATTR_WEIGHT, 4);
+    g.createRelation ("4", "5").attrs ().putIn (ATTR_WEIGHT, 5);
+    g.createRelation ("4", "6").attrs ().putIn (ATTR_WEIGHT, 5);
+    g.createRelation ("5", "6").attrs ().putIn (ATTR_WEIGHT, 2);
+
+    final ShortestPathEngine <IMutableDirectedGraphNode, IMutableDirectedGraphRelation> e = new ShortestPathEngine <> (g,
+                                                                                                                        ShortestPathEngineTest::_getWeight);
+    assertEquals (7, e.getNodeCount ());
+    assertEquals (8, e.getEdgeCount ());
+
+    final Dijkstra.Result <IMutableDirectedGraphNode> r = e.getShortestPath ("1", "6");
+    assertNotNull (r);
+    assertEquals (5, r.getResultDistance ());
+    assertEquals ("Distance 5 for route {'1','3','6'}", r.getAsString ());
+
+    // Relations are only followed in their direction
+    assertNull (e.getShortestPath ("6", "1"));
+    // Isolated node
+    assertNull (e.getShortestPath ("1", "7"));
+    assertEquals (0, e.getShortestPath ("7", "7").getResultDistance ());
+
+    final ShortestPathEngine.AllDestinationsResult <IMutableDirectedGraphNode> aAll = e.getAllShortestPaths ("1");
+    assertEquals ("1", aAll.getSourceNode ().getID ());
+    assertEquals (0, aAll.getDistance ("1"));
+    assertEquals (3, aAll.getDistance ("2"));
+    assertEquals (1, aAll.getDistance ("3"));
+    assertEquals (2, aAll.getDistance ("4"));
+    assertEquals (4, aAll.getDistance ("5"));
+    assertEquals (5, aAll.getDistance ("6"));
+    assertFalse (aAll.isReachable ("7"));
+    assertEquals (-1, aAll.getDistance ("7"));
+    assertNull (aAll.getPath ("7"));
+    assertEquals (3, aAll.getPath ("5").getResultNodeCount ());
+
+    try
+    {
+      e.getShortestPath ("1", "8");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUndirected ()
+  {
+    final SimpleGraph g = new SimpleGraph (new SimpleGraphObjectFastFactory ());
+    for (int i = 1; i <= 6; ++i)
+      g.createNode (Integer.toString (i));
+    g.createRelation ("1", "2").attrs ().putIn (ATTR_WEIGHT, 3);
+    g.createRelation ("1", "3").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("2", "5").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("3", "4").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("3", "6").attrs ().putIn (ATTR_WEIGHT, 4);
+    g.createRelation ("4", "5").attrs ().putIn (ATTR_WEIGHT, 5);
+    g.createRelation ("4", "6").attrs ().putIn (ATTR_WEIGHT, 5);
+    g.createRelation ("5", "6").attrs ().putIn (ATTR_WEIGHT, 2);
+
+    final ShortestPathEngine <IMutableGraphNode, IMutableGraphRelation> e = new ShortestPathEngine <> (g,
+                                                                                                        ShortestPathEngineTest::_getWeight);
+    assertEquals (16, e.getEdgeCount ());
+    assertEquals (5, e.getShortestPath ("1", "6").getResultDistance ());
+    assertEquals (5, e.getShortestPath ("6", "1").getResultDistance ());
+    assertTrue (e.getAllShortestPaths ("6").isReachable ("1"));
+  }
+
+  @Test
+  public void testGridCompareWithDijkstra ()
+  {
+    // Grid with random weights
+    final int nSize = 12;
+    final Random aRandom = new Random (4711);
+    final SimpleGraph g = new SimpleGraph (new SimpleGraphObjectFastFactory ());
+    for (int y = 0; y < nSize; ++y)
+      for (int x = 0; x < nSize; ++x)
+        g.createNode (x + "/" + y);
+    for (int y = 0; y < nSize; ++y)
+      for (int x = 0; x < nSize; ++x)
+      {
+        if (x + 1 < nSize)
+          g.createRelation (x + "/" + y, (x + 1) + "/" + y).attrs ().putIn (ATTR_WEIGHT, 1 + aRandom.nextInt (9));
+        if (y + 1 < nSize)
+          g.createRelation (x + "/" + y, x + "/" + (y + 1)).attrs ().putIn (ATTR_WEIGHT, 1 + aRandom.nextInt (9));
+      }
+
+    final ShortestPathEngine <IMutableGraphNode, IMutableGraphRelation> e = new ShortestPathEngine <> (g,
+                                                                                                        ShortestPathEngineTest::_getWeight);
+    final String sTo = (nSize - 1) + "/" + (nSize - 1);
+    final ShortestPathEngine.AllDestinationsResult <IMutableGraphNode> aAll = e.getAllShortestPaths ("0/0");
+    for (final String sFrom : new String [] { "0/0", "3/7", "11/0", "5/5" })
+    {
+      final int nExpected = Dijkstra.applyDijkstra (g, sFrom, sTo, ShortestPathEngineTest::_getWeight).getResultDistance ();
+      assertEquals (nExpected, e.getShortestPath (sFrom, sTo).getResultDistance ());
+
+      // Manhattan distance is an admissible and consistent heuristic, as each
+      // relation costs at least 1
+      final Dijkstra.Result <IMutableGraphNode> aAStar = e.getShortestPathAStar (sFrom, sTo, aNode -> {
+        final String [] aParts = StringHelper.getExplodedArray ('/', aNode.getID ());
+        return (nSize - 1 - Integer.parseInt (aParts[0])) + (nSize - 1 - Integer.parseInt (aParts[1]));
+      });
+      assertEquals (nExpected, aAStar.getResultDistance ());
+      assertEquals (sFrom, aAStar.getAllResultNodes ().getFirst ().getID ());
+      assertEquals (sTo, aAStar.getAllResultNodes ().getLast ().getID ());
+
+      assertEquals (Dijkstra.applyDijkstra (g, "0/0", sFrom, ShortestPathEngineTest::_getWeight).getResultDistance (),
+                    aAll.getDistance (sFrom));
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.graph.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.graph.IMutableDirectedGraphNode;
+import com.helger.graph.IMutableGraphNode;
+import com.helger.graph.algo.Kruskal;
+import com.helger.graph.simple.SimpleDirectedGraph;
+import com.helger.graph.simple.SimpleDirectedGraphObjectFastFactory;
+import com.helger.graph.simple.SimpleGraph;
+import com.helger.graph.simple.SimpleGraphObjectFastFactory;
+
+/**
+ * Test class for class {@link GraphSnapshotAlgorithms}.
+ *
+ * @author Philip Helger
+ */
+public final class GraphSnapshotAlgorithmsTest
+{
+  private static final String ATTR_WEIGHT = "weight";
+
+  @Nonnull
+  private static SimpleDirectedGraph _createDirected ()
+  {
+    // 0 -> 1 -> 3, 0 -> 2 -> 3, 4 isolated
+    final SimpleDirectedGraph g = new SimpleDirectedGraph (new SimpleDirectedGraphObjectFastFactory ());
+    for (int i = 0; i <= 4; ++i)
+      g.createNode (Integer.toString (i));
+    g.createRelation ("0", "1");
+    g.createRelation ("0", "2");
+    g.createRelation ("1", "3");
+    g.createRelation ("2", "3");
+    return g;
+  }
+
+  @Test
+  public void testTraversal ()
+  {
+    final GraphSnapshot <IMutableDirectedGraphNode> s = GraphSnapshot.create (_createDirected ());
+    assertArrayEquals (new int [] { 0, 1, 2, 3 }, GraphSnapshotAlgorithms.getBreadthFirstOrder (s, 0));
+    assertArrayEquals (new int [] { 0, 1, 3, 2 }, GraphSnapshotAlgorithms.getDepthFirstOrder (s, 0));
+    assertArrayEquals (new int [] { 2, 3 }, GraphSnapshotAlgorithms.getDepthFirstOrder (s, 2));
+    assertArrayEquals (new int [] { 4 }, GraphSnapshotAlgorithms.getBreadthFirstOrder (s, 4));
+  }
+
+  @Test
+  public void testDeepDepthFirst ()
+  {
+    // A long chain must not overflow the stack
+    final int nCount = 50_000;
+    final SimpleDirectedGraph g = new SimpleDirectedGraph (new SimpleDirectedGraphObjectFastFactory ());
+    for (int i = 0; i < nCount; ++i)
+    {
+      g.createNode (Integer.toString (i));
+      if (i > 0)
+        g.createRelation (Integer.toString (i - 1), Integer.toString (i));
+    }
+    final GraphSnapshot <IMutableDirectedGraphNode> s = GraphSnapshot.create (g);
+    final int [] aOrder = GraphSnapshotAlgorithms.getDepthFirstOrder (s, 0);
+    assertEquals (nCount, aOrder.length);
+    assertEquals (nCount - 1, aOrder[nCount - 1]);
+    assertEquals (nCount, GraphSnapshotAlgorithms.getTopologicalOrder (s).length);
+  }
+
+  @Test
+  public void testTopologicalOrder ()
+  {
+    final SimpleDirectedGraph g = _createDirected ();
+    assertArrayEquals (new int [] { 0, 4, 1, 2, 3 }, GraphSnapshotAlgorithms.getTopologicalOrder (GraphSnapshot.create (g)));
+
+    // Add a cycle
+    g.createRelation ("3", "0");
+    assertNull (GraphSnapshotAlgorithms.getTopologicalOrder (GraphSnapshot.create (g)));
+  }
+
+  @Test
+  public void testConnectedComponents ()
+  {
+    assertArrayEquals (new int [] { 0, 0, 0, 0, 1 },
+                       GraphSnapshotAlgorithms.getConnectedComponents (GraphSnapshot.create (_createDirected ())));
+
+    final SimpleGraph g = new SimpleGraph (new SimpleGraphObjectFastFactory ());
+    for (int i = 0; i < 6; ++i)
+      g.createNode (Integer.toString (i));
+    g.createRelation ("0", "3");
+    g.createRelation ("1", "4");
+    g.createRelation ("4", "5");
+    assertArrayEquals (new int [] { 0, 1, 2, 0, 1, 1 }, GraphSnapshotAlgorithms.getConnectedComponents (GraphSnapshot.create (g)));
+  }
+
+  @Test
+  public void testMinimumSpanningForest ()
+  {
+    // Same graph as in KruskalTest
+    final SimpleGraph g = new SimpleGraph (new SimpleGraphObjectFastFactory ());
+    for (int i = 1; i <= 6; ++i)
+      g.createNode (Integer.toString (i));
+    g.createRelation ("1", "2").attrs ().putIn (ATTR_WEIGHT, 3);
+    g.createRelation ("1", "3").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("2", "5").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("3", "4").attrs ().putIn (ATTR_WEIGHT, 1);
+    g.createRelation ("3", "6").attrs ().putIn (ATTR_WEIGHT, 4);
+    g.createRelation ("4", "5").attrs ().putIn (ATTR_WEIGHT, 5);
+    g.createRelation ("4", "6").attrs ().putIn (ATTR_WEIGHT, 5);
+    g.createRelation ("5", "6").attrs ().putIn (ATTR_WEIGHT, 2);
+
+    final GraphSnapshot <IMutableGraphNode> s = GraphSnapshot.create (g, x -> x.attrs ().getAsInt (ATTR_WEIGHT));
+    final GraphSnapshotAlgorithms.SpanningForest aForest = GraphSnapshotAlgorithms.getMinimumSpanningForest (s);
+    assertEquals (5, aForest.getRelationCount ());
+    assertEquals (Kruskal.applyKruskal (g, ATTR_WEIGHT).getTotalWeight (), aForest.getTotalWeight ());
+    assertEquals (8, aForest.getTotalWeight ());
+    assertEquals (5, aForest.getAllRelationIDs ().size ());
+  }
+}
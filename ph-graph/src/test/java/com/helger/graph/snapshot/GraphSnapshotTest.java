@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.graph.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.graph.IMutableDirectedGraphNode;
+import com.helger.graph.IMutableGraphNode;
+import com.helger.graph.simple.SimpleDirectedGraph;
+import com.helger.graph.simple.SimpleDirectedGraphObjectFastFactory;
+import com.helger.graph.simple.SimpleGraph;
+import com.helger.graph.simple.SimpleGraphObjectFastFactory;
+
+/**
+ * Test class for class {@link GraphSnapshot}.
+ *
+ * @author Philip Helger
+ */
+public final class GraphSnapshotTest
+{
+  @Test
+  public void testDirected ()
+  {
+    final SimpleDirectedGraph g = new SimpleDirectedGraph (new SimpleDirectedGraphObjectFastFactory ());
+    g.createNode ("a");
+    g.createNode ("b");
+    g.createNode ("c");
+    g.createRelation ("r1", "a", "b");
+    g.createRelation ("r2", "a", "c");
+    g.createRelation ("r3", "c", "b");
+
+    final GraphSnapshot <IMutableDirectedGraphNode> s = GraphSnapshot.create (g);
+    assertTrue (s.isDirected ());
+    assertEquals (3, s.getNodeCount ());
+    assertEquals (3, s.getRelationCount ());
+    assertEquals (3, s.getEdgeCount ());
+    assertEquals (0, s.getNodeIndex ("a"));
+    assertEquals (-1, s.getNodeIndex ("x"));
+    assertEquals ("c", s.getNodeID (2));
+    assertEquals ("c", s.getNode (2).getID ());
+
+    final int a = s.getNodeIndex ("a");
+    final int b = s.getNodeIndex ("b");
+    assertEquals (2, s.getOutgoingEdgeCount (a));
+    assertEquals (0, s.getIncomingEdgeCount (a));
+    assertEquals (0, s.getOutgoingEdgeCount (b));
+    assertEquals (2, s.getIncomingEdgeCount (b));
+    assertEquals (b, s.getOutgoingEdgeTarget (s.getOutgoingEdgeStart (a)));
+    assertEquals ("r1", s.getRelationID (s.getOutgoingEdgeRelation (s.getOutgoingEdgeStart (a))));
+    assertEquals (1, s.getOutgoingEdgeWeight (s.getOutgoingEdgeStart (a)));
+    assertEquals (a, s.getIncomingEdgeSource (s.getIncomingEdgeStart (b)));
+  }
+
+  @Test
+  public void testUndirected ()
+  {
+    final SimpleGraph g = new SimpleGraph (new SimpleGraphObjectFastFactory ());
+    g.createNode ("a");
+    g.createNode ("b");
+    g.createRelation ("a", "b").attrs ().putIn ("w", 7);
+    g.createRelation ("b", "b").attrs ().putIn ("w", 1);
+
+    final GraphSnapshot <IMutableGraphNode> s = GraphSnapshot.create (g, x -> x.attrs ().getAsInt ("w"));
+    assertFalse (s.isDirected ());
+    assertEquals (2, s.getRelationCount ());
+    // Self relations are a single edge
+    assertEquals (3, s.getEdgeCount ());
+    assertEquals (1, s.getOutgoingEdgeCount (0));
+    assertEquals (2, s.getOutgoingEdgeCount (1));
+    assertEquals (2, s.getIncomingEdgeCount (1));
+    assertEquals (7, s.getOutgoingEdgeWeight (s.getOutgoingEdgeStart (0)));
+    assertEquals (1, s.getOutgoingEdgeTarget (s.getOutgoingEdgeStart (0)));
+  }
+}
@@ -27,11 +27,14 @@ import org.slf4j.LoggerFactory;
 
 import com.helger.commons.annotation.Singleton;
 import com.helger.commons.cache.Cache;
+import com.helger.commons.cache.ConcurrentCache;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.debug.GlobalDebug;
 import com.helger.commons.log.ConditionalLogger;
 import com.helger.commons.log.IHasConditionalLogger;
 import com.helger.commons.state.EChange;
+import com.helger.commons.string.StringParser;
+import com.helger.commons.system.SystemProperties;
 
 import jakarta.xml.bind.JAXBContext;
 
@@ -47,9 +50,18 @@ public final class JAXBContextCache extends Cache <JAXBContextCacheKey, JAXBCont
 {
   private static final class SingletonHolder
   {
-    static final JAXBContextCache INSTANCE = new JAXBContextCache ();
+    static final JAXBContextCache INSTANCE = new JAXBContextCache (StringParser.parseBool (SystemProperties.getPropertyValueOrNull (SYSTEM_PROPERTY_USE_CONCURRENT_CACHE),
+                                                                                          DEFAULT_USE_CONCURRENT_CACHE));
   }
 
+  /**
+   * The name of the system property that must be set to <code>true</code> to
+   * let the global instance use a {@link ConcurrentCache} internally.
+   *
+   * @since 11.1.4
+   */
+  public static final String SYSTEM_PROPERTY_USE_CONCURRENT_CACHE = "ph.jaxbcontextcache.concurrent";
+
   private static final Logger LOGGER = LoggerFactory.getLogger (JAXBContextCache.class);
   private static final ConditionalLogger CONDLOG = new ConditionalLogger (LOGGER, !GlobalDebug.DEFAULT_SILENT_MODE);
 
@@ -79,9 +91,13 @@ public final class JAXBContextCache extends Cache <JAXBContextCacheKey, JAXBCont
     return !CONDLOG.setEnabled (!bSilentMode);
   }
 
-  private JAXBContextCache ()
+  JAXBContextCache (final boolean bUseConcurrentCache)
   {
-    super (aCacheKey -> aCacheKey.createJAXBContext (CONDLOG), 500, JAXBContextCache.class.getName ());
+    super (aCacheKey -> aCacheKey.createJAXBContext (CONDLOG),
+           500,
+           JAXBContextCache.class.getName (),
+           DEFAULT_ALLOW_NULL_VALUES,
+           bUseConcurrentCache);
   }
 
   public static boolean isInstantiated ()
@@ -143,4 +143,21 @@ public final class JAXBContextCacheTest
                     aSW.getAsString ());
     }
   }
+
+  @Test
+  public void testConcurrentCache ()
+  {
+    assertFalse (JAXBContextCache.getInstance ().isUseConcurrentCache ());
+
+    final JAXBContextCache aCache = new JAXBContextCache (true);
+    assertTrue (aCache.isUseConcurrentCache ());
+    final JAXBContextCacheKey ck = JAXBContextCacheKey.createForClass (com.helger.jaxb.mock.external.MockJAXBArchive.class);
+    final JAXBContext aCtx = aCache.getFromCache (ck);
+    assertNotNull (aCtx);
+    assertSame (aCtx, aCache.getFromCache (ck));
+    assertEquals (1, aCache.size ());
+    assertTrue (aCache.removeFromCache (ck).isChanged ());
+    assertFalse (aCache.removeFromCache (ck).isChanged ());
+    assertTrue (aCache.isEmpty ());
+  }
 }
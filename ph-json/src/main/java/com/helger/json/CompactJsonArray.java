@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A memory-lean, read-only implementation of {@link IJsonArray}. Strings and
+ * primitive numbers are stored without a {@link JsonValue} wrapper.<br>
+ * All modifying methods throw an {@link UnsupportedOperationException}. Use
+ * {@link #getClone()} to get a mutable {@link JsonArray}.<br>
+ * Instances are created via {@link CompactJsonBuilder}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@Immutable
+public final class CompactJsonArray implements IJsonArray
+{
+  private final Object [] m_aValues;
+  private final long [] m_aPrimitives;
+
+  CompactJsonArray (@Nonnull final Object [] aValues, @Nullable final long [] aPrimitives)
+  {
+    m_aValues = aValues;
+    m_aPrimitives = aPrimitives;
+  }
+
+  public boolean isArray ()
+  {
+    return true;
+  }
+
+  public boolean isObject ()
+  {
+    return false;
+  }
+
+  public boolean isValue ()
+  {
+    return false;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_aValues.length;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aValues.length == 0;
+  }
+
+  @Nonnull
+  private IJson _get (final int nIndex)
+  {
+    return CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, nIndex);
+  }
+
+  @Nonnull
+  public Iterator <IJson> iterator ()
+  {
+    return new Iterator <> ()
+    {
+      private int m_nIndex = 0;
+
+      public boolean hasNext ()
+      {
+        return m_nIndex < m_aValues.length;
+      }
+
+      public IJson next ()
+      {
+        if (m_nIndex >= m_aValues.length)
+          throw new NoSuchElementException ();
+        return _get (m_nIndex++);
+      }
+    };
+  }
+
+  /**
+   * Not supported, because this array is read-only.
+   *
+   * @throws UnsupportedOperationException
+   *         always
+   */
+  @Nonnull
+  public IJsonArray addAt (@CheckForSigned final int nIndex, @Nonnull final IJson aValue)
+  {
+    throw new UnsupportedOperationException ("This JSON array is read-only");
+  }
+
+  /**
+   * Not supported, because this array is read-only.
+   *
+   * @throws UnsupportedOperationException
+   *         always
+   */
+  @Nullable
+  public IJson removeAndReturnAtIndex (@Nonnegative final int nIndex)
+  {
+    throw new UnsupportedOperationException ("This JSON array is read-only");
+  }
+
+  /**
+   * Not supported, because this array is read-only.
+   *
+   * @throws UnsupportedOperationException
+   *         always
+   */
+  @Nonnull
+  public EChange removeAtIndex (@Nonnegative final int nIndex)
+  {
+    throw new UnsupportedOperationException ("This JSON array is read-only");
+  }
+
+  @Nullable
+  public IJson get (@Nonnegative final int nIndex)
+  {
+    if (nIndex < 0 || nIndex >= m_aValues.length)
+      return null;
+    return _get (nIndex);
+  }
+
+  @Override
+  @Nullable
+  public Object getValue (@Nonnegative final int nIndex)
+  {
+    // Avoid the creation of the wrapper
+    if (nIndex < 0 || nIndex >= m_aValues.length)
+      return null;
+    return CompactJsonBuilder.getValue (m_aValues, m_aPrimitives, nIndex);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public JsonArray getSubArray (@Nonnegative final int nStartIndex, @Nonnegative final int nEndIndex)
+  {
+    ValueEnforcer.isGE0 (nStartIndex, "StartIndex");
+    ValueEnforcer.isBetweenInclusive (nEndIndex, "EndIndex", nStartIndex, m_aValues.length);
+
+    final JsonArray ret = new JsonArray (nEndIndex - nStartIndex);
+    for (int i = nStartIndex; i < nEndIndex; ++i)
+      ret.add (_get (i));
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> getAll ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_aValues.length);
+    for (int i = 0; i < m_aValues.length; ++i)
+      ret.add (_get (i));
+    return ret;
+  }
+
+  @Override
+  public void forEach (@Nonnull final Consumer <? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_aValues.length; ++i)
+      aConsumer.accept (_get (i));
+  }
+
+  public void forEachByIndex (@Nonnull final ObjIntConsumer <? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_aValues.length; ++i)
+      aConsumer.accept (_get (i), i);
+  }
+
+  public boolean contains (@Nullable final IJson aValue)
+  {
+    if (aValue != null)
+      for (int i = 0; i < m_aValues.length; ++i)
+        if (_get (i).equals (aValue))
+          return true;
+    return false;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> getClonedValues ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_aValues.length);
+    for (int i = 0; i < m_aValues.length; ++i)
+      ret.add (_get (i).getClone ());
+    return ret;
+  }
+
+  /**
+   * @return A deep, mutable copy of this array. Never <code>null</code>.
+   */
+  @Nonnull
+  public JsonArray getClone ()
+  {
+    return new JsonArray (getClonedValues ());
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonArray rhs = (CompactJsonArray) o;
+    return Arrays.equals (m_aValues, rhs.m_aValues) && Arrays.equals (m_aPrimitives, rhs.m_aPrimitives);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aValues).append (m_aPrimitives).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    // The values are created on the fly, so use the JSON representation
+    return new ToStringGenerator (this).append ("json", getAsJsonString ()).getToString ();
+  }
+}
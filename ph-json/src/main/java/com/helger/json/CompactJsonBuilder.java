@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Builder for the memory-lean, read-only {@link CompactJsonObject} and
+ * {@link CompactJsonArray} representations. Strings and primitive numbers are
+ * stored without a {@link JsonValue} wrapper - <code>int</code>,
+ * <code>long</code> and <code>double</code> values are even stored unboxed.
+ * The wrapper objects are only created on access.<br>
+ * A single builder creates a single JSON object or JSON array. Nested
+ * collections must be built upfront and added via {@link #add(String, IJson)}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public final class CompactJsonBuilder
+{
+  /**
+   * Marker stored in the value array, if the primitive array contains an int
+   * value.
+   */
+  static final Object MARKER_INT = new Object ();
+  /**
+   * Marker stored in the value array, if the primitive array contains a long
+   * value.
+   */
+  static final Object MARKER_LONG = new Object ();
+  /**
+   * Marker stored in the value array, if the primitive array contains the bits
+   * of a double value.
+   */
+  static final Object MARKER_DOUBLE = new Object ();
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 8;
+
+  private final boolean m_bObject;
+  private String [] m_aKeys;
+  private Object [] m_aValues;
+  private long [] m_aPrimitives;
+  private int m_nSize = 0;
+
+  private CompactJsonBuilder (final boolean bObject)
+  {
+    m_bObject = bObject;
+    m_aKeys = bObject ? new String [DEFAULT_INITIAL_CAPACITY] : null;
+    m_aValues = new Object [DEFAULT_INITIAL_CAPACITY];
+  }
+
+  /**
+   * @return <code>true</code> if this builder creates a JSON object,
+   *         <code>false</code> if it creates a JSON array.
+   */
+  public boolean isObject ()
+  {
+    return m_bObject;
+  }
+
+  /**
+   * @return The number of elements added so far. Always &ge; 0.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_nSize;
+  }
+
+  private int _nextIndex (@Nullable final String sKey)
+  {
+    if (m_bObject)
+      ValueEnforcer.notNull (sKey, "Key");
+
+    if (m_nSize == m_aValues.length)
+    {
+      final int nNewLen = m_nSize * 2;
+      m_aValues = Arrays.copyOf (m_aValues, nNewLen);
+      if (m_bObject)
+        m_aKeys = Arrays.copyOf (m_aKeys, nNewLen);
+      if (m_aPrimitives != null)
+        m_aPrimitives = Arrays.copyOf (m_aPrimitives, nNewLen);
+    }
+    if (m_bObject)
+      m_aKeys[m_nSize] = sKey;
+    return m_nSize++;
+  }
+
+  private void _setPrimitive (final int nIndex, @Nonnull final Object aMarker, final long nBits)
+  {
+    if (m_aPrimitives == null)
+      m_aPrimitives = new long [m_aValues.length];
+    m_aValues[nIndex] = aMarker;
+    m_aPrimitives[nIndex] = nBits;
+  }
+
+  /**
+   * Add a JSON value. JSON values with a primitive number or a string are
+   * unwrapped.
+   *
+   * @param sKey
+   *        The key to use. Must not be <code>null</code> for objects and is
+   *        ignored for arrays. Deduplicating the keys is up to the caller.
+   * @param aValue
+   *        The value to add. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CompactJsonBuilder add (@Nullable final String sKey, @Nonnull final IJson aValue)
+  {
+    ValueEnforcer.notNull (aValue, "Value");
+
+    if (aValue.isValue ())
+    {
+      final Object aRealValue = ((IJsonValue) aValue).getValue ();
+      if (aRealValue instanceof String)
+        return addString (sKey, (String) aRealValue);
+      if (aRealValue instanceof Integer || aRealValue instanceof Long || aRealValue instanceof Double)
+        return addNumber (sKey, (Number) aRealValue);
+    }
+    final int nIndex = _nextIndex (sKey);
+    m_aValues[nIndex] = aValue;
+    return this;
+  }
+
+  /**
+   * Add a string value.
+   *
+   * @param sKey
+   *        The key to use. Must not be <code>null</code> for objects and is
+   *        ignored for arrays.
+   * @param sValue
+   *        The string value to add. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CompactJsonBuilder addString (@Nullable final String sKey, @Nonnull final String sValue)
+  {
+    ValueEnforcer.notNull (sValue, "Value");
+    final int nIndex = _nextIndex (sKey);
+    m_aValues[nIndex] = sValue;
+    return this;
+  }
+
+  /**
+   * Add a number value. {@link Integer}, {@link Long} and {@link Double} values
+   * are stored unboxed.
+   *
+   * @param sKey
+   *        The key to use. Must not be <code>null</code> for objects and is
+   *        ignored for arrays.
+   * @param aValue
+   *        The number to add. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CompactJsonBuilder addNumber (@Nullable final String sKey, @Nonnull final Number aValue)
+  {
+    ValueEnforcer.notNull (aValue, "Value");
+
+    final int nIndex = _nextIndex (sKey);
+    if (aValue instanceof Integer)
+      _setPrimitive (nIndex, MARKER_INT, aValue.intValue ());
+    else
+      if (aValue instanceof Long)
+        _setPrimitive (nIndex, MARKER_LONG, aValue.longValue ());
+      else
+        if (aValue instanceof Double)
+          _setPrimitive (nIndex, MARKER_DOUBLE, Double.doubleToLongBits (aValue.doubleValue ()));
+        else
+          m_aValues[nIndex] = JsonValue.create (aValue);
+    return this;
+  }
+
+  private boolean _isSameKey (final int i, final int j)
+  {
+    final String sKey1 = m_aKeys[i];
+    final String sKey2 = m_aKeys[j];
+    return sKey1 == sKey2 || sKey1.equals (sKey2);
+  }
+
+  /**
+   * Like in {@link JsonObject} a later value with the same key overwrites the
+   * previous value, but keeps the original position.
+   */
+  private void _removeDuplicateKeys ()
+  {
+    final ICommonsMap <String, Integer> aFirstIndex = m_nSize > CompactJsonObject.MAX_INLINE_SIZE ? new CommonsHashMap <> (m_nSize)
+                                                                                                  : null;
+    int nDest = 0;
+    for (int i = 0; i < m_nSize; ++i)
+    {
+      int nExisting = -1;
+      if (aFirstIndex != null)
+      {
+        final Integer aIndex = aFirstIndex.get (m_aKeys[i]);
+        if (aIndex != null)
+          nExisting = aIndex.intValue ();
+      }
+      else
+        for (int j = 0; j < nDest; ++j)
+          if (_isSameKey (i, j))
+          {
+            nExisting = j;
+            break;
+          }
+
+      final int nTarget;
+      if (nExisting >= 0)
+        nTarget = nExisting;
+      else
+      {
+        nTarget = nDest++;
+        m_aKeys[nTarget] = m_aKeys[i];
+        if (aFirstIndex != null)
+          aFirstIndex.put (m_aKeys[i], Integer.valueOf (nTarget));
+      }
+      m_aValues[nTarget] = m_aValues[i];
+      if (m_aPrimitives != null)
+        m_aPrimitives[nTarget] = m_aPrimitives[i];
+    }
+    m_nSize = nDest;
+  }
+
+  /**
+   * @return The created JSON object or JSON array, depending on the type of
+   *         this builder. Never <code>null</code>. The builder should not be
+   *         used afterwards.
+   */
+  @Nonnull
+  public IJsonCollection build ()
+  {
+    if (m_bObject)
+      _removeDuplicateKeys ();
+
+    final Object [] aValues = m_nSize == 0 ? ArrayHelper.EMPTY_OBJECT_ARRAY : Arrays.copyOf (m_aValues, m_nSize);
+    final long [] aPrimitives = m_aPrimitives == null ? null : Arrays.copyOf (m_aPrimitives, m_nSize);
+    if (m_bObject)
+    {
+      final String [] aKeys = m_nSize == 0 ? ArrayHelper.EMPTY_STRING_ARRAY : Arrays.copyOf (m_aKeys, m_nSize);
+      return new CompactJsonObject (aKeys, aValues, aPrimitives);
+    }
+    return new CompactJsonArray (aValues, aPrimitives);
+  }
+
+  /**
+   * Materialize the value at the provided index.
+   *
+   * @param aValues
+   *        The value array. May not be <code>null</code>.
+   * @param aPrimitives
+   *        The primitive array. May be <code>null</code>.
+   * @param nIndex
+   *        The index to access
+   * @return The JSON value. Never <code>null</code>.
+   */
+  @Nonnull
+  static IJson getJson (@Nonnull final Object [] aValues, @Nullable final long [] aPrimitives, final int nIndex)
+  {
+    final Object aValue = aValues[nIndex];
+    if (aValue instanceof IJson)
+      return (IJson) aValue;
+    if (aValue == MARKER_INT)
+      return JsonValue.create ((int) aPrimitives[nIndex]);
+    if (aValue == MARKER_LONG)
+      return JsonValue.create (aPrimitives[nIndex]);
+    if (aValue == MARKER_DOUBLE)
+      return JsonValue.create (Double.longBitsToDouble (aPrimitives[nIndex]));
+    return JsonValue.create (aValue);
+  }
+
+  /**
+   * Get the contained value at the provided index, without creating a
+   * {@link JsonValue}.
+   *
+   * @param aValues
+   *        The value array. May not be <code>null</code>.
+   * @param aPrimitives
+   *        The primitive array. May be <code>null</code>.
+   * @param nIndex
+   *        The index to access
+   * @return <code>null</code> for JSON arrays, JSON objects and the JSON null
+   *         value.
+   */
+  @Nullable
+  static Object getValue (@Nonnull final Object [] aValues, @Nullable final long [] aPrimitives, final int nIndex)
+  {
+    final Object aValue = aValues[nIndex];
+    if (aValue instanceof IJson)
+    {
+      final IJsonValue aJsonValue = ((IJson) aValue).getAsValue ();
+      return aJsonValue == null ? null : aJsonValue.getValue ();
+    }
+    if (aValue == MARKER_INT)
+      return Integer.valueOf ((int) aPrimitives[nIndex]);
+    if (aValue == MARKER_LONG)
+      return Long.valueOf (aPrimitives[nIndex]);
+    if (aValue == MARKER_DOUBLE)
+      return Double.valueOf (Double.longBitsToDouble (aPrimitives[nIndex]));
+    return aValue;
+  }
+
+  /**
+   * Create a compact read-only copy of the provided JSON. Nested collections
+   * are converted recursively.
+   *
+   * @param aJson
+   *        The source JSON. May be <code>null</code>.
+   * @return <code>null</code> if the parameter is <code>null</code>. JSON
+   *         values are returned unchanged, because they are immutable.
+   */
+  @Nullable
+  public static IJson getAsCompact (@Nullable final IJson aJson)
+  {
+    if (aJson == null || aJson.isValue () || aJson instanceof CompactJsonObject || aJson instanceof CompactJsonArray)
+      return aJson;
+
+    if (aJson.isArray ())
+    {
+      final CompactJsonBuilder aBuilder = forArray ();
+      for (final IJson aChild : aJson.getAsArray ())
+        aBuilder.add (null, getAsCompact (aChild));
+      return aBuilder.build ();
+    }
+
+    final CompactJsonBuilder aBuilder = forObject ();
+    for (final Map.Entry <String, IJson> aEntry : aJson.getAsObject ())
+      aBuilder.add (aEntry.getKey (), getAsCompact (aEntry.getValue ()));
+    return aBuilder.build ();
+  }
+
+  /**
+   * @return A new builder for a compact JSON object.
+   */
+  @Nonnull
+  public static CompactJsonBuilder forObject ()
+  {
+    return new CompactJsonBuilder (true);
+  }
+
+  /**
+   * @return A new builder for a compact JSON array.
+   */
+  @Nonnull
+  public static CompactJsonBuilder forArray ()
+  {
+    return new CompactJsonBuilder (false);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Object", m_bObject).append ("Size", m_nSize).getToString ();
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A memory-lean, read-only implementation of {@link IJsonObject}. The keys and
+ * values are stored in parallel arrays, strings and primitive numbers are
+ * stored without a {@link JsonValue} wrapper. Small objects are searched
+ * linearly, bigger objects use an additional open addressing hash index.<br>
+ * All modifying methods throw an {@link UnsupportedOperationException}. Use
+ * {@link #getClone()} to get a mutable {@link JsonObject}.<br>
+ * Instances are created via {@link CompactJsonBuilder}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@Immutable
+public final class CompactJsonObject implements IJsonObject
+{
+  /**
+   * Objects with up to this number of keys don't have a hash index but are
+   * searched linearly.
+   */
+  public static final int MAX_INLINE_SIZE = 8;
+
+  private final String [] m_aKeys;
+  private final Object [] m_aValues;
+  private final long [] m_aPrimitives;
+  // Index + 1 of the key in m_aKeys; 0 means empty
+  private final int [] m_aHashIndex;
+
+  CompactJsonObject (@Nonnull final String [] aKeys,
+                     @Nonnull final Object [] aValues,
+                     @Nullable final long [] aPrimitives)
+  {
+    m_aKeys = aKeys;
+    m_aValues = aValues;
+    m_aPrimitives = aPrimitives;
+    m_aHashIndex = aKeys.length > MAX_INLINE_SIZE ? _createHashIndex (aKeys) : null;
+  }
+
+  private static int _getSlot (@Nonnull final String sKey, final int nMask)
+  {
+    final int h = sKey.hashCode ();
+    return (h ^ (h >>> 16)) & nMask;
+  }
+
+  @Nonnull
+  private static int [] _createHashIndex (@Nonnull final String [] aKeys)
+  {
+    // Load factor 0.5 at most
+    final int nCapacity = Integer.highestOneBit (aKeys.length * 2 - 1) << 1;
+    final int nMask = nCapacity - 1;
+    final int [] ret = new int [nCapacity];
+    for (int i = 0; i < aKeys.length; ++i)
+    {
+      int nSlot = _getSlot (aKeys[i], nMask);
+      while (ret[nSlot] != 0)
+        nSlot = (nSlot + 1) & nMask;
+      ret[nSlot] = i + 1;
+    }
+    return ret;
+  }
+
+  private int _indexOf (@Nullable final String sName)
+  {
+    if (sName == null)
+      return -1;
+
+    final String [] aKeys = m_aKeys;
+    if (m_aHashIndex == null)
+    {
+      // Keys are usually deduplicated, so try the identity first
+      for (int i = 0; i < aKeys.length; ++i)
+        if (aKeys[i] == sName)
+          return i;
+      for (int i = 0; i < aKeys.length; ++i)
+        if (aKeys[i].equals (sName))
+          return i;
+      return -1;
+    }
+
+    final int [] aHashIndex = m_aHashIndex;
+    final int nMask = aHashIndex.length - 1;
+    int nSlot = _getSlot (sName, nMask);
+    int nEntry;
+    while ((nEntry = aHashIndex[nSlot]) != 0)
+    {
+      final String sKey = aKeys[nEntry - 1];
+      if (sKey == sName || sKey.equals (sName))
+        return nEntry - 1;
+      nSlot = (nSlot + 1) & nMask;
+    }
+    return -1;
+  }
+
+  public boolean isArray ()
+  {
+    return false;
+  }
+
+  public boolean isObject ()
+  {
+    return true;
+  }
+
+  public boolean isValue ()
+  {
+    return false;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_aKeys.length;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aKeys.length == 0;
+  }
+
+  @Nonnull
+  public Iterator <Map.Entry <String, IJson>> iterator ()
+  {
+    return new Iterator <> ()
+    {
+      private int m_nIndex = 0;
+
+      public boolean hasNext ()
+      {
+        return m_nIndex < m_aKeys.length;
+      }
+
+      public Map.Entry <String, IJson> next ()
+      {
+        if (m_nIndex >= m_aKeys.length)
+          throw new NoSuchElementException ();
+        final int nIndex = m_nIndex++;
+        return new AbstractMap.SimpleImmutableEntry <> (m_aKeys[nIndex],
+                                                        CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, nIndex));
+      }
+    };
+  }
+
+  /**
+   * Not supported, because this object is read-only.
+   *
+   * @throws UnsupportedOperationException
+   *         always
+   */
+  @Nonnull
+  public IJsonObject addJson (@Nonnull final String sName, @Nonnull final IJson aValue)
+  {
+    throw new UnsupportedOperationException ("This JSON object is read-only");
+  }
+
+  /**
+   * Not supported, because this object is read-only.
+   *
+   * @throws UnsupportedOperationException
+   *         always
+   */
+  @Nullable
+  public IJson removeKeyAndReturnValue (@Nullable final String sName)
+  {
+    throw new UnsupportedOperationException ("This JSON object is read-only");
+  }
+
+  /**
+   * Not supported, because this object is read-only.
+   *
+   * @throws UnsupportedOperationException
+   *         always
+   */
+  @Nonnull
+  public EChange removeKey (@Nullable final String sName)
+  {
+    throw new UnsupportedOperationException ("This JSON object is read-only");
+  }
+
+  public boolean containsKey (@Nullable final String sName)
+  {
+    return _indexOf (sName) >= 0;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <String> keySet ()
+  {
+    return new CommonsLinkedHashSet <> (m_aKeys);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> values ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_aValues.length);
+    for (int i = 0; i < m_aValues.length; ++i)
+      ret.add (CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, i));
+    return ret;
+  }
+
+  @Nullable
+  public IJson get (@Nullable final String sName)
+  {
+    final int nIndex = _indexOf (sName);
+    return nIndex < 0 ? null : CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, nIndex);
+  }
+
+  @Override
+  @Nullable
+  public Object getValue (@Nullable final String sName)
+  {
+    // Avoid the creation of the wrapper
+    final int nIndex = _indexOf (sName);
+    return nIndex < 0 ? null : CompactJsonBuilder.getValue (m_aValues, m_aPrimitives, nIndex);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, IJson> getAll ()
+  {
+    final ICommonsOrderedMap <String, IJson> ret = new CommonsLinkedHashMap <> (m_aKeys.length);
+    for (int i = 0; i < m_aKeys.length; ++i)
+      ret.put (m_aKeys[i], CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, i));
+    return ret;
+  }
+
+  public void forEach (@Nonnull final BiConsumer <? super String, ? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_aKeys.length; ++i)
+      aConsumer.accept (m_aKeys[i], CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, i));
+  }
+
+  public boolean containsValue (@Nullable final IJson aValue)
+  {
+    if (aValue != null)
+      for (int i = 0; i < m_aValues.length; ++i)
+        if (CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, i).equals (aValue))
+          return true;
+    return false;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, IJson> getClonedValues ()
+  {
+    final ICommonsOrderedMap <String, IJson> ret = new CommonsLinkedHashMap <> (m_aKeys.length);
+    for (int i = 0; i < m_aKeys.length; ++i)
+      ret.put (m_aKeys[i], CompactJsonBuilder.getJson (m_aValues, m_aPrimitives, i).getClone ());
+    return ret;
+  }
+
+  /**
+   * @return A deep, mutable copy of this object. Never <code>null</code>.
+   */
+  @Nonnull
+  public JsonObject getClone ()
+  {
+    return new JsonObject (getClonedValues ());
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonObject rhs = (CompactJsonObject) o;
+    return Arrays.equals (m_aKeys, rhs.m_aKeys) &&
+           Arrays.equals (m_aValues, rhs.m_aValues) &&
+           Arrays.equals (m_aPrimitives, rhs.m_aPrimitives);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aKeys).append (m_aValues).append (m_aPrimitives).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    // The values are created on the fly, so use the JSON representation
+    return new ToStringGenerator (this).append ("json", getAsJsonString ()).getToString ();
+  }
+}
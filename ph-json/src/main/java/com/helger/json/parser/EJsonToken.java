@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+/**
+ * The token types returned by an {@link IJsonTokenStream}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+public enum EJsonToken
+{
+  /** An object was started ("{") */
+  START_OBJECT,
+  /** An object was ended ("}") */
+  END_OBJECT,
+  /** An array was started ("[") */
+  START_ARRAY,
+  /** An array was ended ("]") */
+  END_ARRAY,
+  /** The name of an object property */
+  NAME,
+  /** A string value */
+  STRING,
+  /** A number value */
+  NUMBER,
+  /** The keyword "true" */
+  TRUE,
+  /** The keyword "false" */
+  FALSE,
+  /** The keyword "null" */
+  NULL,
+  /** The end of the input was reached */
+  END_OF_INPUT;
+
+  /**
+   * @return <code>true</code> if this token starts a structure (object or
+   *         array), <code>false</code> if not.
+   */
+  public boolean isStructureStart ()
+  {
+    return this == START_OBJECT || this == START_ARRAY;
+  }
+
+  /**
+   * @return <code>true</code> if this token ends a structure (object or
+   *         array), <code>false</code> if not.
+   */
+  public boolean isStructureEnd ()
+  {
+    return this == END_OBJECT || this == END_ARRAY;
+  }
+
+  /**
+   * @return <code>true</code> if this token is a simple value (string, number,
+   *         boolean or null), <code>false</code> if not.
+   */
+  public boolean isScalarValue ()
+  {
+    return this == STRING || this == NUMBER || this == TRUE || this == FALSE || this == NULL;
+  }
+}
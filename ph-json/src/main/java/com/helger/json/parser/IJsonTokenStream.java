@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A pull-style stream of JSON tokens. In contrast to {@link JsonParser} the
+ * caller requests one token after the other and decides which values need to
+ * be materialized.<br>
+ * All value accessors refer to the current token and are only valid until the
+ * next call to {@link #nextToken()}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+public interface IJsonTokenStream extends Closeable
+{
+  /**
+   * Read the next token.
+   *
+   * @return The next token. Never <code>null</code>. If the end of input was
+   *         reached {@link EJsonToken#END_OF_INPUT} is returned.
+   * @throws JsonParseException
+   *         If the input is not valid JSON
+   */
+  @Nonnull
+  EJsonToken nextToken () throws JsonParseException;
+
+  /**
+   * @return The token returned by the last call to {@link #nextToken()} or
+   *         <code>null</code> if {@link #nextToken()} was not yet called.
+   */
+  @Nullable
+  EJsonToken getCurrentToken ();
+
+  /**
+   * @return The number of currently open objects and arrays. The start token
+   *         of an object or array already counts, the end token does not
+   *         count anymore.
+   */
+  @Nonnegative
+  int getDepth ();
+
+  /**
+   * @return The offset in bytes of the start of the current token, counted
+   *         from the beginning of the input. -1 if no token was read.
+   */
+  @CheckForSigned
+  long getTokenOffset ();
+
+  /**
+   * @return The unescaped content of the current {@link EJsonToken#NAME} or
+   *         {@link EJsonToken#STRING} token without the surrounding quotes.
+   * @throws IllegalStateException
+   *         If the current token is neither a name nor a string
+   */
+  @Nonnull
+  String getString ();
+
+  /**
+   * @return The original content of the current {@link EJsonToken#NAME} or
+   *         {@link EJsonToken#STRING} token including the surrounding quotes
+   *         and without resolving escape sequences.
+   * @throws IllegalStateException
+   *         If the current token is neither a name nor a string
+   */
+  @Nonnull
+  String getOriginalString ();
+
+  /**
+   * @return The original text of the current {@link EJsonToken#NUMBER} token.
+   * @throws IllegalStateException
+   *         If the current token is not a number
+   */
+  @Nonnull
+  String getNumberText ();
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token. The
+   *         number type is the same as the one used by {@link JsonParser}.
+   * @throws IllegalStateException
+   *         If the current token is not a number
+   */
+  @Nonnull
+  Number getNumber ();
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as a
+   *         long. Fractions are cut, values out of range are truncated.
+   * @throws IllegalStateException
+   *         If the current token is not a number
+   */
+  long getLong ();
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as a
+   *         double.
+   * @throws IllegalStateException
+   *         If the current token is not a number
+   */
+  double getDouble ();
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as a
+   *         {@link BigDecimal}. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         If the current token is not a number
+   */
+  @Nonnull
+  BigDecimal getBigDecimal ();
+
+  /**
+   * @return <code>true</code> for {@link EJsonToken#TRUE} and
+   *         <code>false</code> for {@link EJsonToken#FALSE}.
+   * @throws IllegalStateException
+   *         If the current token is not a boolean
+   */
+  boolean getBoolean ();
+
+  /**
+   * If the current token is {@link EJsonToken#START_OBJECT} or
+   * {@link EJsonToken#START_ARRAY}, all tokens up to and including the
+   * matching end token are skipped without materializing any value. For all
+   * other tokens nothing happens.
+   *
+   * @throws JsonParseException
+   *         If the input is not valid JSON
+   */
+  void skipChildren () throws JsonParseException;
+}
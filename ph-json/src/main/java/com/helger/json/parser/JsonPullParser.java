@@ -0,0 +1,1005 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.CJson;
+
+/**
+ * A pull-style JSON parser that works directly on UTF-8 encoded bytes. The
+ * input is read in chunks into an internal buffer, so that arbitrarily large
+ * inputs can be parsed with bounded memory - the buffer only grows if a single
+ * token is larger than the buffer.<br>
+ * Strings and numbers are only materialized if the caller asks for them, and
+ * escape sequences are only resolved if the unescaped string is requested.
+ * The syntax accepted is the same as the one of {@link JsonParser} with the
+ * default settings (including single quoted strings and block comments),
+ * except that unquoted strings are not supported.<br>
+ * If {@link #setCheckForEOI(boolean)} is disabled, several JSON values may
+ * follow each other (e.g. JSON Lines).
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public class JsonPullParser implements IJsonTokenStream
+{
+  /** The default size of the internal buffer in bytes */
+  public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+  private static final int EOI = -1;
+
+  // The possible parser states - what is expected next
+  private static final int STATE_ROOT_VALUE = 0;
+  private static final int STATE_ROOT_DONE = 1;
+  private static final int STATE_OBJECT_FIRST = 2;
+  private static final int STATE_OBJECT_NAME = 3;
+  private static final int STATE_OBJECT_COLON = 4;
+  private static final int STATE_OBJECT_NEXT = 5;
+  private static final int STATE_ARRAY_FIRST = 6;
+  private static final int STATE_ARRAY_VALUE = 7;
+  private static final int STATE_ARRAY_NEXT = 8;
+
+  // The maximum number of digits that always fit into a long
+  private static final int MAX_LONG_DIGITS = 18;
+
+  // Input
+  private final InputStream m_aIS;
+  private final ByteBuffer m_aByteBuffer;
+  private byte [] m_aBuf;
+  private int m_nPos;
+  private int m_nLimit;
+  // The absolute offset of the first byte in the buffer
+  private long m_nBufOffset;
+  private boolean m_bEOI;
+
+  // Settings
+  private boolean m_bAlwaysUseBigNumber = JsonParser.DEFAULT_ALWAYS_USE_BIG_NUMBER;
+  private boolean m_bAllowSpecialCharsInStrings = JsonParser.DEFAULT_ALLOW_SPECIAL_CHARS_IN_STRING;
+  private boolean m_bCheckForEOI = JsonParser.DEFAULT_CHECK_FOR_EOI;
+  private int m_nMaxNestingDepth = JsonParser.DEFAULT_MAX_NESTING_DEPTH;
+
+  // Structure
+  private int m_nState = STATE_ROOT_VALUE;
+  // true for object, false for array
+  private boolean [] m_aStack = new boolean [16];
+  private int m_nDepth = 0;
+
+  // Current token
+  private EJsonToken m_eToken;
+  private long m_nTokenOffset = -1;
+  // Start and end of the token in the buffer (strings including the opening
+  // quote, excluding the closing quote). While a token is read,
+  // the start is >= 0 so that the content is kept upon buffer refill.
+  private int m_nTokenStart = -1;
+  private int m_nTokenEnd;
+  private boolean m_bStringHasEscapes;
+  private boolean m_bNumberIsDecimal;
+  private boolean m_bNumberHasExponent;
+  private boolean m_bNumberHasPositiveExponent;
+  // Cached materialized string
+  private String m_sTokenString;
+  private final StringBuilder m_aSB = new StringBuilder ();
+
+  private JsonPullParser (@Nullable final InputStream aIS,
+                          @Nullable final ByteBuffer aBB,
+                          @Nonnull final byte [] aBuf,
+                          final int nPos,
+                          final int nLimit)
+  {
+    m_aIS = aIS;
+    m_aByteBuffer = aBB;
+    m_aBuf = aBuf;
+    m_nPos = nPos;
+    m_nLimit = nLimit;
+    // Offset of the provided start position is 0
+    m_nBufOffset = -nPos;
+  }
+
+  /**
+   * Parse the provided byte array. The array is used directly and is not
+   * modified.
+   *
+   * @param aBytes
+   *        The UTF-8 encoded JSON. May not be <code>null</code>.
+   */
+  public JsonPullParser (@Nonnull final byte [] aBytes)
+  {
+    this (aBytes, 0, aBytes.length);
+  }
+
+  /**
+   * Parse a part of the provided byte array. The array is used directly and is
+   * not modified.
+   *
+   * @param aBytes
+   *        The UTF-8 encoded JSON. May not be <code>null</code>.
+   * @param nOfs
+   *        The offset to start parsing. Must be &ge; 0.
+   * @param nLen
+   *        The number of bytes to parse. Must be &ge; 0.
+   */
+  public JsonPullParser (@Nonnull final byte [] aBytes, @Nonnegative final int nOfs, @Nonnegative final int nLen)
+  {
+    this (null, null, _checkArray (aBytes, nOfs, nLen), nOfs, nOfs + nLen);
+  }
+
+  @Nonnull
+  private static byte [] _checkArray (@Nonnull final byte [] aBytes, final int nOfs, final int nLen)
+  {
+    ValueEnforcer.isArrayOfsLen (aBytes, nOfs, nLen);
+    return aBytes;
+  }
+
+  /**
+   * Parse the remaining content of the provided byte buffer. The content is
+   * copied chunk-wise into the internal buffer.
+   *
+   * @param aBB
+   *        The byte buffer with the UTF-8 encoded JSON. May not be
+   *        <code>null</code>.
+   */
+  public JsonPullParser (@Nonnull final ByteBuffer aBB)
+  {
+    this (null,
+          ValueEnforcer.notNull (aBB, "ByteBuffer"),
+          new byte [Math.max (1, Math.min (aBB.remaining (), DEFAULT_BUFFER_SIZE))],
+          0,
+          0);
+  }
+
+  /**
+   * Parse the provided input stream with the default buffer size.
+   *
+   * @param aIS
+   *        The input stream with the UTF-8 encoded JSON. May not be
+   *        <code>null</code>. It is closed when this parser is closed.
+   */
+  public JsonPullParser (@Nonnull @WillCloseWhenClosed final InputStream aIS)
+  {
+    this (aIS, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Parse the provided input stream.
+   *
+   * @param aIS
+   *        The input stream with the UTF-8 encoded JSON. May not be
+   *        <code>null</code>. It is closed when this parser is closed.
+   * @param nBufferSize
+   *        The initial size of the internal buffer. Must be &gt; 0.
+   */
+  public JsonPullParser (@Nonnull @WillCloseWhenClosed final InputStream aIS, @Nonnegative final int nBufferSize)
+  {
+    this (ValueEnforcer.notNull (aIS, "InputStream"),
+          null,
+          new byte [ValueEnforcer.isGT0 (nBufferSize, "BufferSize")],
+          0,
+          0);
+  }
+
+  public final boolean isAlwaysUseBigNumber ()
+  {
+    return m_bAlwaysUseBigNumber;
+  }
+
+  @Nonnull
+  public final JsonPullParser setAlwaysUseBigNumber (final boolean bAlwaysUseBigNumber)
+  {
+    m_bAlwaysUseBigNumber = bAlwaysUseBigNumber;
+    return this;
+  }
+
+  public final boolean isAllowSpecialCharsInStrings ()
+  {
+    return m_bAllowSpecialCharsInStrings;
+  }
+
+  @Nonnull
+  public final JsonPullParser setAllowSpecialCharsInStrings (final boolean bAllowSpecialCharsInStrings)
+  {
+    m_bAllowSpecialCharsInStrings = bAllowSpecialCharsInStrings;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if only a single root value is allowed,
+   *         <code>false</code> if several root values may follow each other.
+   */
+  public final boolean isCheckForEOI ()
+  {
+    return m_bCheckForEOI;
+  }
+
+  /**
+   * Enable or disable the check for end of input. If disabled, several JSON
+   * values may follow each other, separated by optional whitespaces.
+   *
+   * @param bCheckForEOI
+   *        <code>true</code> to check for EOI, <code>false</code> if not.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final JsonPullParser setCheckForEOI (final boolean bCheckForEOI)
+  {
+    m_bCheckForEOI = bCheckForEOI;
+    return this;
+  }
+
+  @Nonnegative
+  public final int getMaxNestingDepth ()
+  {
+    return m_nMaxNestingDepth;
+  }
+
+  @Nonnull
+  public final JsonPullParser setMaxNestingDepth (@Nonnegative final int nMaxNestingDepth)
+  {
+    ValueEnforcer.isGT0 (nMaxNestingDepth, "MaxNestingDepth");
+    m_nMaxNestingDepth = nMaxNestingDepth;
+    return this;
+  }
+
+  /**
+   * @return The current size of the internal buffer. This is only bigger than
+   *         the initial size, if a single token is bigger than the buffer.
+   */
+  @Nonnegative
+  public final int getBufferSize ()
+  {
+    return m_aBuf.length;
+  }
+
+  @Nonnull
+  private JsonParseException _parseEx (@Nonnull final String sMsg)
+  {
+    return new JsonParseException (sMsg + " at byte offset " + (m_nBufOffset + m_nPos));
+  }
+
+  @Nonnull
+  private static String _getPrintableChar (final int c)
+  {
+    if (c == EOI)
+      return "<EOI>";
+    if (c <= 32 || c >= 127)
+      return "0x" + StringHelper.getHexStringLeadingZero (c, 2);
+    return "'" + (char) c + "'";
+  }
+
+  /**
+   * Read more data into the buffer. If a token is currently read, its content
+   * is kept.
+   *
+   * @return <code>true</code> if at least one more byte is available,
+   *         <code>false</code> on end of input.
+   */
+  private boolean _fill ()
+  {
+    if (m_bEOI || (m_aIS == null && m_aByteBuffer == null))
+    {
+      m_bEOI = true;
+      return false;
+    }
+
+    // Keep the content of the current token
+    final int nKeepFrom = m_nTokenStart >= 0 ? m_nTokenStart : m_nPos;
+    final int nKeep = m_nLimit - nKeepFrom;
+    if (nKeepFrom > 0)
+    {
+      System.arraycopy (m_aBuf, nKeepFrom, m_aBuf, 0, nKeep);
+      m_nBufOffset += nKeepFrom;
+      m_nPos -= nKeepFrom;
+      m_nLimit = nKeep;
+      if (m_nTokenStart >= 0)
+        m_nTokenStart -= nKeepFrom;
+    }
+    if (m_nLimit == m_aBuf.length)
+    {
+      // The token is bigger than the buffer
+      final byte [] aNewBuf = new byte [m_aBuf.length * 2];
+      System.arraycopy (m_aBuf, 0, aNewBuf, 0, m_nLimit);
+      m_aBuf = aNewBuf;
+    }
+
+    final int nRead;
+    if (m_aIS != null)
+    {
+      try
+      {
+        nRead = m_aIS.read (m_aBuf, m_nLimit, m_aBuf.length - m_nLimit);
+      }
+      catch (final IOException ex)
+      {
+        throw new UncheckedIOException ("Failed to read JSON input", ex);
+      }
+    }
+    else
+    {
+      nRead = Math.min (m_aByteBuffer.remaining (), m_aBuf.length - m_nLimit);
+      if (nRead > 0)
+        m_aByteBuffer.get (m_aBuf, m_nLimit, nRead);
+    }
+
+    if (nRead <= 0)
+    {
+      m_bEOI = true;
+      return false;
+    }
+    m_nLimit += nRead;
+    return true;
+  }
+
+  private int _read ()
+  {
+    if (m_nPos >= m_nLimit && !_fill ())
+      return EOI;
+    return m_aBuf[m_nPos++] & 0xff;
+  }
+
+  private int _peek ()
+  {
+    if (m_nPos >= m_nLimit && !_fill ())
+      return EOI;
+    return m_aBuf[m_nPos] & 0xff;
+  }
+
+  private void _skipComment () throws JsonParseException
+  {
+    // "/*" was already read
+    while (true)
+    {
+      final int c = _read ();
+      if (c == EOI)
+        throw _parseEx ("Unclosed JSON comment at end of input");
+      if (c == '*' && _peek () == '/')
+      {
+        m_nPos++;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Skip all whitespaces and comments.
+   *
+   * @return The next non-whitespace char (not consumed) or {@link #EOI}
+   * @throws JsonParseException
+   *         In case of an unclosed comment
+   */
+  private int _skipSpaces () throws JsonParseException
+  {
+    while (true)
+    {
+      final int c = _peek ();
+      switch (c)
+      {
+        case ' ':
+        case '\t':
+        case '\r':
+        case '\n':
+        case '\f':
+          m_nPos++;
+          break;
+        case '/':
+        {
+          // Keep the slash, in case it is no comment
+          m_nTokenStart = m_nPos;
+          m_nPos++;
+          final int c2 = _peek ();
+          m_nTokenStart = -1;
+          if (c2 != '*')
+          {
+            m_nPos--;
+            return c;
+          }
+          m_nPos++;
+          _skipComment ();
+          break;
+        }
+        default:
+          return c;
+      }
+    }
+  }
+
+  private void _push (final boolean bObject) throws JsonParseException
+  {
+    if (m_nDepth >= m_nMaxNestingDepth)
+      throw _parseEx ("The nesting level " +
+                      (m_nDepth + 1) +
+                      " exceeds the maximum nesting level of " +
+                      m_nMaxNestingDepth);
+    if (m_nDepth == m_aStack.length)
+    {
+      final boolean [] aNewStack = new boolean [m_aStack.length * 2];
+      System.arraycopy (m_aStack, 0, aNewStack, 0, m_nDepth);
+      m_aStack = aNewStack;
+    }
+    m_aStack[m_nDepth++] = bObject;
+    m_nState = bObject ? STATE_OBJECT_FIRST : STATE_ARRAY_FIRST;
+  }
+
+  private void _afterValue ()
+  {
+    if (m_nDepth == 0)
+      m_nState = STATE_ROOT_DONE;
+    else
+      m_nState = m_aStack[m_nDepth - 1] ? STATE_OBJECT_NEXT : STATE_ARRAY_NEXT;
+  }
+
+  @Nonnull
+  private EJsonToken _pop (@Nonnull final EJsonToken eToken)
+  {
+    m_nPos++;
+    m_nDepth--;
+    _afterValue ();
+    return eToken;
+  }
+
+  private void _readEscape () throws JsonParseException
+  {
+    // Backslash was already read
+    final int c = _read ();
+    switch (c)
+    {
+      case '"':
+      case '/':
+      case '\\':
+      case 'b':
+      case 'f':
+      case 'n':
+      case 'r':
+      case 't':
+        break;
+      case 'u':
+        for (int i = 0; i < 4; ++i)
+        {
+          final int cHex = _read ();
+          if (cHex == EOI || StringHelper.getHexValue ((char) cHex) < 0)
+            throw _parseEx ("Invalid hex character " + _getPrintableChar (cHex) + " provided!");
+        }
+        break;
+      case EOI:
+        throw _parseEx ("Unclosed JSON String at end of input");
+      default:
+        throw _parseEx ("Invalid JSON String escape character " + _getPrintableChar (c));
+    }
+  }
+
+  /**
+   * Read a quoted string. The quote char is the next char.
+   *
+   * @param eToken
+   *        The token type to return
+   * @return The passed token type
+   * @throws JsonParseException
+   *         In case of an invalid string
+   */
+  @Nonnull
+  private EJsonToken _readString (@Nonnull final EJsonToken eToken) throws JsonParseException
+  {
+    // The token includes the opening quote
+    m_nTokenStart = m_nPos;
+    final byte nQuote = m_aBuf[m_nPos++];
+    m_bStringHasEscapes = false;
+
+    while (true)
+    {
+      // Fast scan for the interesting chars
+      final byte [] aBuf = m_aBuf;
+      final int nLimit = m_nLimit;
+      int nPos = m_nPos;
+      while (nPos < nLimit)
+      {
+        final byte b = aBuf[nPos];
+        if (b == nQuote || b == '\\' || (b >= '\b' && b <= '\r' && b != 0x0b))
+          break;
+        nPos++;
+      }
+      m_nPos = nPos;
+
+      if (nPos == nLimit)
+      {
+        if (!_fill ())
+          throw _parseEx ("Unclosed JSON String at end of input");
+        continue;
+      }
+
+      final byte b = aBuf[nPos];
+      m_nPos++;
+      if (b == nQuote)
+      {
+        m_nTokenEnd = m_nPos - 1;
+        return eToken;
+      }
+      if (b == '\\')
+      {
+        m_bStringHasEscapes = true;
+        _readEscape ();
+      }
+      else
+        if (!m_bAllowSpecialCharsInStrings)
+          throw _parseEx ("Invalid JSON String character " + _getPrintableChar (b));
+    }
+  }
+
+  private int _readDigits ()
+  {
+    int ret = 0;
+    int c = _peek ();
+    while (c >= '0' && c <= '9')
+    {
+      m_nPos++;
+      ret++;
+      c = _peek ();
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private EJsonToken _readNumber () throws JsonParseException
+  {
+    m_nTokenStart = m_nPos;
+    int c = _peek ();
+    if (c == '-')
+    {
+      m_nPos++;
+      c = _peek ();
+    }
+
+    if (c == '0')
+      m_nPos++;
+    else
+      if (c >= '1' && c <= '9')
+        _readDigits ();
+      else
+        throw _parseEx ("Invalid JSON Number start character " + _getPrintableChar (c));
+
+    c = _peek ();
+    m_bNumberIsDecimal = c == '.';
+    if (m_bNumberIsDecimal)
+    {
+      m_nPos++;
+      if (_readDigits () == 0)
+        throw _parseEx ("Missing digits after decimal point in JSON Number");
+      c = _peek ();
+    }
+
+    m_bNumberHasExponent = c == 'e' || c == 'E';
+    m_bNumberHasPositiveExponent = false;
+    if (m_bNumberHasExponent)
+    {
+      m_nPos++;
+      c = _peek ();
+      // Any char other than "-" means the exponent is positive
+      m_bNumberHasPositiveExponent = c != '-';
+      if (c == '+' || c == '-')
+        m_nPos++;
+      if (_readDigits () == 0)
+        throw _parseEx ("Missing digits after exponent sign in JSON Number");
+    }
+    m_nTokenEnd = m_nPos;
+    return EJsonToken.NUMBER;
+  }
+
+  @Nonnull
+  private EJsonToken _readKeyword (@Nonnull final String sKeyword, @Nonnull final EJsonToken eToken) throws JsonParseException
+  {
+    for (int i = 0; i < sKeyword.length (); ++i)
+    {
+      final int c = _read ();
+      if (c != sKeyword.charAt (i))
+        throw _parseEx ("Expected " +
+                        _getPrintableChar (sKeyword.charAt (i)) +
+                        " but got " +
+                        _getPrintableChar (c) +
+                        " as part of JSON keyword \"" +
+                        sKeyword +
+                        "\"");
+    }
+    return eToken;
+  }
+
+  @Nonnull
+  private EJsonToken _readValue (final int c) throws JsonParseException
+  {
+    switch (c)
+    {
+      case CJson.OBJECT_START:
+        m_nPos++;
+        _push (true);
+        return EJsonToken.START_OBJECT;
+      case CJson.ARRAY_START:
+        m_nPos++;
+        _push (false);
+        return EJsonToken.START_ARRAY;
+      case '"':
+      case '\'':
+        _afterValue ();
+        return _readString (EJsonToken.STRING);
+      case '-':
+      case '0':
+      case '1':
+      case '2':
+      case '3':
+      case '4':
+      case '5':
+      case '6':
+      case '7':
+      case '8':
+      case '9':
+        _afterValue ();
+        return _readNumber ();
+      case 't':
+        _afterValue ();
+        return _readKeyword (CJson.KEYWORD_TRUE, EJsonToken.TRUE);
+      case 'f':
+        _afterValue ();
+        return _readKeyword (CJson.KEYWORD_FALSE, EJsonToken.FALSE);
+      case 'n':
+        _afterValue ();
+        return _readKeyword (CJson.KEYWORD_NULL, EJsonToken.NULL);
+      case EOI:
+        throw _parseEx ("Unexpected end of input in JSON");
+      default:
+        throw _parseEx ("Syntax error in JSON. Found " + _getPrintableChar (c));
+    }
+  }
+
+  @Nonnull
+  private EJsonToken _readName (final int c) throws JsonParseException
+  {
+    if (c != '"' && c != '\'')
+      throw _parseEx ("Invalid JSON String start character " + _getPrintableChar (c) + " - expected '\"'");
+    m_nState = STATE_OBJECT_COLON;
+    return _readString (EJsonToken.NAME);
+  }
+
+  @Nonnull
+  private EJsonToken _nextToken () throws JsonParseException
+  {
+    int c = _skipSpaces ();
+    m_nTokenOffset = m_nBufOffset + m_nPos;
+    switch (m_nState)
+    {
+      case STATE_ROOT_VALUE:
+        if (c == EOI)
+          return EJsonToken.END_OF_INPUT;
+        return _readValue (c);
+      case STATE_ROOT_DONE:
+        if (c == EOI)
+          return EJsonToken.END_OF_INPUT;
+        if (m_bCheckForEOI)
+          throw _parseEx ("Invalid character " + _getPrintableChar (c) + " after JSON root object");
+        return _readValue (c);
+      case STATE_OBJECT_FIRST:
+        if (c == CJson.OBJECT_END)
+          return _pop (EJsonToken.END_OBJECT);
+        return _readName (c);
+      case STATE_OBJECT_NAME:
+        if (c == CJson.OBJECT_END)
+          throw _parseEx ("Expected another element in JSON Object");
+        return _readName (c);
+      case STATE_OBJECT_COLON:
+        if (c != CJson.NAME_VALUE_SEPARATOR)
+          throw _parseEx ("Expected colon character in JSON Object but found " + _getPrintableChar (c));
+        m_nPos++;
+        c = _skipSpaces ();
+        m_nTokenOffset = m_nBufOffset + m_nPos;
+        return _readValue (c);
+      case STATE_OBJECT_NEXT:
+        if (c == CJson.OBJECT_END)
+          return _pop (EJsonToken.END_OBJECT);
+        if (c != CJson.ITEM_SEPARATOR)
+          throw _parseEx ("Unexpected character " + _getPrintableChar (c) + " in JSON Object");
+        m_nPos++;
+        m_nState = STATE_OBJECT_NAME;
+        return _nextToken ();
+      case STATE_ARRAY_FIRST:
+        if (c == CJson.ARRAY_END)
+          return _pop (EJsonToken.END_ARRAY);
+        return _readValue (c);
+      case STATE_ARRAY_VALUE:
+        if (c == CJson.ARRAY_END)
+          throw _parseEx ("Expected another element in JSON Array");
+        return _readValue (c);
+      case STATE_ARRAY_NEXT:
+        if (c == CJson.ARRAY_END)
+          return _pop (EJsonToken.END_ARRAY);
+        if (c != CJson.ITEM_SEPARATOR)
+          throw _parseEx ("Unexpected character " + _getPrintableChar (c) + " in JSON array");
+        m_nPos++;
+        m_nState = STATE_ARRAY_VALUE;
+        return _nextToken ();
+      default:
+        throw new IllegalStateException ("Unexpected state " + m_nState);
+    }
+  }
+
+  @Nonnull
+  public EJsonToken nextToken () throws JsonParseException
+  {
+    if (m_eToken == EJsonToken.END_OF_INPUT)
+      return EJsonToken.END_OF_INPUT;
+
+    // The content of the previous token is no longer needed
+    m_nTokenStart = -1;
+    m_sTokenString = null;
+    m_eToken = null;
+
+    final EJsonToken eToken = _nextToken ();
+    if (eToken == EJsonToken.END_OF_INPUT && m_nDepth > 0)
+      throw _parseEx ("Unexpected end of input in JSON");
+    m_eToken = eToken;
+    return eToken;
+  }
+
+  @Nullable
+  public final EJsonToken getCurrentToken ()
+  {
+    return m_eToken;
+  }
+
+  @Nonnegative
+  public final int getDepth ()
+  {
+    return m_nDepth;
+  }
+
+  @CheckForSigned
+  public final long getTokenOffset ()
+  {
+    return m_nTokenOffset;
+  }
+
+  private void _checkToken (@Nonnull final EJsonToken eExpected1, @Nullable final EJsonToken eExpected2)
+  {
+    if (m_eToken != eExpected1 && (eExpected2 == null || m_eToken != eExpected2))
+      throw new IllegalStateException ("The current token is " + m_eToken + " but expected " + eExpected1);
+  }
+
+  private static int _getHexValue (final byte b)
+  {
+    return StringHelper.getHexValue ((char) b);
+  }
+
+  @Nonnull
+  public String getString ()
+  {
+    _checkToken (EJsonToken.STRING, EJsonToken.NAME);
+
+    String ret = m_sTokenString;
+    if (ret == null)
+    {
+      final byte [] aBuf = m_aBuf;
+      final int nStart = m_nTokenStart + 1;
+      final int nEnd = m_nTokenEnd;
+      if (!m_bStringHasEscapes)
+        ret = new String (aBuf, nStart, nEnd - nStart, StandardCharsets.UTF_8);
+      else
+      {
+        final StringBuilder aSB = m_aSB;
+        aSB.setLength (0);
+        int nRunStart = nStart;
+        int nPos = nStart;
+        while (nPos < nEnd)
+        {
+          if (aBuf[nPos] != '\\')
+          {
+            nPos++;
+            continue;
+          }
+          if (nPos > nRunStart)
+            aSB.append (new String (aBuf, nRunStart, nPos - nRunStart, StandardCharsets.UTF_8));
+          // Escape sequences were validated while reading
+          final byte nEscaped = aBuf[nPos + 1];
+          nPos += 2;
+          switch (nEscaped)
+          {
+            case 'b':
+              aSB.append ('\b');
+              break;
+            case 'f':
+              aSB.append ('\f');
+              break;
+            case 'n':
+              aSB.append ('\n');
+              break;
+            case 'r':
+              aSB.append ('\r');
+              break;
+            case 't':
+              aSB.append ('\t');
+              break;
+            case 'u':
+              aSB.append ((char) (_getHexValue (aBuf[nPos]) << 12 |
+                                  _getHexValue (aBuf[nPos + 1]) << 8 |
+                                  _getHexValue (aBuf[nPos + 2]) << 4 |
+                                  _getHexValue (aBuf[nPos + 3])));
+              nPos += 4;
+              break;
+            default:
+              aSB.append ((char) nEscaped);
+              break;
+          }
+          nRunStart = nPos;
+        }
+        if (nEnd > nRunStart)
+          aSB.append (new String (aBuf, nRunStart, nEnd - nRunStart, StandardCharsets.UTF_8));
+        ret = aSB.toString ();
+      }
+      m_sTokenString = ret;
+    }
+    return ret;
+  }
+
+  @Nonnull
+  public String getOriginalString ()
+  {
+    _checkToken (EJsonToken.STRING, EJsonToken.NAME);
+    // Includes the quotes
+    return new String (m_aBuf, m_nTokenStart, m_nTokenEnd - m_nTokenStart + 1, StandardCharsets.UTF_8);
+  }
+
+  @Nonnull
+  public String getNumberText ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    String ret = m_sTokenString;
+    if (ret == null)
+    {
+      // Numbers are always ASCII
+      ret = new String (m_aBuf, m_nTokenStart, m_nTokenEnd - m_nTokenStart, StandardCharsets.ISO_8859_1);
+      m_sTokenString = ret;
+    }
+    return ret;
+  }
+
+  private boolean _isSmallInteger ()
+  {
+    if (m_bNumberIsDecimal || m_bNumberHasExponent)
+      return false;
+    final int nLen = m_nTokenEnd - m_nTokenStart;
+    return nLen <= MAX_LONG_DIGITS || (nLen == MAX_LONG_DIGITS + 1 && m_aBuf[m_nTokenStart] == '-');
+  }
+
+  private long _getSmallInteger ()
+  {
+    final byte [] aBuf = m_aBuf;
+    int nPos = m_nTokenStart;
+    final boolean bNeg = aBuf[nPos] == '-';
+    if (bNeg)
+      nPos++;
+    long ret = 0;
+    while (nPos < m_nTokenEnd)
+      ret = ret * 10 + (aBuf[nPos++] - '0');
+    return bNeg ? -ret : ret;
+  }
+
+  @Nonnull
+  public Number getNumber ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+
+    if (m_bNumberIsDecimal)
+    {
+      if (m_nTokenEnd - m_nTokenStart > 18 || m_bAlwaysUseBigNumber)
+        return new BigDecimal (getNumberText ());
+      return Double.valueOf (getNumberText ());
+    }
+
+    if (m_bNumberHasExponent)
+    {
+      // Required for correct "e" handling
+      if (m_bNumberHasPositiveExponent)
+        return new BigDecimal (getNumberText ()).toBigIntegerExact ();
+      return new BigDecimal (getNumberText ());
+    }
+
+    if (m_bAlwaysUseBigNumber)
+      return new BigInteger (getNumberText ());
+
+    if (_isSmallInteger ())
+    {
+      final long nValue = _getSmallInteger ();
+      if (nValue >= Integer.MIN_VALUE && nValue <= Integer.MAX_VALUE)
+        return Integer.valueOf ((int) nValue);
+      return Long.valueOf (nValue);
+    }
+
+    final BigInteger aBI = new BigInteger (getNumberText ());
+    if (aBI.bitLength () < Long.SIZE)
+      return Long.valueOf (aBI.longValue ());
+    return aBI;
+  }
+
+  public long getLong ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    if (_isSmallInteger ())
+      return _getSmallInteger ();
+    return getNumber ().longValue ();
+  }
+
+  public double getDouble ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    if (_isSmallInteger ())
+      return _getSmallInteger ();
+    return Double.parseDouble (getNumberText ());
+  }
+
+  @Nonnull
+  public BigDecimal getBigDecimal ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    return new BigDecimal (getNumberText ());
+  }
+
+  public boolean getBoolean ()
+  {
+    _checkToken (EJsonToken.TRUE, EJsonToken.FALSE);
+    return m_eToken == EJsonToken.TRUE;
+  }
+
+  public void skipChildren () throws JsonParseException
+  {
+    if (m_eToken != null && m_eToken.isStructureStart ())
+    {
+      final int nTargetDepth = m_nDepth - 1;
+      while (m_nDepth > nTargetDepth)
+        nextToken ();
+    }
+  }
+
+  public void close () throws IOException
+  {
+    if (m_aIS != null)
+      m_aIS.close ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Token", m_eToken)
+                                       .append ("TokenOffset", m_nTokenOffset)
+                                       .append ("Depth", m_nDepth)
+                                       .append ("BufferSize", m_aBuf.length)
+                                       .append ("AlwaysUseBigNumber", m_bAlwaysUseBigNumber)
+                                       .append ("AllowSpecialCharsInStrings", m_bAllowSpecialCharsInStrings)
+                                       .append ("CheckForEOI", m_bCheckForEOI)
+                                       .append ("MaxNestingDepth", m_nMaxNestingDepth)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser.handler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.NonBlockingStack;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.json.CompactJsonArray;
+import com.helger.json.CompactJsonBuilder;
+import com.helger.json.CompactJsonObject;
+import com.helger.json.IJson;
+import com.helger.json.JsonValue;
+
+/**
+ * This {@link IJsonParserHandler} constructs the whole JSON tree while parsing
+ * it, using the memory-lean, read-only {@link CompactJsonObject} and
+ * {@link CompactJsonArray} representations. Object keys are deduplicated per
+ * parse and can optionally be interned, so that they are shared across
+ * documents. The resulting JSON can be retrieved via {@link #getJson()}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public class CompactJsonParserHandler implements IJsonParserHandler
+{
+  public static final boolean DEFAULT_INTERN_KEYS = false;
+
+  private final boolean m_bInternKeys;
+  private final ICommonsMap <String, String> m_aKeys = new CommonsHashMap <> ();
+  private final NonBlockingStack <CompactJsonBuilder> m_aStack = new NonBlockingStack <> ();
+  private final NonBlockingStack <String> m_aObjectName = new NonBlockingStack <> ();
+  private IJson m_aJson;
+
+  public CompactJsonParserHandler ()
+  {
+    this (DEFAULT_INTERN_KEYS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param bInternKeys
+   *        <code>true</code> to intern all object keys via
+   *        {@link String#intern()}. This is helpful if many documents with the
+   *        same keys are kept in memory.
+   */
+  public CompactJsonParserHandler (final boolean bInternKeys)
+  {
+    m_bInternKeys = bInternKeys;
+  }
+
+  public final boolean isInternKeys ()
+  {
+    return m_bInternKeys;
+  }
+
+  @Nonnull
+  private String _getKey (@Nonnull final String sName)
+  {
+    return m_aKeys.computeIfAbsent (sName, k -> m_bInternKeys ? k.intern () : k);
+  }
+
+  @Nullable
+  private String _popName (@Nonnull final CompactJsonBuilder aParent)
+  {
+    return aParent.isObject () ? m_aObjectName.pop () : null;
+  }
+
+  private void _addSimple (@Nonnull final IJson aValue)
+  {
+    if (m_aStack.isEmpty ())
+      m_aJson = aValue;
+    else
+    {
+      final CompactJsonBuilder aParent = m_aStack.peek ();
+      aParent.add (_popName (aParent), aValue);
+    }
+  }
+
+  public void onWhitespace (@Nonnull @Nonempty final String sWhitespace)
+  {}
+
+  public void onComment (@Nonnull final String sComment)
+  {}
+
+  public void onString (@Nonnull final String sString, @Nonnull final String sUnescaped)
+  {
+    if (m_aStack.isEmpty ())
+      m_aJson = JsonValue.create (sUnescaped);
+    else
+    {
+      final CompactJsonBuilder aParent = m_aStack.peek ();
+      aParent.addString (_popName (aParent), sUnescaped);
+    }
+  }
+
+  public void onNumber (@Nonnull final String sNumber, @Nonnull final Number aNumber)
+  {
+    if (m_aStack.isEmpty ())
+      m_aJson = JsonValue.create (aNumber);
+    else
+    {
+      final CompactJsonBuilder aParent = m_aStack.peek ();
+      aParent.addNumber (_popName (aParent), aNumber);
+    }
+  }
+
+  public void onFalse ()
+  {
+    _addSimple (JsonValue.FALSE);
+  }
+
+  public void onTrue ()
+  {
+    _addSimple (JsonValue.TRUE);
+  }
+
+  public void onNull ()
+  {
+    _addSimple (JsonValue.NULL);
+  }
+
+  public void onArrayStart ()
+  {
+    m_aStack.push (CompactJsonBuilder.forArray ());
+  }
+
+  public void onArrayNextElement ()
+  {}
+
+  public void onArrayEnd ()
+  {
+    _addSimple (m_aStack.pop ().build ());
+  }
+
+  public void onObjectStart ()
+  {
+    m_aStack.push (CompactJsonBuilder.forObject ());
+  }
+
+  public void onObjectName (@Nonnull final String sString, @Nonnull final String sName)
+  {
+    m_aObjectName.push (_getKey (sName));
+  }
+
+  public void onObjectColon ()
+  {}
+
+  public void onObjectNextElement ()
+  {}
+
+  public void onObjectEnd ()
+  {
+    _addSimple (m_aStack.pop ().build ());
+  }
+
+  /**
+   * @return The parsed JSON or <code>null</code> if nothing was parsed yet, or
+   *         if the root collection is not yet complete.
+   */
+  @Nullable
+  public IJson getJson ()
+  {
+    return m_aJson;
+  }
+}
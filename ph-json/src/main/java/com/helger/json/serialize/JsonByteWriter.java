@@ -0,0 +1,557 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.CJson;
+import com.helger.json.IJson;
+import com.helger.json.IJsonCollection;
+import com.helger.json.IJsonValue;
+import com.helger.json.valueserializer.IJsonValueSerializer;
+import com.helger.json.valueserializer.JsonValueSerializerConstant;
+import com.helger.json.valueserializer.JsonValueSerializerEscaped;
+import com.helger.json.valueserializer.JsonValueSerializerToString;
+
+/**
+ * Write {@link IJson} objects directly as UTF-8 bytes, without an intermediate
+ * {@link java.io.Writer}. The output is identical to the output of
+ * {@link JsonWriter} with the same settings and the UTF-8 charset.<br>
+ * The bytes are collected in an internal buffer that is reused for all write
+ * operations of this instance. When writing to an {@link OutputStream}, the
+ * buffer is flushed whenever it is full, but at least
+ * {@link #FLUSH_THRESHOLD} bytes are collected before. After each write
+ * operation a buffer that grew beyond {@link #MAX_RETAINED_BUFFER_SIZE} bytes
+ * is released again.<br>
+ * Strings are escaped in bounded chunks with a lookup table, and the encoded
+ * bytes of object names are cached per instance.<br>
+ * Instances of this class are not thread-safe, but they are meant to be reused
+ * (e.g. per thread).
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public class JsonByteWriter
+{
+  /** The minimum number of bytes buffered before an OutputStream is written */
+  public static final int FLUSH_THRESHOLD = 8 * 1024;
+  /** The maximum number of object names that are cached */
+  public static final int MAX_CACHED_NAMES = 1024;
+  /** Only object names up to this length are cached */
+  public static final int MAX_CACHED_NAME_LENGTH = 64;
+  /** The maximum buffer size that is kept between write operations */
+  public static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+  // The number of chars escaped at once
+  private static final int STRING_CHUNK_SIZE = 1024;
+  // Maximum number of UTF-8 bytes created for a single char
+  private static final int MAX_BYTES_PER_CHAR = 6;
+  // Same as in java.util.ArrayList
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  // The escape sequence for each ASCII char or null if no escaping is needed
+  // - same chars as in JsonEscapeHelper
+  private static final byte [] [] ASCII_ESCAPES = new byte [128] [];
+  static
+  {
+    ASCII_ESCAPES['\0'] = "\\u0000".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['"'] = "\\\"".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['\\'] = "\\\\".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['\b'] = "\\b".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['\t'] = "\\t".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['\n'] = "\\n".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['\r'] = "\\r".getBytes (StandardCharsets.ISO_8859_1);
+    ASCII_ESCAPES['\f'] = "\\f".getBytes (StandardCharsets.ISO_8859_1);
+  }
+
+  private final IJsonWriterSettings m_aSettings;
+  private final boolean m_bIndentEnabled;
+  private final byte [] m_aNewline;
+  private final byte [] m_aIndent;
+  private final ICommonsMap <String, byte []> m_aNameCache = new CommonsHashMap <> ();
+  private byte [] m_aBuf = new byte [INITIAL_BUFFER_SIZE];
+  private int m_nLen = 0;
+  private OutputStream m_aOS;
+  // Lazily created for values with custom serializers
+  private NonBlockingStringWriter m_aFallbackWriter;
+
+  public JsonByteWriter ()
+  {
+    this (JsonWriterSettings.DEFAULT_SETTINGS);
+  }
+
+  public JsonByteWriter (@Nonnull final IJsonWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (aSettings, "Settings");
+    m_aSettings = aSettings.getClone ();
+    m_bIndentEnabled = m_aSettings.isIdentEnabled ();
+    m_aNewline = m_aSettings.getNewlineString ().getBytes (StandardCharsets.UTF_8);
+    m_aIndent = m_aSettings.getIndentString ().getBytes (StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return A clone of the JSON writer settings to be used. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public IJsonWriterSettings getSettings ()
+  {
+    return m_aSettings.getClone ();
+  }
+
+  /**
+   * @return The number of object names currently cached.
+   */
+  @Nonnegative
+  public int getCachedNameCount ()
+  {
+    return m_aNameCache.size ();
+  }
+
+  private void _flushToStream () throws IOException
+  {
+    if (m_aOS != null && m_nLen > 0)
+    {
+      m_aOS.write (m_aBuf, 0, m_nLen);
+      m_nLen = 0;
+    }
+  }
+
+  private void _ensureCapacity (final int nAdditional) throws IOException
+  {
+    if (m_nLen + nAdditional > m_aBuf.length)
+    {
+      if (m_aOS != null && m_aBuf.length >= FLUSH_THRESHOLD)
+      {
+        _flushToStream ();
+        if (nAdditional <= m_aBuf.length)
+          return;
+      }
+      final long nMinSize = (long) m_nLen + nAdditional;
+      if (nMinSize > MAX_ARRAY_SIZE)
+        throw new OutOfMemoryError ("Required JSON buffer size " + nMinSize + " is too large");
+      m_aBuf = Arrays.copyOf (m_aBuf, (int) Math.min (Math.max ((long) m_aBuf.length * 2, nMinSize), MAX_ARRAY_SIZE));
+    }
+  }
+
+  private void _releaseBuffer ()
+  {
+    if (m_aBuf.length > MAX_RETAINED_BUFFER_SIZE)
+      m_aBuf = new byte [INITIAL_BUFFER_SIZE];
+  }
+
+  private void _writeByte (final int b) throws IOException
+  {
+    _ensureCapacity (1);
+    m_aBuf[m_nLen++] = (byte) b;
+  }
+
+  private void _writeBytes (@Nonnull final byte [] aBytes) throws IOException
+  {
+    _ensureCapacity (aBytes.length);
+    System.arraycopy (aBytes, 0, m_aBuf, m_nLen, aBytes.length);
+    m_nLen += aBytes.length;
+  }
+
+  private void _writeIndent (final int nIndentLevel) throws IOException
+  {
+    for (int i = 0; i < nIndentLevel; ++i)
+      _writeBytes (m_aIndent);
+  }
+
+  /**
+   * Write the UTF-8 representation of the provided string, optionally escaped.
+   * Runs of ASCII chars that need no escaping are copied without any lookup
+   * apart from the escape table. The string is processed in chunks of
+   * {@link #STRING_CHUNK_SIZE} chars, so that the buffer can be flushed in
+   * between.
+   *
+   * @param s
+   *        The string to write. May not be <code>null</code>.
+   * @param bEscape
+   *        <code>true</code> to escape the string
+   */
+  private void _writeString (@Nonnull final String s, final boolean bEscape) throws IOException
+  {
+    final int nLen = s.length ();
+    int i = 0;
+    while (i < nLen)
+      i = _writeStringChunk (s, i, bEscape);
+  }
+
+  /**
+   * Write a single chunk of at most {@link #STRING_CHUNK_SIZE} chars.
+   *
+   * @param s
+   *        The string to write. May not be <code>null</code>.
+   * @param nStart
+   *        The index of the first char to write.
+   * @param bEscape
+   *        <code>true</code> to escape the string
+   * @return The index of the first char not written.
+   */
+  private int _writeStringChunk (@Nonnull final String s, final int nStart, final boolean bEscape) throws IOException
+  {
+    final int nLen = s.length ();
+    final int nEnd = Math.min (nLen, nStart + STRING_CHUNK_SIZE);
+    // Worst case: 3 bytes per char or 6 bytes per escaped char
+    _ensureCapacity ((nEnd - nStart) * MAX_BYTES_PER_CHAR);
+
+    final byte [] aBuf = m_aBuf;
+    int nPos = m_nLen;
+    int i = nStart;
+    for (; i < nEnd; ++i)
+    {
+      final char c = s.charAt (i);
+      if (c < 0x80)
+      {
+        final byte [] aEscape = bEscape ? ASCII_ESCAPES[c] : null;
+        if (aEscape == null)
+          aBuf[nPos++] = (byte) c;
+        else
+          for (final byte b : aEscape)
+            aBuf[nPos++] = b;
+      }
+      else
+        if (c < 0x800)
+        {
+          aBuf[nPos++] = (byte) (0xc0 | (c >> 6));
+          aBuf[nPos++] = (byte) (0x80 | (c & 0x3f));
+        }
+        else
+          if (Character.isSurrogate (c))
+          {
+            final char cLow = i + 1 < nLen ? s.charAt (i + 1) : 0;
+            if (Character.isHighSurrogate (c) && Character.isLowSurrogate (cLow))
+            {
+              final int nCP = Character.toCodePoint (c, cLow);
+              aBuf[nPos++] = (byte) (0xf0 | (nCP >> 18));
+              aBuf[nPos++] = (byte) (0x80 | ((nCP >> 12) & 0x3f));
+              aBuf[nPos++] = (byte) (0x80 | ((nCP >> 6) & 0x3f));
+              aBuf[nPos++] = (byte) (0x80 | (nCP & 0x3f));
+              ++i;
+            }
+            else
+            {
+              // Malformed - same replacement as the UTF-8 encoder
+              aBuf[nPos++] = '?';
+            }
+          }
+          else
+          {
+            aBuf[nPos++] = (byte) (0xe0 | (c >> 12));
+            aBuf[nPos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            aBuf[nPos++] = (byte) (0x80 | (c & 0x3f));
+          }
+    }
+    m_nLen = nPos;
+    // May be greater than nEnd if the chunk ends with a surrogate pair
+    return i;
+  }
+
+  private void _writeQuotedString (@Nonnull final String s) throws IOException
+  {
+    _writeByte ('"');
+    _writeString (s, true);
+    _writeByte ('"');
+  }
+
+  private void _writeLong (final long nValue) throws IOException
+  {
+    if (nValue == Long.MIN_VALUE)
+    {
+      _writeString (Long.toString (nValue), false);
+      return;
+    }
+
+    // Max 19 digits plus sign
+    _ensureCapacity (20);
+    long nRest = nValue;
+    if (nRest < 0)
+    {
+      m_aBuf[m_nLen++] = '-';
+      nRest = -nRest;
+    }
+    final int nStart = m_nLen;
+    do
+    {
+      m_aBuf[m_nLen++] = (byte) ('0' + (int) (nRest % 10));
+      nRest /= 10;
+    } while (nRest != 0);
+
+    // Reverse the digits
+    int nLeft = nStart;
+    int nRight = m_nLen - 1;
+    while (nLeft < nRight)
+    {
+      final byte b = m_aBuf[nLeft];
+      m_aBuf[nLeft++] = m_aBuf[nRight];
+      m_aBuf[nRight--] = b;
+    }
+  }
+
+  private void _writeName (@Nonnull final String sName) throws IOException
+  {
+    final byte [] aEncoded = m_aNameCache.get (sName);
+    if (aEncoded == null)
+    {
+      final boolean bCache = sName.length () <= MAX_CACHED_NAME_LENGTH && m_aNameCache.size () < MAX_CACHED_NAMES;
+      // Encode name including the separator. For cachable names ensure the
+      // capacity upfront, so that the buffer is not flushed in between
+      if (bCache)
+        _ensureCapacity (sName.length () * MAX_BYTES_PER_CHAR + 3);
+      final int nStart = m_nLen;
+      if (m_aSettings.isQuoteNames ())
+        _writeQuotedString (sName);
+      else
+        _writeString (sName, true);
+      _writeByte (CJson.NAME_VALUE_SEPARATOR);
+
+      if (bCache && m_nLen > nStart)
+        m_aNameCache.put (sName, Arrays.copyOfRange (m_aBuf, nStart, m_nLen));
+    }
+    else
+      _writeBytes (aEncoded);
+  }
+
+  private void _writeValue (@Nonnull final IJsonValue aValue) throws IOException
+  {
+    final IJsonValueSerializer aSerializer = aValue.getValueSerializer ();
+    if (aSerializer instanceof JsonValueSerializerConstant)
+      _writeString (((JsonValueSerializerConstant) aSerializer).getValue (), false);
+    else
+    {
+      final Object aRealValue = aValue.getValue ();
+      if (aSerializer == JsonValueSerializerEscaped.getInstance ())
+        _writeQuotedString (String.valueOf (aRealValue));
+      else
+        if (aSerializer == JsonValueSerializerToString.getInstance ())
+        {
+          if (aRealValue instanceof Integer || aRealValue instanceof Long)
+            _writeLong (((Number) aRealValue).longValue ());
+          else
+            _writeString (String.valueOf (aRealValue), false);
+        }
+        else
+        {
+          // Custom serializer
+          if (m_aFallbackWriter == null)
+            m_aFallbackWriter = new NonBlockingStringWriter ();
+          else
+            m_aFallbackWriter.reset ();
+          aValue.appendAsJsonString (m_aFallbackWriter);
+          final String sSerialized = m_aFallbackWriter.getAsString ();
+          // Don't retain huge fallback buffers
+          if (sSerialized.length () > MAX_RETAINED_BUFFER_SIZE)
+            m_aFallbackWriter = null;
+          _writeString (sSerialized, false);
+        }
+    }
+  }
+
+  private void _writeJson (@Nonnull final IJson aJson, final int nIndentLevel) throws IOException
+  {
+    if (aJson.isValue ())
+    {
+      _writeValue ((IJsonValue) aJson);
+      return;
+    }
+
+    // Complex (array or object)
+    final boolean bIsIndentEnabled = m_bIndentEnabled && ((IJsonCollection) aJson).isNotEmpty ();
+    final boolean bIsArray = aJson.isArray ();
+    _writeByte (bIsArray ? CJson.ARRAY_START : CJson.OBJECT_START);
+    if (bIsIndentEnabled)
+      _writeBytes (m_aNewline);
+
+    boolean bFirstChild = true;
+    if (bIsArray)
+    {
+      for (final IJson aChild : aJson.getAsArray ())
+      {
+        if (bFirstChild)
+          bFirstChild = false;
+        else
+        {
+          _writeByte (CJson.ITEM_SEPARATOR);
+          if (bIsIndentEnabled)
+            _writeBytes (m_aNewline);
+        }
+        if (bIsIndentEnabled)
+          _writeIndent (nIndentLevel + 1);
+        _writeJson (aChild, nIndentLevel + 1);
+      }
+    }
+    else
+    {
+      for (final Map.Entry <String, IJson> aEntry : aJson.getAsObject ())
+      {
+        if (bFirstChild)
+          bFirstChild = false;
+        else
+        {
+          _writeByte (CJson.ITEM_SEPARATOR);
+          if (bIsIndentEnabled)
+            _writeBytes (m_aNewline);
+        }
+        if (bIsIndentEnabled)
+          _writeIndent (nIndentLevel + 1);
+        _writeName (aEntry.getKey ());
+        _writeJson (aEntry.getValue (), nIndentLevel + 1);
+      }
+    }
+
+    // Newline after the last entry
+    if (bIsIndentEnabled)
+    {
+      _writeBytes (m_aNewline);
+      _writeIndent (nIndentLevel);
+    }
+    _writeByte (bIsArray ? CJson.ARRAY_END : CJson.OBJECT_END);
+  }
+
+  private void _write (@Nonnull final IJson aJson) throws IOException
+  {
+    ValueEnforcer.notNull (aJson, "Json");
+
+    _writeJson (aJson, 0);
+    if (m_aSettings.isWriteNewlineAtEnd ())
+      _writeBytes (m_aNewline);
+  }
+
+  /**
+   * Write the JSON as UTF-8 to the provided OutputStream, and leave the
+   * OutputStream open.
+   *
+   * @param aJson
+   *        The JSON to be written. May not be <code>null</code>.
+   * @param aOS
+   *        The OutputStream to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         On IO error
+   */
+  public void writeToStream (@Nonnull final IJson aJson, @Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    m_nLen = 0;
+    m_aOS = aOS;
+    try
+    {
+      _write (aJson);
+      _flushToStream ();
+      aOS.flush ();
+    }
+    finally
+    {
+      m_aOS = null;
+      m_nLen = 0;
+      _releaseBuffer ();
+    }
+  }
+
+  /**
+   * Write the JSON as UTF-8 into the internal buffer. The result can be
+   * accessed via {@link #getBuffer()} and {@link #getLength()} until the next
+   * write operation. A buffer grown beyond {@link #MAX_RETAINED_BUFFER_SIZE}
+   * bytes is only released by the next write operation.
+   *
+   * @param aJson
+   *        The JSON to be written. May not be <code>null</code>.
+   * @return The number of bytes written. Always &ge; 0.
+   */
+  @Nonnegative
+  public int writeToBuffer (@Nonnull final IJson aJson)
+  {
+    m_nLen = 0;
+    _releaseBuffer ();
+    try
+    {
+      _write (aJson);
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Writing to a byte array should never throw IOException!", ex);
+    }
+    return m_nLen;
+  }
+
+  /**
+   * @return The internal buffer with the result of the last
+   *         {@link #writeToBuffer(IJson)} call. Only the first
+   *         {@link #getLength()} bytes are relevant. Never <code>null</code>.
+   */
+  @Nonnull
+  public byte [] getBuffer ()
+  {
+    return m_aBuf;
+  }
+
+  /**
+   * @return The number of relevant bytes in {@link #getBuffer()}.
+   */
+  @Nonnegative
+  public int getLength ()
+  {
+    return m_nLen;
+  }
+
+  /**
+   * Write the JSON as UTF-8 to a new byte array.
+   *
+   * @param aJson
+   *        The JSON to be written. May not be <code>null</code>.
+   * @return The created byte array and never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] writeAsByteArray (@Nonnull final IJson aJson)
+  {
+    final int nLen = writeToBuffer (aJson);
+    final byte [] ret = Arrays.copyOf (m_aBuf, nLen);
+    m_nLen = 0;
+    _releaseBuffer ();
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Settings", m_aSettings)
+                                       .append ("CachedNames", m_aNameCache.size ())
+                                       .append ("BufferSize", m_aBuf.length)
+                                       .getToString ();
+  }
+}
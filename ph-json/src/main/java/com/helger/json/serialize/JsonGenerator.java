@@ -0,0 +1,632 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.CJson;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonObject;
+import com.helger.json.IJsonValue;
+import com.helger.json.convert.JsonConverter;
+import com.helger.json.convert.JsonEscapeHelper;
+import com.helger.json.valueserializer.JsonValueSerializerEscaped;
+import com.helger.json.visit.IJsonVisitorCallback;
+import com.helger.json.visit.JsonVisitor;
+
+/**
+ * A streaming JSON generator, that writes JSON incrementally without the need
+ * to build the whole {@link IJson} tree upfront. The output is identical to the
+ * output of {@link JsonWriter} with the same settings.<br>
+ * The created text is collected in an internal buffer that is written and
+ * flushed to the underlying {@link Writer}, whenever it exceeds the flush chunk
+ * size (see {@link #setFlushChunkSize(int)}). That way a slow consumer
+ * naturally slows down the producer.<br>
+ * Example:
+ *
+ * <pre>
+ * try (JsonGenerator aGen = new JsonGenerator (aWriter))
+ * {
+ *   aGen.writeStartObject ();
+ *   aGen.writeName ("items");
+ *   aGen.writeArray (aItemIterator, MyItem::getAsJson);
+ *   aGen.writeEndObject ();
+ * }
+ * </pre>
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public class JsonGenerator implements Closeable, Flushable
+{
+  /** The default number of chars after which the buffer is flushed */
+  public static final int DEFAULT_FLUSH_CHUNK_SIZE = 8 * 1024;
+
+  private static final byte CONTEXT_ARRAY = 0;
+  private static final byte CONTEXT_OBJECT = 1;
+
+  private final Writer m_aWriter;
+  private final IJsonWriterSettings m_aSettings;
+  private final boolean m_bIndentEnabled;
+  private final NonBlockingStringWriter m_aBuffer = new NonBlockingStringWriter (DEFAULT_FLUSH_CHUNK_SIZE);
+  private int m_nFlushChunkSize = DEFAULT_FLUSH_CHUNK_SIZE;
+  private char [] m_aChunk;
+
+  // The nesting contexts
+  private byte [] m_aContext = new byte [16];
+  // Whether the respective nesting context already has children
+  private boolean [] m_aHasChildren = new boolean [16];
+  private int m_nDepth = 0;
+  // For objects only: true if the name was written, but not the value
+  private boolean m_bNameWritten = false;
+  private boolean m_bRootWritten = false;
+  private boolean m_bClosed = false;
+
+  public JsonGenerator (@Nonnull @WillCloseWhenClosed final Writer aWriter)
+  {
+    this (aWriter, JsonWriterSettings.DEFAULT_SETTINGS);
+  }
+
+  public JsonGenerator (@Nonnull @WillCloseWhenClosed final Writer aWriter, @Nonnull final IJsonWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    ValueEnforcer.notNull (aSettings, "Settings");
+    m_aWriter = aWriter;
+    m_aSettings = aSettings.getClone ();
+    m_bIndentEnabled = m_aSettings.isIdentEnabled ();
+  }
+
+  public JsonGenerator (@Nonnull @WillCloseWhenClosed final OutputStream aOS,
+                        @Nonnull final Charset aCharset,
+                        @Nonnull final IJsonWriterSettings aSettings)
+  {
+    this (new OutputStreamWriter (ValueEnforcer.notNull (aOS, "OutputStream"), ValueEnforcer.notNull (aCharset, "Charset")),
+          aSettings);
+  }
+
+  /**
+   * @return The number of chars after which the internal buffer is written to
+   *         the underlying writer. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getFlushChunkSize ()
+  {
+    return m_nFlushChunkSize;
+  }
+
+  /**
+   * Set the number of chars after which the internal buffer is written to and
+   * flushed on the underlying writer.
+   *
+   * @param nFlushChunkSize
+   *        The chunk size in chars. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final JsonGenerator setFlushChunkSize (@Nonnegative final int nFlushChunkSize)
+  {
+    ValueEnforcer.isGT0 (nFlushChunkSize, "FlushChunkSize");
+    m_nFlushChunkSize = nFlushChunkSize;
+    return this;
+  }
+
+  /**
+   * @return The current nesting depth. 0 means on root level.
+   */
+  @Nonnegative
+  public final int getDepth ()
+  {
+    return m_nDepth;
+  }
+
+  /**
+   * @return <code>true</code> if a complete JSON root value was written.
+   */
+  public final boolean isComplete ()
+  {
+    return m_bRootWritten && m_nDepth == 0;
+  }
+
+  private void _writeBufferToWriter () throws IOException
+  {
+    final StringBuilder aSB = m_aBuffer.directGetStringBuilder ();
+    final int nLen = aSB.length ();
+    if (nLen > 0)
+    {
+      if (m_aChunk == null || m_aChunk.length < Math.min (nLen, m_nFlushChunkSize))
+        m_aChunk = new char [Math.max (m_nFlushChunkSize, 1024)];
+      int nOfs = 0;
+      while (nOfs < nLen)
+      {
+        final int nPart = Math.min (nLen - nOfs, m_aChunk.length);
+        aSB.getChars (nOfs, nOfs + nPart, m_aChunk, 0);
+        m_aWriter.write (m_aChunk, 0, nPart);
+        nOfs += nPart;
+      }
+      m_aBuffer.reset ();
+    }
+  }
+
+  private void _flushIfNeeded () throws IOException
+  {
+    if (m_aBuffer.size () >= m_nFlushChunkSize)
+    {
+      _writeBufferToWriter ();
+      m_aWriter.flush ();
+    }
+  }
+
+  private void _writeIndent (final int nLevel)
+  {
+    for (int i = 0; i < nLevel; ++i)
+      m_aBuffer.write (m_aSettings.getIndentString ());
+  }
+
+  private void _ensureOpen ()
+  {
+    if (m_bClosed)
+      throw new IllegalStateException ("The JSON generator is already closed");
+  }
+
+  /**
+   * Called before any value (including the start of arrays and objects) is
+   * written.
+   */
+  private void _beforeValue ()
+  {
+    _ensureOpen ();
+    if (m_nDepth == 0)
+    {
+      if (m_bRootWritten)
+        throw new IllegalStateException ("A JSON root value was already written");
+      m_bRootWritten = true;
+      return;
+    }
+
+    if (m_aContext[m_nDepth - 1] == CONTEXT_OBJECT)
+    {
+      if (!m_bNameWritten)
+        throw new IllegalStateException ("Inside a JSON object a name must be written before the value");
+      m_bNameWritten = false;
+    }
+    else
+      _beforeElement ();
+  }
+
+  /**
+   * Called before an array element or an object name is written.
+   */
+  private void _beforeElement ()
+  {
+    final int nIndex = m_nDepth - 1;
+    if (m_aHasChildren[nIndex])
+      m_aBuffer.write (CJson.ITEM_SEPARATOR);
+    else
+      m_aHasChildren[nIndex] = true;
+
+    if (m_bIndentEnabled)
+    {
+      m_aBuffer.write (m_aSettings.getNewlineString ());
+      _writeIndent (m_nDepth);
+    }
+  }
+
+  private void _push (final byte nContext)
+  {
+    if (m_nDepth == m_aContext.length)
+    {
+      final int nNewLen = m_nDepth * 2;
+      final byte [] aNewContext = new byte [nNewLen];
+      System.arraycopy (m_aContext, 0, aNewContext, 0, m_nDepth);
+      m_aContext = aNewContext;
+      final boolean [] aNewHasChildren = new boolean [nNewLen];
+      System.arraycopy (m_aHasChildren, 0, aNewHasChildren, 0, m_nDepth);
+      m_aHasChildren = aNewHasChildren;
+    }
+    m_aContext[m_nDepth] = nContext;
+    m_aHasChildren[m_nDepth] = false;
+    m_nDepth++;
+  }
+
+  private void _pop (final byte nContext, final char cEnd) throws IOException
+  {
+    _ensureOpen ();
+    if (m_nDepth == 0 || m_aContext[m_nDepth - 1] != nContext)
+      throw new IllegalStateException ("No JSON " + (nContext == CONTEXT_ARRAY ? "array" : "object") + " is open");
+    if (m_bNameWritten)
+      throw new IllegalStateException ("The value for the last JSON object name is missing");
+
+    m_nDepth--;
+    if (m_bIndentEnabled && m_aHasChildren[m_nDepth])
+    {
+      m_aBuffer.write (m_aSettings.getNewlineString ());
+      _writeIndent (m_nDepth);
+    }
+    m_aBuffer.write (cEnd);
+    _flushIfNeeded ();
+  }
+
+  @Nonnull
+  public JsonGenerator writeStartArray ()
+  {
+    _beforeValue ();
+    m_aBuffer.write (CJson.ARRAY_START);
+    _push (CONTEXT_ARRAY);
+    return this;
+  }
+
+  @Nonnull
+  public JsonGenerator writeEndArray () throws IOException
+  {
+    _pop (CONTEXT_ARRAY, CJson.ARRAY_END);
+    return this;
+  }
+
+  @Nonnull
+  public JsonGenerator writeStartObject ()
+  {
+    _beforeValue ();
+    m_aBuffer.write (CJson.OBJECT_START);
+    _push (CONTEXT_OBJECT);
+    return this;
+  }
+
+  @Nonnull
+  public JsonGenerator writeEndObject () throws IOException
+  {
+    _pop (CONTEXT_OBJECT, CJson.OBJECT_END);
+    return this;
+  }
+
+  /**
+   * Write the name of the next object element. Must be followed by a value.
+   *
+   * @param sName
+   *        The name to write. May not be <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         On IO error
+   */
+  @Nonnull
+  public JsonGenerator writeName (@Nonnull final String sName) throws IOException
+  {
+    ValueEnforcer.notNull (sName, "Name");
+    _ensureOpen ();
+    if (m_nDepth == 0 || m_aContext[m_nDepth - 1] != CONTEXT_OBJECT)
+      throw new IllegalStateException ("A JSON name can only be written inside an object");
+    if (m_bNameWritten)
+      throw new IllegalStateException ("The value for the last JSON object name is missing");
+
+    _beforeElement ();
+    if (m_aSettings.isQuoteNames ())
+      JsonValueSerializerEscaped.appendEscapedJsonString (sName, m_aBuffer);
+    else
+      JsonEscapeHelper.jsonEscapeToWriter (sName, m_aBuffer);
+    m_aBuffer.write (CJson.NAME_VALUE_SEPARATOR);
+    m_bNameWritten = true;
+    return this;
+  }
+
+  @Nonnull
+  private JsonGenerator _writeRaw (@Nonnull final String sValue) throws IOException
+  {
+    _beforeValue ();
+    m_aBuffer.write (sValue);
+    _flushIfNeeded ();
+    return this;
+  }
+
+  @Nonnull
+  public JsonGenerator writeNull () throws IOException
+  {
+    return _writeRaw (CJson.KEYWORD_NULL);
+  }
+
+  @Nonnull
+  public JsonGenerator writeValue (final boolean bValue) throws IOException
+  {
+    return _writeRaw (bValue ? CJson.KEYWORD_TRUE : CJson.KEYWORD_FALSE);
+  }
+
+  @Nonnull
+  public JsonGenerator writeValue (final int nValue) throws IOException
+  {
+    return _writeRaw (Integer.toString (nValue));
+  }
+
+  @Nonnull
+  public JsonGenerator writeValue (final long nValue) throws IOException
+  {
+    return _writeRaw (Long.toString (nValue));
+  }
+
+  @Nonnull
+  public JsonGenerator writeValue (final double dValue) throws IOException
+  {
+    return _writeRaw (Double.toString (dValue));
+  }
+
+  @Nonnull
+  public JsonGenerator writeValue (@Nonnull final BigInteger aValue) throws IOException
+  {
+    ValueEnforcer.notNull (aValue, "Value");
+    return _writeRaw (aValue.toString ());
+  }
+
+  @Nonnull
+  public JsonGenerator writeValue (@Nonnull final BigDecimal aValue) throws IOException
+  {
+    ValueEnforcer.notNull (aValue, "Value");
+    return _writeRaw (aValue.toString ());
+  }
+
+  /**
+   * Write a string value. <code>null</code> is written as JSON null.
+   *
+   * @param sValue
+   *        The value to write. May be <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         On IO error
+   */
+  @Nonnull
+  public JsonGenerator writeValue (@Nullable final String sValue) throws IOException
+  {
+    if (sValue == null)
+      return writeNull ();
+
+    _beforeValue ();
+    JsonValueSerializerEscaped.appendEscapedJsonString (sValue, m_aBuffer);
+    _flushIfNeeded ();
+    return this;
+  }
+
+  /**
+   * Write an arbitrary object, that is converted via
+   * {@link JsonConverter#convertToJson(Object)}.
+   *
+   * @param aValue
+   *        The value to write. May be <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         On IO error
+   */
+  @Nonnull
+  public JsonGenerator writeObject (@Nullable final Object aValue) throws IOException
+  {
+    return writeJson (JsonConverter.convertToJson (aValue));
+  }
+
+  /**
+   * Write a complete JSON value, array or object at the current position. The
+   * JSON is traversed via {@link JsonVisitor}.
+   *
+   * @param aJson
+   *        The JSON to write. May not be <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         On IO error
+   */
+  @Nonnull
+  public JsonGenerator writeJson (@Nonnull final IJson aJson) throws IOException
+  {
+    ValueEnforcer.notNull (aJson, "Json");
+
+    try
+    {
+      JsonVisitor.visit (aJson, new IJsonVisitorCallback ()
+      {
+        @Override
+        public void onJsonValue (@Nonnull final IJsonValue aValue)
+        {
+          _beforeValue ();
+          try
+          {
+            aValue.appendAsJsonString (m_aBuffer);
+            _flushIfNeeded ();
+          }
+          catch (final IOException ex)
+          {
+            throw new UncheckedIOException (ex);
+          }
+        }
+
+        @Override
+        public void onJsonArrayStart (@Nonnull final IJsonArray aValue)
+        {
+          writeStartArray ();
+        }
+
+        @Override
+        public void onJsonArrayEnd (@Nonnull final IJsonArray aValue)
+        {
+          try
+          {
+            writeEndArray ();
+          }
+          catch (final IOException ex)
+          {
+            throw new UncheckedIOException (ex);
+          }
+        }
+
+        @Override
+        public void onJsonObjectStart (@Nonnull final IJsonObject aValue)
+        {
+          writeStartObject ();
+        }
+
+        @Override
+        public void onJsonObjectElementName (@Nonnull final String sName)
+        {
+          try
+          {
+            writeName (sName);
+          }
+          catch (final IOException ex)
+          {
+            throw new UncheckedIOException (ex);
+          }
+        }
+
+        @Override
+        public void onJsonObjectEnd (@Nonnull final IJsonObject aValue)
+        {
+          try
+          {
+            writeEndObject ();
+          }
+          catch (final IOException ex)
+          {
+            throw new UncheckedIOException (ex);
+          }
+        }
+      });
+    }
+    catch (final UncheckedIOException ex)
+    {
+      throw ex.getCause ();
+    }
+    return this;
+  }
+
+  /**
+   * Write a JSON array with all elements of the provided iterator. The
+   * elements are converted and written one by one, so only a single element
+   * needs to be in memory at a time.
+   *
+   * @param <T>
+   *        The source element type
+   * @param aIterator
+   *        The iterator to write. May not be <code>null</code>.
+   * @param aMapper
+   *        The function to convert each element to JSON. May not be
+   *        <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         On IO error
+   */
+  @Nonnull
+  public <T> JsonGenerator writeArray (@Nonnull final Iterator <? extends T> aIterator,
+                                       @Nonnull final Function <? super T, ? extends IJson> aMapper) throws IOException
+  {
+    ValueEnforcer.notNull (aIterator, "Iterator");
+    ValueEnforcer.notNull (aMapper, "Mapper");
+
+    writeStartArray ();
+    while (aIterator.hasNext ())
+      writeJson (aMapper.apply (aIterator.next ()));
+    return writeEndArray ();
+  }
+
+  /**
+   * Write a JSON array with all elements of the provided stream. The elements
+   * are converted and written one by one, so only a single element needs to be
+   * in memory at a time. The stream is consumed but not closed.
+   *
+   * @param <T>
+   *        The source element type
+   * @param aStream
+   *        The stream to write. May not be <code>null</code>.
+   * @param aMapper
+   *        The function to convert each element to JSON. May not be
+   *        <code>null</code>.
+   * @return this for chaining
+   * @throws IOException
+   *         On IO error
+   */
+  @Nonnull
+  public <T> JsonGenerator writeArray (@Nonnull final Stream <? extends T> aStream,
+                                       @Nonnull final Function <? super T, ? extends IJson> aMapper) throws IOException
+  {
+    ValueEnforcer.notNull (aStream, "Stream");
+    return writeArray (aStream.iterator (), aMapper);
+  }
+
+  /**
+   * Write all buffered content to the underlying writer and flush it.
+   *
+   * @throws IOException
+   *         On IO error
+   */
+  public void flush () throws IOException
+  {
+    _ensureOpen ();
+    _writeBufferToWriter ();
+    m_aWriter.flush ();
+  }
+
+  /**
+   * Write all buffered content to the underlying writer and close it. If the
+   * JSON is complete and the settings require it, a final newline is written.
+   *
+   * @throws IOException
+   *         On IO error
+   */
+  public void close () throws IOException
+  {
+    if (!m_bClosed)
+    {
+      try
+      {
+        if (isComplete () && m_aSettings.isWriteNewlineAtEnd ())
+          m_aBuffer.write (m_aSettings.getNewlineString ());
+        _writeBufferToWriter ();
+      }
+      finally
+      {
+        m_bClosed = true;
+        m_aWriter.close ();
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Settings", m_aSettings)
+                                       .append ("FlushChunkSize", m_nFlushChunkSize)
+                                       .append ("Depth", m_nDepth)
+                                       .append ("NameWritten", m_bNameWritten)
+                                       .append ("RootWritten", m_bRootWritten)
+                                       .append ("Closed", m_bClosed)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,567 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.CompactJsonBuilder;
+import com.helger.json.IJson;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.json.JsonValue;
+import com.helger.json.parser.EJsonToken;
+import com.helger.json.parser.JsonParseException;
+import com.helger.json.parser.JsonPullParser;
+import com.helger.json.parser.errorhandler.IJsonParseExceptionCallback;
+
+/**
+ * A reader for JSON Lines (also known as NDJSON) input, where each non-empty
+ * line contains exactly one JSON value. The input is split into line-aligned
+ * chunks of approximately {@link #getChunkSize()} bytes which are parsed in
+ * parallel on a {@link ForkJoinPool}. Files are memory-mapped chunk by chunk,
+ * so that files bigger than 2GB are supported as well.<br>
+ * The resulting JSON values are delivered to the consumer on the calling
+ * thread, either in input order or in the order in which the chunks finished
+ * parsing. A line that cannot be parsed is reported to the exception callback
+ * (again on the calling thread, together with the results of its chunk) and
+ * reading continues with the next line. The number of chunks in progress is
+ * limited, so that the memory consumption does not depend on the input size.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public class JsonLinesReader
+{
+  /** The default chunk size in bytes */
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+  /** By default the results are delivered in input order */
+  public static final boolean DEFAULT_ORDERED = true;
+  /** By default the mutable JSON representation is created */
+  public static final boolean DEFAULT_USE_COMPACT_REPRESENTATION = false;
+
+  // The number of bytes read at once when searching for a line end
+  private static final int LINE_END_SEARCH_SIZE = 4 * 1024;
+
+  private int m_nChunkSize = DEFAULT_CHUNK_SIZE;
+  private boolean m_bOrdered = DEFAULT_ORDERED;
+  private boolean m_bUseCompactRepresentation = DEFAULT_USE_COMPACT_REPRESENTATION;
+  private ForkJoinPool m_aPool;
+  private IJsonParseExceptionCallback m_aExceptionCallback;
+
+  public JsonLinesReader ()
+  {}
+
+  /**
+   * @return The approximate size of a single chunk in bytes. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getChunkSize ()
+  {
+    return m_nChunkSize;
+  }
+
+  /**
+   * Set the approximate size of a single chunk. A chunk is always extended to
+   * the end of the line, so a chunk contains at least one line.
+   *
+   * @param nChunkSize
+   *        Chunk size in bytes. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final JsonLinesReader setChunkSize (@Nonnegative final int nChunkSize)
+  {
+    ValueEnforcer.isGT0 (nChunkSize, "ChunkSize");
+    m_nChunkSize = nChunkSize;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the results are delivered in input order,
+   *         <code>false</code> if they are delivered as soon as the chunk is
+   *         parsed.
+   */
+  public final boolean isOrdered ()
+  {
+    return m_bOrdered;
+  }
+
+  /**
+   * @param bOrdered
+   *        <code>true</code> to deliver the results in input order,
+   *        <code>false</code> to deliver them as soon as the chunk is parsed.
+   *        Within a chunk the order is always retained.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final JsonLinesReader setOrdered (final boolean bOrdered)
+  {
+    m_bOrdered = bOrdered;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the read-only compact JSON representation is
+   *         created, <code>false</code> if the regular mutable one is created.
+   */
+  public final boolean isUseCompactRepresentation ()
+  {
+    return m_bUseCompactRepresentation;
+  }
+
+  /**
+   * @param bUseCompactRepresentation
+   *        <code>true</code> to create the read-only compact JSON
+   *        representation, <code>false</code> to create the regular mutable
+   *        one.
+   * @return this for chaining
+   * @see CompactJsonBuilder
+   */
+  @Nonnull
+  public final JsonLinesReader setUseCompactRepresentation (final boolean bUseCompactRepresentation)
+  {
+    m_bUseCompactRepresentation = bUseCompactRepresentation;
+    return this;
+  }
+
+  /**
+   * @return The fork join pool to be used. May be <code>null</code> in which
+   *         case the common pool is used.
+   */
+  @Nullable
+  public final ForkJoinPool getPool ()
+  {
+    return m_aPool;
+  }
+
+  /**
+   * @param aPool
+   *        The fork join pool to be used. May be <code>null</code> to use the
+   *        common pool.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final JsonLinesReader setPool (@Nullable final ForkJoinPool aPool)
+  {
+    m_aPool = aPool;
+    return this;
+  }
+
+  /**
+   * @return The exception callback to be used. May be <code>null</code> in
+   *         which case {@link JsonReader#getDefaultParseExceptionCallback()} is
+   *         used.
+   */
+  @Nullable
+  public final IJsonParseExceptionCallback getExceptionCallback ()
+  {
+    return m_aExceptionCallback;
+  }
+
+  /**
+   * @param aExceptionCallback
+   *        The exception callback to be invoked for each line that cannot be
+   *        parsed. May be <code>null</code> to use the default callback.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final JsonLinesReader setExceptionCallback (@Nullable final IJsonParseExceptionCallback aExceptionCallback)
+  {
+    m_aExceptionCallback = aExceptionCallback;
+    return this;
+  }
+
+  /**
+   * The result of a single chunk.
+   */
+  private static final class ChunkResult
+  {
+    private final ICommonsList <IJson> m_aValues = new CommonsArrayList <> ();
+    private final ICommonsList <JsonParseException> m_aErrors = new CommonsArrayList <> ();
+  }
+
+  /**
+   * A source of bytes that can be split into chunks.
+   */
+  private interface IChunkSource
+  {
+    long getSize ();
+
+    /**
+     * @return The index of the first byte after the next line end at or after
+     *         the provided position, or the size if there is no more line end.
+     */
+    long getNextLineStart (long nPos) throws IOException;
+
+    /**
+     * @return A buffer with the chunk content, having position 0 and limit
+     *         <code>nLen</code>.
+     */
+    @Nonnull
+    ByteBuffer getChunk (long nStart, int nLen) throws IOException;
+  }
+
+  @Nonnull
+  private IJson _readValue (@Nonnull final JsonPullParser aParser,
+                            @Nonnull final EJsonToken eToken,
+                            @Nullable final ICommonsMap <String, String> aKeys) throws JsonParseException
+  {
+    switch (eToken)
+    {
+      case START_OBJECT:
+      {
+        if (aKeys != null)
+        {
+          final CompactJsonBuilder aBuilder = CompactJsonBuilder.forObject ();
+          while (aParser.nextToken () == EJsonToken.NAME)
+          {
+            final String sName = aKeys.computeIfAbsent (aParser.getString (), x -> x);
+            aBuilder.add (sName, _readValue (aParser, aParser.nextToken (), aKeys));
+          }
+          return aBuilder.build ();
+        }
+        final JsonObject aObj = new JsonObject ();
+        while (aParser.nextToken () == EJsonToken.NAME)
+        {
+          final String sName = aParser.getString ();
+          aObj.add (sName, _readValue (aParser, aParser.nextToken (), aKeys));
+        }
+        return aObj;
+      }
+      case START_ARRAY:
+      {
+        if (aKeys != null)
+        {
+          final CompactJsonBuilder aBuilder = CompactJsonBuilder.forArray ();
+          EJsonToken eNext;
+          while ((eNext = aParser.nextToken ()) != EJsonToken.END_ARRAY)
+            aBuilder.add (null, _readValue (aParser, eNext, aKeys));
+          return aBuilder.build ();
+        }
+        final JsonArray aArray = new JsonArray ();
+        EJsonToken eNext;
+        while ((eNext = aParser.nextToken ()) != EJsonToken.END_ARRAY)
+          aArray.add (_readValue (aParser, eNext, aKeys));
+        return aArray;
+      }
+      case STRING:
+        return JsonValue.create (aParser.getString ());
+      case NUMBER:
+        return JsonValue.create (aParser.getNumber ());
+      case TRUE:
+        return JsonValue.TRUE;
+      case FALSE:
+        return JsonValue.FALSE;
+      case NULL:
+        return JsonValue.NULL;
+      default:
+        // Cannot happen, as the pull parser validates the structure
+        throw new IllegalStateException ("Unexpected token " + eToken);
+    }
+  }
+
+  @Nonnull
+  private static JsonPullParser _createLineParser (@Nonnull final ByteBuffer aChunk,
+                                                   @Nonnegative final int nOfs,
+                                                   @Nonnegative final int nLen)
+  {
+    // Heap buffers are parsed from the backing array without copying
+    if (aChunk.hasArray ())
+      return new JsonPullParser (aChunk.array (), aChunk.arrayOffset () + nOfs, nLen);
+
+    // Mapped buffers are parsed from a view of the line
+    final ByteBuffer aLine = aChunk.duplicate ();
+    aLine.position (nOfs);
+    aLine.limit (nOfs + nLen);
+    return new JsonPullParser (aLine);
+  }
+
+  @Nonnull
+  private ChunkResult _parseChunk (@Nonnull final IChunkSource aSource,
+                                   final long nChunkStart,
+                                   @Nonnegative final int nChunkLen) throws IOException
+  {
+    // Parse directly from the chunk buffer
+    final ByteBuffer aChunk = aSource.getChunk (nChunkStart, nChunkLen);
+
+    final ChunkResult ret = new ChunkResult ();
+    // Object keys are deduplicated per chunk
+    final ICommonsMap <String, String> aKeys = m_bUseCompactRepresentation ? new CommonsHashMap <> () : null;
+    int nLineStart = 0;
+    while (nLineStart < nChunkLen)
+    {
+      int nLineEnd = nLineStart;
+      while (nLineEnd < nChunkLen && aChunk.get (nLineEnd) != '\n')
+        nLineEnd++;
+
+      try
+      {
+        final JsonPullParser aParser = _createLineParser (aChunk, nLineStart, nLineEnd - nLineStart);
+        final EJsonToken eToken = aParser.nextToken ();
+        // Skip empty lines
+        if (eToken != EJsonToken.END_OF_INPUT)
+        {
+          final IJson aJson = _readValue (aParser, eToken, aKeys);
+          // Checks for trailing content
+          aParser.nextToken ();
+          ret.m_aValues.add (aJson);
+        }
+      }
+      catch (final JsonParseException ex)
+      {
+        final JsonParseException aEx = new JsonParseException ("Failed to parse JSON line starting at byte offset " +
+                                                               (nChunkStart + nLineStart) +
+                                                               ": " +
+                                                               ex.getPureMessage ());
+        aEx.initCause (ex);
+        ret.m_aErrors.add (aEx);
+      }
+      nLineStart = nLineEnd + 1;
+    }
+    return ret;
+  }
+
+  private void _deliver (@Nonnull final ChunkResult aResult,
+                         @Nonnull final Consumer <? super IJson> aConsumer,
+                         @Nonnull final IJsonParseExceptionCallback aExceptionCallback)
+  {
+    aResult.m_aValues.forEach (aConsumer);
+    aResult.m_aErrors.forEach (aExceptionCallback::onException);
+  }
+
+  @Nonnull
+  private static ChunkResult _getResult (@Nonnull final Future <ChunkResult> aFuture) throws IOException
+  {
+    try
+    {
+      return aFuture.get ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IOException ("Interrupted while reading JSON lines", ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof IOException)
+        throw (IOException) aCause;
+      if (aCause instanceof RuntimeException)
+        throw (RuntimeException) aCause;
+      throw new IOException ("Failed to read JSON lines", aCause);
+    }
+  }
+
+  @Nonnegative
+  private long _read (@Nonnull final IChunkSource aSource, @Nonnull final Consumer <? super IJson> aConsumer) throws IOException
+  {
+    final ForkJoinPool aPool = m_aPool != null ? m_aPool : ForkJoinPool.commonPool ();
+    final IJsonParseExceptionCallback aExceptionCallback = m_aExceptionCallback != null ? m_aExceptionCallback
+                                                                                         : JsonReader.getDefaultParseExceptionCallback ();
+    // Limit the number of chunks in progress
+    final int nMaxInProgress = Math.max (2, aPool.getParallelism () * 2);
+    final CompletionService <ChunkResult> aCS = new ExecutorCompletionService <> (aPool);
+    final ICommonsList <Future <ChunkResult>> aInProgress = new CommonsArrayList <> ();
+    final long nSize = aSource.getSize ();
+    long nCount = 0;
+    long nPos = 0;
+    try
+    {
+      while (nPos < nSize || aInProgress.isNotEmpty ())
+      {
+        // Submit new chunks
+        while (nPos < nSize && aInProgress.size () < nMaxInProgress)
+        {
+          final long nChunkStart = nPos;
+          final long nChunkEnd = aSource.getNextLineStart (Math.min (nSize, nChunkStart + m_nChunkSize) - 1);
+          if (nChunkEnd - nChunkStart > Integer.MAX_VALUE)
+            throw new IOException ("The JSON line starting at byte offset " + nChunkStart + " is too long");
+          final int nChunkLen = (int) (nChunkEnd - nChunkStart);
+          final Callable <ChunkResult> aTask = () -> _parseChunk (aSource, nChunkStart, nChunkLen);
+          // In ordered mode the completion queue is not used
+          aInProgress.add (m_bOrdered ? aPool.submit (aTask) : aCS.submit (aTask));
+          nPos = nChunkEnd;
+        }
+
+        // Deliver the next result
+        final Future <ChunkResult> aFuture;
+        if (m_bOrdered)
+          aFuture = aInProgress.get (0);
+        else
+          try
+          {
+            aFuture = aCS.take ();
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+            throw new IOException ("Interrupted while reading JSON lines", ex);
+          }
+        aInProgress.remove (aFuture);
+
+        final ChunkResult aResult = _getResult (aFuture);
+        nCount += aResult.m_aValues.size ();
+        _deliver (aResult, aConsumer, aExceptionCallback);
+      }
+    }
+    finally
+    {
+      // In case of an error, don't continue to work
+      for (final Future <ChunkResult> aFuture : aInProgress)
+        aFuture.cancel (false);
+    }
+    return nCount;
+  }
+
+  /**
+   * Read all JSON lines from the provided byte array.
+   *
+   * @param aBytes
+   *        The UTF-8 encoded JSON lines. May not be <code>null</code>.
+   * @param aConsumer
+   *        The consumer for the successfully parsed JSON values. It is invoked
+   *        on the calling thread. May not be <code>null</code>.
+   * @return The number of successfully parsed JSON values.
+   */
+  @Nonnegative
+  public long read (@Nonnull final byte [] aBytes, @Nonnull final Consumer <? super IJson> aConsumer)
+  {
+    ValueEnforcer.notNull (aBytes, "Bytes");
+    ValueEnforcer.notNull (aConsumer, "Consumer");
+
+    final IChunkSource aSource = new IChunkSource ()
+    {
+      public long getSize ()
+      {
+        return aBytes.length;
+      }
+
+      public long getNextLineStart (final long nPos)
+      {
+        int ret = (int) nPos;
+        while (ret < aBytes.length && aBytes[ret] != '\n')
+          ret++;
+        return Math.min (ret + 1L, aBytes.length);
+      }
+
+      public ByteBuffer getChunk (final long nStart, final int nLen)
+      {
+        return ByteBuffer.wrap (aBytes, (int) nStart, nLen).slice ();
+      }
+    };
+    try
+    {
+      return _read (aSource, aConsumer);
+    }
+    catch (final IOException ex)
+    {
+      // Only happens on interruption
+      throw new IllegalStateException (ex);
+    }
+  }
+
+  /**
+   * Read all JSON lines from the provided file. Each chunk is memory-mapped
+   * separately.
+   *
+   * @param aPath
+   *        The path of the UTF-8 encoded JSON lines file. May not be
+   *        <code>null</code>.
+   * @param aConsumer
+   *        The consumer for the successfully parsed JSON values. It is invoked
+   *        on the calling thread. May not be <code>null</code>.
+   * @return The number of successfully parsed JSON values.
+   * @throws IOException
+   *         In case the file cannot be read
+   */
+  @Nonnegative
+  public long read (@Nonnull final Path aPath, @Nonnull final Consumer <? super IJson> aConsumer) throws IOException
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    ValueEnforcer.notNull (aConsumer, "Consumer");
+
+    try (final FileChannel aFC = FileChannel.open (aPath, StandardOpenOption.READ))
+    {
+      final long nSize = aFC.size ();
+      final IChunkSource aSource = new IChunkSource ()
+      {
+        public long getSize ()
+        {
+          return nSize;
+        }
+
+        public long getNextLineStart (final long nPos) throws IOException
+        {
+          final ByteBuffer aBB = ByteBuffer.allocate (LINE_END_SEARCH_SIZE);
+          long nReadPos = nPos;
+          while (nReadPos < nSize)
+          {
+            aBB.clear ();
+            final int nRead = aFC.read (aBB, nReadPos);
+            if (nRead <= 0)
+              break;
+            for (int i = 0; i < nRead; ++i)
+              if (aBB.get (i) == '\n')
+                return nReadPos + i + 1;
+            nReadPos += nRead;
+          }
+          return nSize;
+        }
+
+        public ByteBuffer getChunk (final long nStart, final int nLen) throws IOException
+        {
+          return aFC.map (FileChannel.MapMode.READ_ONLY, nStart, nLen);
+        }
+      };
+      return _read (aSource, aConsumer);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ChunkSize", m_nChunkSize)
+                                       .append ("Ordered", m_bOrdered)
+                                       .append ("UseCompactRepresentation", m_bUseCompactRepresentation)
+                                       .append ("Pool", m_aPool)
+                                       .append ("ExceptionCallback", m_aExceptionCallback)
+                                       .getToString ();
+  }
+}
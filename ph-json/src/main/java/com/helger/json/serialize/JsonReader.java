@@ -54,6 +54,7 @@ import com.helger.json.parser.JsonParser;
 import com.helger.json.parser.errorhandler.IJsonParseExceptionCallback;
 import com.helger.json.parser.errorhandler.LoggingJsonParseExceptionCallback;
 import com.helger.json.parser.handler.CollectingJsonParserHandler;
+import com.helger.json.parser.handler.CompactJsonParserHandler;
 import com.helger.json.parser.handler.DoNothingJsonParserHandler;
 import com.helger.json.parser.handler.IJsonParserHandler;
 
@@ -219,6 +220,34 @@ public final class JsonReader
     return aHandler.getJson ();
   }
 
+  /**
+   * Main reading of the JSON into the memory-lean, read-only
+   * {@link com.helger.json.CompactJsonObject} and
+   * {@link com.helger.json.CompactJsonArray} representations.
+   *
+   * @param aReader
+   *        The reader to read from. Should be buffered. May not be
+   *        <code>null</code>.
+   * @param aCustomizeCallback
+   *        An optional {@link JsonParser} customization callback. May be
+   *        <code>null</code>.
+   * @param aCustomExceptionCallback
+   *        A custom handler for unrecoverable errors. May be <code>null</code>.
+   * @return <code>null</code> if parsing failed, non-<code>null</code> if
+   *         parsing succeeded.
+   * @since 11.1.4
+   */
+  @Nullable
+  public static IJson readCompactJson (@Nonnull @WillClose final Reader aReader,
+                                       @Nullable final IJsonParserCustomizeCallback aCustomizeCallback,
+                                       @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
+  {
+    final CompactJsonParserHandler aHandler = new CompactJsonParserHandler ();
+    if (parseJson (aReader, aHandler, aCustomizeCallback, aCustomExceptionCallback).isFailure ())
+      return null;
+    return aHandler.getJson ();
+  }
+
   /**
    * Read the Json from the passed String using a character stream. An
    * eventually contained <code>@charset</code> rule is ignored.
@@ -273,6 +302,7 @@ public final class JsonReader
   {
     private boolean m_bDontCloseSource = false;
     private boolean m_bUseBufferedReader = true;
+    private boolean m_bUseCompactRepresentation = false;
     private Reader m_aReader;
     private IJsonParserCustomizeCallback m_aCustomizeCallback;
     private IJsonParseExceptionCallback m_aCustomExceptionCallback;
@@ -319,6 +349,26 @@ public final class JsonReader
       return this;
     }
 
+    /**
+     * Create the memory-lean, read-only
+     * {@link com.helger.json.CompactJsonObject} and
+     * {@link com.helger.json.CompactJsonArray} representations instead of the
+     * mutable default ones. This is recommended for JSON that is kept in
+     * memory for a longer time. Default is <code>false</code>.
+     *
+     * @param bUseCompactRepresentation
+     *        <code>true</code> to create the compact representation,
+     *        <code>false</code> to create the default representation.
+     * @return this for chaining
+     * @since 11.1.4
+     */
+    @Nonnull
+    public Builder useCompactRepresentation (final boolean bUseCompactRepresentation)
+    {
+      m_bUseCompactRepresentation = bUseCompactRepresentation;
+      return this;
+    }
+
     /**
      * Use a constant JSON string as source
      *
@@ -603,6 +653,8 @@ public final class JsonReader
     {
       if (m_aReader == null)
         throw new IllegalStateException ("No source is set.");
+      if (m_bUseCompactRepresentation)
+        return JsonReader.readCompactJson (_getEffectiveReader (), m_aCustomizeCallback, m_aCustomExceptionCallback);
       return JsonReader.readJson (_getEffectiveReader (), m_aCustomizeCallback, m_aCustomExceptionCallback);
     }
 
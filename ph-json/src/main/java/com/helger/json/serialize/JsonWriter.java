@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -53,6 +54,8 @@ import com.helger.json.valueserializer.JsonValueSerializerEscaped;
 public class JsonWriter
 {
   private final IJsonWriterSettings m_aSettings;
+  // Lazily created
+  private JsonByteWriter m_aByteWriter;
 
   public JsonWriter ()
   {
@@ -76,6 +79,25 @@ public class JsonWriter
     return m_aSettings.getClone ();
   }
 
+  /**
+   * @return The byte level writer for UTF-8 output, using the same settings as
+   *         this writer. Never <code>null</code>.
+   * @since 11.1.4
+   */
+  @Nonnull
+  protected final JsonByteWriter getByteWriter ()
+  {
+    JsonByteWriter ret = m_aByteWriter;
+    if (ret == null)
+      ret = m_aByteWriter = new JsonByteWriter (m_aSettings);
+    return ret;
+  }
+
+  private static boolean _isUTF8 (@Nonnull final Charset aCharset)
+  {
+    return StandardCharsets.UTF_8.equals (aCharset);
+  }
+
   private void _writeToWriter (@Nonnull final IJson aJson,
                                @Nonnull @WillNotClose final Writer aWriter,
                                final int nIndentLevel) throws IOException
@@ -227,7 +249,8 @@ public class JsonWriter
 
   /**
    * Write the JSON to an OutputStream using the provided Charset, and leave the
-   * OutputStream open.
+   * OutputStream open. For UTF-8 the bytes are created directly via
+   * {@link JsonByteWriter}.
    *
    * @param aJson
    *        The JSON to be written. May not be <code>null</code>.
@@ -247,6 +270,13 @@ public class JsonWriter
     ValueEnforcer.notNull (aOS, "OutputStream");
     ValueEnforcer.notNull (aCharset, "Charset");
 
+    if (_isUTF8 (aCharset))
+    {
+      // Directly write the bytes
+      getByteWriter ().writeToStream (aJson, aOS);
+      return;
+    }
+
     // Ensure OutputStream stays open
     try (final Writer aWriter = new OutputStreamWriter (new NonClosingOutputStream (aOS), aCharset))
     {
@@ -256,7 +286,8 @@ public class JsonWriter
 
   /**
    * Write the JSON to an OutputStream using the provided Charset, and close the
-   * OutputStream afterwards.
+   * OutputStream afterwards. For UTF-8 the bytes are created directly via
+   * {@link JsonByteWriter}.
    *
    * @param aJson
    *        The JSON to be written. May not be <code>null</code>.
@@ -276,6 +307,19 @@ public class JsonWriter
     ValueEnforcer.notNull (aOS, "OutputStream");
     ValueEnforcer.notNull (aCharset, "Charset");
 
+    if (_isUTF8 (aCharset))
+    {
+      try
+      {
+        getByteWriter ().writeToStream (aJson, aOS);
+      }
+      finally
+      {
+        StreamHelper.close (aOS);
+      }
+      return;
+    }
+
     // Ensure OutputStream gets closed as well
     try (final Writer aWriter = new OutputStreamWriter (aOS, aCharset))
     {
@@ -297,6 +341,10 @@ public class JsonWriter
   public byte [] writeAsByteArray (@Nonnull final IJson aJson, @Nonnull final Charset aCharset)
   {
     ValueEnforcer.notNull (aJson, "Json");
+    ValueEnforcer.notNull (aCharset, "Charset");
+
+    if (_isUTF8 (aCharset))
+      return getByteWriter ().writeAsByteArray (aJson);
 
     try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (1024))
     {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.commons.mock.CommonsTestHelper;
+import com.helger.json.serialize.JsonReader;
+import com.helger.json.visit.IJsonVisitorCallback;
+import com.helger.json.visit.JsonVisitor;
+
+/**
+ * Test class for class {@link CompactJsonObject}.
+ *
+ * @author Philip Helger
+ */
+public final class CompactJsonObjectTest
+{
+  private static final String JSON = "{\"a\":1,\"b\":\"x\",\"c\":2.5,\"d\":9223372036854775807," +
+                                     "\"e\":123456789012345678901234567890,\"f\":true,\"g\":null," +
+                                     "\"h\":[1,\"y\",{\"a\":false},[]],\"i\":{}}";
+
+  @Test
+  public void testReadAndWrite ()
+  {
+    final IJson aDefault = JsonReader.builder ().source (JSON).read ();
+    final IJson aCompact = JsonReader.builder ().source (JSON).useCompactRepresentation (true).read ();
+    assertTrue (aCompact instanceof CompactJsonObject);
+    assertTrue (aCompact.getAsObject ().getAsArray ("h") instanceof CompactJsonArray);
+
+    // Writer works unchanged
+    assertEquals (aDefault.getAsJsonString (), aCompact.getAsJsonString ());
+    assertEquals (JSON, aCompact.getAsJsonString ());
+
+    // Same equals as the default representation, if converted back
+    assertEquals (aDefault, aCompact.getClone ());
+    assertEquals (aCompact, CompactJsonBuilder.getAsCompact (aDefault));
+    assertNotEquals (aDefault, aCompact);
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aCompact,
+                                                                       JsonReader.builder ()
+                                                                                 .source (JSON)
+                                                                                 .useCompactRepresentation (true)
+                                                                                 .read ());
+
+    // Visitor works unchanged
+    final AtomicInteger aValueCount = new AtomicInteger ();
+    JsonVisitor.visit (aCompact, new IJsonVisitorCallback ()
+    {
+      @Override
+      public void onJsonValue (final IJsonValue aValue)
+      {
+        aValueCount.incrementAndGet ();
+      }
+    });
+    assertEquals (10, aValueCount.get ());
+  }
+
+  @Test
+  public void testAccess ()
+  {
+    final IJsonObject aObject = JsonReader.builder ().source (JSON).useCompactRepresentation (true).readAsObject ();
+    assertEquals (9, aObject.size ());
+    assertFalse (aObject.isEmpty ());
+    assertEquals ("[a, b, c, d, e, f, g, h, i]", aObject.keySet ().toString ());
+    assertEquals (9, aObject.values ().size ());
+    assertEquals (9, aObject.getAll ().size ());
+
+    assertEquals (Integer.valueOf (1), aObject.getValue ("a"));
+    assertEquals (1, aObject.getAsInt ("a"));
+    assertEquals ("x", aObject.getAsString ("b"));
+    assertEquals (Double.valueOf (2.5), aObject.getValue ("c"));
+    assertEquals (Long.valueOf (Long.MAX_VALUE), aObject.getValue ("d"));
+    assertEquals (new BigInteger ("123456789012345678901234567890"), aObject.getValue ("e"));
+    assertEquals (Boolean.TRUE, aObject.getValue ("f"));
+    assertNull (aObject.getValue ("g"));
+    assertTrue (aObject.containsKey ("g"));
+    assertSame (JsonValue.NULL, aObject.get ("g"));
+    assertNull (aObject.get ("z"));
+    assertNull (aObject.get (null));
+    assertFalse (aObject.containsKey ("z"));
+    assertTrue (aObject.containsValue (2.5));
+    assertTrue (aObject.containsValue ("x"));
+    assertFalse (aObject.containsValue ("z"));
+
+    final IJsonArray aArray = aObject.getAsArray ("h");
+    assertEquals (4, aArray.size ());
+    assertEquals (Integer.valueOf (1), aArray.getValue (0));
+    assertEquals ("y", aArray.getValue (1));
+    assertNull (aArray.getValue (2));
+    assertEquals (Boolean.FALSE, aArray.getObjectAtIndex (2).getValue ("a"));
+    assertTrue (aArray.getArrayAtIndex (3).isEmpty ());
+    assertNull (aArray.get (4));
+    assertTrue (aArray.contains ("y"));
+    assertEquals ("[\"y\",{\"a\":false}]", aArray.getSubArray (1, 3).getAsJsonString ());
+    assertTrue (aObject.getAsObject ("i").isEmpty ());
+
+    final AtomicInteger aCount = new AtomicInteger ();
+    aArray.forEachByIndex ( (x, i) -> aCount.incrementAndGet ());
+    aObject.forEach ( (k, v) -> aCount.incrementAndGet ());
+    assertEquals (13, aCount.get ());
+  }
+
+  @Test
+  public void testReadOnly ()
+  {
+    final IJsonObject aObject = JsonReader.builder ().source (JSON).useCompactRepresentation (true).readAsObject ();
+    try
+    {
+      aObject.add ("z", 1);
+      fail ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // expected
+    }
+    try
+    {
+      aObject.removeKey ("a");
+      fail ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // expected
+    }
+    try
+    {
+      aObject.getAsArray ("h").add ("z");
+      fail ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // expected
+    }
+
+    // The clone is mutable
+    final IJsonObject aClone = aObject.getClone ();
+    aClone.add ("z", 1);
+    aClone.getAsArray ("h").add ("z");
+    assertEquals (10, aClone.size ());
+    assertEquals (9, aObject.size ());
+  }
+
+  @Test
+  public void testBigObjectAndDuplicateKeys ()
+  {
+    final CompactJsonBuilder aBuilder = CompactJsonBuilder.forObject ();
+    for (int i = 0; i < 100; ++i)
+      aBuilder.addNumber ("k" + i, Integer.valueOf (i));
+    // Overwrites the first value but keeps the position
+    aBuilder.addString ("k0", "new");
+    aBuilder.add ("k1", JsonValue.create (new BigDecimal ("1.5")));
+    final IJsonObject aObject = (IJsonObject) aBuilder.build ();
+    assertEquals (100, aObject.size ());
+    assertEquals ("new", aObject.getValue ("k0"));
+    assertEquals (new BigDecimal ("1.5"), aObject.getValue ("k1"));
+    for (int i = 2; i < 100; ++i)
+      assertEquals (i, aObject.getAsInt ("k" + i));
+    assertNull (aObject.get ("k100"));
+    assertEquals ("k0", aObject.keySet ().getFirst ());
+
+    final CompactJsonBuilder aSmall = CompactJsonBuilder.forObject ();
+    aSmall.addNumber ("a", Long.valueOf (1)).addNumber ("b", Double.valueOf (2)).addNumber ("a", Integer.valueOf (3));
+    assertEquals ("{\"a\":3,\"b\":2.0}", aSmall.build ().getAsJsonString ());
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.json.IJsonValue;
+import com.helger.json.parser.handler.CollectingJsonParserHandler;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Test class for class {@link JsonPullParser}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonPullParserTest
+{
+  @Nonnull
+  private static JsonPullParser _create (@Nonnull final String sJson, final int nBufferSize)
+  {
+    return new JsonPullParser (new NonBlockingByteArrayInputStream (sJson.getBytes (StandardCharsets.UTF_8)), nBufferSize);
+  }
+
+  private static void _assertError (@Nonnull final String sJson)
+  {
+    try (final JsonPullParser aParser = new JsonPullParser (sJson.getBytes (StandardCharsets.UTF_8)))
+    {
+      while (aParser.nextToken () != EJsonToken.END_OF_INPUT)
+      {}
+      fail (sJson);
+    }
+    catch (final JsonParseException ex)
+    {
+      // expected
+    }
+    catch (final Exception ex)
+    {
+      throw new IllegalStateException (ex);
+    }
+  }
+
+  @Test
+  public void testTokenSequence () throws Exception
+  {
+    final String sJson = "{ \"a\" : [1, 2.5, true, false, null, \"x\"], /* comment */ 'b':{}, \"c\":[] }";
+    // Use different buffer sizes to exercise the refill
+    for (final int nBufferSize : new int [] { 1, 2, 3, 7, JsonPullParser.DEFAULT_BUFFER_SIZE })
+      try (final JsonPullParser aParser = _create (sJson, nBufferSize))
+      {
+        assertEquals (EJsonToken.START_OBJECT, aParser.nextToken ());
+        assertEquals (1, aParser.getDepth ());
+        assertEquals (0, aParser.getTokenOffset ());
+        assertEquals (EJsonToken.NAME, aParser.nextToken ());
+        assertEquals ("a", aParser.getString ());
+        assertEquals ("\"a\"", aParser.getOriginalString ());
+        assertEquals (EJsonToken.START_ARRAY, aParser.nextToken ());
+        assertEquals (2, aParser.getDepth ());
+        assertEquals (EJsonToken.NUMBER, aParser.nextToken ());
+        assertEquals (1, aParser.getLong ());
+        assertEquals (Integer.valueOf (1), aParser.getNumber ());
+        assertEquals (EJsonToken.NUMBER, aParser.nextToken ());
+        assertEquals ("2.5", aParser.getNumberText ());
+        assertEquals (2.5, aParser.getDouble (), 0);
+        assertEquals (EJsonToken.TRUE, aParser.nextToken ());
+        assertTrue (aParser.getBoolean ());
+        assertEquals (EJsonToken.FALSE, aParser.nextToken ());
+        assertFalse (aParser.getBoolean ());
+        assertEquals (EJsonToken.NULL, aParser.nextToken ());
+        assertEquals (EJsonToken.STRING, aParser.nextToken ());
+        assertEquals ("x", aParser.getString ());
+        assertEquals (EJsonToken.END_ARRAY, aParser.nextToken ());
+        assertEquals (1, aParser.getDepth ());
+        assertEquals (EJsonToken.NAME, aParser.nextToken ());
+        assertEquals ("b", aParser.getString ());
+        assertEquals ("'b'", aParser.getOriginalString ());
+        assertEquals (EJsonToken.START_OBJECT, aParser.nextToken ());
+        assertEquals (EJsonToken.END_OBJECT, aParser.nextToken ());
+        assertEquals (EJsonToken.NAME, aParser.nextToken ());
+        assertEquals (EJsonToken.START_ARRAY, aParser.nextToken ());
+        assertEquals (EJsonToken.END_ARRAY, aParser.nextToken ());
+        assertEquals (EJsonToken.END_OBJECT, aParser.nextToken ());
+        assertEquals (0, aParser.getDepth ());
+        assertEquals (EJsonToken.END_OF_INPUT, aParser.nextToken ());
+        assertEquals (EJsonToken.END_OF_INPUT, aParser.nextToken ());
+      }
+  }
+
+  @Test
+  public void testStrings () throws Exception
+  {
+    final String sLong = "abcdefghijklmnopqrstuvwxyz0123456789";
+    final String sJson = "[\"a\\\"b\\\\c\\/d\\n\\t\\u00e4\\u20AC\", \"äöü€\uD83D\uDE00\", \"" + sLong + "\"]";
+    for (final int nBufferSize : new int [] { 1, 4, JsonPullParser.DEFAULT_BUFFER_SIZE })
+      try (final JsonPullParser aParser = _create (sJson, nBufferSize))
+      {
+        assertEquals (EJsonToken.START_ARRAY, aParser.nextToken ());
+        assertEquals (EJsonToken.STRING, aParser.nextToken ());
+        assertEquals ("a\"b\\c/d\n\tä€", aParser.getString ());
+        assertEquals ("\"a\\\"b\\\\c\\/d\\n\\t\\u00e4\\u20AC\"", aParser.getOriginalString ());
+        assertEquals (EJsonToken.STRING, aParser.nextToken ());
+        assertEquals ("äöü€\uD83D\uDE00", aParser.getString ());
+        assertEquals (EJsonToken.STRING, aParser.nextToken ());
+        assertEquals (sLong, aParser.getString ());
+        assertEquals (EJsonToken.END_ARRAY, aParser.nextToken ());
+        assertEquals (EJsonToken.END_OF_INPUT, aParser.nextToken ());
+        // The buffer only grows up to the size of the largest token
+        assertTrue (aParser.getBufferSize () <= Math.max (nBufferSize, 2 * (sLong.length () + 2)));
+      }
+
+    try (final JsonPullParser aParser = new JsonPullParser ("\"a\tb\"".getBytes (StandardCharsets.UTF_8)))
+    {
+      aParser.setAllowSpecialCharsInStrings (true);
+      assertEquals (EJsonToken.STRING, aParser.nextToken ());
+      assertEquals ("a\tb", aParser.getString ());
+    }
+  }
+
+  @Test
+  public void testNumberTypesLikeJsonParser () throws Exception
+  {
+    for (final String sNum : new String [] { "0",
+                                             "-1",
+                                             "2147483647",
+                                             "2147483648",
+                                             "-2147483649",
+                                             "9223372036854775807",
+                                             "-9223372036854775808",
+                                             "9223372036854775808",
+                                             "123456789012345678901234567890",
+                                             "1.5",
+                                             "-0.25",
+                                             "1.2345678901234567890123",
+                                             "1e5",
+                                             "1E+2",
+                                             "5e-3",
+                                             "1.5e3" })
+      for (final boolean bBig : new boolean [] { false, true })
+      {
+        final CollectingJsonParserHandler aHandler = new CollectingJsonParserHandler ();
+        assertTrue (JsonReader.parseJson (new NonBlockingStringReader (sNum),
+                                          aHandler,
+                                          x -> x.setAlwaysUseBigNumber (bBig),
+                                          null)
+                              .isSuccess ());
+        final Object aExpected = ((IJsonValue) aHandler.getJson ()).getValue ();
+
+        try (final JsonPullParser aParser = new JsonPullParser (sNum.getBytes (StandardCharsets.ISO_8859_1)))
+        {
+          aParser.setAlwaysUseBigNumber (bBig);
+          assertEquals (EJsonToken.NUMBER, aParser.nextToken ());
+          assertEquals (sNum, aExpected, aParser.getNumber ());
+          assertEquals (sNum, aParser.getNumberText ());
+          assertEquals (new BigDecimal (sNum), aParser.getBigDecimal ());
+        }
+      }
+
+    try (final JsonPullParser aParser = new JsonPullParser ("[-9223372036854775808, 123456789012345678901]".getBytes (StandardCharsets.ISO_8859_1)))
+    {
+      aParser.nextToken ();
+      aParser.nextToken ();
+      assertEquals (Long.MIN_VALUE, aParser.getLong ());
+      aParser.nextToken ();
+      assertEquals (new BigInteger ("123456789012345678901"), aParser.getNumber ());
+    }
+  }
+
+  @Test
+  public void testSkipChildren () throws Exception
+  {
+    try (final JsonPullParser aParser = _create ("[{\"a\":[1,{\"b\":2}]},3]", 2))
+    {
+      assertEquals (EJsonToken.START_ARRAY, aParser.nextToken ());
+      assertEquals (EJsonToken.START_OBJECT, aParser.nextToken ());
+      aParser.skipChildren ();
+      assertEquals (EJsonToken.END_OBJECT, aParser.getCurrentToken ());
+      assertEquals (1, aParser.getDepth ());
+      assertEquals (EJsonToken.NUMBER, aParser.nextToken ());
+      assertEquals (3, aParser.getLong ());
+      // No effect on scalar values
+      aParser.skipChildren ();
+      assertEquals (EJsonToken.NUMBER, aParser.getCurrentToken ());
+      assertEquals (EJsonToken.END_ARRAY, aParser.nextToken ());
+    }
+  }
+
+  @Test
+  public void testMultipleRootValues () throws Exception
+  {
+    final String sJson = "{\"a\":1}\n{\"a\":2}\n[3]\n\"x\"\n";
+    try (final JsonPullParser aParser = _create (sJson, 3))
+    {
+      aParser.setCheckForEOI (false);
+      int nRoots = 0;
+      EJsonToken eToken;
+      while ((eToken = aParser.nextToken ()) != EJsonToken.END_OF_INPUT)
+        if (aParser.getDepth () == 0)
+          nRoots++;
+      assertEquals (4, nRoots);
+      assertEquals (EJsonToken.END_OF_INPUT, eToken);
+    }
+
+    _assertError (sJson);
+  }
+
+  @Test
+  public void testByteBuffer () throws Exception
+  {
+    final ByteBuffer aBB = ByteBuffer.wrap ("xx[1,\"ä\"]".getBytes (StandardCharsets.UTF_8));
+    aBB.position (2);
+    try (final JsonPullParser aParser = new JsonPullParser (aBB))
+    {
+      assertEquals (EJsonToken.START_ARRAY, aParser.nextToken ());
+      assertEquals (0, aParser.getTokenOffset ());
+      assertEquals (EJsonToken.NUMBER, aParser.nextToken ());
+      assertEquals (EJsonToken.STRING, aParser.nextToken ());
+      assertEquals ("ä", aParser.getString ());
+      assertEquals (EJsonToken.END_ARRAY, aParser.nextToken ());
+      assertEquals (EJsonToken.END_OF_INPUT, aParser.nextToken ());
+    }
+
+    final byte [] aBytes = "--[true]--".getBytes (StandardCharsets.UTF_8);
+    try (final JsonPullParser aParser = new JsonPullParser (aBytes, 2, 6))
+    {
+      assertEquals (EJsonToken.START_ARRAY, aParser.nextToken ());
+      assertEquals (0, aParser.getTokenOffset ());
+      assertEquals (EJsonToken.TRUE, aParser.nextToken ());
+      assertEquals (1, aParser.getTokenOffset ());
+      assertEquals (EJsonToken.END_ARRAY, aParser.nextToken ());
+      assertEquals (EJsonToken.END_OF_INPUT, aParser.nextToken ());
+    }
+  }
+
+  @Test
+  public void testErrors ()
+  {
+    _assertError ("[1,]");
+    _assertError ("{\"a\":1,}");
+    _assertError ("{\"a\" 1}");
+    _assertError ("{a:1}");
+    _assertError ("[1 2]");
+    _assertError ("\"abc");
+    _assertError ("\"a\tb\"");
+    _assertError ("\"\\x\"");
+    _assertError ("\"\\u12g4\"");
+    _assertError ("[1");
+    _assertError ("[1]]");
+    _assertError ("tru");
+    _assertError ("-");
+    _assertError ("1.");
+    _assertError ("1e");
+    _assertError ("/* unclosed");
+    _assertError ("[1] 2");
+    _assertError ("[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[[".repeat (11));
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.mutable.MutableChar;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.json.IJson;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.json.JsonValue;
+
+/**
+ * Test class for class {@link JsonByteWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonByteWriterTest
+{
+  private static IJson _createJson ()
+  {
+    final JsonObject aObject = new JsonObject ();
+    aObject.add ("string", "a \"quoted\" \\ string\r\n\t\b\f\0 with\u0001ctrl");
+    aObject.add ("unicode", "äöü € 😀 and a bad \uD800 surrogate");
+    aObject.add ("int", 42);
+    aObject.add ("negint", -17);
+    aObject.add ("long", Long.MIN_VALUE);
+    aObject.add ("maxlong", Long.MAX_VALUE);
+    aObject.add ("zero", 0);
+    aObject.add ("double", 3.1234);
+    aObject.add ("bigdec", new BigDecimal ("1234567890.12345678901234567890"));
+    aObject.add ("bigint", new BigInteger ("123456789012345678901234567890"));
+    aObject.add ("true", true);
+    aObject.add ("false", false);
+    aObject.addJson ("null", JsonValue.NULL);
+    aObject.add ("mutableint", new MutableInt (5));
+    aObject.add ("mutablechar", new MutableChar ('"'));
+    aObject.add ("na\"me", "escaped name");
+    aObject.addJson ("emptyarray", new JsonArray ());
+    aObject.addJson ("emptyobject", new JsonObject ());
+    final JsonArray aArray = new JsonArray ();
+    for (int i = 0; i < 100; ++i)
+      aArray.add (new JsonObject ().add ("id", i).add ("name", "Element " + i).add ("ü", i % 2 == 0));
+    aObject.addJson ("array", aArray);
+    return aObject;
+  }
+
+  @Test
+  public void testSameAsJsonWriter () throws IOException
+  {
+    final IJson aJson = _createJson ();
+    for (final JsonWriterSettings aSettings : new JsonWriterSettings [] { new JsonWriterSettings (),
+                                                                          new JsonWriterSettings ().setIndentEnabled (true),
+                                                                          new JsonWriterSettings ().setIndentEnabled (true)
+                                                                                                   .setIndentString ("\t")
+                                                                                                   .setNewlineString ("\r\n")
+                                                                                                   .setWriteNewlineAtEnd (true),
+                                                                          new JsonWriterSettings ().setQuoteNames (false) })
+    {
+      // Reference: the char based writer
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      new JsonWriter (aSettings).writeToWriter (aJson, new OutputStreamWriter (aBAOS, StandardCharsets.UTF_8));
+      final byte [] aExpected = aBAOS.toByteArray ();
+
+      final JsonByteWriter aWriter = new JsonByteWriter (aSettings);
+      // Run twice to use the name cache
+      for (int i = 0; i < 2; ++i)
+      {
+        assertArrayEquals (aExpected, aWriter.writeAsByteArray (aJson));
+
+        final NonBlockingByteArrayOutputStream aBAOS2 = new NonBlockingByteArrayOutputStream ();
+        aWriter.writeToStream (aJson, aBAOS2);
+        assertArrayEquals (aExpected, aBAOS2.toByteArray ());
+
+        final int nLen = aWriter.writeToBuffer (aJson);
+        assertEquals (aExpected.length, nLen);
+        assertEquals (new String (aExpected, StandardCharsets.UTF_8),
+                      new String (aWriter.getBuffer (), 0, nLen, StandardCharsets.UTF_8));
+      }
+      assertEquals (22, aWriter.getCachedNameCount ());
+
+      // And via the JsonWriter API
+      assertArrayEquals (aExpected, new JsonWriter (aSettings).writeAsByteArray (aJson, StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testBigString () throws IOException
+  {
+    // Bigger than the flush threshold
+    final String sBig = "x€\"".repeat (JsonByteWriter.FLUSH_THRESHOLD);
+    final IJson aJson = new JsonArray ().add (sBig).add (sBig);
+    final byte [] aExpected = new JsonWriter ().writeAsString (aJson).getBytes (StandardCharsets.UTF_8);
+
+    final JsonByteWriter aWriter = new JsonByteWriter ();
+    assertArrayEquals (aExpected, aWriter.writeAsByteArray (aJson));
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    aWriter.writeToStream (aJson, aBAOS);
+    assertArrayEquals (aExpected, aBAOS.toByteArray ());
+  }
+
+  @Test
+  public void testBufferIsReleased () throws IOException
+  {
+    final String sBig = "ü\n".repeat (JsonByteWriter.MAX_RETAINED_BUFFER_SIZE);
+    final IJson aJson = new JsonArray ().add (sBig);
+    final byte [] aExpected = new JsonWriter ().writeAsString (aJson).getBytes (StandardCharsets.UTF_8);
+
+    final JsonByteWriter aWriter = new JsonByteWriter ();
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    aWriter.writeToStream (aJson, aBAOS);
+    assertArrayEquals (aExpected, aBAOS.toByteArray ());
+    assertTrue (aWriter.getBuffer ().length <= JsonByteWriter.MAX_RETAINED_BUFFER_SIZE);
+
+    assertArrayEquals (aExpected, aWriter.writeAsByteArray (aJson));
+    assertTrue (aWriter.getBuffer ().length <= JsonByteWriter.MAX_RETAINED_BUFFER_SIZE);
+  }
+
+  @Test
+  public void testSurrogatePairsInLongString ()
+  {
+    // Surrogate pairs at even and odd positions, so that one of them spans the
+    // boundary between two chunks
+    for (final String sPrefix : new String [] { "", "a" })
+    {
+      final IJson aJson = new JsonArray ().add (sPrefix + "😀".repeat (5000));
+      final byte [] aExpected = new JsonWriter ().writeAsString (aJson).getBytes (StandardCharsets.UTF_8);
+      assertArrayEquals (aExpected, new JsonByteWriter ().writeAsByteArray (aJson));
+    }
+  }
+}
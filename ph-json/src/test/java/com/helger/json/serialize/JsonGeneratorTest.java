@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingStringWriter;
+import com.helger.json.IJson;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.json.JsonValue;
+
+/**
+ * Test class for class {@link JsonGenerator}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonGeneratorTest
+{
+  @Nonnull
+  private static IJson _createJson ()
+  {
+    final JsonObject aObject = new JsonObject ();
+    aObject.add ("string", "a \"quoted\" string\n");
+    aObject.add ("int", 42);
+    aObject.add ("long", Long.MAX_VALUE);
+    aObject.add ("double", 3.1234);
+    aObject.add ("bool", true);
+    aObject.addJson ("null", JsonValue.NULL);
+    aObject.addJson ("emptyarray", new JsonArray ());
+    aObject.addJson ("emptyobject", new JsonObject ());
+    aObject.addJson ("array", new JsonArray ().add (1).add ("two").add (new JsonObject ().add ("a", new JsonArray ().add (3))));
+    return aObject;
+  }
+
+  private static void _writeManually (@Nonnull final JsonGenerator aGen) throws IOException
+  {
+    aGen.writeStartObject ();
+    aGen.writeName ("string").writeValue ("a \"quoted\" string\n");
+    aGen.writeName ("int").writeValue (42);
+    aGen.writeName ("long").writeValue (Long.MAX_VALUE);
+    aGen.writeName ("double").writeValue (3.1234);
+    aGen.writeName ("bool").writeValue (true);
+    aGen.writeName ("null").writeNull ();
+    aGen.writeName ("emptyarray").writeStartArray ().writeEndArray ();
+    aGen.writeName ("emptyobject").writeStartObject ().writeEndObject ();
+    aGen.writeName ("array").writeStartArray ();
+    aGen.writeValue (1).writeValue ("two");
+    aGen.writeStartObject ().writeName ("a").writeStartArray ().writeObject (Integer.valueOf (3)).writeEndArray ().writeEndObject ();
+    aGen.writeEndArray ();
+    aGen.writeEndObject ();
+  }
+
+  @Test
+  public void testSameAsJsonWriter () throws IOException
+  {
+    final IJson aJson = _createJson ();
+    for (final JsonWriterSettings aSettings : new JsonWriterSettings [] { new JsonWriterSettings (),
+                                                                          new JsonWriterSettings ().setIndentEnabled (true)
+                                                                                                   .setWriteNewlineAtEnd (true),
+                                                                          new JsonWriterSettings ().setQuoteNames (false) })
+    {
+      final String sExpected = new JsonWriter (aSettings).writeAsString (aJson);
+
+      NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+      try (final JsonGenerator aGen = new JsonGenerator (aSW, aSettings))
+      {
+        aGen.writeJson (aJson);
+        assertTrue (aGen.isComplete ());
+      }
+      assertEquals (sExpected, aSW.getAsString ());
+
+      aSW = new NonBlockingStringWriter ();
+      try (final JsonGenerator aGen = new JsonGenerator (aSW, aSettings).setFlushChunkSize (1))
+      {
+        _writeManually (aGen);
+      }
+      assertEquals (sExpected, aSW.getAsString ());
+    }
+  }
+
+  @Test
+  public void testLazyArrayIsFlushedInChunks () throws IOException
+  {
+    final int nCount = 10_000;
+    final AtomicInteger aProduced = new AtomicInteger ();
+    final AtomicInteger aMaxPending = new AtomicInteger ();
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ()
+    {
+      @Override
+      public void flush ()
+      {
+        // Number of produced items that are not yet written
+        final int nWrittenElements = (int) getAsString ().chars ().filter (c -> c == '}').count ();
+        aMaxPending.set (Math.max (aMaxPending.get (), aProduced.get () - nWrittenElements));
+      }
+    };
+
+    final Iterator <Integer> aIt = IntStream.range (0, nCount).boxed ().peek (x -> aProduced.incrementAndGet ()).iterator ();
+    try (final JsonGenerator aGen = new JsonGenerator (aSW).setFlushChunkSize (256))
+    {
+      aGen.writeArray (aIt, x -> new JsonObject ().add ("id", x));
+    }
+    assertEquals (nCount, aProduced.get ());
+    // Only a few elements were buffered at a time
+    assertTrue (aMaxPending.get () < 50);
+
+    final IJson aRead = JsonReader.readFromString (aSW.getAsString ());
+    assertEquals (nCount, aRead.getAsArray ().size ());
+    assertEquals (nCount - 1, aRead.getAsArray ().getObjectAtIndex (nCount - 1).getAsInt ("id"));
+
+    // Stream version
+    final NonBlockingStringWriter aSW2 = new NonBlockingStringWriter ();
+    try (final JsonGenerator aGen = new JsonGenerator (aSW2))
+    {
+      aGen.writeArray (IntStream.range (0, 3).boxed (), JsonValue::create);
+    }
+    assertEquals ("[0,1,2]", aSW2.getAsString ());
+  }
+
+  @Test
+  public void testInvalidUsage () throws IOException
+  {
+    try (final JsonGenerator aGen = new JsonGenerator (new NonBlockingStringWriter ()))
+    {
+      aGen.writeStartObject ();
+      try
+      {
+        aGen.writeValue (5);
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected - name missing
+      }
+      aGen.writeName ("a");
+      try
+      {
+        aGen.writeName ("b");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected - value missing
+      }
+      try
+      {
+        aGen.writeEndArray ();
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected - no array open
+      }
+      aGen.writeValue (5);
+      assertFalse (aGen.isComplete ());
+      aGen.writeEndObject ();
+      assertTrue (aGen.isComplete ());
+      try
+      {
+        aGen.writeValue ("second root");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.file.FileOperations;
+import com.helger.json.CompactJsonObject;
+import com.helger.json.IJson;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonObject;
+import com.helger.json.parser.JsonParseException;
+
+/**
+ * Test class for class {@link JsonLinesReader}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonLinesReaderTest
+{
+  private static final int LINES = 5000;
+
+  private static byte [] _createLines ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < LINES; ++i)
+    {
+      aSB.append (new JsonObject ().add ("id", i).add ("name", "Line " + i).add ("tags", new CommonsArrayList <> ("a", "b")).getAsJsonString ());
+      // Mix line endings and add some empty lines
+      aSB.append (i % 3 == 0 ? "\r\n" : i % 7 == 0 ? "\n\n" : "\n");
+    }
+    return aSB.toString ().getBytes (StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testOrdered ()
+  {
+    final byte [] aBytes = _createLines ();
+    final ForkJoinPool aPool = new ForkJoinPool (4);
+    try
+    {
+      // Small chunks to have many of them
+      final JsonLinesReader aReader = new JsonLinesReader ().setChunkSize (1000).setPool (aPool);
+      final ICommonsList <IJson> aList = new CommonsArrayList <> ();
+      assertEquals (LINES, aReader.read (aBytes, aList::add));
+      assertEquals (LINES, aList.size ());
+      for (int i = 0; i < LINES; ++i)
+      {
+        final IJsonObject aObj = aList.get (i).getAsObject ();
+        assertEquals (i, aObj.getAsInt ("id"));
+        assertEquals ("Line " + i, aObj.getAsString ("name"));
+        assertEquals (2, aObj.getAsArray ("tags").size ());
+      }
+    }
+    finally
+    {
+      aPool.shutdown ();
+    }
+  }
+
+  @Test
+  public void testUnorderedFileCompact () throws IOException
+  {
+    final File aFile = new File ("target/jsonlines-test.jsonl");
+    Files.write (aFile.toPath (), _createLines ());
+    try
+    {
+      final JsonLinesReader aReader = new JsonLinesReader ().setChunkSize (4096)
+                                                            .setOrdered (false)
+                                                            .setUseCompactRepresentation (true);
+      final boolean [] aFound = new boolean [LINES];
+      assertEquals (LINES, aReader.read (aFile.toPath (), x -> {
+        assertTrue (x instanceof CompactJsonObject);
+        aFound[x.getAsObject ().getAsInt ("id")] = true;
+      }));
+      for (final boolean b : aFound)
+        assertTrue (b);
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+
+  @Test
+  public void testErrors ()
+  {
+    final String sLines = "{\"a\":1}\n" + "{\"a\":\n" + "[1,2]\n" + "   \n" + "1 2\n" + "\"last\"";
+    final ICommonsList <IJson> aList = new CommonsArrayList <> ();
+    final ICommonsList <JsonParseException> aErrors = new CommonsArrayList <> ();
+    final JsonLinesReader aReader = new JsonLinesReader ().setChunkSize (1).setExceptionCallback (aErrors::add);
+    assertEquals (3, aReader.read (sLines.getBytes (StandardCharsets.UTF_8), aList::add));
+    assertEquals ("{\"a\":1}", aList.get (0).getAsJsonString ());
+    assertEquals ("[1,2]", aList.get (1).getAsJsonString ());
+    assertEquals ("\"last\"", aList.get (2).getAsJsonString ());
+    assertEquals (2, aErrors.size ());
+    assertTrue (aErrors.get (0).getMessage (), aErrors.get (0).getMessage ().contains ("starting at byte offset 8:"));
+    assertTrue (aErrors.get (1).getMessage (), aErrors.get (1).getMessage ().contains ("starting at byte offset 24:"));
+  }
+}
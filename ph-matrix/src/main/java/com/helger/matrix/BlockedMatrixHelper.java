@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.matrix;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+
+/**
+ * Cache-blocked (tiled) matrix multiplication kernels used by {@link Matrix}
+ * and the blocked decompositions. The kernels iterate in i-k-j order over
+ * tiles of {@link #BLOCK_SIZE} so that the rows of the right hand side and of
+ * the result are streamed sequentially through the cache. The k-tiles are
+ * always processed in ascending order, so each result element is accumulated
+ * in exactly the same order as in the classic dot-product loop and the results
+ * are bit-identical.<br>
+ * Products with at least {@link #PARALLEL_THRESHOLD} multiply-add operations
+ * are split by row tiles and computed on the common {@link ForkJoinPool}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@Immutable
+public final class BlockedMatrixHelper
+{
+  /** The edge length of a tile in elements */
+  public static final int BLOCK_SIZE = 64;
+  /**
+   * The minimum number of multiply-add operations (rows * inner * cols) for
+   * which the multiplication is parallelized
+   */
+  public static final long PARALLEL_THRESHOLD = 128L * 128L * 128L;
+
+  private BlockedMatrixHelper ()
+  {}
+
+  /**
+   * The serial kernel: C[cRow+i][cCol+j] += dSign * sum_k A[aRow+i][aCol+k] *
+   * B[bRow+k][bCol+j] for i in [nFirstRow, nLastRow)
+   */
+  private static void _kernel (@Nonnull final double [] [] aA,
+                               final int nARow,
+                               final int nACol,
+                               @Nonnull final double [] [] aB,
+                               final int nBRow,
+                               final int nBCol,
+                               @Nonnull final double [] [] aC,
+                               final int nCRow,
+                               final int nCCol,
+                               final int nFirstRow,
+                               final int nLastRow,
+                               final int nInner,
+                               final int nCols,
+                               final boolean bSubtract)
+  {
+    for (int ii = nFirstRow; ii < nLastRow; ii += BLOCK_SIZE)
+    {
+      final int nIEnd = Math.min (ii + BLOCK_SIZE, nLastRow);
+      for (int kk = 0; kk < nInner; kk += BLOCK_SIZE)
+      {
+        final int nKEnd = Math.min (kk + BLOCK_SIZE, nInner);
+        for (int jj = 0; jj < nCols; jj += BLOCK_SIZE)
+        {
+          final int nJStart = nCCol + jj;
+          final int nJEnd = nCCol + Math.min (jj + BLOCK_SIZE, nCols);
+          final int nBOfs = nBCol - nCCol;
+          for (int i = ii; i < nIEnd; i++)
+          {
+            final double [] aRowA = aA[nARow + i];
+            final double [] aRowC = aC[nCRow + i];
+            for (int k = kk; k < nKEnd; k++)
+            {
+              // Negation is exact, so subtracting is the same as adding the
+              // negated product
+              final double dAik = bSubtract ? -aRowA[nACol + k] : aRowA[nACol + k];
+              final double [] aRowB = aB[nBRow + k];
+              for (int j = nJStart; j < nJEnd; j++)
+                aRowC[j] += dAik * aRowB[j + nBOfs];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static final class MultiplyAction extends RecursiveAction
+  {
+    private final double [] [] m_aA;
+    private final int m_nARow;
+    private final int m_nACol;
+    private final double [] [] m_aB;
+    private final int m_nBRow;
+    private final int m_nBCol;
+    private final double [] [] m_aC;
+    private final int m_nCRow;
+    private final int m_nCCol;
+    private final int m_nFirstRow;
+    private final int m_nLastRow;
+    private final int m_nInner;
+    private final int m_nCols;
+    private final boolean m_bSubtract;
+
+    MultiplyAction (@Nonnull final double [] [] aA,
+                    final int nARow,
+                    final int nACol,
+                    @Nonnull final double [] [] aB,
+                    final int nBRow,
+                    final int nBCol,
+                    @Nonnull final double [] [] aC,
+                    final int nCRow,
+                    final int nCCol,
+                    final int nFirstRow,
+                    final int nLastRow,
+                    final int nInner,
+                    final int nCols,
+                    final boolean bSubtract)
+    {
+      m_aA = aA;
+      m_nARow = nARow;
+      m_nACol = nACol;
+      m_aB = aB;
+      m_nBRow = nBRow;
+      m_nBCol = nBCol;
+      m_aC = aC;
+      m_nCRow = nCRow;
+      m_nCCol = nCCol;
+      m_nFirstRow = nFirstRow;
+      m_nLastRow = nLastRow;
+      m_nInner = nInner;
+      m_nCols = nCols;
+      m_bSubtract = bSubtract;
+    }
+
+    @Override
+    protected void compute ()
+    {
+      final int nRows = m_nLastRow - m_nFirstRow;
+      if (nRows <= BLOCK_SIZE || (long) nRows * m_nInner * m_nCols < PARALLEL_THRESHOLD)
+      {
+        _kernel (m_aA,
+                 m_nARow,
+                 m_nACol,
+                 m_aB,
+                 m_nBRow,
+                 m_nBCol,
+                 m_aC,
+                 m_nCRow,
+                 m_nCCol,
+                 m_nFirstRow,
+                 m_nLastRow,
+                 m_nInner,
+                 m_nCols,
+                 m_bSubtract);
+      }
+      else
+      {
+        // Split at a tile boundary
+        final int nMid = m_nFirstRow + (nRows / 2 + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+        invokeAll (new MultiplyAction (m_aA,
+                                       m_nARow,
+                                       m_nACol,
+                                       m_aB,
+                                       m_nBRow,
+                                       m_nBCol,
+                                       m_aC,
+                                       m_nCRow,
+                                       m_nCCol,
+                                       m_nFirstRow,
+                                       nMid,
+                                       m_nInner,
+                                       m_nCols,
+                                       m_bSubtract),
+                   new MultiplyAction (m_aA,
+                                       m_nARow,
+                                       m_nACol,
+                                       m_aB,
+                                       m_nBRow,
+                                       m_nBCol,
+                                       m_aC,
+                                       m_nCRow,
+                                       m_nCCol,
+                                       nMid,
+                                       m_nLastRow,
+                                       m_nInner,
+                                       m_nCols,
+                                       m_bSubtract));
+      }
+    }
+  }
+
+  private static void _multiply (@Nonnull final double [] [] aA,
+                                 final int nARow,
+                                 final int nACol,
+                                 @Nonnull final double [] [] aB,
+                                 final int nBRow,
+                                 final int nBCol,
+                                 @Nonnull final double [] [] aC,
+                                 final int nCRow,
+                                 final int nCCol,
+                                 final int nRows,
+                                 final int nInner,
+                                 final int nCols,
+                                 final boolean bSubtract)
+  {
+    ValueEnforcer.isGE0 (nRows, "Rows");
+    ValueEnforcer.isGE0 (nInner, "Inner");
+    ValueEnforcer.isGE0 (nCols, "Cols");
+    if (nRows == 0 || nInner == 0 || nCols == 0)
+      return;
+
+    if (nRows > BLOCK_SIZE && (long) nRows * nInner * nCols >= PARALLEL_THRESHOLD)
+      ForkJoinPool.commonPool ()
+                  .invoke (new MultiplyAction (aA,
+                                               nARow,
+                                               nACol,
+                                               aB,
+                                               nBRow,
+                                               nBCol,
+                                               aC,
+                                               nCRow,
+                                               nCCol,
+                                               0,
+                                               nRows,
+                                               nInner,
+                                               nCols,
+                                               bSubtract));
+    else
+      _kernel (aA, nARow, nACol, aB, nBRow, nBCol, aC, nCRow, nCCol, 0, nRows, nInner, nCols, bSubtract);
+  }
+
+  /**
+   * Compute C += A * B on sub matrices of the provided arrays. The source
+   * regions may be part of the same array as the target region, as long as
+   * they do not overlap with the target region.
+   *
+   * @param aA
+   *        Left hand side array. May not be <code>null</code>.
+   * @param nARow
+   *        First row of the left hand side region.
+   * @param nACol
+   *        First column of the left hand side region.
+   * @param aB
+   *        Right hand side array. May not be <code>null</code>.
+   * @param nBRow
+   *        First row of the right hand side region.
+   * @param nBCol
+   *        First column of the right hand side region.
+   * @param aC
+   *        Target array. May not be <code>null</code>.
+   * @param nCRow
+   *        First row of the target region.
+   * @param nCCol
+   *        First column of the target region.
+   * @param nRows
+   *        Number of rows of the left hand side and the target region.
+   * @param nInner
+   *        Number of columns of the left hand side and number of rows of the
+   *        right hand side region.
+   * @param nCols
+   *        Number of columns of the right hand side and the target region.
+   */
+  public static void multiplyAdd (@Nonnull final double [] [] aA,
+                                  @Nonnegative final int nARow,
+                                  @Nonnegative final int nACol,
+                                  @Nonnull final double [] [] aB,
+                                  @Nonnegative final int nBRow,
+                                  @Nonnegative final int nBCol,
+                                  @Nonnull final double [] [] aC,
+                                  @Nonnegative final int nCRow,
+                                  @Nonnegative final int nCCol,
+                                  @Nonnegative final int nRows,
+                                  @Nonnegative final int nInner,
+                                  @Nonnegative final int nCols)
+  {
+    _multiply (aA, nARow, nACol, aB, nBRow, nBCol, aC, nCRow, nCCol, nRows, nInner, nCols, false);
+  }
+
+  /**
+   * Compute C -= A * B on sub matrices of the provided arrays. This is the
+   * trailing update of the blocked decompositions. The source regions may be
+   * part of the same array as the target region, as long as they do not
+   * overlap with the target region.
+   *
+   * @param aA
+   *        Left hand side array. May not be <code>null</code>.
+   * @param nARow
+   *        First row of the left hand side region.
+   * @param nACol
+   *        First column of the left hand side region.
+   * @param aB
+   *        Right hand side array. May not be <code>null</code>.
+   * @param nBRow
+   *        First row of the right hand side region.
+   * @param nBCol
+   *        First column of the right hand side region.
+   * @param aC
+   *        Target array. May not be <code>null</code>.
+   * @param nCRow
+   *        First row of the target region.
+   * @param nCCol
+   *        First column of the target region.
+   * @param nRows
+   *        Number of rows of the left hand side and the target region.
+   * @param nInner
+   *        Number of columns of the left hand side and number of rows of the
+   *        right hand side region.
+   * @param nCols
+   *        Number of columns of the right hand side and the target region.
+   */
+  public static void multiplySubtract (@Nonnull final double [] [] aA,
+                                       @Nonnegative final int nARow,
+                                       @Nonnegative final int nACol,
+                                       @Nonnull final double [] [] aB,
+                                       @Nonnegative final int nBRow,
+                                       @Nonnegative final int nBCol,
+                                       @Nonnull final double [] [] aC,
+                                       @Nonnegative final int nCRow,
+                                       @Nonnegative final int nCCol,
+                                       @Nonnegative final int nRows,
+                                       @Nonnegative final int nInner,
+                                       @Nonnegative final int nCols)
+  {
+    _multiply (aA, nARow, nACol, aB, nBRow, nBCol, aC, nCRow, nCCol, nRows, nInner, nCols, true);
+  }
+
+  /**
+   * Multiply two matrices stored in flat row-major arrays, as created by
+   * {@link Matrix#getRowPackedCopy()}. The element (i, j) of an m-by-n matrix
+   * is stored at index i * n + j.
+   *
+   * @param aA
+   *        The left hand side m-by-n matrix. May not be <code>null</code>.
+   * @param aB
+   *        The right hand side n-by-p matrix. May not be <code>null</code>.
+   * @param nRows
+   *        m - the number of rows of A
+   * @param nInner
+   *        n - the number of columns of A and the number of rows of B
+   * @param nCols
+   *        p - the number of columns of B
+   * @return The m-by-p product A * B in row-major order. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static double [] multiply (@Nonnull final double [] aA,
+                                    @Nonnull final double [] aB,
+                                    @Nonnegative final int nRows,
+                                    @Nonnegative final int nInner,
+                                    @Nonnegative final int nCols)
+  {
+    ValueEnforcer.notNull (aA, "A");
+    ValueEnforcer.notNull (aB, "B");
+    ValueEnforcer.isGE0 (nRows, "Rows");
+    ValueEnforcer.isGE0 (nInner, "Inner");
+    ValueEnforcer.isGE0 (nCols, "Cols");
+    ValueEnforcer.isTrue (aA.length == nRows * nInner, "A has the wrong length");
+    ValueEnforcer.isTrue (aB.length == nInner * nCols, "B has the wrong length");
+
+    final double [] aC = new double [nRows * nCols];
+    if (nRows > BLOCK_SIZE && (long) nRows * nInner * nCols >= PARALLEL_THRESHOLD)
+    {
+      // Split by row tiles
+      final int nTiles = (nRows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      IntStream.range (0, nTiles)
+               .parallel ()
+               .forEach (t -> _flatKernel (aA,
+                                           aB,
+                                           aC,
+                                           t * BLOCK_SIZE,
+                                           Math.min ((t + 1) * BLOCK_SIZE, nRows),
+                                           nInner,
+                                           nCols));
+    }
+    else
+      _flatKernel (aA, aB, aC, 0, nRows, nInner, nCols);
+    return aC;
+  }
+
+  private static void _flatKernel (@Nonnull final double [] aA,
+                                   @Nonnull final double [] aB,
+                                   @Nonnull final double [] aC,
+                                   final int nFirstRow,
+                                   final int nLastRow,
+                                   final int nInner,
+                                   final int nCols)
+  {
+    for (int ii = nFirstRow; ii < nLastRow; ii += BLOCK_SIZE)
+    {
+      final int nIEnd = Math.min (ii + BLOCK_SIZE, nLastRow);
+      for (int kk = 0; kk < nInner; kk += BLOCK_SIZE)
+      {
+        final int nKEnd = Math.min (kk + BLOCK_SIZE, nInner);
+        for (int jj = 0; jj < nCols; jj += BLOCK_SIZE)
+        {
+          final int nJEnd = Math.min (jj + BLOCK_SIZE, nCols);
+          for (int i = ii; i < nIEnd; i++)
+          {
+            final int nARowOfs = i * nInner;
+            final int nCRowOfs = i * nCols;
+            for (int k = kk; k < nKEnd; k++)
+            {
+              final double dAik = aA[nARowOfs + k];
+              final int nBRowOfs = k * nCols;
+              for (int j = jj; j < nJEnd; j++)
+                aC[nCRowOfs + j] += dAik * aB[nBRowOfs + j];
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -16,6 +16,9 @@
  */
 package com.helger.matrix;
 
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
 import javax.annotation.Nonnull;
 
 import com.helger.commons.annotation.ReturnsMutableCopy;
@@ -63,10 +66,38 @@ public class CholeskyDecomposition
    */
   public CholeskyDecomposition (@Nonnull final Matrix aMatrix)
   {
-    // Initialize.
-    final double [] [] aArray = aMatrix.internalGetArray ();
+    this (aMatrix, false);
+  }
+
+  /**
+   * Cholesky algorithm for symmetric and positive definite matrix. Structure to
+   * access L and isspd flag.
+   *
+   * @param aMatrix
+   *        Square, symmetric matrix.
+   * @param bBlocked
+   *        <code>true</code> to use the blocked right-looking algorithm that
+   *        performs the bulk of the work in
+   *        {@link BlockedMatrixHelper#multiplySubtract(double[][], int, int, double[][], int, int, double[][], int, int, int, int, int)}
+   *        (recommended for big matrices), <code>false</code> to use the
+   *        classic row-oriented algorithm. Results may differ in the last bits.
+   *        Non-square matrices are always handled by the classic algorithm.
+   * @since 11.1.4
+   */
+  public CholeskyDecomposition (@Nonnull final Matrix aMatrix, final boolean bBlocked)
+  {
     m_nDim = aMatrix.getRowDimension ();
     m_aData = new double [m_nDim] [m_nDim];
+    if (bBlocked && aMatrix.getColumnDimension () == m_nDim)
+      m_bIsSPD = _decomposeBlocked (aMatrix.internalGetArray ());
+    else
+      m_bIsSPD = _decomposeClassic (aMatrix);
+  }
+
+  private boolean _decomposeClassic (@Nonnull final Matrix aMatrix)
+  {
+    // Initialize.
+    final double [] [] aArray = aMatrix.internalGetArray ();
     boolean bIsSPD = (aMatrix.getColumnDimension () == m_nDim);
     // Main loop.
     for (int nRow = 0; nRow < m_nDim; nRow++)
@@ -90,7 +121,104 @@ public class CholeskyDecomposition
       for (int k = nRow + 1; k < m_nDim; k++)
         aRowJ[k] = 0.0;
     }
-    m_bIsSPD = bIsSPD;
+    return bIsSPD;
+  }
+
+  private boolean _decomposeBlocked (@Nonnull final double [] [] aArray)
+  {
+    final int nBlockSize = BlockedMatrixHelper.BLOCK_SIZE;
+
+    // Check symmetry and copy the lower triangle
+    boolean bIsSPD = true;
+    for (int nRow = 0; nRow < m_nDim; nRow++)
+    {
+      final double [] aArrayJ = aArray[nRow];
+      for (int nCol = 0; nCol < nRow; nCol++)
+        bIsSPD = bIsSPD && EqualsHelper.equals (aArray[nCol][nRow], aArrayJ[nCol]);
+      System.arraycopy (aArrayJ, 0, m_aData[nRow], 0, nRow + 1);
+    }
+
+    for (int nKB = 0; nKB < m_nDim; nKB += nBlockSize)
+    {
+      final int kb = nKB;
+      final int ke = Math.min (kb + nBlockSize, m_nDim);
+
+      // Factor the diagonal block
+      for (int nRow = kb; nRow < ke; nRow++)
+      {
+        final double [] aRowJ = m_aData[nRow];
+        double d = 0.0;
+        for (int nCol = kb; nCol < nRow; nCol++)
+        {
+          final double [] aRowK = m_aData[nCol];
+          double s = 0.0;
+          for (int i = kb; i < nCol; i++)
+            s += aRowK[i] * aRowJ[i];
+          aRowJ[nCol] = s = (aRowJ[nCol] - s) / aRowK[nCol];
+          d += s * s;
+        }
+        d = aRowJ[nRow] - d;
+        bIsSPD = bIsSPD && (d > 0.0);
+        aRowJ[nRow] = Math.sqrt (Math.max (d, 0.0));
+      }
+
+      if (ke < m_nDim)
+      {
+        // Compute the panel below the diagonal block: L21 = A21 * L11'^-1
+        for (int nRow = ke; nRow < m_nDim; nRow++)
+        {
+          final double [] aRowJ = m_aData[nRow];
+          for (int nCol = kb; nCol < ke; nCol++)
+          {
+            final double [] aRowK = m_aData[nCol];
+            double s = 0.0;
+            for (int i = kb; i < nCol; i++)
+              s += aRowK[i] * aRowJ[i];
+            aRowJ[nCol] = (aRowJ[nCol] - s) / aRowK[nCol];
+          }
+        }
+
+        // Transposed copy of the panel as the right hand side of the update
+        final int nPanelWidth = ke - kb;
+        final double [] [] aPanelT = new double [nPanelWidth] [m_nDim - ke];
+        for (int nRow = ke; nRow < m_nDim; nRow++)
+        {
+          final double [] aRowJ = m_aData[nRow];
+          for (int k = 0; k < nPanelWidth; k++)
+            aPanelT[k][nRow - ke] = aRowJ[kb + k];
+        }
+
+        // Update the lower part of the trailing sub matrix: A22 -= L21 * L21'
+        // Each block row only up to its diagonal. The block rows are
+        // independent of each other.
+        final int nRest = m_nDim - ke;
+        final int nBlockRows = (nRest + nBlockSize - 1) / nBlockSize;
+        IntStream aBlockRows = IntStream.range (0, nBlockRows);
+        if ((long) nRest * nRest * nPanelWidth / 2 >= BlockedMatrixHelper.PARALLEL_THRESHOLD)
+          aBlockRows = aBlockRows.parallel ();
+        aBlockRows.forEach (nBlockRow -> {
+          final int rb = ke + nBlockRow * nBlockSize;
+          final int re = Math.min (rb + nBlockSize, m_nDim);
+          BlockedMatrixHelper.multiplySubtract (m_aData,
+                                                rb,
+                                                kb,
+                                                aPanelT,
+                                                0,
+                                                0,
+                                                m_aData,
+                                                rb,
+                                                ke,
+                                                re - rb,
+                                                nPanelWidth,
+                                                re - ke);
+        });
+      }
+    }
+
+    // The updates of the diagonal blocks touched the upper triangle
+    for (int nRow = 0; nRow < m_nDim; nRow++)
+      Arrays.fill (m_aData[nRow], nRow + 1, m_nDim, 0.0);
+    return bIsSPD;
   }
 
   /*
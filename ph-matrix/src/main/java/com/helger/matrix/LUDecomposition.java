@@ -75,13 +75,37 @@ public class LUDecomposition
 
   public LUDecomposition (@Nonnull final Matrix aMatrix)
   {
-    // Use a "left-looking", dot-product, Crout/Doolittle algorithm.
+    this (aMatrix, false);
+  }
+
+  /**
+   * LU Decomposition Structure to access L, U and piv.
+   *
+   * @param aMatrix
+   *        Rectangular matrix
+   * @param bBlocked
+   *        <code>true</code> to use the blocked right-looking algorithm that
+   *        performs the bulk of the work in
+   *        {@link BlockedMatrixHelper#multiplySubtract(double[][], int, int, double[][], int, int, double[][], int, int, int, int, int)}
+   *        (recommended for big matrices), <code>false</code> to use the
+   *        classic dot-product Crout algorithm. Results may differ in the last
+   *        bits.
+   * @since 11.1.4
+   */
+  public LUDecomposition (@Nonnull final Matrix aMatrix, final boolean bBlocked)
+  {
     m_aLU = aMatrix.getArrayCopy ();
     m_nRows = aMatrix.getRowDimension ();
     m_nCols = aMatrix.getColumnDimension ();
     m_aPivot = new int [m_nRows];
     for (int i = 0; i < m_nRows; i++)
       m_aPivot[i] = i;
+    m_nPivSign = bBlocked ? _decomposeBlocked () : _decomposeCrout ();
+  }
+
+  private int _decomposeCrout ()
+  {
+    // Use a "left-looking", dot-product, Crout/Doolittle algorithm.
     int nPivSign = 1;
     double [] aLUrowi;
     final double [] aLUcolj = new double [m_nRows];
@@ -133,7 +157,83 @@ public class LUDecomposition
         for (int i = j + 1; i < m_nRows; i++)
           m_aLU[i][j] /= aLUj[j];
     }
-    m_nPivSign = nPivSign;
+    return nPivSign;
+  }
+
+  private int _decomposeBlocked ()
+  {
+    // Use a "right-looking" blocked algorithm with partial pivoting
+    final int nBlockSize = BlockedMatrixHelper.BLOCK_SIZE;
+    final int nSteps = Math.min (m_nRows, m_nCols);
+    int nPivSign = 1;
+
+    for (int kb = 0; kb < nSteps; kb += nBlockSize)
+    {
+      final int ke = Math.min (kb + nBlockSize, nSteps);
+
+      // Factor the panel consisting of the columns kb to ke
+      for (int j = kb; j < ke; j++)
+      {
+        // Find pivot and exchange the whole rows if necessary.
+        int p = j;
+        for (int i = j + 1; i < m_nRows; i++)
+          if (MathHelper.abs (m_aLU[i][j]) > MathHelper.abs (m_aLU[p][j]))
+            p = i;
+        if (p != j)
+        {
+          final double [] aTmp = m_aLU[p];
+          m_aLU[p] = m_aLU[j];
+          m_aLU[j] = aTmp;
+          final int k = m_aPivot[p];
+          m_aPivot[p] = m_aPivot[j];
+          m_aPivot[j] = k;
+          nPivSign = -nPivSign;
+        }
+
+        // Compute multipliers and eliminate within the panel
+        final double [] aLUj = m_aLU[j];
+        if (aLUj[j] != 0.0)
+          for (int i = j + 1; i < m_nRows; i++)
+          {
+            final double [] aLUi = m_aLU[i];
+            final double dFactor = aLUi[j] /= aLUj[j];
+            for (int k = j + 1; k < ke; k++)
+              aLUi[k] -= dFactor * aLUj[k];
+          }
+      }
+
+      if (ke < m_nCols)
+      {
+        // Compute the block row of U: solve L11 * U12 = A12
+        for (int j = kb; j < ke; j++)
+        {
+          final double [] aLUj = m_aLU[j];
+          for (int i = j + 1; i < ke; i++)
+          {
+            final double [] aLUi = m_aLU[i];
+            final double dFactor = aLUi[j];
+            for (int k = ke; k < m_nCols; k++)
+              aLUi[k] -= dFactor * aLUj[k];
+          }
+        }
+
+        // Update the trailing sub matrix: A22 -= L21 * U12
+        if (ke < m_nRows)
+          BlockedMatrixHelper.multiplySubtract (m_aLU,
+                                                ke,
+                                                kb,
+                                                m_aLU,
+                                                kb,
+                                                ke,
+                                                m_aLU,
+                                                ke,
+                                                ke,
+                                                m_nRows - ke,
+                                                ke - kb,
+                                                m_nCols - ke);
+      }
+    }
+    return nPivSign;
   }
 
   /*
@@ -224,6 +224,36 @@ public class Matrix implements ICloneable <Matrix>, Serializable
     }
   }
 
+  /**
+   * Construct a matrix from a one-dimensional array packed by rows, as created
+   * by {@link #getRowPackedCopy()} or
+   * {@link BlockedMatrixHelper#multiply(double[], double[], int, int, int)}.
+   *
+   * @param aVals
+   *        One-dimensional array of doubles, packed by rows.
+   * @param nRows
+   *        Number of rows.
+   * @return The new matrix. Never <code>null</code>.
+   * @exception IllegalArgumentException
+   *            Array length must be a multiple of nRows.
+   * @since 11.1.4
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static Matrix constructFromRowPacked (@Nonnull final double [] aVals, @Nonnegative final int nRows)
+  {
+    ValueEnforcer.notNull (aVals, "Vals");
+    ValueEnforcer.isGT0 (nRows, "Rows");
+    final int nCols = aVals.length / nRows;
+    if (nRows * nCols != aVals.length)
+      throw new IllegalArgumentException ("Array length must be a multiple of nRows.");
+
+    final Matrix aNewMatrix = new Matrix (nRows, nCols);
+    for (int nRow = 0; nRow < nRows; nRow++)
+      System.arraycopy (aVals, nRow * nCols, aNewMatrix.m_aData[nRow], 0, nCols);
+    return aNewMatrix;
+  }
+
   /**
    * Construct a matrix from a copy of a 2-D array.
    *
@@ -1039,24 +1069,19 @@ public class Matrix implements ICloneable <Matrix>, Serializable
       throw new IllegalArgumentException ("Matrix inner dimensions must agree.");
 
     final Matrix aNewMatrix = new Matrix (m_nRows, aMatrix.m_nCols);
-    final double [] [] aNewArray = aNewMatrix.internalGetArray ();
-    final double [] aRhsCol = new double [m_nCols];
-    for (int nCol = 0; nCol < aMatrix.m_nCols; nCol++)
-    {
-      for (int k = 0; k < m_nCols; k++)
-        aRhsCol[k] = aMatrix.m_aData[k][nCol];
-
-      for (int nRow = 0; nRow < m_nRows; nRow++)
-      {
-        final double [] aRow = m_aData[nRow];
-
-        // Build and assign sum
-        double dValue = 0;
-        for (int k = 0; k < m_nCols; k++)
-          dValue += aRow[k] * aRhsCol[k];
-        aNewArray[nRow][nCol] = dValue;
-      }
-    }
+    // Cache blocked and parallel for big matrices
+    BlockedMatrixHelper.multiplyAdd (m_aData,
+                                     0,
+                                     0,
+                                     aMatrix.m_aData,
+                                     0,
+                                     0,
+                                     aNewMatrix.m_aData,
+                                     0,
+                                     0,
+                                     m_nRows,
+                                     m_nCols,
+                                     aMatrix.m_nCols);
     return aNewMatrix;
   }
 
@@ -16,6 +16,8 @@
  */
 package com.helger.matrix;
 
+import java.util.Arrays;
+
 import javax.annotation.Nonnull;
 
 import com.helger.commons.annotation.ReturnsMutableCopy;
@@ -79,6 +81,9 @@ public class QRDecomposition
     m_nCols = aMatrix.getColumnDimension ();
     m_aRdiag = new double [m_nCols];
 
+    // Column scalar products of the Householder vector
+    final double [] aS = new double [m_nCols];
+
     // Main loop.
     for (int k = 0; k < m_nCols; k++)
     {
@@ -100,18 +105,29 @@ public class QRDecomposition
         }
         m_aQR[k][k] += 1.0;
 
-        // Apply transformation to remaining columns.
-        for (int j = k + 1; j < m_nCols; j++)
+        // Apply transformation to remaining columns. The rows are streamed
+        // sequentially and all columns are handled in one pass over the
+        // rows. Each column is accumulated in the same order as a column-wise
+        // loop.
+        if (k + 1 < m_nCols)
         {
-          double s = 0.0;
+          Arrays.fill (aS, k + 1, m_nCols, 0.0);
           for (int i = k; i < m_nRows; i++)
           {
-            s += m_aQR[i][k] * m_aQR[i][j];
+            final double [] aRowI = m_aQR[i];
+            final double dVi = aRowI[k];
+            for (int j = k + 1; j < m_nCols; j++)
+              aS[j] += dVi * aRowI[j];
           }
-          s = -s / m_aQR[k][k];
+          final double dQRkk = m_aQR[k][k];
+          for (int j = k + 1; j < m_nCols; j++)
+            aS[j] = -aS[j] / dQRkk;
           for (int i = k; i < m_nRows; i++)
           {
-            m_aQR[i][j] += s * m_aQR[i][k];
+            final double [] aRowI = m_aQR[i];
+            final double dVi = aRowI[k];
+            for (int j = k + 1; j < m_nCols; j++)
+              aRowI[j] += aS[j] * dVi;
           }
         }
       }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.matrix;
+
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compare the classic and the blocked matrix algorithms. Run manually with big
+ * matrices, e.g. <code>BenchmarkMatrix 2000</code>.
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkMatrix
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (BenchmarkMatrix.class);
+  private static final int WARMUP_RUNS = 3;
+  private static final int MEASURE_RUNS = 5;
+
+  private BenchmarkMatrix ()
+  {}
+
+  private static double _benchmark (final Supplier <?> aTask)
+  {
+    for (int i = 0; i < WARMUP_RUNS; ++i)
+      aTask.get ();
+    System.gc ();
+    final long nStart = System.nanoTime ();
+    for (int i = 0; i < MEASURE_RUNS; ++i)
+      aTask.get ();
+    return (System.nanoTime () - nStart) / 1_000_000d / MEASURE_RUNS;
+  }
+
+  private static Matrix _naiveTimes (final Matrix aA, final Matrix aB)
+  {
+    // The column based dot product loop used before the blocked kernel
+    final int nRows = aA.getRowDimension ();
+    final int nInner = aA.getColumnDimension ();
+    final int nCols = aB.getColumnDimension ();
+    final double [] [] aAData = aA.internalGetArray ();
+    final double [] [] aBData = aB.internalGetArray ();
+    final Matrix ret = new Matrix (nRows, nCols);
+    final double [] [] aCData = ret.internalGetArray ();
+    final double [] aRhsCol = new double [nInner];
+    for (int nCol = 0; nCol < nCols; nCol++)
+    {
+      for (int k = 0; k < nInner; k++)
+        aRhsCol[k] = aBData[k][nCol];
+      for (int nRow = 0; nRow < nRows; nRow++)
+      {
+        final double [] aRow = aAData[nRow];
+        double dValue = 0;
+        for (int k = 0; k < nInner; k++)
+          dValue += aRow[k] * aRhsCol[k];
+        aCData[nRow][nCol] = dValue;
+      }
+    }
+    return ret;
+  }
+
+  public static void main (final String [] aArgs)
+  {
+    final int nDim = aArgs.length > 0 ? Integer.parseInt (aArgs[0]) : 1000;
+    LOGGER.info ("Matrix dimension " + nDim + "; " + Runtime.getRuntime ().availableProcessors () + " processors");
+
+    final Matrix aA = Matrix.random (nDim, nDim);
+    final Matrix aB = Matrix.random (nDim, nDim);
+    final Matrix aSPD = aA.times (aA.transpose ()).plus (Matrix.identity (nDim, nDim).times (nDim));
+    final double [] aAFlat = aA.getRowPackedCopy ();
+    final double [] aBFlat = aB.getRowPackedCopy ();
+
+    LOGGER.info ("times classic:    " + _benchmark ( () -> _naiveTimes (aA, aB)) + " ms");
+    LOGGER.info ("times blocked:    " + _benchmark ( () -> aA.times (aB)) + " ms");
+    LOGGER.info ("times flat:       " + _benchmark ( () -> BlockedMatrixHelper.multiply (aAFlat, aBFlat, nDim, nDim, nDim)) + " ms");
+    LOGGER.info ("LU classic:       " + _benchmark ( () -> new LUDecomposition (aA, false)) + " ms");
+    LOGGER.info ("LU blocked:       " + _benchmark ( () -> new LUDecomposition (aA, true)) + " ms");
+    LOGGER.info ("Cholesky classic: " + _benchmark ( () -> new CholeskyDecomposition (aSPD, false)) + " ms");
+    LOGGER.info ("Cholesky blocked: " + _benchmark ( () -> new CholeskyDecomposition (aSPD, true)) + " ms");
+    LOGGER.info ("QR:               " + _benchmark ( () -> new QRDecomposition (aA)) + " ms");
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.matrix;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link BlockedMatrixHelper}.
+ *
+ * @author Philip Helger
+ */
+public final class BlockedMatrixHelperTest
+{
+  private static final double EPSILON = 1e-9;
+
+  @Nonnull
+  private static Matrix _random (@Nonnull final Random aRandom, @Nonnegative final int nRows, @Nonnegative final int nCols)
+  {
+    final Matrix ret = new Matrix (nRows, nCols);
+    for (int i = 0; i < nRows; i++)
+      for (int j = 0; j < nCols; j++)
+        ret.set (i, j, aRandom.nextDouble () * 2 - 1);
+    return ret;
+  }
+
+  @Nonnull
+  private static Matrix _naiveTimes (@Nonnull final Matrix aA, @Nonnull final Matrix aB)
+  {
+    final Matrix ret = new Matrix (aA.getRowDimension (), aB.getColumnDimension ());
+    for (int i = 0; i < aA.getRowDimension (); i++)
+      for (int j = 0; j < aB.getColumnDimension (); j++)
+      {
+        double s = 0;
+        for (int k = 0; k < aA.getColumnDimension (); k++)
+          s += aA.get (i, k) * aB.get (k, j);
+        ret.set (i, j, s);
+      }
+    return ret;
+  }
+
+  private static void _assertClose (@Nonnull final Matrix aExpected, @Nonnull final Matrix aActual)
+  {
+    assertEquals (aExpected.getRowDimension (), aActual.getRowDimension ());
+    assertEquals (aExpected.getColumnDimension (), aActual.getColumnDimension ());
+    assertTrue (aExpected.minus (aActual).normInf () < EPSILON * Math.max (1, aExpected.normInf ()));
+  }
+
+  @Test
+  public void testTimesIsBitIdentical ()
+  {
+    final Random aRandom = new Random (4711);
+    // Small (serial), odd sizes (partial tiles) and big enough to be parallel
+    for (final int [] aDims : new int [] [] { { 1, 1, 1 }, { 3, 7, 5 }, { 65, 63, 129 }, { 200, 150, 170 } })
+    {
+      final Matrix aA = _random (aRandom, aDims[0], aDims[1]);
+      final Matrix aB = _random (aRandom, aDims[1], aDims[2]);
+      final Matrix aExpected = _naiveTimes (aA, aB);
+      final Matrix aActual = aA.times (aB);
+      for (int i = 0; i < aDims[0]; i++)
+        assertArrayEquals (aExpected.internalGetArray ()[i], aActual.internalGetArray ()[i], 0);
+
+      // Flat row-major variant
+      final double [] aFlat = BlockedMatrixHelper.multiply (aA.getRowPackedCopy (),
+                                                            aB.getRowPackedCopy (),
+                                                            aDims[0],
+                                                            aDims[1],
+                                                            aDims[2]);
+      assertEquals (aExpected, Matrix.constructFromRowPacked (aFlat, aDims[0]));
+    }
+  }
+
+  @Test
+  public void testMultiplySubtractOnSubMatrix ()
+  {
+    final Random aRandom = new Random (815);
+    final Matrix aA = _random (aRandom, 10, 10);
+    final Matrix aExpected = aA.getClone ();
+    // Rows 6-9 and cols 4-9 -= rows 6-9/cols 0-3 * rows 0-3/cols 4-9
+    final Matrix aUpdate = aA.getMatrix (6, 9, 0, 3).times (aA.getMatrix (0, 3, 4, 9));
+    aExpected.setMatrix (6, 9, 4, 9, aExpected.getMatrix (6, 9, 4, 9).minus (aUpdate));
+
+    final double [] [] aData = aA.internalGetArray ();
+    BlockedMatrixHelper.multiplySubtract (aData, 6, 0, aData, 0, 4, aData, 6, 4, 4, 4, 6);
+    _assertClose (aExpected, aA);
+  }
+
+  @Test
+  public void testBlockedLU ()
+  {
+    final Random aRandom = new Random (1234);
+    for (final int [] aDims : new int [] [] { { 5, 5 }, { 150, 150 }, { 170, 90 } })
+    {
+      final Matrix aA = _random (aRandom, aDims[0], aDims[1]);
+      final LUDecomposition aClassic = new LUDecomposition (aA);
+      final LUDecomposition aBlocked = new LUDecomposition (aA, true);
+
+      // Same pivoting for random matrices
+      assertArrayEquals (aClassic.getPivot (), aBlocked.getPivot ());
+      _assertClose (aClassic.getL (), aBlocked.getL ());
+      _assertClose (aClassic.getU (), aBlocked.getU ());
+      _assertClose (aA.getMatrix (aBlocked.getPivot (), 0, aDims[1] - 1), aBlocked.getL ().times (aBlocked.getU ()));
+    }
+
+    // Square system
+    final Matrix aA = _random (aRandom, 130, 130);
+    final LUDecomposition aLU = new LUDecomposition (aA, true);
+    assertTrue (aLU.isNonsingular ());
+    assertEquals (new LUDecomposition (aA).det (), aLU.det (), EPSILON * Math.abs (aLU.det ()));
+    final Matrix aB = _random (aRandom, 130, 3);
+    _assertClose (aB, aA.times (aLU.solve (aB)));
+
+    // Singular
+    final Matrix aSingular = new Matrix (100, 100, 1);
+    assertFalse (new LUDecomposition (aSingular, true).isNonsingular ());
+  }
+
+  @Test
+  public void testBlockedCholesky ()
+  {
+    final Random aRandom = new Random (42);
+    for (final int nDim : new int [] { 1, 7, 64, 150 })
+    {
+      // A * A' + n * I is symmetric positive definite
+      final Matrix aR = _random (aRandom, nDim, nDim);
+      final Matrix aA = aR.times (aR.transpose ()).plus (Matrix.identity (nDim, nDim).times (nDim));
+      final CholeskyDecomposition aClassic = new CholeskyDecomposition (aA);
+      final CholeskyDecomposition aBlocked = new CholeskyDecomposition (aA, true);
+      assertTrue (aClassic.isSPD ());
+      assertTrue (aBlocked.isSPD ());
+
+      final Matrix aL = aBlocked.getL ();
+      _assertClose (aClassic.getL (), aL);
+      _assertClose (aA, aL.times (aL.transpose ()));
+      for (int i = 0; i < nDim; i++)
+        for (int j = i + 1; j < nDim; j++)
+          assertEquals (0, aL.get (i, j), 0);
+    }
+
+    // Not symmetric
+    final Matrix aNotSym = _random (aRandom, 80, 80);
+    assertFalse (new CholeskyDecomposition (aNotSym, true).isSPD ());
+
+    // Symmetric but not positive definite
+    final Matrix aNotPD = Matrix.identity (80, 80);
+    aNotPD.set (70, 70, -1);
+    assertFalse (new CholeskyDecomposition (aNotPD, true).isSPD ());
+  }
+
+  @Test
+  public void testQR ()
+  {
+    final Random aRandom = new Random (7);
+    final Matrix aA = _random (aRandom, 120, 80);
+    final QRDecomposition aQR = new QRDecomposition (aA);
+    assertTrue (aQR.isFullRank ());
+    _assertClose (aA, aQR.getQ ().times (aQR.getR ()));
+  }
+}
@@ -442,12 +442,32 @@ public abstract class AbstractMicroNode implements IMicroNode
       m_aParentNode.internalTriggerEvent (eEventType, aEvent);
   }
 
+  /**
+   * @return <code>true</code> if this node or any of its parent nodes has at
+   *         least one event target registered.
+   */
+  private boolean _hasEventTargetsInHierarchy ()
+  {
+    AbstractMicroNode aNode = this;
+    while (aNode != null)
+    {
+      if (aNode.m_aEventTargets != null)
+        return true;
+      aNode = aNode.m_aParentNode;
+    }
+    return false;
+  }
+
   protected final void onEvent (@Nonnull final EMicroEvent eEventType,
                                 @Nonnull final IMicroNode aSourceNode,
                                 @Nonnull final IMicroNode aTargetNode)
   {
-    // Create the event only once
-    internalTriggerEvent (eEventType, new MicroEvent (eEventType, aSourceNode, aTargetNode));
+    // Don't create an event object if nobody is listening
+    if (_hasEventTargetsInHierarchy ())
+    {
+      // Create the event only once
+      internalTriggerEvent (eEventType, new MicroEvent (eEventType, aSourceNode, aTargetNode));
+    }
   }
 
   @Nonnull
@@ -471,8 +491,17 @@ public abstract class AbstractMicroNode implements IMicroNode
     if (m_aEventTargets != null && m_aEventTargets.isNotEmpty ())
     {
       final CallbackList <IMicroEventTarget> aSet = m_aEventTargets.get (eEventType);
-      if (aSet != null)
-        return aSet.removeObject (aTarget);
+      if (aSet != null && aSet.removeObject (aTarget).isChanged ())
+      {
+        // Free the memory if no target is left
+        if (aSet.isEmpty ())
+        {
+          m_aEventTargets.remove (eEventType);
+          if (m_aEventTargets.isEmpty ())
+            m_aEventTargets = null;
+        }
+        return EChange.CHANGED;
+      }
     }
     return EChange.UNCHANGED;
   }
@@ -481,6 +510,8 @@ public abstract class AbstractMicroNode implements IMicroNode
   @ReturnsMutableCopy
   public ICommonsMap <EMicroEvent, CallbackList <IMicroEventTarget>> getAllEventTargets ()
   {
+    if (m_aEventTargets == null)
+      return new CommonsEnumMap <> (EMicroEvent.class);
     return new CommonsEnumMap <> (m_aEventTargets);
   }
 
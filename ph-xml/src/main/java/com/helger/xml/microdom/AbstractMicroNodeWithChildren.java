@@ -45,6 +45,13 @@ import com.helger.commons.typeconvert.TypeConverter;
  */
 public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode implements IMicroNodeWithChildren
 {
+  /**
+   * The initial capacity of the child list. Most nodes have only very few
+   * children (often a single text node), so the default capacity of 10 would
+   * waste memory.
+   */
+  private static final int INITIAL_CHILDREN_CAPACITY = 2;
+
   /** The list of child elements. May be <code>null</code>. */
   private ICommonsList <IMicroNode> m_aChildren;
 
@@ -71,7 +78,7 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to documents");
     if (m_aChildren == null)
-      m_aChildren = new CommonsArrayList <> ();
+      m_aChildren = new CommonsArrayList <> (INITIAL_CHILDREN_CAPACITY);
     m_aChildren.add (aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
@@ -112,7 +119,7 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to nodes");
     if (m_aChildren == null)
-      m_aChildren = new CommonsArrayList <> ();
+      m_aChildren = new CommonsArrayList <> (INITIAL_CHILDREN_CAPACITY);
     m_aChildren.add (Math.min (nIndex, m_aChildren.size ()), aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
@@ -16,6 +16,7 @@
  */
 package com.helger.xml.microdom;
 
+import java.util.Arrays;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -33,10 +34,14 @@ import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.ReturnsImmutableObject;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.collection.iterate.ArrayIterator;
 import com.helger.commons.debug.GlobalDebug;
 import com.helger.commons.equals.EqualsHelper;
 import com.helger.commons.functional.ITriConsumer;
@@ -58,9 +63,22 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (MicroElement.class);
 
+  /**
+   * Up to this number of attributes, attributes are looked up with a linear
+   * search. For more attributes an additional hash index is maintained.
+   */
+  static final int ATTR_LINEAR_SEARCH_MAX = 8;
+  private static final int ATTR_INITIAL_CAPACITY = 2;
+
   private String m_sNamespaceURI;
   private final String m_sTagName;
-  private ICommonsOrderedMap <IMicroQName, MicroAttribute> m_aAttrs;
+  // All attributes in insertion order. The array is only allocated when the
+  // first attribute is added.
+  private MicroAttribute [] m_aAttrs;
+  private int m_nAttrCount;
+  // Lookup index - only present if there are more than ATTR_LINEAR_SEARCH_MAX
+  // attributes
+  private ICommonsMap <IMicroQName, MicroAttribute> m_aAttrIndex;
 
   public MicroElement (@Nonnull @Nonempty final String sTagName)
   {
@@ -110,18 +128,18 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
   public boolean hasAttributes ()
   {
-    return m_aAttrs != null && m_aAttrs.isNotEmpty ();
+    return m_nAttrCount > 0;
   }
 
   public boolean hasNoAttributes ()
   {
-    return m_aAttrs == null || m_aAttrs.isEmpty ();
+    return m_nAttrCount == 0;
   }
 
   @Nonnegative
   public int getAttributeCount ()
   {
-    return m_aAttrs == null ? 0 : m_aAttrs.size ();
+    return m_nAttrCount;
   }
 
   @Nullable
@@ -130,7 +148,9 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return m_aAttrs.values ();
+    // Copy, so that later modifications of this element are not visible
+    final MicroAttribute [] aAttrs = Arrays.copyOf (m_aAttrs, m_nAttrCount);
+    return () -> new ArrayIterator <> (aAttrs);
   }
 
   @Nullable
@@ -139,7 +159,10 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return m_aAttrs.copyOfValues ();
+    final ICommonsList <MicroAttribute> ret = new CommonsArrayList <> (m_nAttrCount);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      ret.add (m_aAttrs[i]);
+    return ret;
   }
 
   @Nullable
@@ -148,9 +171,10 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return new CommonsLinkedHashMap <> (m_aAttrs.values (),
-                                        IMicroAttribute::getAttributeQName,
-                                        IMicroAttribute::getAttributeValue);
+    final ICommonsOrderedMap <IMicroQName, String> ret = new CommonsLinkedHashMap <> (m_nAttrCount);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      ret.put (m_aAttrs[i].getAttributeQName (), m_aAttrs[i].getAttributeValue ());
+    return ret;
   }
 
   @Nullable
@@ -159,33 +183,68 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return m_aAttrs.copyOfKeySet ();
+    final ICommonsOrderedSet <IMicroQName> ret = new CommonsLinkedHashSet <> (m_nAttrCount);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      ret.add (m_aAttrs[i].getAttributeQName ());
+    return ret;
   }
 
   public void forAllAttributes (@Nonnull final Consumer <? super IMicroAttribute> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (aConsumer);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      aConsumer.accept (m_aAttrs[i]);
   }
 
   public void forAllAttributes (@Nonnull final BiConsumer <? super IMicroQName, ? super String> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (a -> aConsumer.accept (a.getAttributeQName (), a.getAttributeValue ()));
+    for (int i = 0; i < m_nAttrCount; ++i)
+      aConsumer.accept (m_aAttrs[i].getAttributeQName (), m_aAttrs[i].getAttributeValue ());
   }
 
   public void forAllAttributes (@Nonnull final ITriConsumer <? super String, ? super String, ? super String> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (x -> aConsumer.accept (x.getNamespaceURI (),
-                                                    x.getAttributeName (),
-                                                    x.getAttributeValue ()));
+    for (int i = 0; i < m_nAttrCount; ++i)
+    {
+      final MicroAttribute aAttr = m_aAttrs[i];
+      aConsumer.accept (aAttr.getNamespaceURI (), aAttr.getAttributeName (), aAttr.getAttributeValue ());
+    }
+  }
+
+  /**
+   * Get the index of the attribute with the provided name.
+   *
+   * @param aQName
+   *        The attribute name to search. May not be <code>null</code>.
+   * @return -1 if no such attribute is present.
+   */
+  private int _getAttrIndex (@Nonnull final IMicroQName aQName)
+  {
+    if (m_aAttrIndex != null)
+    {
+      final MicroAttribute aAttr = m_aAttrIndex.get (aQName);
+      if (aAttr == null)
+        return -1;
+      // Identity search is cheap
+      for (int i = 0; i < m_nAttrCount; ++i)
+        if (m_aAttrs[i] == aAttr)
+          return i;
+      throw new IllegalStateException ("Attribute index is inconsistent");
+    }
+    for (int i = 0; i < m_nAttrCount; ++i)
+      if (aQName.equals (m_aAttrs[i].getAttributeQName ()))
+        return i;
+    return -1;
   }
 
   @Nullable
   public MicroAttribute getAttributeObj (@Nullable final IMicroQName aQName)
   {
-    return aQName == null || m_aAttrs == null ? null : m_aAttrs.get (aQName);
+    if (aQName == null || m_nAttrCount == 0)
+      return null;
+    if (m_aAttrIndex != null)
+      return m_aAttrIndex.get (aQName);
+    final int nIndex = _getAttrIndex (aQName);
+    return nIndex < 0 ? null : m_aAttrs[nIndex];
   }
 
   @Nullable
@@ -209,15 +268,31 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
   public boolean hasAttribute (@Nullable final IMicroQName aAttrName)
   {
-    return m_aAttrs != null && aAttrName != null && m_aAttrs.containsKey (aAttrName);
+    return getAttributeObj (aAttrName) != null;
   }
 
   @Nonnull
   public EChange removeAttribute (@Nullable final IMicroQName aAttrName)
   {
-    if (m_aAttrs == null || aAttrName == null)
+    if (aAttrName == null || m_nAttrCount == 0)
+      return EChange.UNCHANGED;
+    final int nIndex = _getAttrIndex (aAttrName);
+    if (nIndex < 0)
       return EChange.UNCHANGED;
-    return m_aAttrs.removeObject (aAttrName);
+
+    // Keep the order of the remaining attributes
+    final int nMoved = m_nAttrCount - nIndex - 1;
+    if (nMoved > 0)
+      System.arraycopy (m_aAttrs, nIndex + 1, m_aAttrs, nIndex, nMoved);
+    m_aAttrs[--m_nAttrCount] = null;
+    if (m_aAttrIndex != null)
+    {
+      if (m_nAttrCount <= ATTR_LINEAR_SEARCH_MAX)
+        m_aAttrIndex = null;
+      else
+        m_aAttrIndex.remove (aAttrName);
+    }
+    return EChange.CHANGED;
   }
 
   @Nonnull
@@ -226,9 +301,32 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     ValueEnforcer.notNull (aAttrName, "AttrName");
     if (sAttrValue != null)
     {
-      if (m_aAttrs == null)
-        m_aAttrs = new CommonsLinkedHashMap <> ();
-      m_aAttrs.put (aAttrName, new MicroAttribute (aAttrName, sAttrValue));
+      final MicroAttribute aAttr = new MicroAttribute (aAttrName, sAttrValue);
+      final int nIndex = _getAttrIndex (aAttrName);
+      if (nIndex >= 0)
+      {
+        // Replace existing attribute at the same position
+        m_aAttrs[nIndex] = aAttr;
+      }
+      else
+      {
+        if (m_aAttrs == null)
+          m_aAttrs = new MicroAttribute [ATTR_INITIAL_CAPACITY];
+        else
+          if (m_nAttrCount == m_aAttrs.length)
+            m_aAttrs = Arrays.copyOf (m_aAttrs, m_nAttrCount * 2);
+        m_aAttrs[m_nAttrCount++] = aAttr;
+
+        if (m_aAttrIndex == null && m_nAttrCount > ATTR_LINEAR_SEARCH_MAX)
+        {
+          // Switch to hash based lookup
+          m_aAttrIndex = new CommonsHashMap <> (m_nAttrCount * 2);
+          for (int i = 0; i < m_nAttrCount - 1; ++i)
+            m_aAttrIndex.put (m_aAttrs[i].getAttributeQName (), m_aAttrs[i]);
+        }
+      }
+      if (m_aAttrIndex != null)
+        m_aAttrIndex.put (aAttrName, aAttr);
     }
     else
       removeAttribute (aAttrName);
@@ -238,9 +336,12 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Nonnull
   public EChange removeAllAttributes ()
   {
-    if (m_aAttrs == null)
+    if (m_nAttrCount == 0)
       return EChange.UNCHANGED;
-    return m_aAttrs.removeAll ();
+    m_aAttrs = null;
+    m_nAttrCount = 0;
+    m_aAttrIndex = null;
+    return EChange.CHANGED;
   }
 
   @Nullable
@@ -382,8 +483,13 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement ret = new MicroElement (m_sNamespaceURI, m_sTagName);
 
     // Copy attributes
-    if (m_aAttrs != null)
-      ret.m_aAttrs = new CommonsLinkedHashMap <> (m_aAttrs);
+    if (m_nAttrCount > 0)
+    {
+      ret.m_aAttrs = Arrays.copyOf (m_aAttrs, m_nAttrCount);
+      ret.m_nAttrCount = m_nAttrCount;
+      if (m_aAttrIndex != null)
+        ret.m_aAttrIndex = new CommonsHashMap <> (m_aAttrIndex);
+    }
 
     // Deep clone all child nodes
     forAllChildren (aChildNode -> ret.appendChild (aChildNode.getClone ()));
@@ -400,7 +506,21 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement rhs = (MicroElement) o;
     return EqualsHelper.equals (m_sNamespaceURI, rhs.m_sNamespaceURI) &&
            m_sTagName.equals (rhs.m_sTagName) &&
-           EqualsHelper.equals (m_aAttrs, rhs.m_aAttrs);
+           _isEqualAttributes (rhs);
+  }
+
+  private boolean _isEqualAttributes (@Nonnull final MicroElement rhs)
+  {
+    if (m_nAttrCount != rhs.m_nAttrCount)
+      return false;
+    // The order of attributes is not relevant
+    for (int i = 0; i < m_nAttrCount; ++i)
+    {
+      final MicroAttribute aAttr = m_aAttrs[i];
+      if (!aAttr.equals (rhs.getAttributeObj (aAttr.getAttributeQName ())))
+        return false;
+    }
+    return true;
   }
 
   @Override
@@ -409,7 +529,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     return ToStringGenerator.getDerived (super.toString ())
                             .appendIfNotNull ("namespace", m_sNamespaceURI)
                             .append ("tagname", m_sTagName)
-                            .appendIfNotNull ("attrs", m_aAttrs)
+                            .appendIfNotNull ("attrs", getAllAttributeObjs ())
                             .getToString ();
   }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A table that shares the names of a single micro document. Documents with many
+ * small elements repeat the same tag names, namespace URIs and attribute names
+ * over and over again. Using this table, each distinct name is stored only once
+ * and the immutable attribute {@link MicroQName} objects are shared between all
+ * elements.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public final class MicroNameTable
+{
+  private final ICommonsMap <String, String> m_aNames = new CommonsHashMap <> ();
+  // Namespace URI ("" for none) to name to QName
+  private final ICommonsMap <String, ICommonsMap <String, MicroQName>> m_aQNames = new CommonsHashMap <> ();
+
+  public MicroNameTable ()
+  {}
+
+  /**
+   * Get the shared instance of the provided name.
+   *
+   * @param sName
+   *        The name (e.g. a tag name or a namespace URI) to get. May be
+   *        <code>null</code>.
+   * @return The shared instance of the name or <code>null</code> if
+   *         <code>null</code> was passed.
+   */
+  @Nullable
+  public String getName (@Nullable final String sName)
+  {
+    if (sName == null)
+      return null;
+    final String sExisting = m_aNames.putIfAbsent (sName, sName);
+    return sExisting != null ? sExisting : sName;
+  }
+
+  /**
+   * Get the shared qualified name for the provided namespace URI and name.
+   *
+   * @param sNamespaceURI
+   *        The namespace URI. May be <code>null</code>.
+   * @param sName
+   *        The name. May neither be <code>null</code> nor empty.
+   * @return The shared qualified name. Never <code>null</code>.
+   */
+  @Nonnull
+  public MicroQName getQName (@Nullable final String sNamespaceURI, @Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    final ICommonsMap <String, MicroQName> aPerNamespace = m_aQNames.computeIfAbsent (StringHelper.getNotNull (sNamespaceURI),
+                                                                                     k -> new CommonsHashMap <> ());
+    MicroQName ret = aPerNamespace.get (sName);
+    if (ret == null)
+    {
+      ret = new MicroQName (getName (sNamespaceURI), getName (sName));
+      aPerNamespace.put (sName, ret);
+    }
+    return ret;
+  }
+
+  /**
+   * @return The number of distinct names contained. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getNameCount ()
+  {
+    return m_aNames.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("NameCount", m_aNames.size ())
+                                       .append ("NamespaceCount", m_aQNames.size ())
+                                       .getToString ();
+  }
+}
@@ -23,8 +23,10 @@ import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.WillClose;
 import javax.annotation.concurrent.Immutable;
@@ -33,12 +35,14 @@ import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.ext.EntityResolver2;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.xml.EXMLParserFeature;
 import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.sax.InputSourceFactory;
 import com.helger.xml.serialize.read.ISAXReaderSettings;
 import com.helger.xml.serialize.read.SAXReader;
@@ -108,6 +112,92 @@ public final class MicroReader
     return aMicroHandler.getDocument ();
   }
 
+  /**
+   * Read the passed input source as MicroXML and pass each child element of
+   * the root element to the provided consumer as soon as it is completely
+   * read. The child elements of the root element are not contained in the
+   * returned document, so that the memory consumption does not depend on the
+   * number of child elements.
+   *
+   * @param aInputSource
+   *        The input source to use. May be <code>null</code> in which case
+   *        <code>null</code> is directly returned.
+   * @param aSettings
+   *        The settings to use. If <code>null</code> the default settings will
+   *        be used.
+   * @param aRootChildElementConsumer
+   *        The consumer for the child elements of the root element. May not be
+   *        <code>null</code>.
+   * @return <code>null</code> if either the input source is <code>null</code>
+   *         or if the input was invalid XML. Otherwise the document with the
+   *         root element but without its child elements.
+   * @since 11.1.4
+   */
+  @Nullable
+  public static IMicroDocument readMicroXMLStreaming (@WillClose @Nullable final InputSource aInputSource,
+                                                      @Nullable final ISAXReaderSettings aSettings,
+                                                      @Nonnull final Consumer <? super IMicroElement> aRootChildElementConsumer)
+  {
+    ValueEnforcer.notNull (aRootChildElementConsumer, "RootChildElementConsumer");
+    if (aInputSource == null)
+      return null;
+
+    final EntityResolver aEntityResolver = aSettings == null ? null : aSettings.getEntityResolver ();
+    final MicroSAXHandler aMicroHandler = new MicroSAXHandler (false, aEntityResolver, true);
+    aMicroHandler.setRootChildElementConsumer (aRootChildElementConsumer);
+
+    // Copy and modify settings
+    final SAXReaderSettings aRealSettings = SAXReaderSettings.createCloneOnDemand (aSettings);
+    aRealSettings.setEntityResolver (aMicroHandler)
+                 .setDTDHandler (aMicroHandler)
+                 .setContentHandler (aMicroHandler)
+                 .setLexicalHandler (aMicroHandler);
+    if (aRealSettings.getErrorHandler () == null)
+    {
+      // Use MicroHandler as default error handler if none is specified
+      aRealSettings.setErrorHandler (aMicroHandler);
+    }
+    if (aEntityResolver instanceof EntityResolver2)
+    {
+      // Ensure to use the new aEntityResolver2 APIs if available
+      aRealSettings.setFeatureValue (EXMLParserFeature.USE_ENTITY_RESOLVER2, true);
+    }
+
+    if (SAXReader.readXMLSAX (aInputSource, aRealSettings).isFailure ())
+      return null;
+    return aMicroHandler.getDocument ();
+  }
+
+  /**
+   * Read the passed file as MicroXML and pass each child element of the root
+   * element to the provided consumer as soon as it is completely read.
+   *
+   * @param aFile
+   *        The file to read. May be <code>null</code> in which case
+   *        <code>null</code> is directly returned.
+   * @param aSettings
+   *        The settings to use. If <code>null</code> the default settings will
+   *        be used.
+   * @param aRootChildElementConsumer
+   *        The consumer for the child elements of the root element. May not be
+   *        <code>null</code>.
+   * @return <code>null</code> if either the file is <code>null</code> or if
+   *         the input was invalid XML. Otherwise the document with the root
+   *         element but without its child elements.
+   * @see #readMicroXMLStreaming(InputSource, ISAXReaderSettings, Consumer)
+   * @since 11.1.4
+   */
+  @Nullable
+  public static IMicroDocument readMicroXMLStreaming (@Nullable final File aFile,
+                                                      @Nullable final ISAXReaderSettings aSettings,
+                                                      @Nonnull final Consumer <? super IMicroElement> aRootChildElementConsumer)
+  {
+    if (aFile == null)
+      return null;
+
+    return readMicroXMLStreaming (InputSourceFactory.create (aFile), aSettings, aRootChildElementConsumer);
+  }
+
   @Nullable
   public static IMicroDocument readMicroXML (@WillClose @Nullable final InputStream aIS)
   {
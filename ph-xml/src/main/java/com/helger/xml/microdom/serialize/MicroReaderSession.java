@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.serialize;
+
+import java.io.InputStream;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.ext.EntityResolver2;
+
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.IMutableStatisticsHandlerHistogramTimer;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.commons.timing.StopWatch;
+import com.helger.xml.EXMLParserFeature;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.sax.InputSourceFactory;
+import com.helger.xml.serialize.read.ISAXReaderSettings;
+import com.helger.xml.serialize.read.SAXReaderFactory;
+import com.helger.xml.serialize.read.SAXReaderSettings;
+
+/**
+ * A reusable session to read many micro documents one after another. In
+ * contrast to {@link MicroReader}, the XML parser and the
+ * {@link MicroSAXHandler} are created and configured only once per session and
+ * reused for every document. This greatly reduces the setup cost when reading
+ * many small documents.<br>
+ * Sessions must not be shared between threads. Use
+ * {@link #getForCurrentThread()} to get a session with the default settings
+ * that is bound to the current thread. In environments with pooled threads
+ * (e.g. servlet containers) call {@link #removeForCurrentThread()} when the
+ * work is done, as the thread bound session otherwise keeps the class loader
+ * of this library alive after an application was undeployed.<br>
+ * The parsing duration of each document is recorded in the statistics handlers
+ * of this class.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public final class MicroReaderSession
+{
+  private static final IMutableStatisticsHandlerHistogramTimer STATS_TIMER = StatisticsManager.getHistogramTimerHandler (MicroReaderSession.class);
+  private static final IMutableStatisticsHandlerCounter STATS_SUCCESS_COUNTER = StatisticsManager.getCounterHandler (MicroReaderSession.class.getName () +
+                                                                                                                     "$success");
+  private static final IMutableStatisticsHandlerCounter STATS_ERROR_COUNTER = StatisticsManager.getCounterHandler (MicroReaderSession.class.getName () +
+                                                                                                                   "$error");
+
+  private static final ThreadLocal <MicroReaderSession> PER_THREAD = ThreadLocal.withInitial (MicroReaderSession::new);
+
+  private final SAXReaderSettings m_aSettings;
+  private final MicroSAXHandler m_aHandler;
+  private final org.xml.sax.XMLReader m_aParser;
+  private boolean m_bInUse = false;
+
+  /**
+   * Constructor with the default settings.
+   */
+  public MicroReaderSession ()
+  {
+    this ((ISAXReaderSettings) null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aSettings
+   *        The settings to use for all documents read by this session. May be
+   *        <code>null</code> to use the default settings. The settings are
+   *        copied, so later modifications have no effect on this session.
+   */
+  public MicroReaderSession (@Nullable final ISAXReaderSettings aSettings)
+  {
+    final EntityResolver aEntityResolver = aSettings == null ? null : aSettings.getEntityResolver ();
+    m_aHandler = new MicroSAXHandler (false, aEntityResolver, true);
+
+    // Copy and modify settings - same as in MicroReader
+    m_aSettings = SAXReaderSettings.createCloneOnDemand (aSettings);
+    m_aSettings.setEntityResolver (m_aHandler)
+               .setDTDHandler (m_aHandler)
+               .setContentHandler (m_aHandler)
+               .setLexicalHandler (m_aHandler);
+    if (m_aSettings.getErrorHandler () == null)
+    {
+      // Use MicroHandler as default error handler if none is specified
+      m_aSettings.setErrorHandler (m_aHandler);
+    }
+    if (aEntityResolver instanceof EntityResolver2)
+    {
+      // Ensure to use the new aEntityResolver2 APIs if available
+      m_aSettings.setFeatureValue (EXMLParserFeature.USE_ENTITY_RESOLVER2, true);
+    }
+
+    // The parser is exclusively owned by this session
+    m_aParser = SAXReaderFactory.createXMLReader ();
+    m_aSettings.applyToSAXReader (m_aParser);
+  }
+
+  /**
+   * @return The session with the default settings for the current thread.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  public static MicroReaderSession getForCurrentThread ()
+  {
+    return PER_THREAD.get ();
+  }
+
+  /**
+   * Remove the session bound to the current thread, if any. The next call to
+   * {@link #getForCurrentThread()} on this thread creates a new session. Call
+   * this at the end of a request in pooled threads (e.g. in a servlet filter),
+   * so that the thread does not keep a reference to the session and therefore
+   * to the class loader that loaded it.
+   */
+  public static void removeForCurrentThread ()
+  {
+    PER_THREAD.remove ();
+  }
+
+  /**
+   * Read a single document.
+   *
+   * @param aInputSource
+   *        The input source to read from. May be <code>null</code>.
+   * @return <code>null</code> if the input source is <code>null</code> or if
+   *         parsing failed.
+   * @throws IllegalStateException
+   *         If this session is already reading a document (e.g. from a nested
+   *         call of the same thread).
+   */
+  @Nullable
+  public IMicroDocument readMicroXML (@WillClose @Nullable final InputSource aInputSource)
+  {
+    if (aInputSource == null)
+      return null;
+
+    if (m_bInUse)
+      throw new IllegalStateException ("This MicroReaderSession is already reading a document");
+    m_bInUse = true;
+
+    final StopWatch aSW = StopWatch.createdStarted ();
+    try
+    {
+      m_aHandler.reset ();
+      m_aParser.parse (aInputSource);
+
+      STATS_SUCCESS_COUNTER.increment ();
+      STATS_TIMER.addTime (aSW.stopAndGetMillis ());
+      return m_aHandler.getDocument ();
+    }
+    catch (final SAXParseException ex)
+    {
+      boolean bHandled = false;
+      if (m_aSettings.getErrorHandler () != null)
+        try
+        {
+          m_aSettings.getErrorHandler ().fatalError (ex);
+          bHandled = true;
+        }
+        catch (final SAXException ex2)
+        {
+          // fall-through
+        }
+
+      if (!bHandled)
+        m_aSettings.exceptionCallbacks ().forEach (x -> x.onException (ex));
+    }
+    catch (final Exception ex)
+    {
+      m_aSettings.exceptionCallbacks ().forEach (x -> x.onException (ex));
+    }
+    finally
+    {
+      // Don't keep a reference to the document
+      m_aHandler.reset ();
+      m_bInUse = false;
+
+      // Close both byte stream and character stream, as we don't know which one
+      // was used
+      StreamHelper.close (aInputSource.getByteStream ());
+      StreamHelper.close (aInputSource.getCharacterStream ());
+    }
+    STATS_ERROR_COUNTER.increment ();
+    return null;
+  }
+
+  @Nullable
+  public IMicroDocument readMicroXML (@Nullable final String sXML)
+  {
+    if (sXML == null)
+      return null;
+
+    return readMicroXML (InputSourceFactory.create (sXML));
+  }
+
+  @Nullable
+  public IMicroDocument readMicroXML (@Nullable final byte [] aXML)
+  {
+    if (aXML == null)
+      return null;
+
+    return readMicroXML (InputSourceFactory.create (aXML));
+  }
+
+  @Nullable
+  public IMicroDocument readMicroXML (@Nullable final byte [] aXML,
+                                      @Nonnegative final int nOfs,
+                                      @Nonnegative final int nLen)
+  {
+    if (aXML == null)
+      return null;
+
+    return readMicroXML (InputSourceFactory.create (aXML, nOfs, nLen));
+  }
+
+  @Nullable
+  public IMicroDocument readMicroXML (@WillClose @Nullable final InputStream aIS)
+  {
+    if (aIS == null)
+      return null;
+
+    try
+    {
+      return readMicroXML (InputSourceFactory.create (aIS));
+    }
+    finally
+    {
+      StreamHelper.close (aIS);
+    }
+  }
+
+  @Nullable
+  public IMicroDocument readMicroXML (@Nullable final IReadableResource aRes)
+  {
+    if (aRes == null)
+      return null;
+
+    return readMicroXML (InputSourceFactory.create (aRes));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Settings", m_aSettings).getToString ();
+  }
+}
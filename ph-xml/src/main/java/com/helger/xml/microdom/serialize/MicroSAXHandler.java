@@ -17,7 +17,9 @@
 package com.helger.xml.microdom.serialize;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -44,14 +46,13 @@ import com.helger.commons.error.level.EErrorLevel;
 import com.helger.commons.error.level.IErrorLevel;
 import com.helger.commons.location.SimpleLocation;
 import com.helger.commons.string.StringHelper;
-import com.helger.xml.microdom.IMicroCDATA;
 import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroDocumentType;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.IMicroNode;
-import com.helger.xml.microdom.IMicroText;
 import com.helger.xml.microdom.MicroDocument;
 import com.helger.xml.microdom.MicroDocumentType;
+import com.helger.xml.microdom.MicroNameTable;
 import com.helger.xml.sax.AbstractSAXErrorHandler;
 
 /**
@@ -63,9 +64,26 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (MicroSAXHandler.class);
 
+  /** The initial size of the text buffer */
+  static final int TEXT_BUFFER_INITIAL_SIZE = 256;
+  /** Bigger text buffers are released when the handler is reset */
+  static final int TEXT_BUFFER_MAX_RETAINED_SIZE = 64 * 1024;
+
+  /**
+   * The type of text that is currently collected in the text buffer.
+   */
+  private enum EPendingText
+  {
+    TEXT,
+    CDATA,
+    IGNORABLE_WHITESPACE;
+  }
+
   private IMicroDocument m_aDoc;
   private IMicroDocumentType m_aDocType;
   private IMicroNode m_aParent;
+  // Shares the names within the created document
+  private MicroNameTable m_aNameTable;
   private boolean m_bDTDMode = false;
   private boolean m_bCDATAMode = false;
   // Members
@@ -76,6 +94,12 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   private Locator m_aLocator;
   private String m_sSourceXMLVersion;
   private String m_sSourceXMLEncoding;
+  private Consumer <? super IMicroElement> m_aRootChildElementConsumer;
+  private int m_nElementDepth = 0;
+  // Adjacent text events are collected here and converted to a single node
+  private char [] m_aTextBuffer = new char [TEXT_BUFFER_INITIAL_SIZE];
+  private int m_nTextLength = 0;
+  private EPendingText m_ePendingText;
 
   public MicroSAXHandler (final boolean bSaveIgnorableWhitespaces,
                           @Nullable final EntityResolver aEntityResolver,
@@ -87,12 +111,70 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
     m_bTrackPosition = bTrackPosition;
   }
 
+  /**
+   * @return The consumer for the completely read child elements of the root
+   *         element. May be <code>null</code>.
+   * @since 11.1.4
+   */
+  @Nullable
+  public Consumer <? super IMicroElement> getRootChildElementConsumer ()
+  {
+    return m_aRootChildElementConsumer;
+  }
+
+  /**
+   * Set a consumer for the child elements of the root element. If set, each
+   * child element of the root element is detached from the document as soon as
+   * it is completely read and passed to the consumer. Whitespace-only text
+   * between these elements is not retained. This allows for streaming
+   * processing of large documents, as the resulting document only contains
+   * the root element without the child elements.
+   *
+   * @param aRootChildElementConsumer
+   *        The consumer to use. May be <code>null</code> to build the complete
+   *        document.
+   * @return this for chaining
+   * @since 11.1.4
+   */
+  @Nonnull
+  public MicroSAXHandler setRootChildElementConsumer (@Nullable final Consumer <? super IMicroElement> aRootChildElementConsumer)
+  {
+    m_aRootChildElementConsumer = aRootChildElementConsumer;
+    return this;
+  }
+
+  /**
+   * Reset all the document specific state, so that this handler can be used to
+   * read another document. Configuration like the root child element consumer
+   * is kept.
+   *
+   * @since 11.1.4
+   */
+  public void reset ()
+  {
+    m_aDoc = null;
+    m_aDocType = null;
+    m_aParent = null;
+    m_aNameTable = null;
+    m_bDTDMode = false;
+    m_bCDATAMode = false;
+    m_aLocator = null;
+    m_sSourceXMLVersion = null;
+    m_sSourceXMLEncoding = null;
+    m_nElementDepth = 0;
+    m_nTextLength = 0;
+    m_ePendingText = null;
+    if (m_aTextBuffer.length > TEXT_BUFFER_MAX_RETAINED_SIZE)
+      m_aTextBuffer = new char [TEXT_BUFFER_INITIAL_SIZE];
+  }
+
   private void _createParentDocument ()
   {
     if (m_aParent == null)
     {
       m_aDoc = new MicroDocument (m_aDocType);
       m_aParent = m_aDoc;
+      m_aNameTable = new MicroNameTable ();
     }
   }
 
@@ -130,6 +212,7 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   public void endDocument ()
   {
     _updatePosition ("endDocument");
+    _flushPendingText ();
   }
 
   public void startDTD (final String sName, final String sPublicId, final String sSystemId) throws SAXException
@@ -155,12 +238,14 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   {
     _updatePosition ("startElement");
     _createParentDocument ();
+    _flushPendingText ();
 
     final IMicroElement aElement;
+    final String sTagName = m_aNameTable.getName (sLocalName);
     if (StringHelper.hasText (sNamespaceURI))
-      aElement = m_aParent.appendElement (sNamespaceURI, sLocalName);
+      aElement = m_aParent.appendElement (m_aNameTable.getName (sNamespaceURI), sTagName);
     else
-      aElement = m_aParent.appendElement (sLocalName);
+      aElement = m_aParent.appendElement (sTagName);
 
     // copy attributes
     if (aAttributes != null)
@@ -175,74 +260,110 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
         // Ignore the "xmlns" attributes, as the SAX handler passes the correct
         // namespace URIs
         if (!sAttrName.startsWith (XMLConstants.XMLNS_ATTRIBUTE))
-          aElement.setAttribute (sAttrNamespaceURI, sAttrName, sAttrValue);
+          aElement.setAttribute (m_aNameTable.getQName (sAttrNamespaceURI, sAttrName), sAttrValue);
       }
     }
     m_aParent = aElement;
+    m_nElementDepth++;
   }
 
   public void endElement (final String sNamespaceURI, final String sLocalName, final String sQName)
   {
     _updatePosition ("endElement");
+    _flushPendingText ();
 
     // Go one level up in the stack
-    m_aParent = m_aParent.getParent ();
+    final IMicroNode aElement = m_aParent;
+    m_aParent = aElement.getParent ();
+    m_nElementDepth--;
+
+    if (m_aRootChildElementConsumer != null && m_nElementDepth == 1)
+    {
+      // A child element of the root element is complete
+      aElement.detachFromParent ();
+      m_aRootChildElementConsumer.accept ((IMicroElement) aElement);
+    }
   }
 
   public void processingInstruction (final String sTarget, final String sData)
   {
     _updatePosition ("processingInstruction");
     _createParentDocument ();
+    _flushPendingText ();
     m_aParent.appendProcessingInstruction (sTarget, sData);
   }
 
-  public void characters (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nLength)
+  private static boolean _isAllWhitespace (@Nonnull final char [] aChars,
+                                           @Nonnegative final int nStart,
+                                           @Nonnegative final int nLength)
   {
-    _updatePosition ("characters");
-    if (m_bCDATAMode)
+    for (int i = 0; i < nLength; ++i)
+      if (!Character.isWhitespace (aChars[nStart + i]))
+        return false;
+    return true;
+  }
+
+  private void _appendPendingText (@Nonnull final EPendingText eType,
+                                   @Nonnull final char [] aChars,
+                                   @Nonnegative final int nStart,
+                                   @Nonnegative final int nLength)
+  {
+    if (m_ePendingText != eType)
     {
-      // CDATA mode
-      final IMicroNode aLastChild = m_aParent.getLastChild ();
-      if (aLastChild != null && aLastChild.getType ().isCDATA ())
-      {
-        final IMicroCDATA aLastDATA = (IMicroCDATA) aLastChild;
-        // Merge directly following text nodes to one node!
-        // This may happen when compiling with JDK 1.6.0_04
-        aLastDATA.appendData (aChars, nStart, nLength);
-      }
-      else
-      {
-        // Add to parent
-        m_aParent.appendCDATA (aChars, nStart, nLength);
-      }
+      // Different text types are never merged
+      _flushPendingText ();
+      m_ePendingText = eType;
     }
-    else
+
+    final int nNewLength = m_nTextLength + nLength;
+    if (nNewLength > m_aTextBuffer.length)
+      m_aTextBuffer = Arrays.copyOf (m_aTextBuffer, Math.max (nNewLength, m_aTextBuffer.length * 2));
+    System.arraycopy (aChars, nStart, m_aTextBuffer, m_nTextLength, nLength);
+    m_nTextLength = nNewLength;
+  }
+
+  /**
+   * Create a single node from all the collected text. Must be called before
+   * any other node is created or the current parent changes.
+   */
+  private void _flushPendingText ()
+  {
+    final EPendingText eType = m_ePendingText;
+    if (eType == null)
+      return;
+
+    final int nLength = m_nTextLength;
+    m_ePendingText = null;
+    m_nTextLength = 0;
+
+    switch (eType)
     {
-      // Regular text node
-      final IMicroNode aLastChild = m_aParent.getLastChild ();
-      if (aLastChild != null && aLastChild.getType ().isText ())
-      {
-        final IMicroText aLastText = (IMicroText) aLastChild;
-        if (!aLastText.isElementContentWhitespace ())
-        {
-          // Merge directly following text nodes to one node!
-          // This may happen when compiling with JDK 1.6.0_04
-          aLastText.appendData (aChars, nStart, nLength);
-        }
-        else
+      case CDATA:
+        m_aParent.appendCDATA (m_aTextBuffer, 0, nLength);
+        break;
+      case IGNORABLE_WHITESPACE:
+        m_aParent.appendIgnorableWhitespaceText (m_aTextBuffer, 0, nLength);
+        break;
+      default:
+        if (m_aRootChildElementConsumer != null &&
+            m_nElementDepth == 1 &&
+            _isAllWhitespace (m_aTextBuffer, 0, nLength))
         {
-          // Add to parent
-          m_aParent.appendText (aChars, nStart, nLength);
+          // Don't collect the whitespaces between the streamed elements
+          return;
         }
-      }
-      else
-      {
-        // Add to parent
-        m_aParent.appendText (aChars, nStart, nLength);
-      }
+        m_aParent.appendText (m_aTextBuffer, 0, nLength);
+        break;
     }
   }
 
+  public void characters (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nLength)
+  {
+    _updatePosition ("characters");
+    // Directly following text parts are merged to one node
+    _appendPendingText (m_bCDATAMode ? EPendingText.CDATA : EPendingText.TEXT, aChars, nStart, nLength);
+  }
+
   public void comment (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nLength)
                                                                                                                      throws SAXException
   {
@@ -252,6 +373,7 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
     {
       // In case the comment comes before the root element....
       _createParentDocument ();
+      _flushPendingText ();
 
       m_aParent.appendComment (aChars, nStart, nLength);
     }
@@ -263,23 +385,7 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   {
     _updatePosition ("ignorableWhitespace");
     if (m_bSaveIgnorableWhitespaces)
-    {
-      final IMicroNode aLastChild = m_aParent.getLastChild ();
-      if (aLastChild != null && aLastChild.getType ().isText ())
-      {
-        final IMicroText aLastText = (IMicroText) aLastChild;
-        if (aLastText.isElementContentWhitespace ())
-        {
-          // Merge directly following text nodes to one node!
-          // This may happen when compiling with JDK 1.6.0_04
-          aLastText.appendData (aChars, nStart, nLength);
-        }
-        else
-          m_aParent.appendIgnorableWhitespaceText (aChars, nStart, nLength);
-      }
-      else
-        m_aParent.appendIgnorableWhitespaceText (aChars, nStart, nLength);
-    }
+      _appendPendingText (EPendingText.IGNORABLE_WHITESPACE, aChars, nStart, nLength);
   }
 
   @Nullable
@@ -37,8 +37,18 @@ import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
 import com.helger.commons.io.stream.NonBlockingStringWriter;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.state.ESuccess;
+import com.helger.xml.microdom.IMicroAttribute;
+import com.helger.xml.microdom.IMicroCDATA;
+import com.helger.xml.microdom.IMicroComment;
+import com.helger.xml.microdom.IMicroDocumentType;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroEntityReference;
 import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.IMicroProcessingInstruction;
+import com.helger.xml.microdom.IMicroQName;
+import com.helger.xml.microdom.IMicroText;
 import com.helger.xml.serialize.write.IXMLWriterSettings;
+import com.helger.xml.serialize.write.XMLStreamingWriter;
 import com.helger.xml.serialize.write.XMLWriterSettings;
 
 /**
@@ -250,6 +260,86 @@ public final class MicroWriter
     return writeToWriter (aNode, aWriter, XMLWriterSettings.DEFAULT_XML_SETTINGS);
   }
 
+  /**
+   * Write a Micro Node to an existing {@link XMLStreamingWriter}. This can be
+   * used to stream large documents, where only a small part (e.g. a single
+   * item) is available as a micro node at a time. The XML declaration is not
+   * written for documents.
+   *
+   * @param aNode
+   *        The node to be serialized. May be any kind of node (incl.
+   *        documents). May not be <code>null</code>.
+   * @param aWriter
+   *        The streaming writer to write to. May not be <code>null</code>. The
+   *        writer is not closed.
+   * @since 11.1.4
+   */
+  public static void writeToStreamingWriter (@Nonnull final IMicroNode aNode, @Nonnull final XMLStreamingWriter aWriter)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+    ValueEnforcer.notNull (aWriter, "Writer");
+
+    switch (aNode.getType ())
+    {
+      case ELEMENT:
+      {
+        final IMicroElement aElement = (IMicroElement) aNode;
+        aWriter.startElement (aElement.getNamespaceURI (), aElement.getTagName ());
+        if (aElement.hasAttributes ())
+          for (final IMicroAttribute aAttr : aElement.getAttributeObjs ())
+          {
+            final IMicroQName aAttrName = aAttr.getAttributeQName ();
+            aWriter.attribute (aAttrName.getNamespaceURI (), aAttrName.getName (), aAttr.getAttributeValue ());
+          }
+        _writeChildrenToStreamingWriter (aElement, aWriter);
+        aWriter.endElement ();
+        break;
+      }
+      case TEXT:
+      {
+        final IMicroText aText = (IMicroText) aNode;
+        aWriter.text (aText.getData ().toString (), aText.isEscape ());
+        break;
+      }
+      case CDATA:
+        aWriter.cdata (((IMicroCDATA) aNode).getData ().toString ());
+        break;
+      case COMMENT:
+        aWriter.comment (((IMicroComment) aNode).getData ().toString ());
+        break;
+      case ENTITY_REFERENCE:
+        aWriter.entityReference (((IMicroEntityReference) aNode).getName ());
+        break;
+      case DOCUMENT_TYPE:
+      {
+        final IMicroDocumentType aDocType = (IMicroDocumentType) aNode;
+        aWriter.writeDocumentType (aDocType.getQualifiedName (), aDocType.getPublicID (), aDocType.getSystemID ());
+        break;
+      }
+      case PROCESSING_INSTRUCTION:
+      {
+        final IMicroProcessingInstruction aPI = (IMicroProcessingInstruction) aNode;
+        aWriter.processingInstruction (aPI.getTarget (), aPI.getData ());
+        break;
+      }
+      case DOCUMENT:
+      case CONTAINER:
+        // No own properties
+        _writeChildrenToStreamingWriter (aNode, aWriter);
+        break;
+      default:
+        throw new IllegalArgumentException ("Passed node type " + aNode.getClass ().getName () + " is not yet supported");
+    }
+  }
+
+  private static void _writeChildrenToStreamingWriter (@Nonnull final IMicroNode aParentNode,
+                                                       @Nonnull final XMLStreamingWriter aWriter)
+  {
+    if (aParentNode.hasChildren ())
+      for (final IMicroNode aChild : aParentNode.getAllChildren ())
+        writeToStreamingWriter (aChild, aWriter);
+  }
+
   /**
    * Convert the passed micro node to an XML string using the provided settings.
    *
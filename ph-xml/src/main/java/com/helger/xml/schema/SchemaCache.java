@@ -57,7 +57,37 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
                       @Nullable final ErrorHandler aErrorHandler,
                       @Nullable final LSResourceResolver aResourceResolver)
   {
-    super (aKey -> createSchema (aSchemaFactory, sSchemaTypeName, aKey), 500, SchemaCache.class.getName () + "$" + sSchemaTypeName);
+    this (sSchemaTypeName, aSchemaFactory, aErrorHandler, aResourceResolver, DEFAULT_USE_CONCURRENT_CACHE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param sSchemaTypeName
+   *        The schema type name. May not be <code>null</code>.
+   * @param aSchemaFactory
+   *        The schema factory to use. May not be <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>.
+   * @param aResourceResolver
+   *        The resource resolver to use. May be <code>null</code>.
+   * @param bUseConcurrentCache
+   *        <code>true</code> to use a
+   *        {@link com.helger.commons.cache.ConcurrentCache} internally,
+   *        <code>false</code> to use the default implementation.
+   * @since 11.1.4
+   */
+  public SchemaCache (@Nonnull final String sSchemaTypeName,
+                      @Nonnull final SchemaFactory aSchemaFactory,
+                      @Nullable final ErrorHandler aErrorHandler,
+                      @Nullable final LSResourceResolver aResourceResolver,
+                      final boolean bUseConcurrentCache)
+  {
+    super (aKey -> createSchema (aSchemaFactory, sSchemaTypeName, aKey),
+           500,
+           SchemaCache.class.getName () + "$" + sSchemaTypeName,
+           DEFAULT_ALLOW_NULL_VALUES,
+           bUseConcurrentCache);
     ValueEnforcer.notNull (sSchemaTypeName, "SchemaTypeName");
     ValueEnforcer.notNull (aSchemaFactory, "SchemaFactory");
     m_sSchemaTypeName = sSchemaTypeName;
@@ -17,22 +17,19 @@
 package com.helger.xml.serialize.write;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
-import java.util.Set;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.helger.commons.CGlobal;
-import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
-import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.ArrayHelper;
 import com.helger.commons.collection.impl.ICommonsOrderedSet;
-import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.io.stream.NonBlockingCharArrayWriter;
 import com.helger.commons.string.StringHelper;
 import com.helger.xml.EXMLVersion;
 
@@ -556,33 +553,253 @@ public final class XMLMaskHelper
   }
 
   /**
-   * Convert the passed set to an array
-   *
-   * @param aChars
-   *        Character set to use. May not be <code>null</code>.
-   * @return A new array with the same length as the source set.
+   * Precomputed masking information for one combination of
+   * {@link EXMLSerializeVersion} and {@link EXMLCharMode}. For all chars &lt;
+   * 256 the classification is a simple table lookup. The replacement table is
+   * as long as the biggest char to be masked.
    */
-  @Nonnull
-  @ReturnsMutableCopy
-  private static char [] _getAsCharArray (@Nonnull final Set <Character> aChars)
+  private static final class MaskTable
   {
-    ValueEnforcer.notNull (aChars, "Chars");
+    private static final int LOW_CHAR_COUNT = 0x100;
 
-    final char [] ret = new char [aChars.size ()];
-    int nIndex = 0;
-    for (final Character aChar : aChars)
-      ret[nIndex++] = aChar.charValue ();
-    return ret;
+    private final EXMLSerializeVersion m_eXMLVersion;
+    private final EXMLCharMode m_eXMLCharMode;
+    // Combination of CLASS_* flags for all chars < LOW_CHAR_COUNT
+    private final byte [] m_aLowClasses = new byte [LOW_CHAR_COUNT];
+    // Index is the char to be replaced; null means "no replacement"
+    private final char [] [] m_aReplacements;
+
+    MaskTable (@Nonnull final EXMLSerializeVersion eXMLVersion, @Nonnull final EXMLCharMode eXMLCharMode)
+    {
+      m_eXMLVersion = eXMLVersion;
+      m_eXMLCharMode = eXMLCharMode;
+
+      final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
+      if (aSrcMap == null)
+        m_aReplacements = new char [0] [];
+      else
+      {
+        final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
+        int nMaxChar = 0;
+        for (final char c : aSrcMap)
+          nMaxChar = Math.max (nMaxChar, c);
+        m_aReplacements = new char [nMaxChar + 1] [];
+        for (int i = 0; i < aSrcMap.length; ++i)
+          m_aReplacements[aSrcMap[i]] = aDstMap[i];
+      }
+
+      for (int c = 0; c < LOW_CHAR_COUNT; ++c)
+        m_aLowClasses[c] = (byte) _getCharClass (c);
+    }
+
+    private boolean _isInvalid (final int c)
+    {
+      switch (m_eXMLCharMode)
+      {
+        case ELEMENT_NAME:
+        case ATTRIBUTE_NAME:
+          return XMLCharHelper.isInvalidXMLNameChar (m_eXMLVersion, c);
+        case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
+        case ATTRIBUTE_VALUE_SINGLE_QUOTES:
+          return XMLCharHelper.isInvalidXMLAttributeValueChar (m_eXMLVersion, c);
+        case TEXT:
+          return XMLCharHelper.isInvalidXMLTextChar (m_eXMLVersion, c);
+        case CDATA:
+          return XMLCharHelper.isInvalidXMLCDATAChar (m_eXMLVersion, c);
+        default:
+          throw new IllegalArgumentException ("Unsupported XML character mode " + m_eXMLCharMode + "!");
+      }
+    }
+
+    private int _getCharClass (final int c)
+    {
+      int ret = CLASS_PLAIN;
+      if (c < m_aReplacements.length && m_aReplacements[c] != null)
+        ret |= CLASS_REPLACE;
+      if (_isInvalid (c))
+        ret |= CLASS_INVALID;
+      return ret;
+    }
+
+    int getCharClass (final char c)
+    {
+      return c < LOW_CHAR_COUNT ? m_aLowClasses[c] : _getCharClass (c);
+    }
+
+    @Nonnull
+    char [] getReplacement (final char c)
+    {
+      return m_aReplacements[c];
+    }
+
+    void notifyOnInvalidChars (@Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
+                               @Nonnull final char [] aChars,
+                               @Nonnegative final int nOfs,
+                               @Nonnegative final int nLen)
+    {
+      final ICommonsOrderedSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (m_eXMLVersion,
+                                                                                                   m_eXMLCharMode,
+                                                                                                   aChars,
+                                                                                                   nOfs,
+                                                                                                   nLen);
+      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (new String (aChars, nOfs, nLen), aAllInvalidChars);
+    }
+  }
+
+  private static final int CLASS_PLAIN = 0;
+  private static final int CLASS_REPLACE = 1;
+  private static final int CLASS_INVALID = 2;
+
+  // Index 1 is the XML version, index 2 is the char mode
+  private static final MaskTable [] [] MASK_TABLES;
+
+  static
+  {
+    final EXMLSerializeVersion [] aVersions = EXMLSerializeVersion.values ();
+    final EXMLCharMode [] aCharModes = EXMLCharMode.values ();
+    MASK_TABLES = new MaskTable [aVersions.length] [aCharModes.length];
+    for (final EXMLSerializeVersion eVersion : aVersions)
+      for (final EXMLCharMode eCharMode : aCharModes)
+        MASK_TABLES[eVersion.ordinal ()][eCharMode.ordinal ()] = new MaskTable (eVersion, eCharMode);
   }
 
   @Nonnull
-  @ReturnsMutableCopy
-  private static char [] [] _createEmptyReplacement (@Nonnull final char [] aSrcMap)
+  private static MaskTable _getMaskTable (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                          @Nonnull final EXMLCharMode eXMLCharMode)
+  {
+    return MASK_TABLES[eXMLVersion.ordinal ()][eXMLCharMode.ordinal ()];
+  }
+
+  /**
+   * The single pass masking engine. Runs of chars that need no masking are
+   * written in bulk. Invalid characters are reported once per text (with all
+   * invalid characters contained) when the first one is found. Surrogate pairs
+   * are not masked but written as is, so the encoding of code points outside
+   * the BMP is left to the Writer.
+   *
+   * @return The number of chars written or that would have been written
+   */
+  @Nonnegative
+  private static int _maskTo (@Nonnull final MaskTable aTable,
+                              @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
+                              @Nonnull final char [] aSrc,
+                              @Nonnegative final int nOfs,
+                              @Nonnegative final int nLen,
+                              @Nullable final Writer aWriter) throws IOException
+  {
+    final boolean bTest = eIncorrectCharHandling.isTestRequired ();
+    final boolean bRemoveInvalid = bTest && eIncorrectCharHandling.isReplaceWithNothing ();
+    final int nEnd = nOfs + nLen;
+    int nRunStart = nOfs;
+    int nResultLen = 0;
+    boolean bNotified = false;
+    for (int i = nOfs; i < nEnd; ++i)
+    {
+      final char c = aSrc[i];
+      final int nClass = aTable.getCharClass (c);
+      if (nClass == CLASS_PLAIN)
+        continue;
+
+      final boolean bInvalid = bTest && (nClass & CLASS_INVALID) != 0;
+      if (bInvalid && !bNotified)
+      {
+        aTable.notifyOnInvalidChars (eIncorrectCharHandling, aSrc, nOfs, nLen);
+        bNotified = true;
+      }
+      final boolean bRemove = bInvalid && bRemoveInvalid;
+      if (bRemove || (nClass & CLASS_REPLACE) != 0)
+      {
+        // Flush the run so far
+        final int nRunLen = i - nRunStart;
+        if (nRunLen > 0)
+        {
+          if (aWriter != null)
+            aWriter.write (aSrc, nRunStart, nRunLen);
+          nResultLen += nRunLen;
+        }
+        if (!bRemove)
+        {
+          final char [] aReplacement = aTable.getReplacement (c);
+          if (aWriter != null)
+            aWriter.write (aReplacement);
+          nResultLen += aReplacement.length;
+        }
+        nRunStart = i + 1;
+      }
+    }
+
+    // Flush the rest
+    final int nRunLen = nEnd - nRunStart;
+    if (nRunLen > 0)
+    {
+      if (aWriter != null)
+        aWriter.write (aSrc, nRunStart, nRunLen);
+      nResultLen += nRunLen;
+    }
+    return nResultLen;
+  }
+
+  /**
+   * Same as {@link #_maskTo(MaskTable, EXMLIncorrectCharacterHandling, char[], int, int, Writer)}
+   * but working on a String, so that no char array copy is needed.
+   */
+  @Nonnegative
+  private static int _maskTo (@Nonnull final MaskTable aTable,
+                              @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
+                              @Nonnull final String sSrc,
+                              @Nullable final Writer aWriter) throws IOException
   {
-    final char [] [] ret = new char [aSrcMap.length] [];
-    for (int i = 0; i < aSrcMap.length; ++i)
-      ret[i] = ArrayHelper.EMPTY_CHAR_ARRAY;
-    return ret;
+    final boolean bTest = eIncorrectCharHandling.isTestRequired ();
+    final boolean bRemoveInvalid = bTest && eIncorrectCharHandling.isReplaceWithNothing ();
+    final int nEnd = sSrc.length ();
+    int nRunStart = 0;
+    int nResultLen = 0;
+    boolean bNotified = false;
+    for (int i = 0; i < nEnd; ++i)
+    {
+      final char c = sSrc.charAt (i);
+      final int nClass = aTable.getCharClass (c);
+      if (nClass == CLASS_PLAIN)
+        continue;
+
+      final boolean bInvalid = bTest && (nClass & CLASS_INVALID) != 0;
+      if (bInvalid && !bNotified)
+      {
+        // Happens rarely, so the copy is okay
+        aTable.notifyOnInvalidChars (eIncorrectCharHandling, sSrc.toCharArray (), 0, nEnd);
+        bNotified = true;
+      }
+      final boolean bRemove = bInvalid && bRemoveInvalid;
+      if (bRemove || (nClass & CLASS_REPLACE) != 0)
+      {
+        // Flush the run so far
+        final int nRunLen = i - nRunStart;
+        if (nRunLen > 0)
+        {
+          if (aWriter != null)
+            aWriter.write (sSrc, nRunStart, nRunLen);
+          nResultLen += nRunLen;
+        }
+        if (!bRemove)
+        {
+          final char [] aReplacement = aTable.getReplacement (c);
+          if (aWriter != null)
+            aWriter.write (aReplacement);
+          nResultLen += aReplacement.length;
+        }
+        nRunStart = i + 1;
+      }
+    }
+
+    // Flush the rest
+    final int nRunLen = nEnd - nRunStart;
+    if (nRunLen > 0)
+    {
+      if (aWriter != null)
+        aWriter.write (sSrc, nRunStart, nRunLen);
+      nResultLen += nRunLen;
+    }
+    return nResultLen;
   }
 
   @Nonnull
@@ -594,35 +811,17 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return ArrayHelper.EMPTY_CHAR_ARRAY;
 
-    char [] aChars = s.toCharArray ();
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
+    // Masking usually only adds a few chars
+    try (final NonBlockingCharArrayWriter aWriter = new NonBlockingCharArrayWriter (s.length () + 16))
     {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
-      {
-        final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                              eXMLCharMode,
-                                                                                              aChars);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = _getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-        }
-      }
+      _maskTo (_getMaskTable (eXMLVersion, eXMLCharMode), eIncorrectCharHandling, s, aWriter);
+      return aWriter.toCharArray ();
     }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
+    catch (final IOException ex)
     {
-      // Nothing to replace
-      return aChars;
+      // Cannot happen with an in-memory writer
+      throw new UncheckedIOException (ex);
     }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    return StringHelper.replaceMultiple (aChars, aSrcMap, aDstMap);
   }
 
   @Nonnegative
@@ -646,40 +845,17 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return 0;
 
-    char [] aChars = s.toCharArray ();
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired () &&
-        XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
+    try
     {
-      final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                            eXMLCharMode,
-                                                                                            aChars);
-      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-      if (eIncorrectCharHandling.isReplaceWithNothing ())
-      {
-        final char [] aSrcMap = _getAsCharArray (aAllInvalidChars);
-        final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-        aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-      }
-    }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    final int ret;
-    if (aSrcMap != null)
-    {
-      final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-      final int nResLen = StringHelper.getReplaceMultipleResultLength (aChars, aSrcMap, aDstMap);
-      ret = nResLen == CGlobal.ILLEGAL_UINT ? aChars.length : nResLen;
+      // Count only - no writer
+      // Reminder: Surrogate characters count as 2
+      return _maskTo (_getMaskTable (eXMLVersion, eXMLCharMode), eIncorrectCharHandling, s, null);
     }
-    else
+    catch (final IOException ex)
     {
-      // Nothing to replace
-      ret = aChars.length;
+      // Cannot happen without a writer
+      throw new UncheckedIOException (ex);
     }
-    // Reminder: Surrogate characters count as 2
-    return ret;
   }
 
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
@@ -689,7 +865,7 @@ public final class XMLMaskHelper
                                     @Nonnull final Writer aWriter) throws IOException
   {
     if (StringHelper.hasText (s))
-      maskXMLTextTo (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s.toCharArray (), 0, s.length (), aWriter);
+      _maskTo (_getMaskTable (eXMLVersion, eXMLCharMode), eIncorrectCharHandling, s, aWriter);
   }
 
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
@@ -700,57 +876,7 @@ public final class XMLMaskHelper
                                     @Nonnegative final int nLen,
                                     @Nonnull final Writer aWriter) throws IOException
   {
-    if (nLen == 0)
-      return;
-
-    char [] aChars = aSrcText;
-    int nRealOfs = nOfs;
-    int nRealLen = nLen;
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
-    {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars, nRealOfs, nRealLen))
-      {
-        final ICommonsOrderedSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                                     eXMLCharMode,
-                                                                                                     aChars,
-                                                                                                     nRealOfs,
-                                                                                                     nRealLen);
-        // Here we can convert, because this part should not be called very
-        // often
-        final String s = new String (aSrcText, nRealOfs, nRealLen);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = _getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-          nRealOfs = 0;
-          nRealLen = aChars.length;
-          if (nRealLen == 0)
-          {
-            // Nothing left after replacement
-            return;
-          }
-        }
-      }
-    }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
-    {
-      // Nothing to replace
-      // TODO write code points as XML entities
-      aWriter.write (aChars, nRealOfs, nRealLen);
-    }
-    else
-    {
-      final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-      // TODO write code points as XML entities
-      StringHelper.replaceMultipleTo (aChars, nRealOfs, nRealLen, aSrcMap, aDstMap, aWriter);
-    }
+    if (nLen > 0)
+      _maskTo (_getMaskTable (eXMLVersion, eXMLCharMode), eIncorrectCharHandling, aSrcText, nOfs, nLen, aWriter);
   }
 }
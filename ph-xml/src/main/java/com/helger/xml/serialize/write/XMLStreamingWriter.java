@@ -0,0 +1,725 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.write;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.io.stream.NonBlockingBufferedWriter;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.state.ETriState;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.XMLHelper;
+import com.helger.xml.namespace.IIterableNamespaceContext;
+
+/**
+ * A forward-only streaming XML writer on top of {@link XMLEmitter}. In contrast
+ * to {@link XMLWriter} and the micro DOM writer, no node tree is required: the
+ * elements, attributes and texts are written in document order, so that the
+ * memory consumption only depends on the nesting depth and the attributes of
+ * the currently open start tag. The output is identical to serializing the
+ * same structure as a micro DOM with the same {@link IXMLWriterSettings},
+ * including the namespace prefix handling, indentation and bracket modes.<br>
+ * The start tag of an element is emitted, as soon as the first child content
+ * (or the end of the element) is written, because the bracket mode and the
+ * indentation depend on whether an element has children or not.<br>
+ * Usage errors (e.g. an attribute after child content or closing more elements
+ * than were opened) result in an {@link IllegalStateException}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@NotThreadSafe
+public class XMLStreamingWriter implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (XMLStreamingWriter.class);
+
+  /**
+   * The state of a single open element.
+   */
+  private static final class ElementState
+  {
+    private final String m_sNamespaceURI;
+    private final String m_sTagName;
+    private final String m_sPrefix;
+    private final boolean m_bIndentPrev;
+    // Only present until the start tag is written
+    private ICommonsOrderedMap <QName, String> m_aAttrMap;
+    // Status vars
+    private boolean m_bHasChildren = false;
+    private boolean m_bIsFirstChildElement = false;
+    private boolean m_bLastChildInline = false;
+    // Emit a newline after the last child element, unless it is followed by
+    // inline content
+    private boolean m_bPendingAlign = false;
+    private EXMLSerializeIndent m_eIndentOuter;
+    private EXMLSerializeIndent m_eIndentInner;
+    private EXMLSerializeBracketMode m_eBracketMode;
+
+    ElementState (@Nullable final String sNamespaceURI,
+                  @Nonnull final String sTagName,
+                  @Nullable final String sPrefix,
+                  final boolean bIndentPrev,
+                  @Nonnull final ICommonsOrderedMap <QName, String> aAttrMap)
+    {
+      m_sNamespaceURI = sNamespaceURI;
+      m_sTagName = sTagName;
+      m_sPrefix = sPrefix;
+      m_bIndentPrev = bIndentPrev;
+      m_aAttrMap = aAttrMap;
+    }
+
+    boolean isStartTagOpen ()
+    {
+      return m_aAttrMap != null;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (null).append ("NamespaceURI", m_sNamespaceURI)
+                                         .append ("TagName", m_sTagName)
+                                         .append ("Prefix", m_sPrefix)
+                                         .append ("StartTagOpen", isStartTagOpen ())
+                                         .append ("HasChildren", m_bHasChildren)
+                                         .getToString ();
+    }
+  }
+
+  private final Writer m_aWriter;
+  private final IXMLWriterSettings m_aSettings;
+  private final XMLEmitter m_aEmitter;
+  private final AbstractXMLSerializer.NamespaceStack m_aNSStack;
+  private final ICommonsOrderedMap <String, String> m_aRootNSMap = new CommonsLinkedHashMap <> ();
+  private final ICommonsList <ElementState> m_aElementStack = new CommonsArrayList <> ();
+  private final StringBuilder m_aIndent = new StringBuilder (32);
+  private boolean m_bClosed = false;
+
+  /**
+   * Constructor
+   *
+   * @param aWriter
+   *        The writer to write to. Is closed when this object is closed. May
+   *        not be <code>null</code>.
+   * @param aSettings
+   *        The XML writer settings to use. May not be <code>null</code>.
+   */
+  public XMLStreamingWriter (@Nonnull @WillCloseWhenClosed final Writer aWriter, @Nonnull final IXMLWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    ValueEnforcer.notNull (aSettings, "Settings");
+    m_aWriter = aWriter;
+    m_aSettings = aSettings;
+    m_aEmitter = new XMLEmitter (aWriter, aSettings);
+
+    final NamespaceContext aNC = aSettings.getNamespaceContext ();
+    m_aNSStack = new AbstractXMLSerializer.NamespaceStack (aNC);
+    if (aSettings.isPutNamespaceContextPrefixesInRoot ())
+    {
+      if (aNC instanceof IIterableNamespaceContext)
+        m_aRootNSMap.putAll (((IIterableNamespaceContext) aNC).getPrefixToNamespaceURIMap ());
+      else
+        LOGGER.error ("XMLWriter settings has 'putNamespaceContextPrefixesInRoot' set to 'true', but the 'NamespaceContext' instance does not implement the 'IIterableNamespaceContext' interface. This functionality therefore does not work.");
+    }
+  }
+
+  /**
+   * Create a new streaming writer on the provided {@link OutputStream}, using
+   * the charset of the settings.
+   *
+   * @param aOS
+   *        The output stream to write to. Is closed when the created object is
+   *        closed. May not be <code>null</code>.
+   * @param aSettings
+   *        The XML writer settings to use. May not be <code>null</code>.
+   * @return The new streaming writer. Never <code>null</code>.
+   */
+  @Nonnull
+  public static XMLStreamingWriter create (@Nonnull @WillCloseWhenClosed final OutputStream aOS,
+                                           @Nonnull final IXMLWriterSettings aSettings)
+  {
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    ValueEnforcer.notNull (aSettings, "Settings");
+    return new XMLStreamingWriter (new NonBlockingBufferedWriter (StreamHelper.createWriter (aOS, aSettings.getCharset ())),
+                                   aSettings);
+  }
+
+  /**
+   * @return The XML writer settings as provided in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final IXMLWriterSettings getSettings ()
+  {
+    return m_aSettings;
+  }
+
+  /**
+   * @return The number of currently open elements. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getDepth ()
+  {
+    return m_aElementStack.size ();
+  }
+
+  private void _checkNotClosed ()
+  {
+    if (m_bClosed)
+      throw new IllegalStateException ("The XMLStreamingWriter is already closed");
+  }
+
+  /**
+   * Write the start tag of the provided element, if it was not yet written.
+   *
+   * @param aState
+   *        The element state to use. May not be <code>null</code>.
+   * @param bHasChildren
+   *        <code>true</code> if the element has child content
+   * @param bFirstChildInline
+   *        <code>true</code> if the first child content is inline (text, CDATA
+   *        or entity reference)
+   */
+  private void _writeStartTag (@Nonnull final ElementState aState,
+                               final boolean bHasChildren,
+                               final boolean bFirstChildInline)
+  {
+    if (!aState.isStartTagOpen ())
+      return;
+
+    final ElementState aParent = m_aElementStack.size () > 1 ? m_aElementStack.get (m_aElementStack.size () - 2) : null;
+    final String sParentNamespaceURI = aParent == null ? null : aParent.m_sNamespaceURI;
+    final String sParentTagName = aParent == null ? null : aParent.m_sTagName;
+    final ICommonsOrderedMap <QName, String> aAttrMap = aState.m_aAttrMap;
+
+    aState.m_bHasChildren = bHasChildren;
+    aState.m_bIsFirstChildElement = bHasChildren && !bFirstChildInline;
+    aState.m_eIndentOuter = m_aSettings.getIndentDeterminator ()
+                                       .getIndentOuter (sParentNamespaceURI,
+                                                        sParentTagName,
+                                                        aState.m_sNamespaceURI,
+                                                        aState.m_sTagName,
+                                                        aAttrMap,
+                                                        bHasChildren,
+                                                        m_aSettings.getIndent ());
+    // indent only if predecessor was an element
+    if (aState.m_eIndentOuter.isIndent () && m_aIndent.length () > 0 && aState.m_bIndentPrev)
+      m_aEmitter.onContentElementWhitespace (m_aIndent);
+
+    aState.m_eBracketMode = m_aSettings.getBracketModeDeterminator ()
+                                       .getBracketMode (aState.m_sNamespaceURI, aState.m_sTagName, aAttrMap, bHasChildren);
+    m_aEmitter.onElementStart (aState.m_sPrefix, aState.m_sTagName, aAttrMap, aState.m_eBracketMode);
+
+    if (bHasChildren)
+    {
+      aState.m_eIndentInner = m_aSettings.getIndentDeterminator ()
+                                         .getIndentInner (sParentNamespaceURI,
+                                                          sParentTagName,
+                                                          aState.m_sNamespaceURI,
+                                                          aState.m_sTagName,
+                                                          aAttrMap,
+                                                          bHasChildren,
+                                                          m_aSettings.getIndent ());
+      if (aState.m_eIndentInner.isAlign () && aState.m_bIsFirstChildElement)
+        m_aEmitter.onContentElementWhitespace (m_aSettings.getNewLineString ());
+
+      m_aIndent.append (m_aSettings.getIndentationString ());
+    }
+
+    // The attributes are no longer needed
+    aState.m_aAttrMap = null;
+  }
+
+  /**
+   * Called before any child content is written to the current element.
+   *
+   * @param bInline
+   *        <code>true</code> if the content to be written is inline content
+   *        (text, CDATA or entity reference)
+   * @return The current element state or <code>null</code> if no element is
+   *         open.
+   */
+  @Nullable
+  private ElementState _beforeChildContent (final boolean bInline)
+  {
+    _checkNotClosed ();
+    final ElementState aCurrent = m_aElementStack.getLast ();
+    if (aCurrent != null)
+    {
+      _writeStartTag (aCurrent, true, bInline);
+      if (aCurrent.m_bPendingAlign)
+      {
+        // A newline after an element is only emitted, if no inline content
+        // follows
+        if (!bInline)
+          m_aEmitter.onContentElementWhitespace (m_aSettings.getNewLineString ());
+        aCurrent.m_bPendingAlign = false;
+      }
+      aCurrent.m_bLastChildInline = bInline;
+    }
+    return aCurrent;
+  }
+
+  /**
+   * Write the XML declaration as configured in the settings. This must be the
+   * first call.
+   *
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter writeXMLDeclaration ()
+  {
+    return writeXMLDeclaration (ETriState.UNDEFINED);
+  }
+
+  /**
+   * Write the XML declaration as configured in the settings. This must be the
+   * first call.
+   *
+   * @param eStandalone
+   *        The standalone state to emit. It is only emitted, if the settings
+   *        allow it. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter writeXMLDeclaration (@Nonnull final ETriState eStandalone)
+  {
+    ValueEnforcer.notNull (eStandalone, "Standalone");
+    _checkNotClosed ();
+    if (m_aElementStack.isNotEmpty ())
+      throw new IllegalStateException ("The XML declaration must be written before the first element");
+
+    final EXMLSerializeXMLDeclaration eXMLDecl = m_aSettings.getSerializeXMLDeclaration ();
+    if (eXMLDecl.isEmit ())
+      m_aEmitter.onXMLDeclaration (m_aSettings.getXMLVersion (),
+                                   m_aSettings.getCharset ().name (),
+                                   eXMLDecl.isEmitStandalone () ? eStandalone : ETriState.UNDEFINED,
+                                   m_aSettings.isNewLineAfterXMLDeclaration ());
+    return this;
+  }
+
+  /**
+   * Write a document type declaration, if the settings allow it. This must be
+   * called before the first element.
+   *
+   * @param sQualifiedName
+   *        The qualified name of the document element. May neither be
+   *        <code>null</code> nor empty.
+   * @param sPublicID
+   *        Optional public ID. May be <code>null</code>.
+   * @param sSystemID
+   *        Optional system ID. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter writeDocumentType (@Nonnull @Nonempty final String sQualifiedName,
+                                               @Nullable final String sPublicID,
+                                               @Nullable final String sSystemID)
+  {
+    ValueEnforcer.notEmpty (sQualifiedName, "QualifiedName");
+    _checkNotClosed ();
+    if (m_aElementStack.isNotEmpty ())
+      throw new IllegalStateException ("The document type must be written before the first element");
+
+    if (m_aSettings.getSerializeDocType ().isEmit ())
+      m_aEmitter.onDocumentType (sQualifiedName, sPublicID, sSystemID);
+    return this;
+  }
+
+  /**
+   * Start a new element without a namespace URI.
+   *
+   * @param sTagName
+   *        The tag name of the element. May neither be <code>null</code> nor
+   *        empty.
+   * @return this for chaining
+   * @see #startElement(String, String)
+   */
+  @Nonnull
+  public XMLStreamingWriter startElement (@Nonnull @Nonempty final String sTagName)
+  {
+    return startElement (null, sTagName);
+  }
+
+  /**
+   * Start a new element. The namespace prefix is determined automatically from
+   * the namespace context of the settings or created. Each call must be
+   * matched by a call to {@link #endElement()}.
+   *
+   * @param sNamespaceURI
+   *        The namespace URI of the element. May be <code>null</code>.
+   * @param sTagName
+   *        The local name of the element. May neither be <code>null</code> nor
+   *        empty.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter startElement (@Nullable final String sNamespaceURI, @Nonnull @Nonempty final String sTagName)
+  {
+    ValueEnforcer.notEmpty (sTagName, "TagName");
+
+    // Indent only if the previous sibling is not inline - must be determined
+    // before the parent state is updated
+    final ElementState aPrevParent = m_aElementStack.getLast ();
+    final boolean bIndentPrev = aPrevParent == null || !aPrevParent.m_bLastChildInline;
+    final ElementState aParent = _beforeChildContent (false);
+    final boolean bIsRootElement = aParent == null;
+    final ICommonsOrderedMap <QName, String> aAttrMap = new CommonsLinkedHashMap <> ();
+
+    m_aNSStack.push ();
+
+    // Eventually adds a namespace attribute in the AttrMap
+    if (m_aSettings.isEmitNamespaces () && m_aNSStack.size () == 1 && m_aSettings.isPutNamespaceContextPrefixesInRoot ())
+      for (final Map.Entry <String, String> aEntry : m_aRootNSMap.entrySet ())
+      {
+        aAttrMap.put (XMLHelper.getXMLNSAttrQName (aEntry.getKey ()), aEntry.getValue ());
+        m_aNSStack.addNamespaceMapping (aEntry.getKey (), aEntry.getValue ());
+      }
+
+    // resolve Namespace prefix
+    String sElementNamespaceURI = null;
+    String sElementNSPrefix = null;
+    if (m_aSettings.isEmitNamespaces ())
+    {
+      sElementNamespaceURI = StringHelper.getNotNull (sNamespaceURI);
+      // Eventually adds a namespace attribute in the AttrMap
+      sElementNSPrefix = m_aNSStack.getElementNamespacePrefixToUse (sElementNamespaceURI, bIsRootElement, aAttrMap);
+    }
+
+    m_aElementStack.add (new ElementState (sElementNamespaceURI, sTagName, sElementNSPrefix, bIndentPrev, aAttrMap));
+    return this;
+  }
+
+  /**
+   * Add an attribute without a namespace URI to the current element.
+   *
+   * @param sName
+   *        The attribute name. May neither be <code>null</code> nor empty.
+   * @param sValue
+   *        The attribute value. May not be <code>null</code>.
+   * @return this for chaining
+   * @see #attribute(String, String, String)
+   */
+  @Nonnull
+  public XMLStreamingWriter attribute (@Nonnull @Nonempty final String sName, @Nonnull final String sValue)
+  {
+    return attribute (null, sName, sValue);
+  }
+
+  /**
+   * Add an attribute to the current element. This is only possible directly
+   * after {@link #startElement(String, String)} and before any child content
+   * was written. Adding an attribute with the same name twice overwrites the
+   * previous value.
+   *
+   * @param sNamespaceURI
+   *        The namespace URI of the attribute. May be <code>null</code>.
+   * @param sName
+   *        The local name of the attribute. May neither be <code>null</code>
+   *        nor empty.
+   * @param sValue
+   *        The attribute value. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter attribute (@Nullable final String sNamespaceURI,
+                                       @Nonnull @Nonempty final String sName,
+                                       @Nonnull final String sValue)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (sValue, "Value");
+    _checkNotClosed ();
+
+    final ElementState aCurrent = m_aElementStack.getLast ();
+    if (aCurrent == null || !aCurrent.isStartTagOpen ())
+      throw new IllegalStateException ("Attributes can only be added directly after an element was started");
+
+    final String sAttrNamespaceURI = StringHelper.getNotNull (sNamespaceURI);
+    String sAttrNSPrefix = null;
+    if (m_aSettings.isEmitNamespaces ())
+    {
+      // Eventually adds a namespace attribute in the AttrMap
+      sAttrNSPrefix = m_aNSStack.getAttributeNamespacePrefixToUse (sAttrNamespaceURI, sName, sValue, aCurrent.m_aAttrMap);
+    }
+
+    if (sAttrNSPrefix != null)
+      aCurrent.m_aAttrMap.put (new QName (sAttrNamespaceURI, sName, sAttrNSPrefix), sValue);
+    else
+      aCurrent.m_aAttrMap.put (new QName (sAttrNamespaceURI, sName), sValue);
+    return this;
+  }
+
+  /**
+   * Write escaped text content to the current element.
+   *
+   * @param sText
+   *        The text to write. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter text (@Nullable final String sText)
+  {
+    return text (sText, true);
+  }
+
+  /**
+   * Write text content to the current element.
+   *
+   * @param sText
+   *        The text to write. May be <code>null</code>.
+   * @param bEscape
+   *        <code>true</code> to escape the text, <code>false</code> to write it
+   *        as is.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter text (@Nullable final String sText, final boolean bEscape)
+  {
+    _beforeChildContent (true);
+    m_aEmitter.onText (sText, bEscape);
+    return this;
+  }
+
+  /**
+   * Write escaped text content to the current element.
+   *
+   * @param aText
+   *        The char array to write. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset into the array. Must be &ge; 0.
+   * @param nLen
+   *        Number of chars to write. Must be &ge; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter text (@Nonnull final char [] aText, @Nonnegative final int nOfs, @Nonnegative final int nLen)
+  {
+    ValueEnforcer.isArrayOfsLen (aText, nOfs, nLen);
+    _beforeChildContent (true);
+    m_aEmitter.onText (aText, nOfs, nLen);
+    return this;
+  }
+
+  /**
+   * Write a CDATA section to the current element. Depending on the settings it
+   * may be written as escaped text.
+   *
+   * @param sText
+   *        The CDATA content. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter cdata (@Nullable final String sText)
+  {
+    _beforeChildContent (true);
+    if (m_aSettings.isWriteCDATAAsText ())
+      m_aEmitter.onText (sText);
+    else
+      m_aEmitter.onCDATA (sText);
+    return this;
+  }
+
+  /**
+   * Write an entity reference to the current element.
+   *
+   * @param sEntityRef
+   *        The entity name without '&amp;' and ';'. May neither be
+   *        <code>null</code> nor empty.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter entityReference (@Nonnull @Nonempty final String sEntityRef)
+  {
+    ValueEnforcer.notEmpty (sEntityRef, "EntityRef");
+    _beforeChildContent (true);
+    m_aEmitter.onEntityReference (sEntityRef);
+    return this;
+  }
+
+  /**
+   * Write a comment, if the settings allow it.
+   *
+   * @param sComment
+   *        The comment text. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter comment (@Nullable final String sComment)
+  {
+    // Even an ignored comment counts as child content, like in the micro DOM
+    _beforeChildContent (false);
+    if (m_aSettings.getSerializeComments ().isEmit ())
+    {
+      if (m_aSettings.getIndent ().isIndent () && m_aIndent.length () > 0)
+        m_aEmitter.onContentElementWhitespace (m_aIndent);
+
+      m_aEmitter.onComment (sComment);
+      if (sComment != null && sComment.indexOf ('\n') >= 0)
+      {
+        // Newline only after multi-line comments
+        m_aEmitter.newLine ();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Write a processing instruction.
+   *
+   * @param sTarget
+   *        The processing instruction target. May neither be <code>null</code>
+   *        nor empty.
+   * @param sData
+   *        The optional data. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter processingInstruction (@Nonnull @Nonempty final String sTarget, @Nullable final String sData)
+  {
+    ValueEnforcer.notEmpty (sTarget, "Target");
+    _beforeChildContent (false);
+    m_aEmitter.onProcessingInstruction (sTarget, sData);
+    return this;
+  }
+
+  /**
+   * End the current element.
+   *
+   * @return this for chaining
+   * @throws IllegalStateException
+   *         If no element is open
+   */
+  @Nonnull
+  public XMLStreamingWriter endElement ()
+  {
+    _checkNotClosed ();
+    final ElementState aState = m_aElementStack.getLast ();
+    if (aState == null)
+      throw new IllegalStateException ("No element is open");
+
+    // Write the start tag, if the element is empty
+    _writeStartTag (aState, false, false);
+
+    if (aState.m_bHasChildren)
+    {
+      if (aState.m_bPendingAlign)
+        m_aEmitter.onContentElementWhitespace (m_aSettings.getNewLineString ());
+
+      // decrement indent
+      m_aIndent.setLength (m_aIndent.length () - m_aSettings.getIndentationString ().length ());
+
+      if (aState.m_eIndentInner.isIndent () && m_aIndent.length () > 0 && aState.m_bIsFirstChildElement)
+        m_aEmitter.onContentElementWhitespace (m_aIndent);
+    }
+
+    m_aEmitter.onElementEnd (aState.m_sPrefix, aState.m_sTagName, aState.m_eBracketMode);
+
+    m_aElementStack.removeLast ();
+    m_aNSStack.pop ();
+
+    if (aState.m_eIndentOuter.isAlign ())
+    {
+      final ElementState aParent = m_aElementStack.getLast ();
+      if (aParent != null)
+      {
+        // Decided on the next sibling
+        aParent.m_bPendingAlign = true;
+      }
+      else
+        m_aEmitter.onContentElementWhitespace (m_aSettings.getNewLineString ());
+    }
+    return this;
+  }
+
+  /**
+   * End all open elements.
+   *
+   * @return this for chaining
+   */
+  @Nonnull
+  public XMLStreamingWriter endAllElements ()
+  {
+    while (m_aElementStack.isNotEmpty ())
+      endElement ();
+    return this;
+  }
+
+  /**
+   * Flush the underlying writer. The start tag of the current element may not
+   * yet be written, because it is not yet known whether it has children.
+   *
+   * @throws IOException
+   *         In case flushing fails
+   */
+  public void flush () throws IOException
+  {
+    m_aEmitter.flush ();
+  }
+
+  /**
+   * End all open elements, flush and close the underlying writer. Subsequent
+   * calls have no effect.
+   *
+   * @throws IOException
+   *         In case flushing or closing fails
+   */
+  public void close () throws IOException
+  {
+    if (!m_bClosed)
+    {
+      try
+      {
+        endAllElements ();
+        m_aWriter.flush ();
+      }
+      finally
+      {
+        m_bClosed = true;
+        m_aWriter.close ();
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Settings", m_aSettings)
+                                       .append ("ElementStack", m_aElementStack)
+                                       .append ("Closed", m_bClosed)
+                                       .getToString ();
+  }
+}
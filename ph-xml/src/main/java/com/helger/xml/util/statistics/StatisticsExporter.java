@@ -44,6 +44,14 @@ public final class StatisticsExporter
   /** Element name for XML export */
   public static final String ELEMENT_TIMER = "timer";
   /** Element name for XML export */
+  public static final String ELEMENT_HISTOGRAMTIMER = "histogramtimer";
+  /** Attribute name for XML export */
+  public static final String ATTR_P50 = "p50";
+  /** Attribute name for XML export */
+  public static final String ATTR_P99 = "p99";
+  /** Attribute name for XML export */
+  public static final String ATTR_P999 = "p999";
+  /** Element name for XML export */
   public static final String ELEMENT_KEYEDTIMER = "keyedtimer";
   /** Element name for XML export */
   public static final String ELEMENT_SIZE = "size";
@@ -23,11 +23,13 @@ import javax.annotation.Nonnull;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.statistics.IStatisticsHandlerCache;
 import com.helger.commons.statistics.IStatisticsHandlerCounter;
+import com.helger.commons.statistics.IStatisticsHandlerHistogramTimer;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedCounter;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedSize;
 import com.helger.commons.statistics.IStatisticsHandlerKeyedTimer;
 import com.helger.commons.statistics.IStatisticsHandlerSize;
 import com.helger.commons.statistics.IStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsHistogramSnapshot;
 import com.helger.commons.statistics.util.IStatisticsVisitorCallback;
 import com.helger.xml.microdom.IMicroElement;
 
@@ -80,6 +82,27 @@ public class StatisticsVisitorCallbackToXML implements IStatisticsVisitorCallbac
              .setAttributeWithConversion (StatisticsExporter.ATTR_SUM, aHandler.getSum ());
   }
 
+  @Override
+  public void onHistogramTimer (final String sName, final IStatisticsHandlerHistogramTimer aHandler)
+  {
+    if (aHandler.getInvocationCount () > 0)
+    {
+      final IMicroElement eTimer = m_eRoot.appendElement (StatisticsExporter.ELEMENT_HISTOGRAMTIMER)
+                                          .setAttribute (StatisticsExporter.ATTR_NAME, sName)
+                                          .setAttribute (StatisticsExporter.ATTR_INVOCATIONCOUNT, aHandler.getInvocationCount ())
+                                          .setAttribute (StatisticsExporter.ATTR_MIN, aHandler.getMin ())
+                                          .setAttribute (StatisticsExporter.ATTR_AVERAGE, aHandler.getAverage ())
+                                          .setAttribute (StatisticsExporter.ATTR_MAX, aHandler.getMax ())
+                                          .setAttributeWithConversion (StatisticsExporter.ATTR_SUM, aHandler.getSum ());
+      // Percentiles are only available for the current interval
+      final StatisticsHistogramSnapshot aSnapshot = aHandler.getSnapshot ();
+      if (aSnapshot.getTotalCount () > 0)
+        eTimer.setAttribute (StatisticsExporter.ATTR_P50, aSnapshot.getP50 ())
+              .setAttribute (StatisticsExporter.ATTR_P99, aSnapshot.getP99 ())
+              .setAttribute (StatisticsExporter.ATTR_P999, aSnapshot.getP999 ());
+    }
+  }
+
   @Override
   public void onKeyedTimer (final String sName, final IStatisticsHandlerKeyedTimer aHandler)
   {
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.xpath;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.cache.ConcurrentCache;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.EXMLParserFeature;
+
+/**
+ * A bounded cache for compiled {@link XPathExpression} objects, keyed by the
+ * expression string, the namespace context, the function resolver and the
+ * variable resolver. The namespace context and the resolvers are compared with
+ * <code>equals</code> so they must not be modified after they were used with
+ * this cache.<br>
+ * As neither {@link XPath} nor {@link XPathExpression} objects are thread-safe,
+ * each thread gets its own compiled expression. The returned expressions must
+ * therefore not be passed to other threads.<br>
+ * Cache hits, misses and evictions are recorded by the underlying
+ * {@link ConcurrentCache}; the number of compilations is recorded in the
+ * counter "<code>XPathExpressionCache$compile</code>" of the
+ * {@link StatisticsManager}.
+ *
+ * @author Philip Helger
+ * @since 11.1.4
+ */
+@ThreadSafe
+public final class XPathExpressionCache
+{
+  /** The default maximum number of different cached expressions */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  private static final IMutableStatisticsHandlerCounter STATS_COMPILE = StatisticsManager.getCounterHandler (XPathExpressionCache.class.getName () +
+                                                                                                            "$compile");
+
+  private static final XPathExpressionCache DEFAULT_INSTANCE = new XPathExpressionCache (_createDefaultXPathFactory (),
+                                                                                         DEFAULT_MAX_SIZE,
+                                                                                         XPathExpressionCache.class.getName ());
+
+  @Immutable
+  private static final class CacheKey
+  {
+    private final XPathVariableResolver m_aVariableResolver;
+    private final XPathFunctionResolver m_aFunctionResolver;
+    private final NamespaceContext m_aNamespaceContext;
+    private final String m_sXPath;
+    // Status vars
+    private final int m_nHashCode;
+
+    CacheKey (@Nullable final XPathVariableResolver aVariableResolver,
+              @Nullable final XPathFunctionResolver aFunctionResolver,
+              @Nullable final NamespaceContext aNamespaceContext,
+              @Nonnull final String sXPath)
+    {
+      m_aVariableResolver = aVariableResolver;
+      m_aFunctionResolver = aFunctionResolver;
+      m_aNamespaceContext = aNamespaceContext;
+      m_sXPath = sXPath;
+      m_nHashCode = new HashCodeGenerator (this).append (aVariableResolver)
+                                                .append (aFunctionResolver)
+                                                .append (aNamespaceContext)
+                                                .append (sXPath)
+                                                .getHashCode ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final CacheKey rhs = (CacheKey) o;
+      return m_sXPath.equals (rhs.m_sXPath) &&
+             EqualsHelper.equals (m_aNamespaceContext, rhs.m_aNamespaceContext) &&
+             EqualsHelper.equals (m_aFunctionResolver, rhs.m_aFunctionResolver) &&
+             EqualsHelper.equals (m_aVariableResolver, rhs.m_aVariableResolver);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  /**
+   * The cache value with the compiled expression for each thread.
+   */
+  private final class CachedXPath
+  {
+    private final CacheKey m_aKey;
+    private final ThreadLocal <XPathExpression> m_aPerThread = new ThreadLocal <> ();
+
+    CachedXPath (@Nonnull final CacheKey aKey)
+    {
+      m_aKey = aKey;
+      // Compile directly, so that errors are not cached
+      m_aPerThread.set (_compile (aKey));
+    }
+
+    @Nonnull
+    XPathExpression getForCurrentThread ()
+    {
+      XPathExpression ret = m_aPerThread.get ();
+      if (ret == null)
+      {
+        ret = _compile (m_aKey);
+        m_aPerThread.set (ret);
+      }
+      return ret;
+    }
+  }
+
+  private final XPathFactory m_aXPathFactory;
+  // XPathFactory objects are not thread-safe
+  private final SimpleLock m_aXPathFactoryLock = new SimpleLock ();
+  private final ConcurrentCache <CacheKey, CachedXPath> m_aCache;
+
+  /**
+   * Constructor
+   *
+   * @param aXPathFactory
+   *        The XPath factory to use to create the XPath objects. May not be
+   *        <code>null</code>. It must not be used outside of this cache
+   *        concurrently.
+   * @param nMaxSize
+   *        The maximum number of different expressions to cache. Must be &gt;
+   *        0.
+   * @param sCacheName
+   *        The name of the cache, used for the statistics. May neither be
+   *        <code>null</code> nor empty.
+   */
+  public XPathExpressionCache (@Nonnull final XPathFactory aXPathFactory,
+                               @Nonnegative final int nMaxSize,
+                               @Nonnull @Nonempty final String sCacheName)
+  {
+    ValueEnforcer.notNull (aXPathFactory, "XPathFactory");
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    ValueEnforcer.notEmpty (sCacheName, "CacheName");
+    m_aXPathFactory = aXPathFactory;
+    m_aCache = new ConcurrentCache <> (CachedXPath::new, nMaxSize, sCacheName);
+  }
+
+  @Nonnull
+  private static XPathFactory _createDefaultXPathFactory ()
+  {
+    // Use an own instance, as the default XPathFactory of XPathHelper is used
+    // without locking elsewhere
+    final XPathFactory ret = XPathFactory.newInstance ();
+    EXMLParserFeature.SECURE_PROCESSING.applyTo (ret, true);
+    return ret;
+  }
+
+  /**
+   * @return The default instance, using an own XPath factory configured like
+   *         the default XPath factory of {@link XPathHelper}. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public static XPathExpressionCache getDefaultInstance ()
+  {
+    return DEFAULT_INSTANCE;
+  }
+
+  @Nonnull
+  private XPathExpression _compile (@Nonnull final CacheKey aKey)
+  {
+    final XPath aXPath = m_aXPathFactoryLock.lockedGet ( () -> XPathHelper.createNewXPath (m_aXPathFactory,
+                                                                                            aKey.m_aVariableResolver,
+                                                                                            aKey.m_aFunctionResolver,
+                                                                                            aKey.m_aNamespaceContext));
+    final XPathExpression ret = XPathHelper.createNewXPathExpression (aXPath, aKey.m_sXPath);
+    STATS_COMPILE.increment ();
+    return ret;
+  }
+
+  /**
+   * Get the compiled XPath expression for the current thread.
+   *
+   * @param aVariableResolver
+   *        Variable resolver to be used. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        Function resolver to be used. May be <code>null</code>.
+   * @param aNamespaceContext
+   *        Namespace context to be used. May be <code>null</code>.
+   * @param sXPath
+   *        The XPath expression to be compiled. May neither be
+   *        <code>null</code> nor empty.
+   * @return The compiled {@link XPathExpression} that may only be used by the
+   *         current thread. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         if the XPath cannot be compiled
+   */
+  @Nonnull
+  public XPathExpression getXPathExpression (@Nullable final XPathVariableResolver aVariableResolver,
+                                             @Nullable final XPathFunctionResolver aFunctionResolver,
+                                             @Nullable final NamespaceContext aNamespaceContext,
+                                             @Nonnull @Nonempty final String sXPath)
+  {
+    ValueEnforcer.notEmpty (sXPath, "XPathExpression");
+
+    final CacheKey aKey = new CacheKey (aVariableResolver, aFunctionResolver, aNamespaceContext, sXPath);
+    return m_aCache.getFromCache (aKey).getForCurrentThread ();
+  }
+
+  /**
+   * Get the compiled XPath expression for the current thread.
+   *
+   * @param aNamespaceContext
+   *        Namespace context to be used. May be <code>null</code>.
+   * @param sXPath
+   *        The XPath expression to be compiled. May neither be
+   *        <code>null</code> nor empty.
+   * @return The compiled {@link XPathExpression} that may only be used by the
+   *         current thread. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         if the XPath cannot be compiled
+   */
+  @Nonnull
+  public XPathExpression getXPathExpression (@Nullable final NamespaceContext aNamespaceContext,
+                                             @Nonnull @Nonempty final String sXPath)
+  {
+    return getXPathExpression ((XPathVariableResolver) null, (XPathFunctionResolver) null, aNamespaceContext, sXPath);
+  }
+
+  /**
+   * Get the compiled XPath expression for the current thread.
+   *
+   * @param sXPath
+   *        The XPath expression to be compiled. May neither be
+   *        <code>null</code> nor empty.
+   * @return The compiled {@link XPathExpression} that may only be used by the
+   *         current thread. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         if the XPath cannot be compiled
+   */
+  @Nonnull
+  public XPathExpression getXPathExpression (@Nonnull @Nonempty final String sXPath)
+  {
+    return getXPathExpression ((XPathVariableResolver) null, (XPathFunctionResolver) null, (NamespaceContext) null, sXPath);
+  }
+
+  /**
+   * @return The maximum number of different expressions in this cache.
+   */
+  @Nonnegative
+  public int getMaxSize ()
+  {
+    return m_aCache.getMaxSize ();
+  }
+
+  /**
+   * @return The number of different expressions currently cached.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aCache.size ();
+  }
+
+  /**
+   * Remove all cached expressions.
+   *
+   * @return {@link EChange}
+   */
+  @Nonnull
+  public EChange clearCache ()
+  {
+    return m_aCache.clearCache ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Cache", m_aCache).getToString ();
+  }
+}
@@ -201,4 +201,57 @@ public final class XPathExpressionHelper
     final Object aResult = evalXPath (aXPath, sXPath, aDoc, XPathConstants.NODE);
     return (Node) aResult;
   }
+
+  /**
+   * Evaluate an XPath expression using the thread-confined compiled
+   * expressions of the default {@link XPathExpressionCache}. This avoids
+   * compiling the same expression over and over again.
+   *
+   * @param aVariableResolver
+   *        Variable resolver to be used. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        Function resolver to be used. May be <code>null</code>.
+   * @param aNamespaceContext
+   *        Namespace context to be used. May be <code>null</code>.
+   * @param sXPath
+   *        The XPath expression to be evaluated. May neither be
+   *        <code>null</code> nor empty.
+   * @param aNode
+   *        The context node. May not be <code>null</code>.
+   * @param aReturnType
+   *        The expected return type. May not be <code>null</code>.
+   * @return The evaluation result. May be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         if the XPath cannot be compiled or evaluated
+   * @since 11.1.4
+   */
+  @Nullable
+  public static Object evalXPathCached (@Nullable final XPathVariableResolver aVariableResolver,
+                                        @Nullable final XPathFunctionResolver aFunctionResolver,
+                                        @Nullable final NamespaceContext aNamespaceContext,
+                                        @Nonnull @Nonempty final String sXPath,
+                                        @Nonnull final Node aNode,
+                                        @Nonnull final QName aReturnType)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+    ValueEnforcer.notNull (aReturnType, "ReturnType");
+
+    final XPathExpression aXPathExpression = XPathExpressionCache.getDefaultInstance ()
+                                                                 .getXPathExpression (aVariableResolver,
+                                                                                      aFunctionResolver,
+                                                                                      aNamespaceContext,
+                                                                                      sXPath);
+    try
+    {
+      return aXPathExpression.evaluate (aNode, aReturnType);
+    }
+    catch (final XPathExpressionException ex)
+    {
+      throw new IllegalArgumentException ("Failed to evaluate XPath expression '" +
+                                          sXPath +
+                                          "' with return type " +
+                                          aReturnType.toString (),
+                                          ex);
+    }
+  }
 }
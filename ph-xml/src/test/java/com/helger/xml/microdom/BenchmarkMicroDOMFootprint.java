@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.xml.microdom.serialize.MicroReader;
+
+/**
+ * Measure the heap footprint of read micro documents with many small elements.
+ * The retained size is determined as the difference of the used heap memory
+ * before and after reading, so run it with a fixed heap (e.g. -Xms1g -Xmx1g).
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkMicroDOMFootprint
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (BenchmarkMicroDOMFootprint.class);
+  private static final int ELEMENTS = 200_000;
+  private static final int RUNS = 5;
+
+  private BenchmarkMicroDOMFootprint ()
+  {}
+
+  private static long _getUsedMemory ()
+  {
+    final Runtime aRT = Runtime.getRuntime ();
+    for (int i = 0; i < 3; ++i)
+      System.gc ();
+    return aRT.totalMemory () - aRT.freeMemory ();
+  }
+
+  public static void main (final String [] aArgs)
+  {
+    final StringBuilder aSB = new StringBuilder (ELEMENTS * 64);
+    aSB.append ("<root xmlns:x=\"urn:example\">");
+    for (int i = 0; i < ELEMENTS; ++i)
+      aSB.append ("<item id=\"")
+         .append (i)
+         .append ("\" x:type=\"t")
+         .append (i % 10)
+         .append ("\"><name>n")
+         .append (i)
+         .append ("</name></item>");
+    aSB.append ("</root>");
+    final String sXML = aSB.toString ();
+    LOGGER.info ("XML length: " + sXML.length () + " chars");
+
+    for (int nRun = 0; nRun < RUNS; ++nRun)
+    {
+      final long nBefore = _getUsedMemory ();
+      final long nStart = System.nanoTime ();
+      IMicroDocument aDoc = MicroReader.readMicroXML (sXML);
+      final long nDuration = System.nanoTime () - nStart;
+      final long nAfter = _getUsedMemory ();
+      if (aDoc == null || aDoc.getDocumentElement ().getChildElementCount () != ELEMENTS)
+        throw new IllegalStateException ();
+      // Two elements per item
+      LOGGER.info ("Run " +
+                   nRun +
+                   ": " +
+                   (nAfter - nBefore) / (ELEMENTS * 2) +
+                   " bytes per element; read in " +
+                   nDuration / 1_000_000 +
+                   " ms");
+      aDoc = null;
+    }
+  }
+}
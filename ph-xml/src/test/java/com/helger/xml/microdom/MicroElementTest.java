@@ -723,4 +723,64 @@ public final class MicroElementTest
     assertEquals (1, e1.getAllChildElementsRecursive ().size ());
     assertEquals (1, e2.getAllChildElementsRecursive ().size ());
   }
+
+  @Test
+  public void testManyAttrs ()
+  {
+    final int nCount = MicroElement.ATTR_LINEAR_SEARCH_MAX * 3;
+    final IMicroElement e = new MicroElement ("any");
+    for (int i = 0; i < nCount; ++i)
+      e.setAttribute ("a" + i, "v" + i);
+    e.setAttribute ("urn:ns", "a0", "ns");
+    assertEquals (nCount + 1, e.getAttributeCount ());
+    for (int i = 0; i < nCount; ++i)
+      assertEquals ("v" + i, e.getAttributeValue ("a" + i));
+    assertEquals ("ns", e.getAttributeValue ("urn:ns", "a0"));
+
+    // Replacing keeps the order
+    e.setAttribute ("a5", "new");
+    assertEquals ("new", e.getAttributeValue ("a5"));
+    assertEquals (nCount + 1, e.getAttributeCount ());
+    final List <IMicroQName> aNames = e.getAllAttributeQNames ().getCopyAsList ();
+    assertEquals (new MicroQName ("a0"), aNames.get (0));
+    assertEquals (new MicroQName ("a5"), aNames.get (5));
+    assertEquals (new MicroQName ("urn:ns", "a0"), aNames.get (nCount));
+
+    // Clone and equality
+    final IMicroElement aClone = e.getClone ();
+    assertTrue (e.isEqualContent (aClone));
+    aClone.setAttribute ("a7", "other");
+    assertFalse (e.isEqualContent (aClone));
+    assertEquals ("v7", e.getAttributeValue ("a7"));
+
+    // Remove down to below the linear search threshold
+    for (int i = nCount - 1; i >= 3; --i)
+      assertTrue (e.removeAttribute ("a" + i).isChanged ());
+    assertTrue (e.removeAttribute ("a" + nCount).isUnchanged ());
+    assertEquals (4, e.getAttributeCount ());
+    assertEquals ("v2", e.getAttributeValue ("a2"));
+    assertNull (e.getAttributeValue ("a3"));
+    assertEquals ("ns", e.getAttributeValue ("urn:ns", "a0"));
+    assertTrue (e.removeAllAttributes ().isChanged ());
+    assertFalse (e.hasAttributes ());
+  }
+
+  @Test
+  public void testAttributeObjsIsSnapshot ()
+  {
+    final MicroElement e = new MicroElement ("x");
+    e.setAttribute ("a", "1");
+    e.setAttribute ("b", "2");
+    e.setAttribute ("c", "3");
+    final Iterable <MicroAttribute> aAttrs = e.getAttributeObjs ();
+    assertNotNull (aAttrs);
+
+    // Modifying the element afterwards must not influence the Iterable
+    assertTrue (e.removeAttribute ("a").isChanged ());
+    e.setAttribute ("d", "4");
+    final StringBuilder aSB = new StringBuilder ();
+    for (final MicroAttribute aAttr : aAttrs)
+      aSB.append (aAttr.getAttributeName ()).append (aAttr.getAttributeValue ());
+    assertEquals ("a1b2c3", aSB.toString ());
+  }
 }
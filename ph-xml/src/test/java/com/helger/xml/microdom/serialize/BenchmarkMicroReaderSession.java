@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.serialize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.xml.microdom.IMicroDocument;
+
+/**
+ * Compare reading many small documents with {@link MicroReader} and with a
+ * reused {@link MicroReaderSession}.
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkMicroReaderSession
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (BenchmarkMicroReaderSession.class);
+  private static final int RUNS = 20_000;
+
+  private BenchmarkMicroReaderSession ()
+  {}
+
+  private static double _benchmark (final Function <byte [], IMicroDocument> aReader, final byte [] aXML)
+  {
+    // Warm up
+    for (int i = 0; i < RUNS; ++i)
+      if (aReader.apply (aXML) == null)
+        throw new IllegalStateException ();
+    final long nStart = System.nanoTime ();
+    for (int i = 0; i < RUNS; ++i)
+      aReader.apply (aXML);
+    return (System.nanoTime () - nStart) / 1000d / RUNS;
+  }
+
+  public static void main (final String [] aArgs)
+  {
+    // A message of roughly 2KB
+    final StringBuilder aSB = new StringBuilder ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<message id=\"4711\">\n");
+    for (int i = 0; i < 32; ++i)
+      aSB.append ("  <item pos=\"").append (i).append ("\"><name>Item &amp; ").append (i).append ("</name><v>12.5</v></item>\n");
+    aSB.append ("</message>");
+    final byte [] aXML = aSB.toString ().getBytes (StandardCharsets.UTF_8);
+    LOGGER.info ("Document size: " + aXML.length + " bytes");
+
+    LOGGER.info ("MicroReader:        " + _benchmark (MicroReader::readMicroXML, aXML) + " us per document");
+    final MicroReaderSession aSession = MicroReaderSession.getForCurrentThread ();
+    LOGGER.info ("MicroReaderSession: " + _benchmark (aSession::readMicroXML, aXML) + " us per document");
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.serialize.read.SAXReaderSettings;
+
+/**
+ * Test class for class {@link MicroReaderSession}.
+ *
+ * @author Philip Helger
+ */
+public final class MicroReaderSessionTest
+{
+  @Test
+  public void testNull ()
+  {
+    final MicroReaderSession aSession = new MicroReaderSession ();
+    assertNull (aSession.readMicroXML ((InputSource) null));
+    assertNull (aSession.readMicroXML ((InputStream) null));
+    assertNull (aSession.readMicroXML ((IReadableResource) null));
+    assertNull (aSession.readMicroXML ((String) null));
+    assertNull (aSession.readMicroXML ((byte []) null));
+  }
+
+  @Test
+  public void testSameResultAsMicroReader ()
+  {
+    final String [] aXMLs = { "<root/>",
+                              "<root a='1' b='2'><child>text &amp; more</child><!-- c --><?pi data?></root>",
+                              "<root>a<![CDATA[b]]><![CDATA[c]]>d&lt;e</root>",
+                              "<?xml version='1.0'?><root xmlns='urn:x' xmlns:y='urn:y' y:at='v'><y:c/></root>" };
+    final MicroReaderSession aSession = new MicroReaderSession ();
+    for (int i = 0; i < 3; ++i)
+      for (final String sXML : aXMLs)
+      {
+        final IMicroDocument aDoc = aSession.readMicroXML (sXML);
+        assertNotNull (sXML, aDoc);
+        final IMicroDocument aExpected = MicroReader.readMicroXML (sXML);
+        assertTrue (sXML, aExpected.isEqualContent (aDoc));
+      }
+
+    for (final String sPath : new String [] { "xml/list.xml", "xml/buildinfo.xml", "xml/xml-processing-instruction.xml" })
+    {
+      final IMicroDocument aDoc = aSession.readMicroXML (new ClassPathResource (sPath));
+      assertNotNull (sPath, aDoc);
+      assertTrue (sPath, MicroReader.readMicroXML (new ClassPathResource (sPath)).isEqualContent (aDoc));
+    }
+  }
+
+  @Test
+  public void testTextCoalescing ()
+  {
+    final MicroReaderSession aSession = new MicroReaderSession ();
+    final IMicroDocument aDoc = aSession.readMicroXML ("<root>a&amp;b&#x43;<![CDATA[d]]><![CDATA[e]]>f<x/>g</root>");
+    assertNotNull (aDoc);
+    final IMicroElement eRoot = aDoc.getDocumentElement ();
+    assertEquals (5, eRoot.getChildCount ());
+    final IMicroNode aText = eRoot.getFirstChild ();
+    assertTrue (aText.getType ().isText ());
+    assertEquals ("a&bC", aText.getNodeValue ());
+    final IMicroNode aCDATA = eRoot.getChildAtIndex (1);
+    assertTrue (aCDATA.getType ().isCDATA ());
+    assertEquals ("de", aCDATA.getNodeValue ());
+    assertEquals ("f", eRoot.getChildAtIndex (2).getNodeValue ());
+    assertEquals ("g", eRoot.getLastChild ().getNodeValue ());
+  }
+
+  @Test
+  public void testErrorRecovery ()
+  {
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final SAXReaderSettings aSettings = new SAXReaderSettings ();
+    aSettings.exceptionCallbacks ().set (ex -> aErrors.incrementAndGet ());
+    final MicroReaderSession aSession = new MicroReaderSession (aSettings);
+
+    final long nErrorCount = StatisticsManager.getCounterHandler (MicroReaderSession.class.getName () + "$error")
+                                              .getCount ();
+    // Broken in the middle of a text
+    assertNull (aSession.readMicroXML ("<root><a>text</b></root>"));
+    assertEquals (nErrorCount + 1,
+                  StatisticsManager.getCounterHandler (MicroReaderSession.class.getName () + "$error").getCount ());
+
+    // The session can still be used afterwards
+    final IMicroDocument aDoc = aSession.readMicroXML ("<root><a>text</a></root>");
+    assertNotNull (aDoc);
+    assertEquals ("text", aDoc.getDocumentElement ().getFirstChildElement ().getTextContent ());
+    assertNull (aDoc.getDocumentElement ().getFirstChildElement ().getFirstChildElement ());
+  }
+
+  @Test
+  public void testPerThread ()
+  {
+    final MicroReaderSession aSession = MicroReaderSession.getForCurrentThread ();
+    assertSame (aSession, MicroReaderSession.getForCurrentThread ());
+
+    final long nCount = StatisticsManager.getHistogramTimerHandler (MicroReaderSession.class).getInvocationCount ();
+    for (int i = 0; i < 10; ++i)
+      assertEquals ("v" + i, aSession.readMicroXML ("<root>v" + i + "</root>").getDocumentElement ().getTextContent ());
+    assertEquals (nCount + 10, StatisticsManager.getHistogramTimerHandler (MicroReaderSession.class).getInvocationCount ());
+
+    // A new session is created after removal
+    MicroReaderSession.removeForCurrentThread ();
+    final MicroReaderSession aSession2 = MicroReaderSession.getForCurrentThread ();
+    assertNotSame (aSession, aSession2);
+    assertSame (aSession2, MicroReaderSession.getForCurrentThread ());
+    MicroReaderSession.removeForCurrentThread ();
+  }
+}
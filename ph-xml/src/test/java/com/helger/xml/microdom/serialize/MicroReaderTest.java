@@ -31,6 +31,8 @@ import javax.xml.XMLConstants;
 import org.junit.Test;
 import org.xml.sax.InputSource;
 
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.io.resource.IReadableResource;
@@ -168,6 +170,37 @@ public final class MicroReaderTest
   /**
    * Test: use namespaces all over the place and mix them quite complex
    */
+  @Test
+  public void testStreaming ()
+  {
+    final String s = "<?xml version=\"1.0\"?>" +
+                     "<root a=\"b\">\n" +
+                     "  <item id=\"1\"><sub>x</sub></item>\n" +
+                     "  <!-- comment -->\n" +
+                     "  <item id=\"2\" />\n" +
+                     "  <other>text</other>\n" +
+                     "</root>";
+    final ICommonsList <IMicroElement> aElements = new CommonsArrayList <> ();
+    final IMicroDocument aDoc = MicroReader.readMicroXMLStreaming (new StringSAXInputSource (s), null, aElements::add);
+    assertNotNull (aDoc);
+
+    // Only the root element without the child elements
+    final IMicroElement eRoot = aDoc.getDocumentElement ();
+    assertEquals ("b", eRoot.getAttributeValue ("a"));
+    assertEquals (0, eRoot.getChildElementCount ());
+    assertEquals (1, eRoot.getChildCount ());
+
+    assertEquals (3, aElements.size ());
+    assertEquals ("1", aElements.get (0).getAttributeValue ("id"));
+    assertNull (aElements.get (0).getParent ());
+    assertEquals ("x", aElements.get (0).getFirstChildElement ().getTextContent ());
+    assertEquals ("2", aElements.get (1).getAttributeValue ("id"));
+    assertEquals ("other", aElements.get (2).getTagName ());
+
+    assertNull (MicroReader.readMicroXMLStreaming ((InputSource) null, null, aElements::add));
+    assertNull (MicroReader.readMicroXMLStreaming (new StringSAXInputSource ("<root><item></root>"), null, aElements::add));
+  }
+
   @Test
   public void testNamespaces ()
   {
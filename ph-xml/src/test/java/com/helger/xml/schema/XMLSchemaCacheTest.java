@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -153,4 +154,26 @@ public final class XMLSchemaCacheTest
     catch (final IllegalArgumentException ex)
     {}
   }
+
+  @Test
+  public void testConcurrentCache ()
+  {
+    assertFalse (XMLSchemaCache.getInstance ().isUseConcurrentCache ());
+
+    final SchemaCache sc = new SchemaCache (XMLSchemaCache.SCHEMA_TYPE_NAME,
+                                            XMLSchemaCache.createXSDSchemaFactory (),
+                                            null,
+                                            null,
+                                            true);
+    assertTrue (sc.isUseConcurrentCache ());
+    final IReadableResource aRes = new ClassPathResource ("xml/schema1.xsd");
+    final Schema aSchema = sc.getSchema (aRes);
+    assertNotNull (aSchema);
+    assertSame (aSchema, sc.getSchema (aRes));
+    assertNotNull (sc.getValidator (aRes));
+    assertEquals (1, sc.size ());
+    assertTrue (sc.removeFromCache (aRes).isChanged ());
+    assertFalse (sc.removeFromCache (aRes).isChanged ());
+    assertTrue (sc.isEmpty ());
+  }
 }
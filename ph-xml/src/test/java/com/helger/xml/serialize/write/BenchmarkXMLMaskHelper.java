@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.write;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
+import com.helger.commons.string.StringHelper;
+
+/**
+ * Compare the single pass masking of {@link XMLMaskHelper} with the previous
+ * approach (check for invalid chars first and than use
+ * {@link StringHelper#replaceMultipleTo(char[], int, int, char[], char[][], Writer)}).
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkXMLMaskHelper
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (BenchmarkXMLMaskHelper.class);
+  private static final int RUNS = 200_000;
+
+  private BenchmarkXMLMaskHelper ()
+  {}
+
+  private interface IMasker
+  {
+    void mask (String s, Writer aWriter) throws IOException;
+  }
+
+  private static double _benchmark (final IMasker aMasker, final String [] aTexts) throws IOException
+  {
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter (1024);
+    // Warm up
+    for (int i = 0; i < RUNS; ++i)
+    {
+      aSW.reset ();
+      aMasker.mask (aTexts[i % aTexts.length], aSW);
+    }
+    final long nStart = System.nanoTime ();
+    for (int i = 0; i < RUNS; ++i)
+    {
+      aSW.reset ();
+      aMasker.mask (aTexts[i % aTexts.length], aSW);
+    }
+    return (System.nanoTime () - nStart) / (double) RUNS;
+  }
+
+  public static void main (final String [] aArgs) throws IOException
+  {
+    final EXMLSerializeVersion eVersion = EXMLSerializeVersion.XML_10;
+    // Requires the test for invalid chars
+    final EXMLIncorrectCharacterHandling eHandling = EXMLIncorrectCharacterHandling.WRITE_TO_FILE_LOG_WARNING;
+    final String [] aTexts = { "A plain attribute value without anything to mask",
+                               "Tom & Jerry <tom@example.org> said \"hello\"",
+                               StringHelper.getRepeated ("Long text content with an occasional < and & inside. ", 20) };
+
+    for (final EXMLCharMode eCharMode : new EXMLCharMode [] { EXMLCharMode.ATTRIBUTE_VALUE_DOUBLE_QUOTES,
+                                                              EXMLCharMode.TEXT })
+    {
+      // Determine the previous replacement maps via the public API
+      final ICommonsList <Character> aSrc = new CommonsArrayList <> ();
+      final ICommonsList <char []> aDst = new CommonsArrayList <> ();
+      for (char c = 0; c < 0xd800; ++c)
+      {
+        final char [] aMasked = XMLMaskHelper.getMaskedXMLText (eVersion,
+                                                                 eCharMode,
+                                                                 EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                                                 Character.toString (c));
+        if (aMasked.length != 1 || aMasked[0] != c)
+        {
+          aSrc.add (Character.valueOf (c));
+          aDst.add (aMasked);
+        }
+      }
+      final char [] aSrcMap = new char [aSrc.size ()];
+      for (int i = 0; i < aSrcMap.length; ++i)
+        aSrcMap[i] = aSrc.get (i).charValue ();
+      final char [] [] aDstMap = aDst.toArray (new char [0] []);
+
+      final IMasker aOld = (s, w) -> {
+        final char [] aChars = s.toCharArray ();
+        if (XMLCharHelper.containsInvalidXMLChar (eVersion, eCharMode, aChars, 0, aChars.length))
+          throw new IllegalStateException ();
+        StringHelper.replaceMultipleTo (aChars, 0, aChars.length, aSrcMap, aDstMap, w);
+      };
+      final IMasker aNew = (s, w) -> XMLMaskHelper.maskXMLTextTo (eVersion, eCharMode, eHandling, s, w);
+
+      LOGGER.info (eCharMode + " previous:    " + _benchmark (aOld, aTexts) + " ns");
+      LOGGER.info (eCharMode + " single pass: " + _benchmark (aNew, aTexts) + " ns");
+    }
+  }
+}
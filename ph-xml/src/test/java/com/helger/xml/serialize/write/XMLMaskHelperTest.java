@@ -20,9 +20,12 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+
 import org.junit.Test;
 
 import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
 
 /**
  * Test class for class {@link XMLMaskHelper}.
@@ -276,4 +279,68 @@ public final class XMLMaskHelperTest
                                                         EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
                                                         "1 & \u0001"));
   }
+
+  @Test
+  public void testMaskXMLTextTo () throws IOException
+  {
+    final String sSrc = "plain <a href=\"x\">Tom & Jerry</a>\r\n\u00e4\u0080 end";
+    for (final EXMLSerializeVersion eVersion : EXMLSerializeVersion.values ())
+      for (final EXMLCharMode eCharMode : EXMLCharMode.values ())
+      {
+        final char [] aExpected = XMLMaskHelper.getMaskedXMLText (eVersion,
+                                                                  eCharMode,
+                                                                  EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                                                  sSrc);
+        assertEquals (aExpected.length,
+                      XMLMaskHelper.getMaskedXMLTextLength (eVersion,
+                                                            eCharMode,
+                                                            EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                                            sSrc));
+
+        // String based
+        final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+        XMLMaskHelper.maskXMLTextTo (eVersion, eCharMode, EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG, sSrc, aSW);
+        assertEquals (new String (aExpected), aSW.getAsString ());
+
+        // Char array based with offset
+        final char [] aSrc = ("xx" + sSrc + "yy").toCharArray ();
+        final NonBlockingStringWriter aSW2 = new NonBlockingStringWriter ();
+        XMLMaskHelper.maskXMLTextTo (eVersion,
+                                     eCharMode,
+                                     EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                     aSrc,
+                                     2,
+                                     sSrc.length (),
+                                     aSW2);
+        assertEquals (new String (aExpected), aSW2.getAsString ());
+      }
+
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    XMLMaskHelper.maskXMLTextTo (EXMLSerializeVersion.XML_10,
+                                 EXMLCharMode.TEXT,
+                                 EXMLIncorrectCharacterHandling.DO_NOT_WRITE_LOG_WARNING,
+                                 "a<b\u0000\u0001&c\u0000",
+                                 aSW);
+    assertEquals ("a&lt;b&amp;c", aSW.getAsString ());
+    assertEquals ("a &gt; b &lt; c",
+                  new String (XMLMaskHelper.getMaskedXMLText (EXMLSerializeVersion.XML_10,
+                                                              EXMLCharMode.TEXT,
+                                                              EXMLIncorrectCharacterHandling.DEFAULT,
+                                                              "a > b < c")));
+
+    // Invalid chars are reported once with all of them
+    try
+    {
+      XMLMaskHelper.maskXMLTextTo (EXMLSerializeVersion.XML_10,
+                                   EXMLCharMode.TEXT,
+                                   EXMLIncorrectCharacterHandling.THROW_EXCEPTION,
+                                   "a\u0001b\u0002",
+                                   new NonBlockingStringWriter ());
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
 }
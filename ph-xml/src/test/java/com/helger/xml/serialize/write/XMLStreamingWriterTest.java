@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingStringWriter;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroDocument;
+import com.helger.xml.microdom.serialize.MicroWriter;
+import com.helger.xml.namespace.MapBasedNamespaceContext;
+
+/**
+ * Test class for class {@link XMLStreamingWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class XMLStreamingWriterTest
+{
+  @Nonnull
+  private static IMicroDocument _createDoc ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    aDoc.appendComment ("Header");
+    final IMicroElement eRoot = aDoc.appendElement ("urn:root", "root");
+    eRoot.setAttribute ("id", "r&1");
+    eRoot.setAttribute ("urn:attr", "special", "x<y");
+    final IMicroElement eList = eRoot.appendElement ("urn:root", "list");
+    for (int i = 0; i < 3; ++i)
+    {
+      final IMicroElement eItem = eList.appendElement ("urn:item", "item");
+      eItem.setAttribute ("index", Integer.toString (i));
+      eItem.appendText ("Text " + i);
+    }
+    eList.appendElement ("urn:root", "empty");
+    final IMicroElement eMixed = eRoot.appendElement ("mixed");
+    eMixed.appendText ("before ");
+    eMixed.appendElement ("b").appendText ("bold");
+    eMixed.appendText (" after");
+    eMixed.appendEntityReference ("nbsp");
+    eMixed.appendElement ("i");
+    eRoot.appendComment ("multi\nline");
+    eRoot.appendCDATA ("<cdata>");
+    eRoot.appendElement ("script").appendText ("");
+    eRoot.appendElement ("br");
+    eRoot.appendElement ("nested").appendElement ("deeper").appendElement ("deepest").appendText ("value");
+    return aDoc;
+  }
+
+  @Nonnull
+  private static String _getStreamed (@Nonnull final IMicroDocument aDoc, @Nonnull final IXMLWriterSettings aSettings)
+  {
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    try (final XMLStreamingWriter aWriter = new XMLStreamingWriter (aSW, aSettings))
+    {
+      aWriter.writeXMLDeclaration (aDoc.getStandalone ());
+      MicroWriter.writeToStreamingWriter (aDoc, aWriter);
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException (ex);
+    }
+    return aSW.getAsString ();
+  }
+
+  private static void _testSameAsMicroWriter (@Nonnull final IXMLWriterSettings aSettings)
+  {
+    final IMicroDocument aDoc = _createDoc ();
+    assertEquals (MicroWriter.getNodeAsString (aDoc, aSettings), _getStreamed (aDoc, aSettings));
+  }
+
+  @Test
+  public void testSameAsMicroWriter ()
+  {
+    _testSameAsMicroWriter (XMLWriterSettings.DEFAULT_XML_SETTINGS);
+    _testSameAsMicroWriter (new XMLWriterSettings ().setIndent (EXMLSerializeIndent.NONE));
+    _testSameAsMicroWriter (new XMLWriterSettings ().setIndent (EXMLSerializeIndent.ALIGN_ONLY));
+    _testSameAsMicroWriter (new XMLWriterSettings ().setIndent (EXMLSerializeIndent.INDENT_ONLY));
+    _testSameAsMicroWriter (new XMLWriterSettings ().setEmitNamespaces (false));
+    _testSameAsMicroWriter (new XMLWriterSettings ().setSerializeComments (EXMLSerializeComments.IGNORE)
+                                                    .setWriteCDATAAsText (true)
+                                                    .setUseDoubleQuotesForAttributes (false));
+
+    final MapBasedNamespaceContext aCtx = new MapBasedNamespaceContext ().addMapping ("r", "urn:root")
+                                                                         .addMapping ("it", "urn:item")
+                                                                         .addMapping ("at", "urn:attr");
+    _testSameAsMicroWriter (new XMLWriterSettings ().setNamespaceContext (aCtx));
+    _testSameAsMicroWriter (new XMLWriterSettings ().setNamespaceContext (aCtx).setPutNamespaceContextPrefixesInRoot (true));
+    _testSameAsMicroWriter (XMLWriterSettings.createForHTML4 ());
+    _testSameAsMicroWriter (XMLWriterSettings.createForXHTML ());
+    _testSameAsMicroWriter (XMLWriterSettings.createForCanonicalization ());
+  }
+
+  @Test
+  public void testBasic () throws IOException
+  {
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    try (final XMLStreamingWriter aWriter = new XMLStreamingWriter (aSW,
+                                                                    new XMLWriterSettings ().setIndent (EXMLSerializeIndent.NONE)))
+    {
+      aWriter.writeXMLDeclaration ();
+      aWriter.startElement ("urn:a", "root").attribute ("v", "1");
+      assertEquals (1, aWriter.getDepth ());
+      for (int i = 0; i < 2; ++i)
+        aWriter.startElement ("urn:b", "item").text ("a&b").endElement ();
+      aWriter.startElement ("urn:a", "empty");
+      assertEquals (2, aWriter.getDepth ());
+      // Close all open elements
+    }
+    assertEquals ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                  "<root xmlns=\"urn:a\" v=\"1\">" +
+                  "<ns0:item xmlns:ns0=\"urn:b\">a&amp;b</ns0:item>" +
+                  "<ns0:item xmlns:ns0=\"urn:b\">a&amp;b</ns0:item>" +
+                  "<empty />" +
+                  "</root>",
+                  aSW.getAsString ());
+  }
+
+  @Test
+  public void testInvalidUsage () throws IOException
+  {
+    try (final XMLStreamingWriter aWriter = new XMLStreamingWriter (new NonBlockingStringWriter (),
+                                                                    XMLWriterSettings.DEFAULT_XML_SETTINGS))
+    {
+      try
+      {
+        aWriter.attribute ("a", "b");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+
+      try
+      {
+        aWriter.endElement ();
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+
+      aWriter.startElement ("root").text ("x");
+      try
+      {
+        // Attribute after content
+        aWriter.attribute ("a", "b");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+
+      try
+      {
+        aWriter.writeXMLDeclaration ();
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014-2023 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.xml.namespace.MapBasedNamespaceContext;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link XPathExpressionCache}.
+ *
+ * @author Philip Helger
+ */
+public final class XPathExpressionCacheTest
+{
+  private static final String XML = "<root xmlns='urn:test'><item v='1'/><item v='2'/><item v='3'/></root>";
+
+  @Test
+  public void testBasic () throws Exception
+  {
+    final XPathExpressionCache aCache = new XPathExpressionCache (XPathHelper.createXPathFactorySaxonFirst (),
+                                                                  10,
+                                                                  "XPathExpressionCacheTest.basic");
+    assertEquals (10, aCache.getMaxSize ());
+    assertEquals (0, aCache.size ());
+
+    final XPathExpression aExpr = aCache.getXPathExpression ("count(/*/*)");
+    assertSame (aExpr, aCache.getXPathExpression ("count(/*/*)"));
+    assertEquals (1, aCache.size ());
+
+    // Equal namespace contexts share the same entry
+    final XPathExpression aExprNS = aCache.getXPathExpression (new MapBasedNamespaceContext ().addMapping ("t",
+                                                                                                         "urn:test"),
+                                                               "sum(/t:root/t:item/@v)");
+    assertSame (aExprNS,
+                aCache.getXPathExpression (new MapBasedNamespaceContext ().addMapping ("t", "urn:test"),
+                                           "sum(/t:root/t:item/@v)"));
+    assertEquals (2, aCache.size ());
+
+    final Document aDoc = DOMReader.readXMLDOM (XML);
+    assertEquals (Double.valueOf (3), aExpr.evaluate (aDoc, XPathConstants.NUMBER));
+    assertEquals (Double.valueOf (6), aExprNS.evaluate (aDoc, XPathConstants.NUMBER));
+
+    assertTrue (aCache.clearCache ().isChanged ());
+    assertEquals (0, aCache.size ());
+    assertNotSame (aExpr, aCache.getXPathExpression ("count(/*/*)"));
+  }
+
+  @Test
+  public void testCompileError ()
+  {
+    final XPathExpressionCache aCache = new XPathExpressionCache (XPathHelper.createXPathFactorySaxonFirst (),
+                                                                  10,
+                                                                  "XPathExpressionCacheTest.error");
+    for (int i = 0; i < 2; ++i)
+      try
+      {
+        aCache.getXPathExpression ("/root[");
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {
+        // expected
+      }
+    // Failures are not cached
+    assertEquals (0, aCache.size ());
+  }
+
+  @Test
+  public void testBounded ()
+  {
+    final XPathExpressionCache aCache = new XPathExpressionCache (XPathHelper.createXPathFactorySaxonFirst (),
+                                                                  5,
+                                                                  "XPathExpressionCacheTest.bounded");
+    for (int i = 0; i < 50; ++i)
+      aCache.getXPathExpression ("/root/item[" + (i + 1) + "]");
+    assertEquals (5, aCache.size ());
+  }
+
+  @Test
+  public void testThreadConfined () throws Exception
+  {
+    final XPathExpressionCache aCache = new XPathExpressionCache (XPathHelper.createXPathFactorySaxonFirst (),
+                                                                  10,
+                                                                  "XPathExpressionCacheTest.threads");
+    final XPathExpression aExpr = aCache.getXPathExpression ("count(//*)");
+
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    final Future <XPathExpression> aOther = aES.submit ( () -> {
+      final Document aDoc = DOMReader.readXMLDOM (XML);
+      for (int i = 0; i < 100; ++i)
+        assertEquals (Double.valueOf (4),
+                      XPathExpressionHelper.evalXPathCached (null, null, null, "count(//*)", aDoc, XPathConstants.NUMBER));
+      final XPathExpression ret = aCache.getXPathExpression ("count(//*)");
+      assertSame (ret, aCache.getXPathExpression ("count(//*)"));
+      return ret;
+    });
+    final ICommonsList <Future <?>> aWorkers = new CommonsArrayList <> ();
+    for (int i = 0; i < 8; ++i)
+      aWorkers.add (aES.submit ( () -> {
+        final Document aDoc = DOMReader.readXMLDOM (XML);
+        for (int j = 0; j < 200; ++j)
+          assertEquals (Double.valueOf (4), aCache.getXPathExpression ("count(//*)").evaluate (aDoc, XPathConstants.NUMBER));
+        return null;
+      }));
+    final XPathExpression aOtherExpr = aOther.get ();
+    for (final Future <?> aWorker : aWorkers)
+      aWorker.get ();
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    // Each thread has its own compiled expression
+    assertNotSame (aExpr, aOtherExpr);
+    assertSame (aExpr, aCache.getXPathExpression ("count(//*)"));
+    assertEquals (1, aCache.size ());
+  }
+}